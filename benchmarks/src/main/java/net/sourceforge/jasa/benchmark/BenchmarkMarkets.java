@@ -0,0 +1,42 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * Utility methods for constructing the markets used by the benchmarks.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class BenchmarkMarkets {
+
+	/**
+	 * Create a headless market which is not driven by any agents, so that
+	 * orders can be submitted to its auctioneer directly.
+	 */
+	public static MarketSimulation createMarket() {
+		MarketSimulation market = new MarketSimulation();
+		market.setSimulationController(new SpringSimulationController());
+		market.setPopulation(new Population());
+		return market;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Runs the JASA benchmarks with the GC profiler enabled, so that the
+ * allocation rate per operation is reported alongside the throughput of
+ * each benchmark. Unless specified otherwise on the command line, the
+ * results are written in JSON format to <code>jmh-result.json</code>.
+ * </p>
+ * 
+ * <p>
+ * Any of the standard JMH command-line options can be supplied, for example
+ * to select benchmarks by regular expression or restrict the parameter
+ * space:
+ * </p>
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar OrderBookBenchmark -p depth=1000,100000
+ * </pre>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class BenchmarkRunner {
+
+	public static final String RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws RunnerException,
+			CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(commandLine)
+				.addProfiler(GCProfiler.class);
+		if (!commandLine.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			options.result(RESULT_FILE);
+		}
+		new Runner(options.build()).run();
+	}
+
+}
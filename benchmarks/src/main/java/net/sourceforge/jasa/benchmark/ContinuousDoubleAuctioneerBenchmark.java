@@ -0,0 +1,110 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jasa.market.IllegalOrderException;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmarks {@link ContinuousDoubleAuctioneer#newOrder(Order)}, including
+ * the generation of quotes and the clearing of any resulting trades.
+ * </p>
+ * 
+ * <p>
+ * Orders are drawn in turn from a ring whose size is the depth of the book.
+ * Before an order is resubmitted any unfilled volume is withdrawn and its
+ * quantity restored, so that the book never holds more than the specified
+ * number of orders and no orders are allocated during the measurement.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContinuousDoubleAuctioneerBenchmark {
+
+	@Param({ "FOUR_HEAP", "PRICE_LEVEL" })
+	public OrderBookType bookType;
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int depth;
+
+	@Param({ "UNIFORM", "CLUSTERED", "CROSSING" })
+	public PriceDistribution distribution;
+
+	protected ContinuousDoubleAuctioneer auctioneer;
+
+	protected Order[] orders;
+
+	protected int[] quantities;
+
+	protected int next;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IllegalOrderException {
+		MarketSimulation market = BenchmarkMarkets.createMarket();
+		auctioneer = new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		auctioneer.setOrderBook(bookType.create());
+		market.setAuctioneer(auctioneer);
+		OrderGenerator generator = new OrderGenerator(distribution,
+				market.getSimulationController(), OrderGenerator.DEFAULT_SEED);
+		orders = generator.orders(depth);
+		quantities = new int[depth];
+		for (int i = 0; i < depth; i++) {
+			quantities[i] = orders[i].getQuantity();
+			auctioneer.newOrder(orders[i]);
+		}
+		next = 0;
+	}
+
+	@Benchmark
+	public ContinuousDoubleAuctioneer newOrder() throws IllegalOrderException {
+		Order order = orders[next];
+		auctioneer.removeOrder(order);
+		order.setQuantity(quantities[next]);
+		order.setFilled(false);
+		auctioneer.newOrder(order);
+		next = (next + 1) % depth;
+		return auctioneer;
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ClearingHouseAuctioneer;
+import net.sourceforge.jasa.market.rules.EquilibriumClearingPolicy;
+import net.sourceforge.jasa.market.rules.UniformPricingPolicy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link EquilibriumClearingPolicy#clear()} for a clearing house
+ * with uniform pricing. The book is rebuilt before every invocation, and the
+ * rebuild is not included in the measurement.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EquilibriumClearingBenchmark {
+
+	@Param({ "FOUR_HEAP", "PRICE_LEVEL", "CALL_MARKET" })
+	public OrderBookType bookType;
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int depth;
+
+	@Param({ "UNIFORM", "CLUSTERED", "CROSSING" })
+	public PriceDistribution distribution;
+
+	protected OrderGenerator generator;
+
+	protected ClearingHouseAuctioneer auctioneer;
+
+	protected EquilibriumClearingPolicy clearingPolicy;
+
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		MarketSimulation market = BenchmarkMarkets.createMarket();
+		auctioneer = new ClearingHouseAuctioneer(market);
+		auctioneer.setPricingPolicy(new UniformPricingPolicy(0.5));
+		auctioneer.setOrderBook(bookType.create());
+		clearingPolicy = new EquilibriumClearingPolicy(auctioneer);
+		auctioneer.setClearingPolicy(clearingPolicy);
+		market.setAuctioneer(auctioneer);
+		generator = new OrderGenerator(distribution,
+				market.getSimulationController(), OrderGenerator.DEFAULT_SEED);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		auctioneer.getOrderBook().reset();
+		generator.populate(auctioneer.getOrderBook(), depth);
+	}
+
+	@Benchmark
+	public ClearingHouseAuctioneer clear() {
+		clearingPolicy.clear();
+		return auctioneer;
+	}
+
+}
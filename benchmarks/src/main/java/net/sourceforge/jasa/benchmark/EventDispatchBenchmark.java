@@ -0,0 +1,167 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jasa.event.EndOfDayEvent;
+import net.sourceforge.jasa.event.MarketClosedEvent;
+import net.sourceforge.jasa.event.MarketEvent;
+import net.sourceforge.jasa.event.MarketOpenEvent;
+import net.sourceforge.jasa.event.OrderPlacedEvent;
+import net.sourceforge.jasa.event.TransactionExecutedEvent;
+import net.sourceforge.jasa.event.TypeIndexedSimulationController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Measures the cost of firing a single event as the number of agents
+ * subscribed to the simulation controller grows.
+ * </p>
+ * 
+ * <p>
+ * Each agent is a listener which handles only the market lifecycle events
+ * in the same way as a trading agent.  The agents either subscribe to
+ * every event, or only to the MarketOpenEvent, MarketClosedEvent and
+ * EndOfDayEvent that they handle.  A small fixed number of report
+ * listeners subscribe to every event.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatchBenchmark {
+
+	public static final int REPORTS = 4;
+
+	public enum Controller { SPRING, TYPE_INDEXED }
+
+	public enum Subscription { ALL_EVENTS, MARKET_LIFECYCLE }
+
+	@Param({ "SPRING", "TYPE_INDEXED" })
+	public Controller controllerType;
+
+	@Param({ "ALL_EVENTS", "MARKET_LIFECYCLE" })
+	public Subscription subscription;
+
+	@Param({ "10", "100", "1000", "10000" })
+	public int agents;
+
+	protected SpringSimulationController controller;
+
+	protected OrderPlacedEvent orderPlaced;
+
+	protected TransactionExecutedEvent transactionExecuted;
+
+	protected MarketOpenEvent marketOpen;
+
+	protected CountingListener counter = new CountingListener();
+
+	@Setup
+	public void setUp() {
+		if (controllerType == Controller.SPRING) {
+			controller = new SpringSimulationController();
+		} else {
+			controller = new TypeIndexedSimulationController();
+		}
+		for (int i = 0; i < REPORTS; i++) {
+			controller.addListener(SimEvent.class, counter);
+		}
+		for (int i = 0; i < agents; i++) {
+			EventListener agent = new LifecycleListener();
+			if (subscription == Subscription.ALL_EVENTS) {
+				controller.addListener(SimEvent.class, agent);
+			} else {
+				controller.addListener(MarketOpenEvent.class, agent);
+				controller.addListener(MarketClosedEvent.class, agent);
+				controller.addListener(EndOfDayEvent.class, agent);
+			}
+		}
+		orderPlaced = new OrderPlacedEvent(null, 0, null);
+		transactionExecuted = new TransactionExecutedEvent();
+		marketOpen = new MarketOpenEvent(null, 0);
+	}
+
+	@Benchmark
+	public int fireOrderPlaced() {
+		controller.fireEvent(orderPlaced);
+		return counter.count;
+	}
+
+	@Benchmark
+	public int fireTransactionExecuted() {
+		controller.fireEvent(transactionExecuted);
+		return counter.count;
+	}
+
+	@Benchmark
+	public int fireMarketOpen() {
+		controller.fireEvent(marketOpen);
+		return counter.count;
+	}
+
+	/**
+	 * Dispatches on the type of event in the same way as 
+	 * AbstractTradingAgent.
+	 */
+	public static class LifecycleListener implements EventListener {
+
+		public int opened, closed, endOfDay;
+
+		public void eventOccurred(SimEvent event) {
+			if (event instanceof MarketEvent) {
+				if (event instanceof MarketOpenEvent) {
+					opened++;
+				} else if (event instanceof MarketClosedEvent) {
+					closed++;
+				} else if (event instanceof EndOfDayEvent) {
+					endOfDay++;
+				}
+			}
+		}
+	}
+
+	public static class CountingListener implements EventListener {
+
+		public int count;
+
+		public void eventOccurred(SimEvent event) {
+			count++;
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jasa.market.Fill;
+import net.sourceforge.jasa.market.FillHandler;
+import net.sourceforge.jasa.market.OrderBook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link OrderBook#matchOrders(FillHandler)} on a freshly
+ * populated book. Since matching consumes the crossing volume, the book is
+ * rebuilt before every invocation; the rebuild is not included in the
+ * measurement, although at the smallest depths the per-invocation
+ * bookkeeping of the harness becomes significant.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchOrdersBenchmark {
+
+	@Param({ "FOUR_HEAP", "PRICE_LEVEL", "CALL_MARKET" })
+	public OrderBookType bookType;
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int depth;
+
+	@Param({ "UNIFORM", "CLUSTERED", "CROSSING" })
+	public PriceDistribution distribution;
+
+	protected OrderGenerator generator;
+
+	protected OrderBook book;
+
+	protected int filledVolume;
+
+	protected FillHandler handler = new FillHandler() {
+		public void onFill(Fill fill) {
+			filledVolume += fill.getQuantity();
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setUpTrial() {
+		generator = new OrderGenerator(distribution);
+		book = bookType.create();
+	}
+
+	@Setup(Level.Invocation)
+	public void setUp() {
+		book.reset();
+		generator.populate(book, depth);
+	}
+
+	@Benchmark
+	public int matchOrders() {
+		filledVolume = 0;
+		book.matchOrders(handler);
+		return filledVolume;
+	}
+
+}
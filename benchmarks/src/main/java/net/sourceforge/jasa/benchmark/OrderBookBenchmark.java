@@ -0,0 +1,113 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jasa.market.DuplicateShoutException;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.OrderBook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>
+ * Benchmarks the basic operations of each {@link OrderBook} implementation
+ * against a book holding a fixed number of resting orders.
+ * </p>
+ * 
+ * <p>
+ * The {@link #addRemove()} benchmark adds an order to the book and then
+ * removes it again, so that the depth of the book is unchanged. Since
+ * adding and removing orders can fragment the resting orders which they
+ * cross, the book is rebuilt before each iteration.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+
+	public static final int INCOMING_ORDERS = 1 << 12;
+
+	@Param({ "FOUR_HEAP", "PRICE_LEVEL", "CALL_MARKET" })
+	public OrderBookType bookType;
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int depth;
+
+	@Param({ "UNIFORM", "CLUSTERED", "CROSSING" })
+	public PriceDistribution distribution;
+
+	protected OrderBook book;
+
+	protected Order[] incoming;
+
+	protected int next;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		OrderGenerator generator = new OrderGenerator(distribution);
+		book = bookType.create();
+		generator.populate(book, depth);
+		incoming = generator.orders(INCOMING_ORDERS);
+		next = 0;
+	}
+
+	@Benchmark
+	public OrderBook addRemove() throws DuplicateShoutException {
+		Order order = incoming[next];
+		next = (next + 1) & (INCOMING_ORDERS - 1);
+		book.add(order);
+		book.remove(order);
+		return book;
+	}
+
+	@Benchmark
+	public List<Order> getUnmatchedBids() {
+		return book.getUnmatchedBids();
+	}
+
+	@Benchmark
+	public List<Order> getUnmatchedAsks() {
+		return book.getUnmatchedAsks();
+	}
+
+	@Benchmark
+	public Order getLowestMatchedBid() {
+		return book.getLowestMatchedBid();
+	}
+
+}
@@ -0,0 +1,52 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import net.sourceforge.jasa.market.CallMarketOrderBook;
+import net.sourceforge.jasa.market.FourHeapOrderBook;
+import net.sourceforge.jasa.market.OrderBook;
+import net.sourceforge.jasa.market.PriceLevelOrderBook;
+
+/**
+ * The order book implementations which can be compared by the benchmarks.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public enum OrderBookType {
+
+	FOUR_HEAP {
+		public OrderBook create() {
+			return new FourHeapOrderBook();
+		}
+	},
+
+	PRICE_LEVEL {
+		public OrderBook create() {
+			return new PriceLevelOrderBook();
+		}
+	},
+
+	CALL_MARKET {
+		public OrderBook create() {
+			return new CallMarketOrderBook();
+		}
+	};
+
+	public abstract OrderBook create();
+
+}
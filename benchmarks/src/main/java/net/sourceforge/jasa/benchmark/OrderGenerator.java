@@ -0,0 +1,104 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import net.sourceforge.jabm.EventScheduler;
+import net.sourceforge.jasa.agent.SimpleTradingAgent;
+import net.sourceforge.jasa.agent.TradingAgent;
+import net.sourceforge.jasa.market.DuplicateShoutException;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.OrderBook;
+import cern.jet.random.Normal;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * Generates reproducible streams of random orders for the benchmarks. Orders
+ * are placed on behalf of a fixed pool of agents, and bids and asks are
+ * equally likely.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class OrderGenerator {
+
+	public static final int DEFAULT_SEED = 1234;
+
+	public static final int NUMBER_OF_AGENTS = 1000;
+
+	public static final int MAX_QUANTITY = 10;
+
+	protected RandomEngine prng;
+
+	protected Normal normal;
+
+	protected PriceDistribution distribution;
+
+	protected TradingAgent[] agents;
+
+	protected int nextAgent = 0;
+
+	public OrderGenerator(PriceDistribution distribution,
+			EventScheduler scheduler, int seed) {
+		this.distribution = distribution;
+		this.prng = new MersenneTwister64(seed);
+		this.normal = new Normal(0.0, 1.0, prng);
+		this.agents = new TradingAgent[NUMBER_OF_AGENTS];
+		for (int i = 0; i < agents.length; i++) {
+			agents[i] = new SimpleTradingAgent(scheduler);
+		}
+	}
+
+	public OrderGenerator(PriceDistribution distribution) {
+		this(distribution, null, DEFAULT_SEED);
+	}
+
+	public Order next() {
+		boolean isBid = prng.nextDouble() < 0.5;
+		return next(isBid);
+	}
+
+	public Order next(boolean isBid) {
+		TradingAgent agent = agents[nextAgent];
+		nextAgent = (nextAgent + 1) % agents.length;
+		int quantity = 1 + (int) (prng.nextDouble() * MAX_QUANTITY);
+		double price = distribution.price(prng, normal, isBid);
+		return new Order(agent, quantity, price, isBid);
+	}
+
+	public Order[] orders(int n) {
+		Order[] result = new Order[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = next();
+		}
+		return result;
+	}
+
+	/**
+	 * Add the specified number of new orders to a book.
+	 */
+	public void populate(OrderBook book, int n) {
+		try {
+			for (int i = 0; i < n; i++) {
+				book.add(next());
+			}
+		} catch (DuplicateShoutException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
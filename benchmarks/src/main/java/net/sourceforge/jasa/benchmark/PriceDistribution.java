@@ -0,0 +1,69 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark;
+
+import cern.jet.random.Normal;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * The distributions from which the prices of benchmark orders are drawn.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public enum PriceDistribution {
+
+	/**
+	 * Bids and asks drawn uniformly from the same range, at a resolution of
+	 * one cent, so that there are many distinct price levels and roughly half
+	 * of the volume crosses.
+	 */
+	UNIFORM {
+		public double price(RandomEngine prng, Normal normal, boolean isBid) {
+			return round(prng.nextDouble() * 100.0, 0.01);
+		}
+	},
+
+	/**
+	 * Bids and asks clustered tightly around the same price, at a resolution
+	 * of five cents, so that most orders share a few price levels.
+	 */
+	CLUSTERED {
+		public double price(RandomEngine prng, Normal normal, boolean isBid) {
+			return Math.max(0, round(normal.nextDouble(50.0, 1.0), 0.05));
+		}
+	},
+
+	/**
+	 * Bids drawn from a range lying mostly above that of the asks, so that
+	 * most of the volume in the book is matched.
+	 */
+	CROSSING {
+		public double price(RandomEngine prng, Normal normal, boolean isBid) {
+			double offset = isBid ? 50.0 : 0.0;
+			return round(offset + prng.nextDouble() * 100.0, 0.01);
+		}
+	};
+
+	public abstract double price(RandomEngine prng, Normal normal,
+			boolean isBid);
+
+	protected static double round(double price, double resolution) {
+		return Math.round(price / resolution) * resolution;
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.RoundFinishedEvent;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jasa.event.OrderBatchPlacedEvent;
+import net.sourceforge.jasa.event.OrderPlacedEvent;
+import net.sourceforge.jasa.event.TransactionExecutedEvent;
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * Counts the rounds, orders and transactions which occur in a market.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ActivityCounter implements EventListener {
+
+	protected MarketSimulation market;
+
+	protected long rounds;
+
+	protected long orders;
+
+	protected long transactions;
+
+	public ActivityCounter(MarketSimulation market) {
+		this.market = market;
+	}
+
+	public void eventOccurred(SimEvent event) {
+		if (event instanceof RoundFinishedEvent) {
+			rounds++;
+		} else if (event instanceof OrderPlacedEvent) {
+			orders++;
+		} else if (event instanceof OrderBatchPlacedEvent) {
+			// Batches which also fire individual events are counted above
+			if (!market.isIndividualBatchEvents()) {
+				orders += ((OrderBatchPlacedEvent) event).size();
+			}
+		} else if (event instanceof TransactionExecutedEvent) {
+			transactions++;
+		}
+	}
+
+	public void reset() {
+		rounds = 0;
+		orders = 0;
+		transactions = 0;
+	}
+
+	public long getRounds() {
+		return rounds;
+	}
+
+	public long getOrders() {
+		return orders;
+	}
+
+	public long getTransactions() {
+		return transactions;
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.mixing.RandomArrivalAgentMixer;
+import net.sourceforge.jasa.agent.SimpleTradingAgent;
+import net.sourceforge.jasa.agent.strategy.ForecastTradeDirectionPolicy;
+import net.sourceforge.jasa.agent.strategy.SimpleMarkupStrategy;
+import net.sourceforge.jasa.agent.valuation.ChartistForecaster;
+import net.sourceforge.jasa.agent.valuation.FundamentalistForecaster;
+import net.sourceforge.jasa.agent.valuation.LinearWeightedReturnForecaster;
+import net.sourceforge.jasa.agent.valuation.NoiseTraderForecaster;
+import net.sourceforge.jasa.agent.valuation.ReturnForecastValuationPolicy;
+import net.sourceforge.jasa.agent.valuation.ReturnForecasterWithTimeHorizon;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.TimePriorityPricingPolicy;
+import cern.jet.random.AbstractContinousDistribution;
+import cern.jet.random.Normal;
+import cern.jet.random.Uniform;
+
+/**
+ * The model of a continuous double auction with heterogeneous forecasting
+ * agents described in
+ * 
+ * "A Simulation Analysis of the Microstructure of Double Auction Markets" <br>
+ * Iori and Chiarella <i>Quantitative Finance, Vol. 2. 2002</i>
+ * 
+ * <p>
+ * The configuration mirrors the static population defined in
+ * <code>examples/chiarellaAndIori/model.xml</code>: every agent forecasts
+ * returns using a randomly-weighted combination of fundamentalist, chartist
+ * and noise-trader forecasts, and agents arrive at the market at random.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ChiarellaIoriScenario extends SimulationScenario {
+
+	protected int numberOfAgents = 200;
+
+	protected int maximumRounds = 1000;
+
+	protected double arrivalProbability = 0.5;
+
+	protected double initialPrice = 100;
+
+	protected double fundamentalPrice = 500;
+
+	protected double timeHorizon = 200;
+
+	public ChiarellaIoriScenario() {
+		super("chiarella-iori");
+	}
+
+	@Override
+	protected void configure(MarketSimulation market) {
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new TimePriorityPricingPolicy());
+		market.setAuctioneer(auctioneer);
+		market.setInitialPrice(initialPrice);
+		market.setMaximumRounds(maximumRounds);
+		RandomArrivalAgentMixer mixer = new RandomArrivalAgentMixer(prng);
+		mixer.setArrivalProbability(arrivalProbability);
+		market.setAgentMixer(mixer);
+
+		FundamentalistForecaster fundamentalist = 
+				new FundamentalistForecaster();
+		fundamentalist.setFundamentalPrice(fundamentalPrice);
+		initialiseForecaster(fundamentalist, timeHorizon);
+		NoiseTraderForecaster noiseTrader = new NoiseTraderForecaster(prng);
+		initialiseForecaster(noiseTrader, timeHorizon);
+		Uniform markups = new Uniform(0.0, 0.5, prng);
+		Uniform windowSizes = new Uniform(200.0, 2000.0, prng);
+		Uniform weightStdevs = new Uniform(0.1, 0.3, prng);
+
+		for (int i = 0; i < numberOfAgents; i++) {
+			ChartistForecaster chartist = new ChartistForecaster(windowSizes);
+			initialiseForecaster(chartist, timeHorizon);
+			LinearWeightedReturnForecaster forecaster = 
+					new LinearWeightedReturnForecaster();
+			forecaster.setForecasters(new ReturnForecasterWithTimeHorizon[] {
+					fundamentalist, chartist, noiseTrader });
+			forecaster.setDistributions(new AbstractContinousDistribution[] {
+					new AbsoluteDistribution(new Normal(0.0,
+							weightStdevs.nextDouble(), prng)),
+					new AbsoluteDistribution(new Normal(0.0,
+							weightStdevs.nextDouble(), prng)),
+					new Normal(0.0, weightStdevs.nextDouble(), prng) });
+			initialiseForecaster(forecaster, 7);
+			ReturnForecastValuationPolicy valuationPolicy = 
+					new ReturnForecastValuationPolicy();
+			valuationPolicy.setForecaster(forecaster);
+
+			SimpleTradingAgent agent = new SimpleTradingAgent(controller);
+			SimpleMarkupStrategy strategy = new SimpleMarkupStrategy();
+			strategy.setPrng(prng);
+			strategy.setMarkupDistribution(markups);
+			ForecastTradeDirectionPolicy directionPolicy = 
+					new ForecastTradeDirectionPolicy();
+			directionPolicy.setPrng(prng);
+			strategy.setTradeDirectionPolicy(directionPolicy);
+			strategy.setAgent(agent);
+			agent.setStrategy(strategy);
+			agent.setValuationPolicy(valuationPolicy);
+			market.register(agent);
+		}
+	}
+
+	protected void initialiseForecaster(
+			ReturnForecasterWithTimeHorizon forecaster, double timeHorizon) {
+		forecaster.setTimeHorizon(timeHorizon);
+		try {
+			forecaster.afterPropertiesSet();
+		} catch (Exception e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	public int getNumberOfAgents() {
+		return numberOfAgents;
+	}
+
+	public void setNumberOfAgents(int numberOfAgents) {
+		this.numberOfAgents = numberOfAgents;
+	}
+
+	public int getMaximumRounds() {
+		return maximumRounds;
+	}
+
+	public void setMaximumRounds(int maximumRounds) {
+		this.maximumRounds = maximumRounds;
+	}
+
+	/**
+	 * The absolute value of an underlying distribution, used to draw the
+	 * non-negative fundamentalist and chartist weights.
+	 */
+	public static class AbsoluteDistribution extends
+			AbstractContinousDistribution {
+
+		protected AbstractContinousDistribution underlyingDistribution;
+
+		public AbsoluteDistribution(
+				AbstractContinousDistribution underlyingDistribution) {
+			this.underlyingDistribution = underlyingDistribution;
+		}
+
+		public double nextDouble() {
+			return Math.abs(underlyingDistribution.nextDouble());
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.learning.NPTRothErevLearner;
+import net.sourceforge.jasa.agent.FixedDirectionTradingAgent;
+import net.sourceforge.jasa.agent.strategy.StimuliResponseStrategy;
+import net.sourceforge.jasa.agent.valuation.FixedValuer;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ClearingHouseAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+
+/**
+ * Repeated replications of the computational electricity market described in
+ * 
+ * "Market Power and Efficiency in a Computational Electricity Market with
+ * Discriminatory Double-Auction Pricing" <br>
+ * Nicolaisen, Petrov, and Tesfatsion <i>IEEE Transactions on Evolutionary
+ * Computation, Vol. 5, No. 5. 2001</i>
+ * 
+ * <p>
+ * Sellers and buyers learn their markups using the modified Roth-Erev
+ * algorithm and trade in a clearing house. The market is configured in the
+ * same way as the NPT replication tests.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ElectricityScenario extends SimulationScenario {
+
+	public static final double[] BUYER_VALUES = { 37, 17, 12 };
+
+	public static final double[] SELLER_VALUES = { 35, 16, 11 };
+
+	public static final int K = 40;
+
+	public static final double R = 0.10;
+
+	public static final double E = 0.20;
+
+	public static final double S1 = 9;
+
+	protected int numberOfSellers = 3;
+
+	protected int numberOfBuyers = 3;
+
+	protected int sellerCapacity = 10;
+
+	protected int buyerCapacity = 10;
+
+	protected int maximumRounds = 1000;
+
+	public ElectricityScenario() {
+		super("electricity-npt");
+		replications = 10;
+	}
+
+	@Override
+	protected void configure(MarketSimulation market) {
+		ClearingHouseAuctioneer auctioneer = new ClearingHouseAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setMaximumRounds(maximumRounds);
+		registerTraders(market, true, numberOfSellers, sellerCapacity,
+				SELLER_VALUES);
+		registerTraders(market, false, numberOfBuyers, buyerCapacity,
+				BUYER_VALUES);
+	}
+
+	public void registerTraders(MarketSimulation market, boolean areSellers,
+			int num, int capacity, double[] values) {
+		for (int i = 0; i < num; i++) {
+			FixedDirectionTradingAgent agent = 
+					new FixedDirectionTradingAgent(controller);
+			StimuliResponseStrategy strategy = 
+					new StimuliResponseStrategy(agent);
+			strategy.setQuantity(capacity);
+			strategy.setLearner(new NPTRothErevLearner(K, R, E, S1, prng));
+			agent.setStrategy(strategy);
+			strategy.setAgent(agent);
+			agent.setIsSeller(areSellers);
+			agent.setValuationPolicy(
+					new FixedValuer(values[i % values.length]));
+			agent.initialise();
+			market.register(agent);
+		}
+	}
+
+	public int getMaximumRounds() {
+		return maximumRounds;
+	}
+
+	public void setMaximumRounds(int maximumRounds) {
+		this.maximumRounds = maximumRounds;
+	}
+
+}
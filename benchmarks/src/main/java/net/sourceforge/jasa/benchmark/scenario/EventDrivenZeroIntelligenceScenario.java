@@ -0,0 +1,90 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.agent.PoissonArrivalProcess;
+import net.sourceforge.jasa.market.EventDrivenMarketSimulation;
+import net.sourceforge.jasa.market.MarketSimulation;
+import cern.jet.random.Uniform;
+
+/**
+ * The ZI-C continuous double auction simulated in continuous time by an
+ * {@link EventDrivenMarketSimulation}.  Each agent arrives at the market
+ * according to its own Poisson process, whose rate is drawn uniformly at
+ * random, so that the population trades at heterogeneous frequencies and
+ * agents which have exhausted their trade entitlement are not polled.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class EventDrivenZeroIntelligenceScenario extends
+		ZeroIntelligenceScenario {
+
+	/**
+	 * The minimum mean number of arrivals per round of a single agent.
+	 */
+	protected double minArrivalRate = 0.05;
+
+	/**
+	 * The maximum mean number of arrivals per round of a single agent.
+	 */
+	protected double maxArrivalRate = 1.0;
+
+	public EventDrivenZeroIntelligenceScenario(int numberOfAgents,
+			int maximumDays) {
+		super(numberOfAgents, maximumDays);
+		this.name = "zi-c-event-driven-" + numberOfAgents;
+	}
+
+	public EventDrivenZeroIntelligenceScenario(int numberOfAgents) {
+		this(numberOfAgents, 5);
+	}
+
+	@Override
+	protected MarketSimulation createMarket() {
+		return new EventDrivenMarketSimulation();
+	}
+
+	@Override
+	protected void configure(MarketSimulation market) {
+		super.configure(market);
+		Uniform rates = new Uniform(minArrivalRate, maxArrivalRate, prng);
+		for (Agent agent : market.getTraders().getAgents()) {
+			((AbstractTradingAgent) agent).setArrivalProcess(
+					new PoissonArrivalProcess(rates.nextDouble(), prng));
+		}
+	}
+
+	public double getMinArrivalRate() {
+		return minArrivalRate;
+	}
+
+	public void setMinArrivalRate(double minArrivalRate) {
+		this.minArrivalRate = minArrivalRate;
+	}
+
+	public double getMaxArrivalRate() {
+		return maxArrivalRate;
+	}
+
+	public void setMaxArrivalRate(double maxArrivalRate) {
+		this.maxArrivalRate = maxArrivalRate;
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.learning.WidrowHoffLearner;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.strategy.FixedDirectionStrategy;
+import net.sourceforge.jasa.agent.strategy.GDStrategy;
+import net.sourceforge.jasa.agent.strategy.ZIPStrategy;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import net.sourceforge.jasa.report.HistoricalDataReport;
+import cern.jet.random.Uniform;
+
+/**
+ * A continuous double auction in which half of the agents use the
+ * Gjerstad-Dickhaut (GD) strategy and the other half use the
+ * zero-intelligence-plus (ZIP) strategy. Buyers and sellers are split evenly
+ * between the two strategies.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class GDZIPScenario extends SimulationScenario {
+
+	protected int numberOfAgents = 100;
+
+	protected int lengthOfDay = 50;
+
+	protected int maximumDays = 5;
+
+	protected int tradeEntitlement = 1;
+
+	protected double minValue = 50;
+
+	protected double maxValue = 150;
+
+	protected HistoricalDataReport historyStats;
+
+	public GDZIPScenario() {
+		super("gd-zip-cda");
+	}
+
+	@Override
+	protected void configure(MarketSimulation market) {
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setLengthOfDay(lengthOfDay);
+		market.setMaximumDays(maximumDays);
+		historyStats = new HistoricalDataReport();
+		historyStats.setAuction(market);
+		controller.addListener(historyStats);
+		Uniform values = new Uniform(minValue, maxValue, prng);
+		for (int i = 0; i < numberOfAgents; i++) {
+			TokenTradingAgent agent = new TokenTradingAgent(
+					values.nextDouble(), tradeEntitlement, controller);
+			FixedDirectionStrategy strategy;
+			if (i % 4 < 2) {
+				GDStrategy gd = new GDStrategy();
+				gd.setHistoryStats(historyStats);
+				strategy = gd;
+			} else {
+				ZIPStrategy zip = new ZIPStrategy(prng);
+				zip.setLearner(new WidrowHoffLearner(
+						0.1 + prng.nextDouble() * 0.4, prng));
+				strategy = zip;
+			}
+			strategy.setBuy(i % 2 == 0);
+			strategy.setAgent(agent);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+	}
+
+	public int getNumberOfAgents() {
+		return numberOfAgents;
+	}
+
+	public void setNumberOfAgents(int numberOfAgents) {
+		this.numberOfAgents = numberOfAgents;
+	}
+
+	public int getMaximumDays() {
+		return maximumDays;
+	}
+
+	public void setMaximumDays(int maximumDays) {
+		this.maximumDays = maximumDays;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+/**
+ * The performance of a simulation scenario accumulated over one or more
+ * measured iterations.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ScenarioResult {
+
+	protected String scenario;
+
+	protected int numberOfAgents;
+
+	protected int replications;
+
+	protected int iterations;
+
+	protected long rounds;
+
+	protected long orders;
+
+	protected long transactions;
+
+	protected long elapsedNanos;
+
+	/**
+	 * The total number of bytes allocated by the simulation thread, or -1 if
+	 * allocation cannot be measured on this JVM.
+	 */
+	protected long allocatedBytes;
+
+	/**
+	 * The largest heap occupancy observed in any iteration.
+	 */
+	protected long peakHeapBytes;
+
+	/**
+	 * Create an empty result for a scenario which has already been set up.
+	 */
+	public ScenarioResult(SimulationScenario scenario) {
+		this.scenario = scenario.getName();
+		this.numberOfAgents = scenario.getNumberOfAgents();
+		this.replications = scenario.getReplications();
+	}
+
+	public void addIteration(ActivityCounter counter, long elapsedNanos,
+			long allocatedBytes, long peakHeapBytes) {
+		if (iterations == 0 || this.allocatedBytes < 0 || allocatedBytes < 0) {
+			this.allocatedBytes = allocatedBytes;
+		} else {
+			this.allocatedBytes += allocatedBytes;
+		}
+		iterations++;
+		rounds += counter.getRounds();
+		orders += counter.getOrders();
+		transactions += counter.getTransactions();
+		this.elapsedNanos += elapsedNanos;
+		this.peakHeapBytes = Math.max(this.peakHeapBytes, peakHeapBytes);
+	}
+
+	public double getElapsedSeconds() {
+		return elapsedNanos / 1E9;
+	}
+
+	public double getRoundsPerSecond() {
+		return rounds / getElapsedSeconds();
+	}
+
+	public double getOrdersPerSecond() {
+		return orders / getElapsedSeconds();
+	}
+
+	public double getTransactionsPerSecond() {
+		return transactions / getElapsedSeconds();
+	}
+
+	/**
+	 * Return the mean number of bytes allocated per round, or NaN if
+	 * allocation could not be measured.
+	 */
+	public double getAllocatedBytesPerRound() {
+		if (allocatedBytes < 0 || rounds == 0) {
+			return Double.NaN;
+		}
+		return allocatedBytes / (double) rounds;
+	}
+
+	public String getScenario() {
+		return scenario;
+	}
+
+	public int getNumberOfAgents() {
+		return numberOfAgents;
+	}
+
+	public int getReplications() {
+		return replications;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getRounds() {
+		return rounds;
+	}
+
+	public long getOrders() {
+		return orders;
+	}
+
+	public long getTransactions() {
+		return transactions;
+	}
+
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public long getPeakHeapBytes() {
+		return peakHeapBytes;
+	}
+
+	/**
+	 * Render this result as a JSON object.
+	 */
+	public String toJSON() {
+		return "{\"scenario\": \"" + scenario + "\", "
+				+ "\"agents\": " + numberOfAgents + ", "
+				+ "\"replications\": " + replications + ", "
+				+ "\"iterations\": " + iterations + ", "
+				+ "\"rounds\": " + rounds + ", "
+				+ "\"orders\": " + orders + ", "
+				+ "\"transactions\": " + transactions + ", "
+				+ "\"elapsedSeconds\": " + json(getElapsedSeconds()) + ", "
+				+ "\"roundsPerSecond\": " + json(getRoundsPerSecond()) + ", "
+				+ "\"ordersPerSecond\": " + json(getOrdersPerSecond()) + ", "
+				+ "\"allocatedBytesPerRound\": "
+				+ json(getAllocatedBytesPerRound()) + ", "
+				+ "\"peakHeapBytes\": " + peakHeapBytes + "}";
+	}
+
+	protected static String json(double x) {
+		if (Double.isNaN(x) || Double.isInfinite(x)) {
+			return "null";
+		}
+		return Double.toString(x);
+	}
+
+	public String toString() {
+		return String.format("%-24s %12.1f rounds/s %14.1f orders/s "
+				+ "%14.1f bytes/round %8d MB peak heap", scenario,
+				getRoundsPerSecond(), getOrdersPerSecond(),
+				getAllocatedBytesPerRound(), peakHeapBytes >> 20);
+	}
+
+}
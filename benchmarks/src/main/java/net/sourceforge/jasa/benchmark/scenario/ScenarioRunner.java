@@ -0,0 +1,255 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * <p>
+ * Runs the reference simulation scenarios and reports, for each scenario,
+ * the number of rounds and orders processed per second, the number of bytes
+ * allocated per round and the peak heap occupancy. Results are printed to
+ * the console and written in JSON format so that the performance of the
+ * engine can be tracked across releases.
+ * </p>
+ * 
+ * <p>
+ * Usage: <code>ScenarioRunner [-wi n] [-i n] [-o file] [regexp ...]</code>
+ * where <code>-wi</code> and <code>-i</code> specify the number of warmup
+ * and measured iterations respectively, and only scenarios whose name
+ * matches one of the regular expressions are run.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ScenarioRunner {
+
+	public static final String RESULT_FILE = "scenario-results.json";
+
+	protected int warmupIterations = 1;
+
+	protected int measurementIterations = 3;
+
+	protected List<SimulationScenario> scenarios;
+
+	public ScenarioRunner(List<SimulationScenario> scenarios) {
+		this.scenarios = scenarios;
+	}
+
+	public ScenarioRunner() {
+		this(getReferenceScenarios());
+	}
+
+	public static List<SimulationScenario> getReferenceScenarios() {
+		List<SimulationScenario> result = new ArrayList<SimulationScenario>();
+		result.add(new ZeroIntelligenceScenario(1000));
+		result.add(new ZeroIntelligenceScenario(10000, 1));
+		result.add(new EventDrivenZeroIntelligenceScenario(10000, 1));
+		result.add(new ChiarellaIoriScenario());
+		result.add(new ElectricityScenario());
+		result.add(new GDZIPScenario());
+		return result;
+	}
+
+	public List<ScenarioResult> run() {
+		List<ScenarioResult> results = new ArrayList<ScenarioResult>();
+		for (SimulationScenario scenario : scenarios) {
+			ScenarioResult result = measure(scenario);
+			System.out.println(result);
+			results.add(result);
+		}
+		return results;
+	}
+
+	public ScenarioResult measure(SimulationScenario scenario) {
+		if (measurementIterations < 1) {
+			throw new IllegalArgumentException(
+					"At least one measured iteration is required");
+		}
+		for (int i = 0; i < warmupIterations; i++) {
+			scenario.setUp();
+			scenario.run();
+		}
+		ScenarioResult result = null;
+		for (int i = 0; i < measurementIterations; i++) {
+			scenario.setUp();
+			if (result == null) {
+				result = new ScenarioResult(scenario);
+			}
+			MarketSimulation market = scenario.getMarket();
+			ActivityCounter counter = new ActivityCounter(market);
+			scenario.getSimulationController().addListener(counter);
+			System.gc();
+			resetPeakHeapUsage();
+			long allocatedBefore = getAllocatedBytes();
+			long start = System.nanoTime();
+			scenario.run();
+			long elapsed = System.nanoTime() - start;
+			long allocatedAfter = getAllocatedBytes();
+			long allocated = -1;
+			if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+				allocated = allocatedAfter - allocatedBefore;
+			}
+			result.addIteration(counter, elapsed, allocated,
+					getPeakHeapUsage());
+		}
+		return result;
+	}
+
+	/**
+	 * Return the total number of bytes allocated by the current thread, or -1
+	 * if the JVM does not support allocation measurement.
+	 */
+	public static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocation = 
+					(com.sun.management.ThreadMXBean) threads;
+			if (allocation.isThreadAllocatedMemorySupported()
+					&& allocation.isThreadAllocatedMemoryEnabled()) {
+				return allocation.getThreadAllocatedBytes(Thread
+						.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	public static void resetPeakHeapUsage() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Return the sum of the peak usage of every heap memory pool since the
+	 * peaks were last reset. Since the pools need not peak at the same time,
+	 * this is an upper bound on the peak heap occupancy.
+	 */
+	public static long getPeakHeapUsage() {
+		long result = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				result += pool.getPeakUsage().getUsed();
+			}
+		}
+		return result;
+	}
+
+	public void writeResults(List<ScenarioResult> results, String fileName)
+			throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(fileName));
+		try {
+			out.println("{");
+			out.println("  \"jasaVersion\": \"" + getJasaVersion() + "\",");
+			out.println("  \"javaVersion\": \""
+					+ System.getProperty("java.version") + "\",");
+			out.println("  \"date\": \"" + Instant.now() + "\",");
+			out.println("  \"warmupIterations\": " + warmupIterations + ",");
+			out.println("  \"measurementIterations\": "
+					+ measurementIterations + ",");
+			out.println("  \"results\": [");
+			for (int i = 0; i < results.size(); i++) {
+				out.print("    " + results.get(i).toJSON());
+				out.println(i < results.size() - 1 ? "," : "");
+			}
+			out.println("  ]");
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	public static String getJasaVersion() {
+		String version = MarketSimulation.class.getPackage()
+				.getImplementationVersion();
+		if (version == null) {
+			return "unknown";
+		}
+		return version;
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	public int getMeasurementIterations() {
+		return measurementIterations;
+	}
+
+	public void setMeasurementIterations(int measurementIterations) {
+		this.measurementIterations = measurementIterations;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int warmupIterations = 1;
+		int measurementIterations = 3;
+		String fileName = RESULT_FILE;
+		List<Pattern> filters = new ArrayList<Pattern>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-wi")) {
+				warmupIterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-i")) {
+				measurementIterations = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-o")) {
+				fileName = args[++i];
+			} else {
+				filters.add(Pattern.compile(args[i]));
+			}
+		}
+		List<SimulationScenario> scenarios = new ArrayList<SimulationScenario>();
+		for (SimulationScenario scenario : getReferenceScenarios()) {
+			if (filters.isEmpty() || matches(scenario.getName(), filters)) {
+				scenarios.add(scenario);
+			}
+		}
+		ScenarioRunner runner = new ScenarioRunner(scenarios);
+		runner.setWarmupIterations(warmupIterations);
+		runner.setMeasurementIterations(measurementIterations);
+		List<ScenarioResult> results = runner.run();
+		runner.writeResults(results, fileName);
+		System.out.println("Results written to " + fileName);
+	}
+
+	protected static boolean matches(String name, List<Pattern> filters) {
+		for (Pattern filter : filters) {
+			if (filter.matcher(name).find()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
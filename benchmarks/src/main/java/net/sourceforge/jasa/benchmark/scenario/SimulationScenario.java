@@ -0,0 +1,140 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jasa.market.MarketSimulation;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * <p>
+ * A reference simulation which is used to benchmark the performance of the
+ * simulation engine end-to-end. Each scenario builds a headless
+ * {@link MarketSimulation} programmatically, without any reports or
+ * graphical views, and runs it for a fixed number of rounds.
+ * </p>
+ * 
+ * <p>
+ * The simulation is rebuilt from scratch by {@link #setUp()} using the same
+ * seed, so that every run of a scenario performs exactly the same work.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public abstract class SimulationScenario {
+
+	public static final int DEFAULT_SEED = 1234;
+
+	protected String name;
+
+	protected int seed = DEFAULT_SEED;
+
+	/**
+	 * The number of times the simulation is run by {@link #run()}.
+	 */
+	protected int replications = 1;
+
+	protected RandomEngine prng;
+
+	protected MarketSimulation market;
+
+	protected SpringSimulationController controller;
+
+	public SimulationScenario(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Build a fresh simulation for this scenario.
+	 */
+	public void setUp() {
+		prng = new MersenneTwister64(seed);
+		controller = new SpringSimulationController();
+		market = createMarket();
+		market.setSimulationController(controller);
+		market.setPopulation(new Population());
+		market.setAgentMixer(new RandomRobinAgentMixer(prng));
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		configure(market);
+	}
+
+	/**
+	 * Create the market for this scenario, before it is configured.
+	 */
+	protected MarketSimulation createMarket() {
+		return new MarketSimulation();
+	}
+
+	/**
+	 * Configure the auctioneer, timing conditions and agents of the
+	 * specified market.
+	 */
+	protected abstract void configure(MarketSimulation market);
+
+	/**
+	 * Run every replication of the simulation built by {@link #setUp()}.
+	 */
+	public void run() {
+		for (int i = 0; i < replications; i++) {
+			market.reset();
+			market.run();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+	public int getReplications() {
+		return replications;
+	}
+
+	public void setReplications(int replications) {
+		this.replications = replications;
+	}
+
+	public int getNumberOfAgents() {
+		return market.getNumberOfRegisteredTraders();
+	}
+
+	public MarketSimulation getMarket() {
+		return market;
+	}
+
+	public SpringSimulationController getSimulationController() {
+		return controller;
+	}
+
+	public String toString() {
+		return "(" + getClass() + " name:" + name + " seed:" + seed
+				+ " replications:" + replications + ")";
+	}
+
+}
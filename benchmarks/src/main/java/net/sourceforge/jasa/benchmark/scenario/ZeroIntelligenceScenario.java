@@ -0,0 +1,107 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.benchmark.scenario;
+
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.strategy.RandomConstrainedStrategy;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import cern.jet.random.Uniform;
+
+/**
+ * A continuous double auction populated by budget-constrained
+ * zero-intelligence (ZI-C) traders, as described in
+ * 
+ * "Allocative Efficiency of Markets with Zero-Intelligence Traders: Market as
+ * a Partial Substitute for Individual Rationality" <br>
+ * Gode and Sunder <i>Journal of Political Economy, Vol. 101, No. 1. 1993</i>
+ * 
+ * <p>
+ * Half of the agents are buyers and half are sellers. Private values are
+ * drawn uniformly at random, and each agent is entitled to trade a single
+ * unit per trading day.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class ZeroIntelligenceScenario extends SimulationScenario {
+
+	protected int numberOfAgents;
+
+	protected int lengthOfDay = 20;
+
+	protected int maximumDays;
+
+	protected int tradeEntitlement = 1;
+
+	protected double minValue = 50;
+
+	protected double maxValue = 150;
+
+	protected double maxMarkup = 50;
+
+	public ZeroIntelligenceScenario(int numberOfAgents, int maximumDays) {
+		super("zi-c-cda-" + numberOfAgents);
+		this.numberOfAgents = numberOfAgents;
+		this.maximumDays = maximumDays;
+	}
+
+	public ZeroIntelligenceScenario(int numberOfAgents) {
+		this(numberOfAgents, 5);
+	}
+
+	@Override
+	protected void configure(MarketSimulation market) {
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setLengthOfDay(lengthOfDay);
+		market.setMaximumDays(maximumDays);
+		Uniform values = new Uniform(minValue, maxValue, prng);
+		Uniform markups = new Uniform(0, maxMarkup, prng);
+		for (int i = 0; i < numberOfAgents; i++) {
+			TokenTradingAgent agent = new TokenTradingAgent(
+					values.nextDouble(), tradeEntitlement, controller);
+			RandomConstrainedStrategy strategy = 
+					new RandomConstrainedStrategy(agent);
+			strategy.setBuy(i % 2 == 0);
+			strategy.setMarkupDistribution(markups);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+	}
+
+	public int getLengthOfDay() {
+		return lengthOfDay;
+	}
+
+	public void setLengthOfDay(int lengthOfDay) {
+		this.lengthOfDay = lengthOfDay;
+	}
+
+	public int getMaximumDays() {
+		return maximumDays;
+	}
+
+	public void setMaximumDays(int maximumDays) {
+		this.maximumDays = maximumDays;
+	}
+
+}
@@ -16,7 +16,7 @@ package net.sourceforge.jasa.agent;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import net.sourceforge.jabm.EventScheduler;
@@ -116,12 +116,33 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 	 */
 	protected Order currentOrder;
 
+	/**
+	 * If true, revisions to the current order are made in place using
+	 * {@link Market#amendOrder(Order, double, int)} rather than by cancelling
+	 * the order and placing a new one.  Note that reports which retain
+	 * references to placed orders, such as the historical data report used by
+	 * the GD strategy, will observe the amended price and quantity.
+	 */
+	protected boolean amendOrders = false;
+
+	/**
+	 * A scratch order which is passed to the strategy when revising the
+	 * current order, so that placed orders are not modified by the strategy.
+	 */
+	protected Order revisedOrder = new Order();
+
 	/**
 	 * The grouping that this agent belongs to.
 	 */
 	protected AgentGroup group = null;
 	
-	protected Set<Market> markets = new HashSet<Market>();
+	protected Set<Market> markets = new LinkedHashSet<Market>();
+
+	/**
+	 * Determines when this agent next arrives at markets that are simulated
+	 * in continuous time.  If null, the market's default is used.
+	 */
+	protected ArrivalProcess arrivalProcess = null;
 
 	static Logger logger = Logger.getLogger(AbstractTradingAgent.class);
 	
@@ -171,21 +192,11 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 	 */
 	public void onAgentArrival(Market market, AgentArrivalEvent event) {
 		try {
-			if (currentOrder != null) {
-				// Currently JASA does not provide an API call for order
-				//  revision, so we implement this by cancelling the previous
-				//  order and placing a new revised order.
-				market.removeOrder(currentOrder);
+			if (amendOrders && currentOrder != null) {
+				reviseOrder(market);
+			} else {
+				replaceOrder(market);
 			}
-			Order newOrder = 
-				getTradingStrategy().modifyOrder(currentOrder, market);
-			lastPayoff = 0;
-			lastOrderFilled = false;
-			if (active() && newOrder != null) {
-				if (logger.isDebugEnabled()) logger.debug(newOrder);
-				market.placeOrder(newOrder);
-			}
-			currentOrder = newOrder;
 			super.onAgentArrival(event);
 		} catch (AuctionClosedException e) {
 			logger.debug("requestShout(): Received AuctionClosedException");
@@ -199,10 +210,67 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 		}
 	}
 
+
+	/**
+	 * Revise the current order by cancelling it and placing a new order
+	 * as determined by the agent's strategy.  The strategy is passed a copy
+	 * of the current order, so that orders which have already been placed,
+	 * and which may be retained by reports, are never modified.
+	 */
+	protected void replaceOrder(Market market) throws AuctionException {
+		Order previousOrder = null;
+		if (currentOrder != null) {
+			market.removeOrder(currentOrder);
+			revisedOrder.copyFrom(currentOrder);
+			previousOrder = revisedOrder;
+		}
+		Order newOrder = 
+			getTradingStrategy().modifyOrder(previousOrder, market);
+		lastPayoff = 0;
+		lastOrderFilled = false;
+		if (active() && newOrder != null) {
+			if (logger.isDebugEnabled()) logger.debug(newOrder);
+			market.placeOrder(newOrder);
+		}
+		currentOrder = newOrder;
+	}
+
+	/**
+	 * Revise the current order in place if it is still resting in the
+	 * market, falling back on {@link #replaceOrder(Market)} semantics
+	 * otherwise.
+	 */
+	protected void reviseOrder(Market market) throws AuctionException {
+		revisedOrder.copyFrom(currentOrder);
+		Order newOrder = 
+			getTradingStrategy().modifyOrder(revisedOrder, market);
+		lastPayoff = 0;
+		lastOrderFilled = false;
+		if (active() && newOrder != null
+				&& newOrder.isBid() == currentOrder.isBid()
+				&& market.amendOrder(currentOrder, newOrder.getPriceAsDouble(),
+						newOrder.getQuantity())) {
+			if (logger.isDebugEnabled()) logger.debug(currentOrder);
+			return;
+		}
+		market.removeOrder(currentOrder);
+		if (active() && newOrder != null) {
+			if (logger.isDebugEnabled()) logger.debug(newOrder);
+			market.placeOrder(newOrder);
+		}
+		currentOrder = newOrder;
+	}
 	
+	/**
+	 * Subscribe to the market events handled by this agent.  Order and
+	 * transaction events are only delivered to the valuation policy and
+	 * strategy, which subscribe to the events that they need.
+	 */
 	@Override
 	public void subscribeToEvents() {
-		scheduler.addListener(SimEvent.class, this);
+		scheduler.addListener(MarketOpenEvent.class, this);
+		scheduler.addListener(MarketClosedEvent.class, this);
+		scheduler.addListener(EndOfDayEvent.class, this);
 		if (valuer != null) {
 			valuer.subscribeToEvents(scheduler);
 		}
@@ -336,6 +404,7 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 		try {
 			copy = (AbstractTradingAgent) clone();
 			copy.strategy = (TradingStrategy) ((Prototypeable) strategy).protoClone();
+			copy.revisedOrder = new Order();
 			copy.reset();
 		} catch (CloneNotSupportedException e) {
 		}
@@ -377,6 +446,14 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 		this.utilityFunction = utilityFunction;
 	}
 
+	public boolean isAmendOrders() {
+		return amendOrders;
+	}
+
+	public void setAmendOrders(boolean amendOrders) {
+		this.amendOrders = amendOrders;
+	}
+
 	public AgentGroup getGroup() {
 		return group;
 	}
@@ -394,11 +471,11 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 	}
 
 	public void setMarkets(Collection<Market> markets) {
-		this.markets = new HashSet<Market>(markets);
+		this.markets = new LinkedHashSet<Market>(markets);
 	}
 	
 	public void setMarket(Market market) {
-		markets = new HashSet<Market>();
+		markets = new LinkedHashSet<Market>();
 		markets.add(market);
 	}
 	
@@ -407,7 +484,7 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 	}
 	
 	public boolean register(Market market) {
-		markets = new HashSet<Market>();
+		markets = new LinkedHashSet<Market>();
 		return markets.add(market);
 	}
 	
@@ -490,6 +567,14 @@ public abstract class AbstractTradingAgent extends AbstractAgent implements
 	 */
 	public abstract boolean active();
 
+	public ArrivalProcess getArrivalProcess() {
+		return arrivalProcess;
+	}
+
+	public void setArrivalProcess(ArrivalProcess arrivalProcess) {
+		this.arrivalProcess = arrivalProcess;
+	}
+
     public ProfitFunction getProfitFunction() {
         return profitFunction;
     }
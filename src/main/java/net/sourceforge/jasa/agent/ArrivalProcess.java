@@ -0,0 +1,35 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.agent;
+
+/**
+ * Determines when a trading agent next arrives at a market which is
+ * simulated in continuous time.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public interface ArrivalProcess {
+
+	/**
+	 * @param currentTime The current simulation time, in rounds.
+	 * @return The time of the next arrival, which must not be earlier than 
+	 *         the current time, or Double.POSITIVE_INFINITY if there are no 
+	 *         further arrivals.
+	 */
+	public double nextArrivalTime(double currentTime);
+
+}
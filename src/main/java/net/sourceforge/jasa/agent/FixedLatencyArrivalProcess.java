@@ -0,0 +1,51 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.agent;
+
+import java.io.Serializable;
+
+/**
+ * An arrival process in which arrivals occur at a fixed interval, for 
+ * example the latency of an algorithmic trader that reacts to the market
+ * as quickly as it can.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class FixedLatencyArrivalProcess implements ArrivalProcess, Serializable {
+
+	/**
+	 * The time between arrivals, in rounds.
+	 */
+	protected double latency;
+
+	public FixedLatencyArrivalProcess(double latency) {
+		this.latency = latency;
+	}
+
+	public double nextArrivalTime(double currentTime) {
+		return currentTime + latency;
+	}
+
+	public double getLatency() {
+		return latency;
+	}
+
+	public void setLatency(double latency) {
+		this.latency = latency;
+	}
+
+}
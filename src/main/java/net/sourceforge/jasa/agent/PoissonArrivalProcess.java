@@ -0,0 +1,58 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.agent;
+
+import java.io.Serializable;
+
+import cern.jet.random.Exponential;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * An arrival process in which arrivals occur independently at a constant
+ * average rate, so that the time between arrivals is exponentially 
+ * distributed.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class PoissonArrivalProcess implements ArrivalProcess, Serializable {
+
+	/**
+	 * The mean number of arrivals per round.
+	 */
+	protected double rate;
+
+	protected Exponential interArrivalTime;
+
+	public PoissonArrivalProcess(double rate, RandomEngine prng) {
+		this.rate = rate;
+		this.interArrivalTime = new Exponential(rate, prng);
+	}
+
+	public double nextArrivalTime(double currentTime) {
+		return currentTime + interArrivalTime.nextDouble();
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+		interArrivalTime.setState(rate);
+	}
+
+}
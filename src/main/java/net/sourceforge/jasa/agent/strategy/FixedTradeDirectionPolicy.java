@@ -1,5 +1,7 @@
 package net.sourceforge.jasa.agent.strategy;
 
+import java.io.Serializable;
+
 import net.sourceforge.jasa.agent.TradingAgent;
 import net.sourceforge.jasa.market.Market;
 
@@ -10,7 +12,8 @@ import net.sourceforge.jasa.market.Market;
  * @author Steve Phelps
  *
  */
-public class FixedTradeDirectionPolicy implements TradeDirectionPolicy {
+public class FixedTradeDirectionPolicy implements TradeDirectionPolicy,
+		Serializable {
 
 	protected boolean isBuy;
 	
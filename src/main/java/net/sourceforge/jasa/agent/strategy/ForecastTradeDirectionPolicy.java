@@ -1,5 +1,7 @@
 package net.sourceforge.jasa.agent.strategy;
 
+import java.io.Serializable;
+
 import org.springframework.beans.factory.annotation.Required;
 
 import net.sourceforge.jasa.agent.TradingAgent;
@@ -14,7 +16,8 @@ import cern.jet.random.engine.RandomEngine;
  * @author Steve Phelps
  *
  */
-public class ForecastTradeDirectionPolicy implements TradeDirectionPolicy {
+public class ForecastTradeDirectionPolicy implements TradeDirectionPolicy,
+		Serializable {
 
 	protected RandomEngine prng;
 	
@@ -16,7 +16,6 @@
 package net.sourceforge.jasa.agent.strategy;
 
 import java.io.Serializable;
-import java.util.Iterator;
 
 import net.sourceforge.jabm.EventScheduler;
 import net.sourceforge.jabm.util.Prototypeable;
@@ -25,6 +24,7 @@ import net.sourceforge.jasa.event.MarketEvent;
 import net.sourceforge.jasa.event.MarketOpenEvent;
 import net.sourceforge.jasa.market.Market;
 import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.report.BeliefCurve;
 import net.sourceforge.jasa.report.HistoricalDataReport;
 
 import org.apache.log4j.Logger;
@@ -74,6 +74,13 @@ public class GDLStrategy extends FixedDirectionStrategy implements
 
 	protected double max = 0;
 
+	/**
+	 * If true, the expected surplus is maximised by solving for its
+	 * stationary points on each segment of the belief curve rather than by
+	 * searching the curve in unit price steps.
+	 */
+	protected boolean analyticMaximisation = false;
+
 	protected HistoricalDataReport historicalDataReport;
 
 	public static final String P_DEF_BASE = "gdlstrategy";
@@ -120,45 +127,15 @@ public class GDLStrategy extends FixedDirectionStrategy implements
 
 		super.modifyShout(shout);
 
-		@SuppressWarnings("rawtypes")
-		Iterator sortedShouts = 
-			historicalDataReport.sortedShoutIterator();
-
-		double lastPoint = 0;
-		double lastP = 0;
-		double currentPoint = 0;
-		double currentP = 0;
-		maxPoint = 0;
-		max = 0;
-		
-		// from 0 to MAX_PRICE
-		// probability of seller's offer is 1 at 0 and 0 at MAX_PRICE
-		// probability of buyer's offer is 0 at 0 and 1 at MAX_PRICE
-
-		if (!getAgent().isBuyer()) {
-			lastP = 1;
-			currentP = 1;
-		}
-
-		while (sortedShouts.hasNext()) {
-			Order nextShout = (Order) sortedShouts.next();
-			if (nextShout.getPriceAsDouble() > lastPoint) {
-				currentPoint = nextShout.getPriceAsDouble();
-				currentP = calculateProbability(currentPoint);
-				// find the point in (lastPoint, currentPoint] maximizing
-				// probability
-				getMax(lastPoint, lastP, currentPoint, currentP);
-				lastPoint = currentPoint;
-				lastP = currentP;
-			}
-		}
-
-		currentPoint = MAX_PRICE;
-		currentP = 1;
-		if (!getAgent().isBuyer()) {
-			currentP = 0;
+		BeliefCurve curve = historicalDataReport.getBeliefCurve(
+				BeliefCurve.LINEAR, getAgent().isBuyer(), MAX_PRICE);
+		double valuation = getAgent().getValuation(auction);
+		if (analyticMaximisation) {
+			maxPoint = curve.getAnalyticOptimalPrice(valuation);
+		} else {
+			maxPoint = curve.getOptimalPrice(valuation);
 		}
-		getMax(lastPoint, lastP, currentPoint, currentP);
+		max = maxPoint > 0 ? curve.getExpectedSurplus(maxPoint, valuation) : 0;
 
 		// set quote
 		if (maxPoint > 0) {
@@ -167,118 +144,12 @@ public class GDLStrategy extends FixedDirectionStrategy implements
 		} else {
 			return false;
 		}
-
 	}
 	
 	public TokenTradingAgent getAgent() {
 		return (TokenTradingAgent) agent;
 	}
 
-	private double calculateProbability(double price) {
-		// (taken bids below price) + (all asks below price)
-		// -------------------------------------------------------------------------------
-		// (taken bids below price) + (all asks below price) + (rejected bids
-		// above
-		// price)
-		if (getAgent().isBuyer()) {
-			// return ((double) (historicalDataReport.getNumberOfBids(-1 * price, true)
-			// + historicalDataReport
-			// .getNumberOfAsks(-1 * price, false)))
-			// / ((double) (historicalDataReport.getNumberOfBids(-1 * price, true)
-			// + historicalDataReport.getNumberOfAsks(-1 * price, false) + (historicalDataReport
-			// .getNumberOfBids(price, false) - historicalDataReport.getNumberOfBids(
-			// price, true))));
-			return ((double) (historicalDataReport.getIncreasingQueryAccelerator()
-			    .getNumOfAcceptedBidsBelow(price) + historicalDataReport
-			    .getIncreasingQueryAccelerator().getNumOfAsksBelow(price)))
-			    / ((double) (historicalDataReport.getIncreasingQueryAccelerator()
-			        .getNumOfAcceptedBidsBelow(price)
-			        + historicalDataReport.getIncreasingQueryAccelerator().getNumOfAsksBelow(
-			            price) + historicalDataReport.getIncreasingQueryAccelerator()
-			        .getNumOfRejectedBidsAbove(price)));
-
-		} else {
-			// (taken asks above price) + (all bids above price)
-			// -------------------------------------------------------------------------------
-			// (taken asks above price) + (all bids above price) + (rejected
-			// asks
-			// below price)
-			// return ((double) (historicalDataReport.getNumberOfAsks(price, true) +
-			// historicalDataReport
-			// .getNumberOfBids(price, false)))
-			// / ((double) (historicalDataReport.getNumberOfAsks(price, true)
-			// + historicalDataReport.getNumberOfBids(price, false) + (historicalDataReport
-			// .getNumberOfAsks(-1 * price, false) -
-			// historicalDataReport.getNumberOfAsks(-1
-			// * price, true))));
-			return ((double) (historicalDataReport.getIncreasingQueryAccelerator()
-			    .getNumOfAcceptedAsksAbove(price) + historicalDataReport
-			    .getIncreasingQueryAccelerator().getNumOfBidsAbove(price)))
-			    / ((double) (historicalDataReport.getIncreasingQueryAccelerator()
-			        .getNumOfAcceptedAsksAbove(price)
-			        + historicalDataReport.getIncreasingQueryAccelerator().getNumOfBidsAbove(
-			            price) + historicalDataReport.getIncreasingQueryAccelerator()
-			        .getNumOfRejectedAsksBelow(price)));
-		}
-	}
-
-	/**
-	 * looks for the point in [a1, a2] producing max expected profit. It simply
-	 * checks every point in the range.
-	 * 
-	 * @param a1
-	 * @param p1
-	 * @param a2
-	 * @param p2
-	 */
-	private void getMax(double a1, double p1, double a2, double p2) {
-
-		if (a1 > MAX_PRICE) {
-			a1 = MAX_PRICE;
-		}
-
-		if (a2 > MAX_PRICE) {
-			a2 = MAX_PRICE;
-		}
-
-		if (p1 < 0 || p1 > 1 || p2 < 0 || p2 > 1) {
-			System.out.println("p1 = " + p1);
-			System.out.println("p2 = " + p2);
-			assert p1 >= 0 && p1 <= (1 + 10E-6) && p2 >= 0 && p2 <= (1 + 10E-6);
-		}
-
-		double pvalue = getAgent().getValuation(auction);
-
-		double temp = 0;
-
-		double p = 0;
-
-		double start = a1;
-		double end = a2;
-		if (getAgent().isBuyer()) {
-			if (a2 > pvalue) {
-				end = pvalue;
-			}
-		} else {
-			if (a1 < pvalue) {
-				start = pvalue;
-			}
-		}
-
-		for (double i = start; i < end; i++) {
-			p = p1 + ((p2 - p1) * ((i - a1) / (a2 - a1)));
-			if (getAgent().isBuyer()) {
-				temp = p * (pvalue - i);
-			} else {
-				temp = p * (i - pvalue);
-			}
-			if (temp > max) {
-				max = temp;
-				maxPoint = i;
-			}
-		}
-	}
-
 	public void onRoundClosed(Market auction) {
 		// Do nothing
 	}
@@ -291,4 +162,12 @@ public class GDLStrategy extends FixedDirectionStrategy implements
 		this.historicalDataReport = historicalDataReport;
 	}
 
+	public boolean isAnalyticMaximisation() {
+		return analyticMaximisation;
+	}
+
+	public void setAnalyticMaximisation(boolean analyticMaximisation) {
+		this.analyticMaximisation = analyticMaximisation;
+	}
+
 }
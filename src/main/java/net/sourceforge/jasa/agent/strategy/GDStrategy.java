@@ -16,7 +16,6 @@
 package net.sourceforge.jasa.agent.strategy;
 
 import java.io.Serializable;
-import java.util.Iterator;
 
 import net.sourceforge.jabm.EventScheduler;
 import net.sourceforge.jabm.event.SimEvent;
@@ -26,6 +25,7 @@ import net.sourceforge.jasa.event.MarketOpenEvent;
 import net.sourceforge.jasa.market.AuctionRuntimeException;
 import net.sourceforge.jasa.market.Market;
 import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.report.BeliefCurve;
 import net.sourceforge.jasa.report.HistoricalDataReport;
 
 import org.apache.log4j.Logger;
@@ -57,6 +57,13 @@ public class GDStrategy extends FixedDirectionStrategy implements
 
 	protected double max = 0;
 
+	/**
+	 * If true, the expected surplus is maximised by solving for its
+	 * stationary points on each segment of the belief curve rather than by
+	 * searching the curve in unit price steps.
+	 */
+	protected boolean analyticMaximisation = false;
+
 	protected HistoricalDataReport historyStats;
 
 	public static double MAX_PRICE = 200;
@@ -99,42 +106,19 @@ public class GDStrategy extends FixedDirectionStrategy implements
 		return (TokenTradingAgent) super.getAgent();
 	}
 
-	@SuppressWarnings("rawtypes")
 	public boolean modifyShout(Order shout) {
 
 		super.modifyShout(shout);
 
-		Iterator sortedShouts = historyStats.sortedShoutIterator();
-
-		double lastPoint = 0;
-		double lastP = 0;
-		double currentPoint = 0;
-		double currentP = 0;
-		maxPoint = 0;
-		max = 0;
-
-		if (!getAgent().isBuyer()) {
-			lastP = 1;
-			currentP = 1;
-		}
-
-		while (sortedShouts.hasNext()) {
-			Order nextShout = (Order) sortedShouts.next();
-			if (nextShout.getPriceAsDouble() > lastPoint) {
-				currentPoint = nextShout.getPriceAsDouble();
-				currentP = calculateProbability(currentPoint);
-				getMax(lastPoint, lastP, currentPoint, currentP);
-				lastPoint = currentPoint;
-				lastP = currentP;
-			}
-		}
-
-		currentPoint = MAX_PRICE;
-		currentP = 1;
-		if (!getAgent().isBuyer()) {
-			currentP = 0;
+		BeliefCurve curve = historyStats.getBeliefCurve(
+				BeliefCurve.CUBIC, isBuy(), MAX_PRICE);
+		double valuation = getAgent().getValuation(auction);
+		if (analyticMaximisation) {
+			maxPoint = curve.getAnalyticOptimalPrice(valuation);
+		} else {
+			maxPoint = curve.getOptimalPrice(valuation);
 		}
-		getMax(lastPoint, lastP, currentPoint, currentP);
+		max = maxPoint > 0 ? curve.getExpectedSurplus(maxPoint, valuation) : 0;
 
 		// set quote
 		if (maxPoint > 0) {
@@ -145,128 +129,13 @@ public class GDStrategy extends FixedDirectionStrategy implements
 		}
 	}
 
+	/**
+	 * The probability that a shout at the given price will be accepted,
+	 * estimated from the shouts in the history.
+	 */
 	public double calculateProbability(double price) {
-		// (taken bids below price) + (all asks below price)
-		// -------------------------------------------------------------------------------
-		// (taken bids below price) + (all asks below price) + (rejected bids
-		// above
-		// price)
-		if (isBuy()) {
-			// return ((double) (historicalDataReport.getNumberOfBids(-1 * price, true)
-			// + historicalDataReport
-			// .getNumberOfAsks(-1 * price, false)))
-			// / ((double) (historicalDataReport.getNumberOfBids(-1 * price, true)
-			// + historicalDataReport.getNumberOfAsks(-1 * price, false) + (historicalDataReport
-			// .getNumberOfBids(price, false) - historicalDataReport.getNumberOfBids(
-			// price, true))));
-			return ((double) (historyStats.getIncreasingQueryAccelerator()
-			    .getNumOfAcceptedBidsBelow(price) + historyStats
-			    .getIncreasingQueryAccelerator().getNumOfAsksBelow(price)))
-			    / ((double) (historyStats.getIncreasingQueryAccelerator()
-			        .getNumOfAcceptedBidsBelow(price)
-			        + historyStats.getIncreasingQueryAccelerator().getNumOfAsksBelow(
-			            price) + historyStats.getIncreasingQueryAccelerator()
-			        .getNumOfRejectedBidsAbove(price)));
-
-		} else {
-			// (taken asks above price) + (all bids above price)
-			// -------------------------------------------------------------------------------
-			// (taken asks above price) + (all bids above price) + (rejected
-			// asks
-			// below price)
-			// return ((double) (historicalDataReport.getNumberOfAsks(price, true) +
-			// historicalDataReport
-			// .getNumberOfBids(price, false)))
-			// / ((double) (historicalDataReport.getNumberOfAsks(price, true)
-			// + historicalDataReport.getNumberOfBids(price, false) + (historicalDataReport
-			// .getNumberOfAsks(-1 * price, false) -
-			// historicalDataReport.getNumberOfAsks(-1
-			// * price, true))));
-			return ((double) (historyStats.getIncreasingQueryAccelerator()
-			    .getNumOfAcceptedAsksAbove(price) + historyStats
-			    .getIncreasingQueryAccelerator().getNumOfBidsAbove(price)))
-			    / ((double) (historyStats.getIncreasingQueryAccelerator()
-			        .getNumOfAcceptedAsksAbove(price)
-			        + historyStats.getIncreasingQueryAccelerator().getNumOfBidsAbove(
-			            price) + historyStats.getIncreasingQueryAccelerator()
-			        .getNumOfRejectedAsksBelow(price)));
-		}
-	}
-
-	private void getMax(double a1, double p1, double a2, double p2) {
-
-		if (a1 > MAX_PRICE) {
-			a1 = MAX_PRICE;
-		}
-
-		if (a2 > MAX_PRICE) {
-			a2 = MAX_PRICE;
-		}
-
-		assert p1 >= 0 && p1 <= (1 + 10E-6) && p2 >= 0 && p2 <= (1 + 10E-6);
-
-		double pvalue = getAgent().getValuation(auction);
-
-		// double denom = (-6 * a1 * a1 * a2 * a2) + (4 * a1 * a1 * a1 * a2)
-		// + (4 * a1 * a2 * a2 * a2) + (-1 * a1 * a1 * a1 * a1)
-		// + (-1 * a2 * a2 * a2 * a2);
-		// double alpha3 = (2 * ((a1 * (p1 - p2)) + (a2 * (p2 - p1)))) / denom;
-		// double alpha2 = (3 * ((a1 * a1 * (p2 - p1)) + (a2 * a2 * (p1 - p2))))
-		// / denom;
-		// double alpha1 = (6 * (p1 - p2) * ((a1 * a1 * a2) - (a1 * a2 * a2))) /
-		// denom;
-		// double alpha0 = ((p1 * ((4 * a1 * a2 * a2 * a2) + (-3 * a1 * a1 * a2
-		// * a2) + (-1
-		// * a2 * a2 * a2 * a2))) + (p2 * ((4 * a1 * a1 * a1 * a2)
-		// + (-3 * a1 * a1 * a2 * a2) + (-1 * a1 * a1 * a1 * a1))))
-		// / denom;
-		double a11 = a1 * a1;
-		double a1111 = a11 * a11;
-		double a22 = a2 * a2;
-		double a2222 = a22 * a22;
-		double a1122 = a11 * a22;
-		double a12 = a1 * a2;
-		double a1112 = a11 * a12;
-		double a1222 = a12 * a22;
-		double p12 = p1 - p2;
-
-		double denom = (-6 * a1122) + 4 * (a1112 + a1222) - a1111 - a2222;
-		double alpha3 = (2 * ((a1 - a2) * p12)) / denom;
-		double alpha2 = (3 * (a22 - a11) * p12) / denom;
-		double alpha1 = (6 * p12 * (a12 * (a1 - a2))) / denom;
-		double alpha0 = ((p1 * ((4 * a1222) - 3 * a1122 - a2222)) + (p2 * ((4 * a1112)
-		    - 3 * a1122 - a1111)))
-		    / denom;
-		//
-		//    
-		double temp = 0;
-
-		double p = 0;
-
-		double start = a1;
-		double end = a2;
-		if (isBuy()) {
-			if (a2 > pvalue) {
-				end = pvalue;
-			}
-		} else {
-			if (a1 < pvalue) {
-				start = pvalue;
-			}
-		}
-
-		for (double i = start; i < end; i++) {
-			p = (alpha3 * i * i * i) + (alpha2 * i * i) + (alpha1 * i) + alpha0;
-			if (isBuy()) {
-				temp = p * (pvalue - i);
-			} else {
-				temp = p * (i - pvalue);
-			}
-			if (temp > max) {
-				max = temp;
-				maxPoint = i;
-			}
-		}
+		return BeliefCurve.calculateProbability(
+				historyStats.getIncreasingQueryAccelerator(), price, isBuy());
 	}
 
 	public void onRoundClosed(Market auction) {
@@ -280,6 +149,13 @@ public class GDStrategy extends FixedDirectionStrategy implements
 	public void setHistoryStats(HistoricalDataReport historyStats) {
 		this.historyStats = historyStats;
 	}
-	
 
-}
\ No newline at end of file
+	public boolean isAnalyticMaximisation() {
+		return analyticMaximisation;
+	}
+
+	public void setAnalyticMaximisation(boolean analyticMaximisation) {
+		this.analyticMaximisation = analyticMaximisation;
+	}
+
+}
@@ -1,5 +1,7 @@
 package net.sourceforge.jasa.agent.strategy;
 
+import java.io.Serializable;
+
 import net.sourceforge.jasa.agent.TradingAgent;
 import net.sourceforge.jasa.market.Market;
 
@@ -11,7 +13,8 @@ import net.sourceforge.jasa.market.Market;
  * @author Steve Phelps
  *
  */
-public class MaxInventoryTradeDirectionPolicy implements TradeDirectionPolicy {
+public class MaxInventoryTradeDirectionPolicy implements TradeDirectionPolicy,
+		Serializable {
 
 	protected int maxInventory = 1;
 	
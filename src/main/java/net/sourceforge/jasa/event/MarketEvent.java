@@ -19,7 +19,16 @@ import net.sourceforge.jabm.event.SimEvent;
 import net.sourceforge.jasa.market.Market;
 
 /**
+ * <p>
  * Superclass for all types of market event.
+ * </p>
+ * 
+ * <p>
+ * The physical (wall-clock) time of an event is only recorded when it is
+ * fired if the market is configured to do so.  Otherwise it is taken the
+ * first time that it is requested, which for a listener that is notified
+ * synchronously is the time at which the event was fired.
+ * </p>
  * 
  * @author Steve Phelps
  * @version $Revision$
@@ -38,15 +47,26 @@ public abstract class MarketEvent extends SimEvent {
 	protected int time;
 
 	/**
-	 * The physical time at which this event occurred.
+	 * The physical time at which this event occurred, or 
+	 * UNKNOWN_PHYSICAL_TIME if it has not yet been recorded.
 	 */
+	protected long pTime = UNKNOWN_PHYSICAL_TIME;
 
-	protected long pTime;
+	public static final long UNKNOWN_PHYSICAL_TIME = Long.MIN_VALUE;
 
 	public MarketEvent(Market auction, int time) {
 		this.auction = auction;
 		this.time = time;
-		this.pTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Reinitialise this event so that it can be fired again.  Markets which
+	 * reuse events do so only when the event is no longer being dispatched.
+	 */
+	protected void initialise(Market auction, int time) {
+		this.auction = auction;
+		this.time = time;
+		this.pTime = UNKNOWN_PHYSICAL_TIME;
 	}
 
 	/**
@@ -57,15 +77,22 @@ public abstract class MarketEvent extends SimEvent {
 	}
 
 	public long getPhysicalTime() {
+		if (pTime == UNKNOWN_PHYSICAL_TIME) {
+			pTime = System.currentTimeMillis();
+		}
 		return pTime;
 	}
 
+	public void setPhysicalTime(long pTime) {
+		this.pTime = pTime;
+	}
+
 	public int getTime() {
 		return time;
 	}
 	
 	public String toString() {
-		return "(" + getClass() + " auction:" + auction + " time:" + time + " pTime:" + pTime + ")";
+		return "(" + getClass() + " auction:" + auction + " time:" + time + " pTime:" + getPhysicalTime() + ")";
 	}
 
 }
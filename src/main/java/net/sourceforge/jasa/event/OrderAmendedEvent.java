@@ -0,0 +1,73 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.event;
+
+import net.sourceforge.jasa.market.Market;
+import net.sourceforge.jasa.market.Order;
+
+/**
+ * An event that is fired every time an order resting in a market is amended
+ * in place. The order carries its revised price and quantity; the previous
+ * values are recorded in the event.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class OrderAmendedEvent extends MarketEvent {
+
+	/**
+	 * The shout that was amended.
+	 */
+	protected Order shout;
+
+	protected double previousPrice;
+
+	protected int previousQuantity;
+
+	public OrderAmendedEvent(Market auction, int time, Order shout,
+			double previousPrice, int previousQuantity) {
+		super(auction, time);
+		this.shout = shout;
+		this.previousPrice = previousPrice;
+		this.previousQuantity = previousQuantity;
+	}
+
+	public OrderAmendedEvent() {
+		this(null, 0, null, 0, 0);
+	}
+
+	public Order getOrder() {
+		return shout;
+	}
+
+	public double getPreviousPrice() {
+		return previousPrice;
+	}
+
+	public int getPreviousQuantity() {
+		return previousQuantity;
+	}
+
+	/**
+	 * Returns true if the amendment changed the price or quantity of the
+	 * order.
+	 */
+	public boolean isChanged() {
+		return shout.getPriceAsDouble() != previousPrice
+				|| shout.getQuantity() != previousQuantity;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.event;
+
+import java.util.Collection;
+
+import net.sourceforge.jasa.market.Market;
+import net.sourceforge.jasa.market.Order;
+
+/**
+ * An event that is fired once when a batch of orders is placed in a market
+ * using {@link Market#placeOrders(Collection)}. Unless the market is
+ * configured otherwise, no {@link OrderReceivedEvent} or
+ * {@link OrderPlacedEvent} is fired for the individual orders in the batch,
+ * so listeners which are interested in order submissions should also handle
+ * this event.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class OrderBatchPlacedEvent extends MarketEvent {
+
+	/**
+	 * The orders that were placed.
+	 */
+	protected Collection<Order> orders;
+
+	public OrderBatchPlacedEvent(Market auction, int time,
+			Collection<Order> orders) {
+		super(auction, time);
+		this.orders = orders;
+	}
+
+	public OrderBatchPlacedEvent() {
+		this(null, 0, null);
+	}
+
+	public Collection<Order> getOrders() {
+		return orders;
+	}
+
+	public int size() {
+		return orders.size();
+	}
+}
@@ -41,6 +41,11 @@ public class OrderPlacedEvent extends MarketEvent {
 		this(null, 0, null);
 	}
 
+	public void initialise(Market auction, int time, Order shout) {
+		initialise(auction, time);
+		this.shout = shout;
+	}
+
 	public Order getOrder() {
 		return shout;
 	}
@@ -39,6 +39,11 @@ public class OrderReceivedEvent extends MarketEvent {
 		this.shout = shout;
 	}
 
+	public void initialise(Market auction, int time, Order shout) {
+		initialise(auction, time);
+		this.shout = shout;
+	}
+
 	public Order getShout() {
 		return shout;
 	}
@@ -60,6 +60,15 @@ public class TransactionExecutedEvent extends MarketEvent {
 		super(null, 0);
 	}
 
+	public void initialise(Market auction, int time, Order ask, Order bid,
+			double price, int quantity) {
+		initialise(auction, time);
+		this.ask = ask;
+		this.bid = bid;
+		this.price = price;
+		this.quantity = quantity;
+	}
+
 	public Order getAsk() {
 		return ask;
 	}
@@ -0,0 +1,138 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.event;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import net.sourceforge.jabm.EventScheduler;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+
+/**
+ * <p>
+ * An event scheduler which delivers each event only to those listeners that
+ * registered for the class of the event, or for one of its superclasses or
+ * interfaces.  Listeners registered without an event class receive every
+ * event.
+ * </p>
+ * 
+ * <p>
+ * The listeners for each concrete event class are computed the first time
+ * an event of that class is fired and cached in an array, so that firing an
+ * event costs time proportional to the number of interested listeners 
+ * rather than the total number of listeners.  The cache is discarded 
+ * whenever a listener is added or removed.  Listeners are notified in the 
+ * order in which they registered, and at most once per event even if they
+ * registered for several matching classes.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class TypeIndexedEventDispatcher implements EventScheduler,
+		Serializable {
+
+	protected static final EventListener[] NO_LISTENERS = 
+			new EventListener[0];
+
+	/**
+	 * The registered listeners together with the class of event that each
+	 * registered for, in order of registration.
+	 */
+	protected ArrayList<Registration> registrations = 
+			new ArrayList<Registration>();
+
+	/**
+	 * The listeners interested in each concrete event class fired so far.
+	 */
+	protected HashMap<Class<?>, EventListener[]> listenersByEventClass = 
+			new HashMap<Class<?>, EventListener[]>();
+
+	public void fireEvent(SimEvent event) {
+		EventListener[] listeners = getListeners(event.getClass());
+		for (int i = 0; i < listeners.length; i++) {
+			listeners[i].eventOccurred(event);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	public void addListener(Class eventClass, EventListener listener) {
+		registrations.add(new Registration(eventClass, listener));
+		listenersByEventClass.clear();
+	}
+
+	public void addListener(EventListener listener) {
+		addListener(SimEvent.class, listener);
+	}
+
+	public void removeListener(EventListener listener) {
+		Iterator<Registration> i = registrations.iterator();
+		while (i.hasNext()) {
+			if (i.next().listener == listener) {
+				i.remove();
+			}
+		}
+		listenersByEventClass.clear();
+	}
+
+	/**
+	 * Get the listeners that will be notified of events of the specified
+	 * class.  The returned array must not be modified.
+	 */
+	public EventListener[] getListeners(Class<?> eventClass) {
+		EventListener[] listeners = listenersByEventClass.get(eventClass);
+		if (listeners == null) {
+			listeners = computeListeners(eventClass);
+			listenersByEventClass.put(eventClass, listeners);
+		}
+		return listeners;
+	}
+
+	protected EventListener[] computeListeners(Class<?> eventClass) {
+		Map<EventListener, Boolean> listeners = 
+				new IdentityHashMap<EventListener, Boolean>();
+		ArrayList<EventListener> result = new ArrayList<EventListener>();
+		for (Registration registration : registrations) {
+			if (registration.eventClass.isAssignableFrom(eventClass)
+					&& listeners.put(registration.listener, Boolean.TRUE) 
+							== null) {
+				result.add(registration.listener);
+			}
+		}
+		if (result.isEmpty()) {
+			return NO_LISTENERS;
+		}
+		return result.toArray(new EventListener[result.size()]);
+	}
+
+	protected static class Registration implements Serializable {
+
+		protected Class<?> eventClass;
+
+		protected EventListener listener;
+
+		public Registration(Class<?> eventClass, EventListener listener) {
+			this.eventClass = eventClass;
+			this.listener = listener;
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.event;
+
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+
+/**
+ * A simulation controller which routes events through a 
+ * TypeIndexedEventDispatcher, so that listeners which subscribe to 
+ * particular classes of event, such as trading agents, are not notified
+ * of every order and transaction in the market.  It can be used in place
+ * of SpringSimulationController in any configuration.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class TypeIndexedSimulationController extends SpringSimulationController {
+
+	protected TypeIndexedEventDispatcher dispatcher = 
+			new TypeIndexedEventDispatcher();
+
+	@Override
+	public void fireEvent(SimEvent event) {
+		dispatcher.fireEvent(event);
+		super.fireEvent(event);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void addListener(Class eventClass, EventListener listener) {
+		dispatcher.addListener(eventClass, listener);
+	}
+
+	@Override
+	public void addListener(EventListener listener) {
+		dispatcher.addListener(listener);
+	}
+
+	@Override
+	public void removeListener(EventListener listener) {
+		dispatcher.removeListener(listener);
+		super.removeListener(listener);
+	}
+
+	public TypeIndexedEventDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+}
@@ -0,0 +1,309 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A calendar queue of items ordered by the time at which they are due,
+ * as described in
+ * </p>
+ * 
+ * <p>
+ * "Calendar Queues: A Fast O(1) Priority Queue Implementation for the
+ * Simulation Event Set Problem" Brown, R. in Communications of the ACM,
+ * Vol. 31, No. 10. 1988
+ * </p>
+ * 
+ * <p>
+ * Items are hashed by time into an array of buckets, each of which covers
+ * an interval of one bucket-width and holds a sorted list.  The queue is 
+ * scanned like a calendar, one bucket at a time, so that adding and 
+ * removing items take constant expected time when the bucket width is 
+ * comparable to the typical separation between items.  The number of 
+ * buckets and their width are re-estimated whenever the size of the queue 
+ * doubles or halves.  Items due at the same time are removed in the order
+ * in which they were added.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class CalendarQueue<T> implements Serializable {
+
+	public static final int MIN_BUCKETS = 2;
+
+	/**
+	 * The maximum number of items sampled when estimating the bucket width.
+	 */
+	public static final int WIDTH_SAMPLE_SIZE = 25;
+
+	protected Entry<T>[] buckets;
+
+	protected double width;
+
+	protected int size;
+
+	/**
+	 * The number of the bucket-width interval, counted from time zero, which
+	 * is currently being scanned.  No item is due before this interval.
+	 */
+	protected long currentSlot;
+
+	/**
+	 * Used to remove items that are due at the same time in the order in 
+	 * which they were added.
+	 */
+	protected long sequence;
+
+	public CalendarQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * @param width The initial bucket width.
+	 */
+	public CalendarQueue(double width) {
+		if (!(width > 0)) {
+			throw new IllegalArgumentException("Bucket width must be positive");
+		}
+		initialise(MIN_BUCKETS, width);
+		currentSlot = 0;
+	}
+
+	protected void initialise(int numBuckets, double width) {
+		this.buckets = newEntries(numBuckets);
+		this.width = width;
+		this.size = 0;
+	}
+
+	/**
+	 * Add an item which is due at the specified time.
+	 */
+	public void add(double time, T item) {
+		if (Double.isNaN(time) || Double.isInfinite(time)) {
+			throw new IllegalArgumentException("Invalid time " + time);
+		}
+		insert(new Entry<T>(time, sequence++, item));
+		if (size > 2 * buckets.length) {
+			resize(2 * buckets.length);
+		}
+	}
+
+	/**
+	 * Remove and return the item which is due first, or null if the queue
+	 * is empty.
+	 */
+	public T poll() {
+		Entry<T> first = removeFirst();
+		if (first == null) {
+			return null;
+		}
+		if (buckets.length > MIN_BUCKETS
+				&& size < buckets.length / 2) {
+			resize(buckets.length / 2);
+		}
+		return first.item;
+	}
+
+	/**
+	 * Return the item which is due first without removing it, or null if 
+	 * the queue is empty.
+	 */
+	public T peek() {
+		Entry<T> first = findFirst();
+		return first == null ? null : first.item;
+	}
+
+	/**
+	 * Return the time at which the first item is due, or 
+	 * Double.POSITIVE_INFINITY if the queue is empty.
+	 */
+	public double peekTime() {
+		Entry<T> first = findFirst();
+		return first == null ? Double.POSITIVE_INFINITY : first.time;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		initialise(MIN_BUCKETS, width);
+		currentSlot = 0;
+	}
+
+	public double getBucketWidth() {
+		return width;
+	}
+
+	public int getNumberOfBuckets() {
+		return buckets.length;
+	}
+
+	protected void insert(Entry<T> entry) {
+		entry.slot = (long) Math.floor(entry.time / width);
+		int bucket = bucketFor(entry.slot);
+		Entry<T> previous = null;
+		Entry<T> current = buckets[bucket];
+		while (current != null && !entry.before(current)) {
+			previous = current;
+			current = current.next;
+		}
+		entry.next = current;
+		if (previous == null) {
+			buckets[bucket] = entry;
+		} else {
+			previous.next = entry;
+		}
+		if (size == 0 || entry.slot < currentSlot) {
+			currentSlot = entry.slot;
+		}
+		size++;
+	}
+
+	protected Entry<T> removeFirst() {
+		Entry<T> first = findFirst();
+		if (first != null) {
+			int bucket = bucketFor(first.slot);
+			assert buckets[bucket] == first;
+			buckets[bucket] = first.next;
+			first.next = null;
+			size--;
+		}
+		return first;
+	}
+
+	/**
+	 * Find the first item by scanning forward through one year of the 
+	 * calendar, falling back on a direct search of every bucket if the
+	 * next item is due more than a year ahead.
+	 */
+	protected Entry<T> findFirst() {
+		if (size == 0) {
+			return null;
+		}
+		long slot = currentSlot;
+		for (int i = 0; i < buckets.length; i++, slot++) {
+			Entry<T> head = buckets[bucketFor(slot)];
+			if (head != null && head.slot <= slot) {
+				currentSlot = slot;
+				return head;
+			}
+		}
+		Entry<T> first = null;
+		for (int i = 0; i < buckets.length; i++) {
+			Entry<T> head = buckets[i];
+			if (head != null && (first == null || head.before(first))) {
+				first = head;
+			}
+		}
+		currentSlot = first.slot;
+		return first;
+	}
+
+	protected int bucketFor(long slot) {
+		return (int) Math.floorMod(slot, (long) buckets.length);
+	}
+
+	protected void resize(int numBuckets) {
+		double newWidth = estimateWidth();
+		Entry<T>[] oldBuckets = buckets;
+		initialise(numBuckets, newWidth);
+		for (int i = 0; i < oldBuckets.length; i++) {
+			Entry<T> entry = oldBuckets[i];
+			while (entry != null) {
+				Entry<T> next = entry.next;
+				entry.next = null;
+				insert(entry);
+				entry = next;
+			}
+		}
+	}
+
+	/**
+	 * Estimate a bucket width from the separation between the first few 
+	 * items in the queue, ignoring separations more than twice the average.
+	 */
+	protected double estimateWidth() {
+		int n = Math.min(size, WIDTH_SAMPLE_SIZE);
+		if (n < 2) {
+			return width;
+		}
+		Entry<T>[] sample = newEntries(n);
+		for (int i = 0; i < n; i++) {
+			sample[i] = removeFirst();
+		}
+		for (int i = 0; i < n; i++) {
+			insert(sample[i]);
+		}
+		double average = (sample[n - 1].time - sample[0].time) / (n - 1);
+		double total = 0;
+		int count = 0;
+		for (int i = 1; i < n; i++) {
+			double separation = sample[i].time - sample[i - 1].time;
+			if (separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+		double estimate = 3 * total / count;
+		if (estimate > 0 && !Double.isInfinite(estimate)) {
+			return estimate;
+		} else {
+			return width;
+		}
+	}
+
+	/**
+	 * Allocate an array of entries, which cannot be created directly since
+	 * Entry is generic.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected static <T> Entry<T>[] newEntries(int length) {
+		return new Entry[length];
+	}
+
+	protected static class Entry<T> implements Serializable {
+
+		protected double time;
+
+		protected long sequence;
+
+		protected long slot;
+
+		protected T item;
+
+		protected Entry<T> next;
+
+		public Entry(double time, long sequence, T item) {
+			this.time = time;
+			this.sequence = sequence;
+			this.item = item;
+		}
+
+		public boolean before(Entry<T> other) {
+			return time < other.time
+					|| (time == other.time && sequence < other.sequence);
+		}
+	}
+
+}
@@ -0,0 +1,657 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * An order book for call markets, such as a clearing house, in which the
+ * market is only cleared periodically and the equilibrium crossing of
+ * aggregate supply and demand is all that is needed at the time of clearing.
+ * </p>
+ * 
+ * <p>
+ * Rather than maintaining the four heaps of a {@link FourHeapOrderBook} as
+ * each order arrives, orders are simply appended to an array. When the
+ * book is queried or cleared the bids and asks are sorted once, using
+ * primitive sort keys which pack the price tick of each order with its
+ * arrival sequence, and a single linear sweep pairs off the highest bids
+ * with the lowest asks for as long as they cross. The sweep determines the
+ * matched volume and the matched and unmatched orders at the margin, from
+ * which the equilibrium price range is derived. The results are cached
+ * until the book is next modified.
+ * </p>
+ * 
+ * <p>
+ * The book matches the same volume, and reports the same marginal prices,
+ * as a {@link FourHeapOrderBook} containing the same orders. Matched bids
+ * are paired with matched asks in the same sequence, lowest matched bid
+ * with highest matched ask, so that discriminatory pricing policies produce
+ * the same prices. Orders at the same price are matched in arrival order.
+ * As with {@link FourHeapOrderBook#addAll(Collection)}, an agent's bid is
+ * never matched against its own ask. When an agent has crossing orders on
+ * both sides of the book the matched orders may therefore differ from those
+ * of a {@link FourHeapOrderBook}, which depend on the order of arrival.
+ * </p>
+ * 
+ * <p>
+ * Since every modification invalidates the sorted state, this book is not
+ * suitable for continuous markets which consult the top of the book after
+ * every order. It can be used in place of the default by passing an
+ * instance to
+ * {@link net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer#setOrderBook(OrderBook)}.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class CallMarketOrderBook implements OrderBook, Serializable {
+
+	/**
+	 * The default number of orders on one side of the book above which the
+	 * sort keys are sorted in parallel.
+	 */
+	public static final int DEFAULT_PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+	/**
+	 * The largest price tick which can be packed into a sort key.
+	 */
+	protected static final long MAX_PACKED_TICK = Integer.MAX_VALUE;
+
+	protected OrderArray bids = new OrderArray();
+
+	protected OrderArray asks = new OrderArray();
+
+	/**
+	 * Recycled fill records.  The records in positions [0, numFills) are
+	 * currently in use.
+	 */
+	protected Fill[] fills = new Fill[0];
+
+	protected int numFills = 0;
+
+	/**
+	 * Incremented whenever the contents of the book are modified.
+	 */
+	protected long version = 0;
+
+	/**
+	 * The version of the book at the time of the last sweep, or -1 if the
+	 * book has not been swept.
+	 */
+	protected long sweptVersion = -1;
+
+	/**
+	 * The total volume matched by the last sweep.
+	 */
+	protected int matchedVolume;
+
+	/**
+	 * The number of bids, in descending order of price, with some volume
+	 * matched by the last sweep.
+	 */
+	protected int numMatchedBids;
+
+	/**
+	 * The number of asks, in ascending order of price, with some volume
+	 * matched by the last sweep.
+	 */
+	protected int numMatchedAsks;
+
+	/**
+	 * The matched volume of the lowest matched bid.
+	 */
+	protected int marginalBidVolume;
+
+	/**
+	 * The matched volume of the highest matched ask.
+	 */
+	protected int marginalAskVolume;
+
+	protected int parallelSortThreshold = DEFAULT_PARALLEL_SORT_THRESHOLD;
+
+	static Logger logger = Logger.getLogger(CallMarketOrderBook.class);
+
+	public CallMarketOrderBook() {
+	}
+
+	public void add(Order shout) throws DuplicateShoutException {
+		if (shout.getQuantity() <= 0) {
+			return;
+		}
+		version++;
+		if (shout.isBid()) {
+			bids.add(shout);
+		} else {
+			asks.add(shout);
+		}
+	}
+
+	/**
+	 * Add a batch of orders to the book.
+	 * 
+	 * @throws DuplicateShoutException
+	 *           if the batch contains an order more than once, or an order
+	 *           which is already in the book, in which case the book is left
+	 *           unchanged.
+	 */
+	public void addAll(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		int capacity = 2 * (size() + shouts.size());
+		Set<Order> held = Collections.newSetFromMap(
+				new IdentityHashMap<Order, Boolean>(capacity));
+		held.addAll(bids.asList());
+		held.addAll(asks.asList());
+		for (Order shout : shouts) {
+			if (!held.add(shout)) {
+				throw new DuplicateShoutException("Duplicate shout: "
+						+ shout.toString());
+			}
+		}
+		for (Order shout : shouts) {
+			add(shout);
+		}
+	}
+
+	/**
+	 * Remove an order from the book. This takes time linear in the number of
+	 * orders on the same side of the book, since the arrival sequence of the
+	 * remaining orders is preserved.
+	 */
+	public void remove(Order shout) {
+		if (sideOf(shout).remove(shout)) {
+			version++;
+		}
+	}
+
+	public boolean amend(Order shout, double price, int quantity)
+			throws DuplicateShoutException {
+		if (sideOf(shout).indexOf(shout) < 0) {
+			return false;
+		}
+		long ticks = shout.getTickSize().toTicks(price);
+		if (ticks != shout.getPriceTicks() || quantity != shout.getQuantity()) {
+			version++;
+			shout.setPriceTicks(ticks);
+			shout.setQuantity(quantity);
+		}
+		return true;
+	}
+
+	public int getParallelSortThreshold() {
+		return parallelSortThreshold;
+	}
+
+	/**
+	 * Configure the number of orders on one side of the book above which
+	 * they are sorted using {@link Arrays#parallelSort(long[], int, int)}.
+	 */
+	public void setParallelSortThreshold(int parallelSortThreshold) {
+		this.parallelSortThreshold = parallelSortThreshold;
+	}
+
+	/**
+	 * Match the crossing bids and asks in the book. Fully filled orders are
+	 * removed from the book, and the unfilled volume of any partially filled
+	 * orders remains in the book.
+	 */
+	public void matchOrders(FillHandler handler) {
+		sweep();
+		if (matchedVolume == 0) {
+			return;
+		}
+		int start = numFills;
+		Order[] sortedBids = bids.sorted;
+		Order[] sortedAsks = asks.sorted;
+		int b = numMatchedBids - 1;
+		int a = numMatchedAsks - 1;
+		int bidVolume = marginalBidVolume;
+		int askVolume = marginalAskVolume;
+		while (b >= 0) {
+			Order bid = sortedBids[b];
+			Order ask = sortedAsks[a];
+			int quantity = Math.min(bidVolume, askVolume);
+			newFill().set(bid, ask, quantity);
+			bidVolume -= quantity;
+			askVolume -= quantity;
+			if (bidVolume == 0 && --b >= 0) {
+				bidVolume = sortedBids[b].getQuantity();
+			}
+			if (askVolume == 0 && --a >= 0) {
+				askVolume = sortedAsks[a].getQuantity();
+			}
+		}
+		assert a < 0;
+		for (int i = start; i < numFills; i++) {
+			fill(fills[i].getBid(), fills[i].getQuantity());
+			fill(fills[i].getAsk(), fills[i].getQuantity());
+		}
+		bids.removeFilled();
+		asks.removeFilled();
+		version++;
+		// The handler may cause further orders to be placed and matched
+		// before it returns, in which case the nested fills are recorded
+		// beyond the end of ours.
+		int end = numFills;
+		try {
+			for (int i = start; i < end; i++) {
+				handler.onFill(fills[i]);
+			}
+		} finally {
+			for (int i = start; i < end; i++) {
+				fills[i].release();
+			}
+			numFills = start;
+		}
+	}
+
+	/**
+	 * Match the crossing bids and asks in the book, returning a list of the
+	 * matched volume in the form described by {@link OrderBook#matchOrders()}.
+	 * Each entry is a new order representing the volume filled, whose origin
+	 * is the order originally placed in the book.
+	 */
+	public List<Order> matchOrders() {
+		final ArrayList<Order> result = new ArrayList<Order>();
+		matchOrders(new FillHandler() {
+			public void onFill(Fill fill) {
+				result.add(entry(fill.getBid(), fill.getQuantity()));
+				result.add(entry(fill.getAsk(), fill.getQuantity()));
+			}
+		});
+		return result;
+	}
+
+	protected Order entry(Order shout, int quantity) {
+		Order entry = new Order();
+		entry.copyFrom(shout);
+		entry.setTimeStamp(shout.getTime(), shout.getSequenceNumber());
+		entry.setQuantity(quantity);
+		entry.setFilled(true);
+		entry.origin = shout;
+		return entry;
+	}
+
+	/**
+	 * Fill the specified volume of an order. If the order is completely
+	 * filled it retains its quantity and is marked as filled, otherwise its
+	 * quantity is reduced to the volume which remains unfilled.
+	 */
+	protected void fill(Order shout, int quantity) {
+		if (quantity < shout.getQuantity()) {
+			shout.quantity -= quantity;
+		} else {
+			shout.setFilled(true);
+		}
+		shout.filledQuantity += quantity;
+	}
+
+	protected Fill newFill() {
+		if (numFills == fills.length) {
+			fills = Arrays.copyOf(fills, Math.max(8, fills.length * 2));
+		}
+		Fill fill = fills[numFills];
+		if (fill == null) {
+			fill = new Fill();
+			fills[numFills] = fill;
+		}
+		numFills++;
+		return fill;
+	}
+
+	/**
+	 * Sort both sides of the book and pair off the highest bids against the
+	 * lowest asks for as long as their prices cross, unless the book has not
+	 * changed since it was last swept.
+	 */
+	protected void sweep() {
+		if (sweptVersion == version) {
+			return;
+		}
+		bids.sort(-1, parallelSortThreshold);
+		asks.sort(+1, parallelSortThreshold);
+		Order[] sortedBids = bids.sorted;
+		Order[] sortedAsks = asks.sorted;
+		int b = 0, a = 0;
+		int bidVolume = 0, askVolume = 0;
+		matchedVolume = 0;
+		marginalBidVolume = 0;
+		marginalAskVolume = 0;
+		while (b < bids.size && a < asks.size) {
+			Order bid = sortedBids[b];
+			Order ask = sortedAsks[a];
+			if (bid.isFromSameAgent(ask)
+					&& !(askVolume == 0 
+							&& bringForward(sortedAsks, asks.size, a, bid))
+					&& !(bidVolume == 0 
+							&& bringForward(sortedBids, bids.size, b, ask))) {
+				break;
+			}
+			if (sortedBids[b].priceTicks < sortedAsks[a].priceTicks) {
+				break;
+			}
+			int bidRemaining = sortedBids[b].getQuantity() - bidVolume;
+			int askRemaining = sortedAsks[a].getQuantity() - askVolume;
+			int quantity = Math.min(bidRemaining, askRemaining);
+			matchedVolume += quantity;
+			bidVolume += quantity;
+			askVolume += quantity;
+			marginalBidVolume = bidVolume;
+			marginalAskVolume = askVolume;
+			numMatchedBids = b + 1;
+			numMatchedAsks = a + 1;
+			if (quantity == bidRemaining) {
+				b++;
+				bidVolume = 0;
+			}
+			if (quantity == askRemaining) {
+				a++;
+				askVolume = 0;
+			}
+		}
+		if (matchedVolume == 0) {
+			numMatchedBids = 0;
+			numMatchedAsks = 0;
+		}
+		sweptVersion = version;
+	}
+
+	/**
+	 * Move the first order after the given position in one side of the
+	 * sorted book which crosses the specified order, and which was placed by
+	 * a different agent, forward into that position. Returns false if there
+	 * is no such order.
+	 */
+	protected boolean bringForward(Order[] sorted, int size, int position,
+			Order counterparty) {
+		for (int k = position + 1; k < size; k++) {
+			Order shout = sorted[k];
+			Order bid = shout.isBid() ? shout : counterparty;
+			Order ask = shout.isBid() ? counterparty : shout;
+			if (bid.priceTicks < ask.priceTicks) {
+				return false;
+			}
+			if (!shout.isFromSameAgent(counterparty)) {
+				System.arraycopy(sorted, position, sorted, position + 1,
+						k - position);
+				sorted[position] = shout;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Order getLowestMatchedBid() {
+		sweep();
+		return numMatchedBids == 0 ? null : bids.sorted[numMatchedBids - 1];
+	}
+
+	public Order getHighestMatchedAsk() {
+		sweep();
+		return numMatchedAsks == 0 ? null : asks.sorted[numMatchedAsks - 1];
+	}
+
+	public Order getHighestUnmatchedBid() {
+		sweep();
+		int i = firstUnmatched(bids, numMatchedBids, marginalBidVolume);
+		return i < bids.size ? bids.sorted[i] : null;
+	}
+
+	public Order getLowestUnmatchedAsk() {
+		sweep();
+		int i = firstUnmatched(asks, numMatchedAsks, marginalAskVolume);
+		return i < asks.size ? asks.sorted[i] : null;
+	}
+
+	/**
+	 * Return the position in sorted order of the first order on one side of
+	 * the book with some unmatched volume.
+	 */
+	protected int firstUnmatched(OrderArray side, int numMatched,
+			int marginalVolume) {
+		if (numMatched > 0
+				&& marginalVolume < side.sorted[numMatched - 1].getQuantity()) {
+			return numMatched - 1;
+		}
+		return numMatched;
+	}
+
+	/**
+	 * Return the total volume that would be matched if the book were
+	 * cleared now.
+	 */
+	public int getMatchedVolume() {
+		sweep();
+		return matchedVolume;
+	}
+
+	public Iterator<Order> askIterator() {
+		sweep();
+		return asks.sortedList().iterator();
+	}
+
+	public Iterator<Order> bidIterator() {
+		sweep();
+		return bids.sortedList().iterator();
+	}
+
+	public List<Order> getUnmatchedBids() {
+		sweep();
+		return new ArrayList<Order>(bids.sortedList().subList(
+				firstUnmatched(bids, numMatchedBids, marginalBidVolume),
+				bids.size));
+	}
+
+	public List<Order> getUnmatchedAsks() {
+		sweep();
+		return new ArrayList<Order>(asks.sortedList().subList(
+				firstUnmatched(asks, numMatchedAsks, marginalAskVolume),
+				asks.size));
+	}
+
+	public boolean isEmpty() {
+		return bids.size == 0 && asks.size == 0;
+	}
+
+	public int size() {
+		return bids.size + asks.size;
+	}
+
+	public int getDepth() {
+		sweep();
+		int unmatchedBids = bids.size
+				- firstUnmatched(bids, numMatchedBids, marginalBidVolume);
+		int unmatchedAsks = asks.size
+				- firstUnmatched(asks, numMatchedAsks, marginalAskVolume);
+		return Math.max(unmatchedBids, unmatchedAsks);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void reset() {
+		version++;
+		bids.clear();
+		asks.clear();
+	}
+
+	public void printState() {
+		logger.info("Auction state:\n");
+		prettyPrint("Bids", bids.sortedList());
+		prettyPrint("Asks", asks.sortedList());
+	}
+
+	protected void prettyPrint(String title, List<Order> shouts) {
+		sweep();
+		logger.info(title);
+		logger.info("--------------");
+		for (Order shout : shouts) {
+			logger.info(shout.toPrettyString());
+		}
+		logger.info("");
+	}
+
+	protected OrderArray sideOf(Order shout) {
+		return shout.isBid() ? bids : asks;
+	}
+
+	public String toString() {
+		return "(" + getClass() + " bids:" + bids.size + " asks:" + asks.size
+				+ ")";
+	}
+
+	/**
+	 * The orders on one side of the book in arrival order, together with a
+	 * sorted copy which is rebuilt by {@link CallMarketOrderBook#sweep()}.
+	 */
+	protected static class OrderArray implements Serializable {
+
+		protected Order[] orders = new Order[16];
+
+		protected Order[] sorted = new Order[16];
+
+		protected long[] keys = new long[16];
+
+		protected int size = 0;
+
+		public void add(Order shout) {
+			if (size == orders.length) {
+				int capacity = orders.length * 2;
+				orders = Arrays.copyOf(orders, capacity);
+				sorted = new Order[capacity];
+				keys = new long[capacity];
+			}
+			orders[size++] = shout;
+		}
+
+		public List<Order> asList() {
+			return Arrays.asList(orders).subList(0, size);
+		}
+
+		public int indexOf(Order shout) {
+			for (int i = 0; i < size; i++) {
+				if (orders[i] == shout) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public boolean remove(Order shout) {
+			int i = indexOf(shout);
+			if (i < 0) {
+				return false;
+			}
+			System.arraycopy(orders, i + 1, orders, i, size - i - 1);
+			orders[--size] = null;
+			return true;
+		}
+
+		/**
+		 * Remove every order which has been completely filled, preserving
+		 * the arrival sequence of the remaining orders.
+		 */
+		public void removeFilled() {
+			int n = 0;
+			for (int i = 0; i < size; i++) {
+				if (!orders[i].isFilled()) {
+					orders[n++] = orders[i];
+				}
+			}
+			Arrays.fill(orders, n, size, null);
+			size = n;
+		}
+
+		public void clear() {
+			Arrays.fill(orders, 0, size, null);
+			Arrays.fill(sorted, 0, size, null);
+			size = 0;
+		}
+
+		/**
+		 * Sort the orders by price, and then by arrival sequence, into
+		 * {@link #sorted}.
+		 * 
+		 * @param direction
+		 *          +1 to sort in ascending order of price, or -1 for
+		 *          descending order.
+		 */
+		public void sort(int direction, int parallelSortThreshold) {
+			Arrays.fill(sorted, size, sorted.length, null);
+			for (int i = 0; i < size; i++) {
+				long tick = orders[i].priceTicks;
+				if (tick > MAX_PACKED_TICK) {
+					sortOrders(direction);
+					return;
+				}
+				keys[i] = ((direction * tick) << 32) | i;
+			}
+			if (size > parallelSortThreshold) {
+				Arrays.parallelSort(keys, 0, size);
+			} else {
+				Arrays.sort(keys, 0, size);
+			}
+			for (int i = 0; i < size; i++) {
+				sorted[i] = orders[(int) keys[i]];
+			}
+		}
+
+		/**
+		 * Sort orders whose prices are too large to be packed into a sort
+		 * key. The sort is stable, so orders at the same price remain in
+		 * arrival order.
+		 */
+		protected void sortOrders(final int direction) {
+			System.arraycopy(orders, 0, sorted, 0, size);
+			Arrays.sort(sorted, 0, size, new OrderComparator(direction) {
+				public int compare(Order shout1, Order shout2) {
+					return comparePrices(shout1, shout2);
+				}
+			});
+		}
+
+		public List<Order> sortedList() {
+			return new AbstractList<Order>() {
+
+				public Order get(int index) {
+					if (index >= size) {
+						throw new IndexOutOfBoundsException();
+					}
+					return sorted[index];
+				}
+
+				public int size() {
+					return size;
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.event.AgentArrivalEvent;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.agent.ArrivalProcess;
+
+/**
+ * <p>
+ * A market simulated in continuous time, in which each agent arrives at the
+ * market according to its own ArrivalProcess instead of being polled by the
+ * agent mixer in every round.  Arrivals are held in a CalendarQueue and the
+ * market advances from one arrival to the next.  Round numbers are 
+ * preserved, round <i>r</i> covering the interval of time [<i>r</i>, 
+ * <i>r</i> + 1), so that timing conditions, reports and strategies which 
+ * work in rounds behave as they do in a round-based market.
+ * </p>
+ * 
+ * <p>
+ * An agent which is no longer active after it arrives, such as a token 
+ * trader which has exhausted its trade entitlement, is not scheduled again
+ * until the end of the day, so inactive agents cost nothing.  Agents
+ * without an arrival process of their own use the default arrival process 
+ * of the market.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class EventDrivenMarketSimulation extends MarketSimulation {
+
+	/**
+	 * The arrival process used for agents which do not specify their own.
+	 */
+	protected ArrivalProcess arrivalProcess;
+
+	protected CalendarQueue<Agent> arrivals = new CalendarQueue<Agent>();
+
+	/**
+	 * Agents which were inactive when they last arrived, and which are 
+	 * rescheduled at the end of the day.
+	 */
+	protected List<Agent> dormantAgents = new ArrayList<Agent>();
+
+	/**
+	 * The time of the most recent arrival.
+	 */
+	protected double currentTime;
+
+	protected long numberOfArrivals;
+
+	public EventDrivenMarketSimulation(SimulationController controller) {
+		super(controller);
+	}
+
+	public EventDrivenMarketSimulation() {
+		this(null);
+	}
+
+	@Override
+	public void begin() {
+		super.begin();
+		scheduleAgents();
+	}
+
+	/**
+	 * Schedule the first arrival of every agent in the population.
+	 */
+	public void scheduleAgents() {
+		arrivals.clear();
+		dormantAgents.clear();
+		currentTime = getAge();
+		numberOfArrivals = 0;
+		for (Agent agent : getTraders().getAgents()) {
+			schedule(agent);
+		}
+	}
+
+	/**
+	 * Deliver, in order, every arrival which falls within the current round.
+	 */
+	@Override
+	public void invokeAgentInteractions() {
+		double endOfRound = getAge() + 1;
+		while (!closed && arrivals.peekTime() < endOfRound) {
+			currentTime = arrivals.peekTime();
+			Agent agent = arrivals.poll();
+			AgentArrivalEvent event = new AgentArrivalEvent(this, agent, null);
+			fireEvent(event);
+			agent.onAgentArrival(event);
+			numberOfArrivals++;
+			schedule(agent);
+		}
+	}
+
+	@Override
+	protected void endDay() {
+		super.endDay();
+		if (!dormantAgents.isEmpty()) {
+			List<Agent> agents = dormantAgents;
+			dormantAgents = new ArrayList<Agent>();
+			currentTime = getAge();
+			for (Agent agent : agents) {
+				schedule(agent);
+			}
+		}
+	}
+
+	protected void schedule(Agent agent) {
+		if (!agent.isInteracted()) {
+			dormantAgents.add(agent);
+			return;
+		}
+		double nextArrival = getArrivalProcess(agent).nextArrivalTime(
+				currentTime);
+		if (nextArrival == Double.POSITIVE_INFINITY) {
+			dormantAgents.add(agent);
+		} else {
+			arrivals.add(Math.max(nextArrival, currentTime), agent);
+		}
+	}
+
+	public ArrivalProcess getArrivalProcess(Agent agent) {
+		ArrivalProcess result = null;
+		if (agent instanceof AbstractTradingAgent) {
+			result = ((AbstractTradingAgent) agent).getArrivalProcess();
+		}
+		if (result == null) {
+			result = arrivalProcess;
+		}
+		if (result == null) {
+			throw new AuctionRuntimeException("No arrival process configured "
+					+ "for agent " + agent);
+		}
+		return result;
+	}
+
+	/**
+	 * The time of the most recent arrival, in rounds since the market 
+	 * opened.
+	 */
+	public double getCurrentTime() {
+		return currentTime;
+	}
+
+	/**
+	 * The total number of agent arrivals since the market opened.
+	 */
+	public long getNumberOfArrivals() {
+		return numberOfArrivals;
+	}
+
+	/**
+	 * The number of agents which are currently scheduled to arrive.
+	 */
+	public int getNumberOfScheduledAgents() {
+		return arrivals.size();
+	}
+
+	public ArrivalProcess getArrivalProcess() {
+		return arrivalProcess;
+	}
+
+	public void setArrivalProcess(ArrivalProcess arrivalProcess) {
+		this.arrivalProcess = arrivalProcess;
+	}
+
+}
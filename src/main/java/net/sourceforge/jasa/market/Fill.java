@@ -0,0 +1,77 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * A record of a quantity of a bid being matched against a quantity of an
+ * ask. Fills always refer to the orders originally placed by the traders,
+ * rather than to any fragments which the order book may have used to
+ * represent partially-matched orders.
+ * </p>
+ * 
+ * <p>
+ * Fill records are owned and recycled by the order book which creates them,
+ * and are only valid for the duration of the call to
+ * {@link FillHandler#onFill(Fill)} to which they are passed.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class Fill implements Serializable {
+
+	protected Order bid;
+
+	protected Order ask;
+
+	protected int quantity;
+
+	public Fill() {
+	}
+
+	void set(Order bid, Order ask, int quantity) {
+		this.bid = bid;
+		this.ask = ask;
+		this.quantity = quantity;
+	}
+
+	void release() {
+		this.bid = null;
+		this.ask = null;
+		this.quantity = 0;
+	}
+
+	public Order getBid() {
+		return bid;
+	}
+
+	public Order getAsk() {
+		return ask;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public String toString() {
+		return "(" + getClass() + " bid:" + bid + " ask:" + ask
+				+ " quantity:" + quantity + ")";
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+/**
+ * Classes implementing this interface receive the fills generated when an
+ * order book is cleared.
+ * 
+ * @see OrderBook#matchOrders(FillHandler)
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public interface FillHandler {
+
+	/**
+	 * Process a single fill.  The fill record is recycled by the order book
+	 * once this method returns, and so should not be retained.
+	 */
+	public void onFill(Fill fill);
+
+}
@@ -17,11 +17,14 @@ package net.sourceforge.jasa.market;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.TreeSet;
+import java.util.Queue;
+import java.util.Set;
 
 import org.apache.commons.collections.iterators.CollatingIterator;
 import org.apache.log4j.Logger;
@@ -46,26 +49,22 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	/**
 	 * Matched bids in ascending order
 	 */
-	protected PriorityQueue<Order> bIn = new PriorityQueue<Order>(
-			new TreeSet<Order>(greaterThan));
+	protected Queue<Order> bIn = createHeap(greaterThan);
 
 	/**
 	 * Unmatched bids in descending order
 	 */
-	protected PriorityQueue<Order> bOut = new PriorityQueue<Order>(
-			new TreeSet<Order>(lessThan));
+	protected Queue<Order> bOut = createHeap(lessThan);
 
 	/**
 	 * Matched asks in descending order
 	 */
-	protected PriorityQueue<Order> sIn = new PriorityQueue<Order>(
-			new TreeSet<Order>(lessThan));
+	protected Queue<Order> sIn = createHeap(lessThan);
 
 	/**
 	 * Unmatched asks in ascending order
 	 */
-	protected PriorityQueue<Order> sOut = new PriorityQueue<Order>(
-			new TreeSet<Order>(greaterThan));
+	protected Queue<Order> sOut = createHeap(greaterThan);
 
 	protected static AscendingOrderComparator greaterThan = 
 			new AscendingOrderComparator();
@@ -73,16 +72,51 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	protected static DescendingOrderComparator lessThan = 
 			new DescendingOrderComparator();
 
+	/**
+	 * Fragments of partially-matched orders which are no longer in use and
+	 * can be recycled, linked through {@link Order#nextFragment}.
+	 */
+	protected Order freeFragments = null;
+
+	/**
+	 * Recycled fill records.  The records in positions [0, numFills) are
+	 * currently in use.
+	 */
+	protected Fill[] fills = new Fill[0];
+
+	protected int numFills = 0;
+
+	/**
+	 * Incremented whenever the contents of the book are modified.
+	 */
+	protected long version = 0;
+
 	static Logger logger = Logger.getLogger(FourHeapOrderBook.class);
 
 	public FourHeapOrderBook() {
 		initialise();
 	}
 
+	/**
+	 * Create one of the four heaps used by the book.  Subclasses can override
+	 * this method in order to use a different priority queue implementation,
+	 * provided that the head of the queue is the least element according to
+	 * the supplied comparator.  By default an {@link IndexedOrderHeap} is
+	 * used, so that orders can be removed from the book in logarithmic time.
+	 *
+	 * @param ordering
+	 *          The ordering of the orders in the heap.
+	 */
+	protected Queue<Order> createHeap(OrderComparator ordering) {
+		return new IndexedOrderHeap(ordering);
+	}
+
+	/**
+	 * Remove an order, together with any fragments of it, from the book.
+	 * This is equivalent to {@link #remove(Order)}.
+	 */
 	public void removeAll(Order shout) {
-		for(Order i = shout; i != null; i = i.getChild()) {
-			remove(i);
-		}
+		remove(shout);
 	}
 
     /**
@@ -92,6 +126,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
      * @param shout     The order to be removed.
      */
 	public void removeUnmatchedOrder(Order shout) {
+	    version++;
 	    if (shout.isAsk()) {
 	        sOut.remove(shout);
         } else {
@@ -100,17 +135,32 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
     }
 
     /**
-     * Remove an order from the book, rebalancing if necessary.
+     * Remove an order, and any fragments of it which are still held in the
+     * book, rebalancing if necessary.
      *
      * @param shout     The order to be removed.
      */
 	public void remove(Order shout) {
+		version++;
+		removeEntry(shout);
+		if (shout.isFragment()) {
+			release(shout);
+		} else {
+			Order fragment;
+			while ((fragment = shout.nextFragment) != null) {
+				removeEntry(fragment);
+				release(fragment);
+			}
+		}
+		checkIntegrity();
+	}
+
+	protected void removeEntry(Order shout) {
 		if (shout.isAsk()) {
 			removeAsk(shout);
 		} else {
 			removeBid(shout);
 		}
-		checkIntegrity();
 	}
 
 	protected void removeAsk(Order shout) {
@@ -129,6 +179,109 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		}
 	}
 
+	public boolean amend(Order shout, double price, int quantity)
+			throws DuplicateShoutException {
+		Queue<Order> heap = getHeapContaining(shout);
+		if (heap == null || shout.isFragment()) {
+			return false;
+		}
+		TickSize tickSize = shout.getTickSize();
+		long ticks = tickSize.toTicks(price);
+		if (ticks == shout.getPriceTicks()
+				&& quantity == shout.getQuantity()) {
+			return true;
+		}
+		version++;
+		double newPrice = tickSize.toDouble(ticks);
+		boolean unmatched = shout.nextFragment == null
+				&& (heap == bOut && remainsUnmatchedBid(shout, newPrice)
+					|| heap == sOut && remainsUnmatchedAsk(shout, newPrice));
+		if (unmatched) {
+			reposition(heap, shout, ticks, quantity);
+		} else {
+			remove(shout);
+			shout.setPriceTicks(ticks);
+			shout.setQuantity(quantity);
+			add(shout);
+		}
+		checkIntegrity();
+		return true;
+	}
+
+	/**
+	 * Find which of the four heaps holds the specified order.
+	 *
+	 * @return The heap holding the order, or null if the order is not in the
+	 *         book.
+	 */
+	protected Queue<Order> getHeapContaining(Order shout) {
+		if (shout.isBid()) {
+			if (bOut.contains(shout)) {
+				return bOut;
+			} else if (bIn.contains(shout)) {
+				return bIn;
+			}
+		} else {
+			if (sOut.contains(shout)) {
+				return sOut;
+			} else if (sIn.contains(shout)) {
+				return sIn;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Check whether an unmatched bid would still be inserted into bOut if it
+	 * were submitted at the specified price; that is, whether it would
+	 * neither be matched against the lowest unmatched ask nor displace the
+	 * lowest matched bid.
+	 */
+	protected boolean remainsUnmatchedBid(Order bid, double p) {
+		Order sOutTop = getLowestUnmatchedAsk();
+		Order bInTop = getLowestMatchedBid();
+		if (sOutTop != null && !sOutTop.getAgent().equals(bid.getAgent())
+				&& p >= sOutTop.getPriceAsDouble()
+				&& (bInTop == null
+					|| bInTop.getPriceAsDouble() >= sOutTop.getPriceAsDouble())) {
+			return false;
+		}
+		return bInTop == null || p <= bInTop.getPriceAsDouble();
+	}
+
+	/**
+	 * Check whether an unmatched ask would still be inserted into sOut if it
+	 * were submitted at the specified price.
+	 */
+	protected boolean remainsUnmatchedAsk(Order ask, double p) {
+		Order sInTop = getHighestMatchedAsk();
+		Order bOutTop = getHighestUnmatchedBid();
+		if (bOutTop != null && !bOutTop.getAgent().equals(ask.getAgent())
+				&& bOutTop.getPriceAsDouble() >= p
+				&& (sInTop == null || sInTop.matches(bOutTop))) {
+			return false;
+		}
+		return sInTop == null || p >= sInTop.getPriceAsDouble();
+	}
+
+	/**
+	 * Change the price (in ticks) and quantity of an order and restore the
+	 * ordering of the heap which holds it, without rebalancing the book.
+	 */
+	protected void reposition(Queue<Order> heap, Order shout, long ticks,
+			int quantity) {
+		if (heap instanceof IndexedOrderHeap) {
+			shout.setPriceTicks(ticks);
+			shout.setQuantity(quantity);
+			((IndexedOrderHeap) heap).update(shout);
+		} else {
+			heap.remove(shout);
+			shout.setPriceTicks(ticks);
+			shout.setQuantity(quantity);
+			heap.add(shout);
+		}
+	}
+
 	public String toString() {
 		return "sIn = " + sIn + "\nbIn = " + bIn + "\nsOut = " + sOut + "\nbOut = "
 		    + bOut;
@@ -146,7 +299,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	}
 
 	@SuppressWarnings("all")
-	public void prettyPrint(String title, PriorityQueue shouts) {
+	public void prettyPrint(String title, Queue shouts) {
 		logger.info(title);
 		logger.info("--------------");		
 		Iterator i = shouts.iterator();
@@ -166,11 +319,11 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	 *          The shout to insert
 	 * 
 	 */
-	private static void insertShout(PriorityQueue<Order> heap, Order shout)
+	private static void insertShout(Queue<Order> heap, Order shout)
 	    throws DuplicateShoutException {
 		try {
 			heap.add(shout);
-		} catch (IllegalArgumentException e) {
+		} catch (IllegalStateException e) {
 			logger.error(e);
 			e.printStackTrace();
 			throw new DuplicateShoutException("Duplicate shout: " + shout.toString());
@@ -182,6 +335,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	 */
 	public void insertUnmatchedAsk(Order ask) throws DuplicateShoutException {
 		assert ask.isAsk();
+		version++;
 		insertShout(sOut, ask);
 	}
 
@@ -190,6 +344,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	 */
 	public void insertUnmatchedBid(Order bid) throws DuplicateShoutException {
 		assert bid.isBid();
+		version++;
 		insertShout(bOut, bid);
 	}
 
@@ -200,7 +355,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		if (bOut.isEmpty()) {
 			return null;
 		}
-		return (Order) bOut.peek();
+		return bOut.peek();
 	}
 
 	/**
@@ -210,7 +365,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		if (bIn.isEmpty()) {
 			return null;
 		}
-		return (Order) bIn.peek();
+		return bIn.peek();
 	}
 
 	/**
@@ -220,7 +375,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		if (sOut.isEmpty()) {
 			return null;
 		}
-		return (Order) sOut.peek();
+		return sOut.peek();
 	}
 
 	/**
@@ -230,54 +385,144 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		if (sIn.isEmpty()) {
 			return null;
 		}
-		return (Order) sIn.peek();
+		return sIn.peek();
 	}
 
 	/**
 	 * Unify the shout at the top of the heap with the supplied shout, so that
-	 * quantity(shout) = quantity(top(heap)). This is achieved by splitting the
-	 * supplied shout or the shout at the top of the heap.
+	 * quantity(shout) = quantity(top(heap)). This is achieved by carving a
+	 * fragment off the supplied shout or the shout at the top of the heap.
 	 * 
 	 * @param shout
 	 *          The shout.
 	 * @param to
 	 *          The heap being moved to.
 	 * 
-	 * @return A reference to the, possibly modified, shout.
+	 * @return A reference to the, possibly carved, shout.
 	 * 
 	 */
-	protected Order unifyShout(Order shout, PriorityQueue<Order> from,
-							PriorityQueue<Order> to) {
+	protected Order unifyShout(Order shout, Queue<Order> from,
+							Queue<Order> to) {
 
-		Order top = (Order) from.peek();
+		Order top = from.peek();
 
 		if (shout.getQuantity() > top.getQuantity()) {
-			shout = shout.splat(shout.getQuantity() - top.getQuantity());
-		} else {
-			if (top.getQuantity() > shout.getQuantity()) {
-				Order remainder = top.split(top.getQuantity() - shout.getQuantity());
-				from.add(remainder);
-                assert((remainder.isBid && from == bOut) || ((!remainder.isBid) && from == sOut));
-				to.add(from.remove());
-//				to.add(remainder);
-				return shout;
-			}
+			shout = carve(shout, top.getQuantity());
+		} else if (top.getQuantity() > shout.getQuantity()) {
+			to.add(carveHead(from, shout.getQuantity()));
+			return shout;
 		}
 
 		to.add(from.remove());
 		return shout;
 	}
 
-	protected int displaceShout(Order shout, PriorityQueue<Order> from,
-			PriorityQueue<Order> to) throws DuplicateShoutException {
+	/**
+	 * Carve a fragment of the specified quantity off an order, reducing the
+	 * quantity of the order accordingly.  Fragments are recycled from those
+	 * previously released by the book, so that partial matches do not
+	 * allocate in the steady state.
+	 * 
+	 * @param shout
+	 *          The order, or fragment of an order, to carve from.  If it is
+	 *          held in a heap the caller is responsible for restoring the
+	 *          ordering of the heap.
+	 * @param quantity
+	 *          The quantity of the new fragment.
+	 * @return A fragment whose origin is the original order.
+	 */
+	protected Order carve(Order shout, int quantity) {
+		assert quantity < shout.getQuantity();
+		Order origin = shout.getOrigin();
+		Order fragment = freeFragments;
+		if (fragment == null) {
+			fragment = new Order();
+		} else {
+			freeFragments = fragment.nextFragment;
+		}
+		fragment.copyFrom(shout);
+		fragment.setTimeStamp(shout.getTime(), shout.getSequenceNumber());
+		fragment.setQuantity(quantity);
+		fragment.setFilled(false);
+		fragment.origin = origin;
+		fragment.nextFragment = origin.nextFragment;
+		origin.nextFragment = fragment;
+		shout.quantity -= quantity;
+		return fragment;
+	}
+
+	/**
+	 * Carve a fragment off the order at the top of a heap and restore the
+	 * ordering of the heap, since the smaller remainder may now rank below
+	 * other orders at the same price.  The remainder is sifted in place in an
+	 * {@link IndexedOrderHeap}; other queues have it removed before carving
+	 * and offered again afterwards.
+	 */
+	protected Order carveHead(Queue<Order> heap, int quantity) {
+		if (heap instanceof IndexedOrderHeap) {
+			Order top = heap.peek();
+			Order fragment = carve(top, quantity);
+			((IndexedOrderHeap) heap).update(top);
+			return fragment;
+		}
+		Order top = heap.remove();
+		Order fragment = carve(top, quantity);
+		heap.add(top);
+		return fragment;
+	}
+
+	/**
+	 * Detach a fragment from the list of live fragments of its origin.
+	 * 
+	 * @return false if the fragment was not live.
+	 */
+	protected boolean unlink(Order fragment) {
+		for (Order p = fragment.origin; p.nextFragment != null; 
+				p = p.nextFragment) {
+			if (p.nextFragment == fragment) {
+				p.nextFragment = fragment.nextFragment;
+				fragment.nextFragment = null;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return a fragment which is no longer held in any heap to the pool of
+	 * free fragments.  Fragments which have been handed out by
+	 * {@link #matchOrders()} are not live, and are never recycled.
+	 */
+	protected void release(Order fragment) {
+		if (unlink(fragment)) {
+			fragment.origin = null;
+			fragment.setAgent(null);
+			fragment.setTimeStamp(null);
+			fragment.nextFragment = freeFragments;
+			freeFragments = fragment;
+		}
+	}
+
+	protected void releaseFragments(Queue<Order> heap) {
+		for (Order shout : heap) {
+			if (shout.isFragment()) {
+				release(shout);
+			}
+		}
+	}
+
+	protected int displaceShout(Order shout, Queue<Order> from,
+			Queue<Order> to) throws DuplicateShoutException {
+		version++;
 		shout = unifyShout(shout, from, to);
 //		to.add(from.remove());
 		insertShout(from, shout);
 		return shout.getQuantity();
 	}
 
-	public int promoteShout(Order shout, PriorityQueue<Order> from, PriorityQueue<Order> to,
-			PriorityQueue<Order> matched) throws DuplicateShoutException {
+	public int promoteShout(Order shout, Queue<Order> from, Queue<Order> to,
+			Queue<Order> matched) throws DuplicateShoutException {
+		version++;
 		shout = unifyShout(shout, from, to);
 //		to.add(from.remove());
 		insertShout(matched, shout);
@@ -309,6 +554,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	}
 
 	public void add(Order shout) throws DuplicateShoutException {
+		version++;
 		if (shout.isBid()) {
 			addBid(shout);
 		} else {
@@ -317,8 +563,144 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		checkIntegrity();
 	}
 
+	/**
+	 * <p>
+	 * Add a batch of orders to the book.
+	 * </p>
+	 * 
+	 * <p>
+	 * If the batch is at least as large as the existing book, the orders
+	 * already in the book are merged with the batch, the bids and asks are
+	 * each sorted once, and the four heaps are rebuilt in a single sweep
+	 * which pairs off the highest bids with the lowest asks for as long as
+	 * they cross. This takes O(n log n) time for n orders, and avoids the
+	 * promotions and displacements incurred by inserting the orders
+	 * individually. Smaller batches are inserted one order at a time.
+	 * </p>
+	 * 
+	 * <p>
+	 * As with the incremental insertion logic, an agent's bid is never
+	 * matched against its own ask. When the sweep reaches a bid and an ask
+	 * from the same agent, it instead matches the next crossing order from a
+	 * different agent on one side or the other, and stops if there is none.
+	 * </p>
+	 * 
+	 * @throws DuplicateShoutException
+	 *           if the batch contains an order more than once, or an order
+	 *           which is already in the book, in which case the book is left
+	 *           unchanged.
+	 */
+	public void addAll(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		if (shouts.size() < size()) {
+			for (Order shout : shouts) {
+				add(shout);
+			}
+			return;
+		}
+		Set<Order> batch = Collections.newSetFromMap(
+				new IdentityHashMap<Order, Boolean>(shouts.size() * 2));
+		for (Order shout : shouts) {
+			checkNotHeld(shout);
+			if (!batch.add(shout)) {
+				throw new DuplicateShoutException("Duplicate shout: "
+						+ shout.toString());
+			}
+		}
+		version++;
+		int n = size() + shouts.size();
+		ArrayList<Order> bids = new ArrayList<Order>(n);
+		ArrayList<Order> asks = new ArrayList<Order>(n);
+		bids.addAll(bIn);
+		bids.addAll(bOut);
+		asks.addAll(sIn);
+		asks.addAll(sOut);
+		bIn.clear();
+		bOut.clear();
+		sIn.clear();
+		sOut.clear();
+		for (Order shout : shouts) {
+			if (shout.getQuantity() <= 0) {
+				continue;
+			} else if (shout.isBid()) {
+				bids.add(shout);
+			} else {
+				asks.add(shout);
+			}
+		}
+		Collections.sort(bids, lessThan);
+		Collections.sort(asks, greaterThan);
+		int i = 0, j = 0;
+		boolean bidCarved = false, askCarved = false;
+		while (i < bids.size() && j < asks.size()) {
+			if (bids.get(i).isFromSameAgent(asks.get(j))
+					&& !(!askCarved && bringForward(asks, j, bids.get(i)))
+					&& !(!bidCarved && bringForward(bids, i, asks.get(j)))) {
+				break;
+			}
+			Order bid = bids.get(i);
+			Order ask = asks.get(j);
+			if (bid.getPriceAsDouble() < ask.getPriceAsDouble()) {
+				break;
+			}
+			int bidQuantity = bid.getQuantity();
+			int askQuantity = ask.getQuantity();
+			if (bidQuantity > askQuantity) {
+				insertShout(bIn, carve(bid, askQuantity));
+				insertShout(sIn, ask);
+				j++;
+				bidCarved = true;
+				askCarved = false;
+			} else if (askQuantity > bidQuantity) {
+				insertShout(sIn, carve(ask, bidQuantity));
+				insertShout(bIn, bid);
+				i++;
+				bidCarved = false;
+				askCarved = true;
+			} else {
+				insertShout(bIn, bid);
+				insertShout(sIn, ask);
+				i++;
+				j++;
+				bidCarved = false;
+				askCarved = false;
+			}
+		}
+		for (; i < bids.size(); i++) {
+			insertShout(bOut, bids.get(i));
+		}
+		for (; j < asks.size(); j++) {
+			insertShout(sOut, asks.get(j));
+		}
+		checkIntegrity();
+	}
+
+	/**
+	 * Move the first order after the given position in one side of a sorted
+	 * batch which crosses the specified order, and which was placed by a
+	 * different agent, forward into that position. Returns false if there is
+	 * no such order.
+	 */
+	protected boolean bringForward(List<Order> side, int position,
+			Order counterparty) {
+		for (int k = position + 1; k < side.size(); k++) {
+			Order shout = side.get(k);
+			Order bid = shout.isBid() ? shout : counterparty;
+			Order ask = shout.isBid() ? counterparty : shout;
+			if (bid.getPriceAsDouble() < ask.getPriceAsDouble()) {
+				return false;
+			}
+			if (!shout.isFromSameAgent(counterparty)) {
+				Collections.rotate(side.subList(position, k + 1), 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected void addBid(Order bid) throws DuplicateShoutException {
 
+		checkNotHeld(bid);
 		int uninsertedUnits = bid.getQuantity();
 
 		while (uninsertedUnits > 0) {
@@ -346,6 +728,7 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 
 	protected void addAsk(Order ask) throws DuplicateShoutException {
 
+		checkNotHeld(ask);
 		int uninsertedUnits = ask.getQuantity();
 
 		while (uninsertedUnits > 0) {
@@ -395,29 +778,28 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	 * </p>
 	 */
 	public List<Order> matchOrders() {
+		if (!sIn.isEmpty()) {
+			version++;
+		}
 		try {
 			ArrayList<Order> result = new ArrayList<Order>(sIn.size()
 					+ bIn.size());
 			while (!sIn.isEmpty()) {
-				Order sInTop = (Order) sIn.remove();
-				Order bInTop = (Order) bIn.remove();
-				int nS = sInTop.getQuantity();
-				int nB = bInTop.getQuantity();
-				// assert nS == nB;
-				if (nS < nB) {
-					// split the bid
-					Order remainder = bInTop.split(nB - nS);
-					addBid(remainder);
-				} else if (nB < nS) {
-					// split the ask
-					Order remainder = sInTop.split(nS - nB);
-					addAsk(remainder);
-				}
+				Order sInTop = sIn.remove();
+				Order bInTop = bIn.remove();
+				int quantity = 
+					Math.min(sInTop.getQuantity(), bInTop.getQuantity());
+				Order bid = fill(bInTop, quantity);
+				Order ask = fill(sInTop, quantity);
 				// assert bInTop.getAgent() != sInTop.getAgent();
-				result.add(bInTop);
-				result.add(sInTop);
-				bInTop.setFilled(true);
-				sInTop.setFilled(true);
+				if (bid.isFragment()) {
+					unlink(bid);
+				}
+				if (ask.isFragment()) {
+					unlink(ask);
+				}
+				result.add(bid);
+				result.add(ask);
 			}
 			assert bIn.isEmpty();
 			checkIntegrity();
@@ -427,7 +809,91 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		}
 	}
 
+	public void matchOrders(FillHandler handler) {
+		if (!sIn.isEmpty()) {
+			version++;
+		}
+		int start = numFills;
+		try {
+			while (!sIn.isEmpty()) {
+				Order sInTop = sIn.remove();
+				Order bInTop = bIn.remove();
+				int quantity = 
+					Math.min(sInTop.getQuantity(), bInTop.getQuantity());
+				Order bid = fill(bInTop, quantity);
+				Order ask = fill(sInTop, quantity);
+				newFill().set(bid.getOrigin(), ask.getOrigin(), quantity);
+				if (bid.isFragment()) {
+					release(bid);
+				}
+				if (ask.isFragment()) {
+					release(ask);
+				}
+			}
+		} catch (DuplicateShoutException e) {
+			throw new RuntimeException(e);
+		}
+		assert bIn.isEmpty();
+		checkIntegrity();
+		// The handler may cause further orders to be placed and matched
+		// before it returns, in which case the nested fills are recorded 
+		// beyond the end of ours.
+		int end = numFills;
+		try {
+			for (int i = start; i < end; i++) {
+				handler.onFill(fills[i]);
+			}
+		} finally {
+			for (int i = start; i < end; i++) {
+				fills[i].release();
+			}
+			numFills = start;
+		}
+	}
+
+	/**
+	 * Fill the specified quantity of an order which has been removed from
+	 * one of the matched heaps.  Any remaining volume is carved off and
+	 * returned to the matched heap, since it is still matched against the
+	 * volume remaining on the other side.
+	 * 
+	 * @return The order, or fragment, representing the filled volume.
+	 */
+	protected Order fill(Order shout, int quantity)
+			throws DuplicateShoutException {
+		Order filled = shout;
+		if (shout.getQuantity() > quantity) {
+			filled = carve(shout, quantity);
+			if (shout.isBid()) {
+				insertShout(bIn, shout);
+			} else {
+				insertShout(sIn, shout);
+			}
+		}
+		filled.setFilled(true);
+		filled.getOrigin().filledQuantity += quantity;
+		return filled;
+	}
+
+	protected Fill newFill() {
+		if (numFills == fills.length) {
+			fills = Arrays.copyOf(fills, Math.max(8, fills.length * 2));
+		}
+		Fill fill = fills[numFills];
+		if (fill == null) {
+			fill = new Fill();
+			fills[numFills] = fill;
+		}
+		numFills++;
+		return fill;
+	}
+
 	protected void initialise() {
+		version++;
+		releaseFragments(bIn);
+		releaseFragments(bOut);
+		releaseFragments(sIn);
+		releaseFragments(sOut);
 		bIn.clear();
 		bOut.clear();
 		sIn.clear();
@@ -449,14 +915,16 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 	 * @param quantity
 	 *            The total quantity to remove.
 	 */
-	protected void reinsert(PriorityQueue<Order> heap, int quantity) {
+	protected void reinsert(Queue<Order> heap, int quantity) {
 
 		while (quantity > 0) {
 
-			Order top = (Order) heap.remove();
+			Order top = heap.peek();
 
 			if (top.getQuantity() > quantity) {
-				heap.add(top.split(top.getQuantity() - quantity));
+				top = carveHead(heap, quantity);
+			} else {
+				heap.remove();
 			}
 
 			quantity -= top.getQuantity();
@@ -474,6 +942,13 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		
 	}
 
+	/**
+	 * Return the number of times the contents of the book have changed.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
 	/**
 	 * Compute the total number of orders in the book.
 	 */
@@ -481,6 +956,27 @@ public class FourHeapOrderBook implements OrderBook, Serializable {
 		return bIn.size() + bOut.size() + sIn.size() + sOut.size();
 	}
 	
+	/**
+	 * Reject an order which is already resting in the book before any of
+	 * the heaps are modified.
+	 */
+	protected void checkNotHeld(Order shout) throws DuplicateShoutException {
+		if (holds(shout)) {
+			throw new DuplicateShoutException("Duplicate shout: " + shout.toString());
+		}
+	}
+
+	/**
+	 * Returns true if the specified order is resting in one of the heaps.
+	 */
+	protected boolean holds(Order shout) {
+		if (shout.isBid()) {
+			return bIn.contains(shout) || bOut.contains(shout);
+		} else {
+			return sIn.contains(shout) || sOut.contains(shout);
+		}
+	}
+
 	@Override
 	public boolean isEmpty() {
 		return bIn.isEmpty() && sIn.isEmpty() && 
@@ -0,0 +1,251 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectInputValidation;
+import java.io.Serializable;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * A binary heap of orders in which every order records the heap that holds
+ * it and its slot within that heap. This allows an arbitrary order to be
+ * located, removed or tested for membership in O(log n) time, rather than
+ * the linear scan required by {@link java.util.PriorityQueue#remove(Object)}.
+ * </p>
+ *
+ * <p>
+ * Since an order can only occupy a single slot, an order may belong to at
+ * most one heap at a time, and offering an order which is already held by a
+ * heap, including this one, is an error.
+ * </p>
+ *
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class IndexedOrderHeap extends AbstractQueue<Order> implements
+		Serializable {
+
+	protected Order[] heap;
+
+	protected int size = 0;
+
+	protected Comparator<Order> comparator;
+
+	public static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+	public IndexedOrderHeap(int initialCapacity, Comparator<Order> comparator) {
+		this.heap = new Order[Math.max(1, initialCapacity)];
+		this.comparator = comparator;
+	}
+
+	public IndexedOrderHeap(Comparator<Order> comparator) {
+		this(DEFAULT_INITIAL_CAPACITY, comparator);
+	}
+
+	public boolean offer(Order order) {
+		if (order == null) {
+			throw new NullPointerException();
+		}
+		if (order.heap != null && order.heap.holds(order)) {
+			throw new IllegalStateException("Order " + order
+					+ " is already held by " 
+					+ (order.heap == this ? "this heap" : "another heap"));
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		order.heap = this;
+		siftUp(size++, order);
+		return true;
+	}
+
+	public Order peek() {
+		if (size == 0) {
+			return null;
+		}
+		return heap[0];
+	}
+
+	public Order poll() {
+		if (size == 0) {
+			return null;
+		}
+		Order result = heap[0];
+		removeAt(0);
+		return result;
+	}
+
+	public boolean remove(Object o) {
+		if (!(o instanceof Order) || !holds((Order) o)) {
+			return false;
+		}
+		removeAt(((Order) o).heapIndex);
+		return true;
+	}
+
+	public boolean contains(Object o) {
+		return o instanceof Order && holds((Order) o);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			release(heap[i]);
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Restore the heap invariant after the price or quantity of an order held
+	 * in this heap has been modified in place.
+	 *
+	 * @return false if the order is not held in this heap.
+	 */
+	public boolean update(Order order) {
+		if (!holds(order)) {
+			return false;
+		}
+		int i = order.heapIndex;
+		siftDown(i, order);
+		if (heap[i] == order) {
+			siftUp(i, order);
+		}
+		return true;
+	}
+
+	/**
+	 * Iterate over the orders in this heap. The iteration order is not
+	 * specified.
+	 */
+	public Iterator<Order> iterator() {
+		return new Iterator<Order>() {
+
+			int cursor = 0;
+
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			public Order next() {
+				if (cursor >= size) {
+					throw new NoSuchElementException();
+				}
+				return heap[cursor++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	protected boolean holds(Order order) {
+		int i = order.heapIndex;
+		return order.heap == this && i >= 0 && i < size && heap[i] == order;
+	}
+
+	protected void removeAt(int i) {
+		Order removed = heap[i];
+		int last = --size;
+		if (i == last) {
+			heap[last] = null;
+		} else {
+			Order moved = heap[last];
+			heap[last] = null;
+			siftDown(i, moved);
+			if (heap[i] == moved) {
+				siftUp(i, moved);
+			}
+		}
+		release(removed);
+	}
+
+	protected void siftUp(int i, Order order) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			Order p = heap[parent];
+			if (comparator.compare(order, p) >= 0) {
+				break;
+			}
+			place(i, p);
+			i = parent;
+		}
+		place(i, order);
+	}
+
+	protected void siftDown(int i, Order order) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = (i << 1) + 1;
+			Order c = heap[child];
+			int right = child + 1;
+			if (right < size && comparator.compare(c, heap[right]) > 0) {
+				c = heap[child = right];
+			}
+			if (comparator.compare(order, c) <= 0) {
+				break;
+			}
+			place(i, c);
+			i = child;
+		}
+		place(i, order);
+	}
+
+	protected void place(int i, Order order) {
+		heap[i] = order;
+		order.heapIndex = i;
+	}
+
+	protected static void release(Order order) {
+		order.heap = null;
+		order.heapIndex = -1;
+	}
+
+	/**
+	 * The handles of the orders are not serialised with them, so they are
+	 * restored once the whole object graph has been read, by which time
+	 * every order has been deserialised.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		in.registerValidation(new ObjectInputValidation() {
+			public void validateObject() {
+				for (int i = 0; i < size; i++) {
+					heap[i].heap = IndexedOrderHeap.this;
+					place(i, heap[i]);
+				}
+			}
+		}, 0);
+	}
+
+}
@@ -15,6 +15,7 @@
 
 package net.sourceforge.jasa.market;
 
+import java.util.Collection;
 import java.util.Iterator;
 
 import net.sourceforge.jabm.Population;
@@ -46,11 +47,26 @@ public interface Market extends QuoteProvider, Resetable {
 	 */
 	public void placeOrder(Order shout) throws AuctionException;
 
+	/**
+	 * Place a batch of new orders in the market at the same time.
+	 */
+	public void placeOrders(Collection<Order> orders) throws AuctionException;
+
 	/**
 	 * Remove an order from the market.
 	 */
 	public void removeOrder(Order shout);
 
+	/**
+	 * Revise the price and quantity of an order which is resting in the
+	 * market.
+	 * 
+	 * @return false if the order could not be amended in place, in which case
+	 *         it should be replaced by a new order.
+	 */
+	public boolean amendOrder(Order shout, double price, int quantity)
+			throws AuctionException;
+
 	/**
 	 * Return the most recent order placed in the market.
 	 */
@@ -72,6 +88,12 @@ public interface Market extends QuoteProvider, Resetable {
 	 */
 	public void clear(Order ask, Order bid, double price);
 
+	/**
+	 * Handle a single clearing operation between two traders
+	 *  for the specified volume.
+	 */
+	public void clear(Order ask, Order bid, double price, int quantity);
+
 	/**
 	 * Handle a single clearing operation between two traders
 	 *  specifying the prices paid by each party and the volume of 
@@ -18,7 +18,19 @@ package net.sourceforge.jasa.market;
 import java.io.Serializable;
 
 /**
+ * <p>
  * A price quote summarising the current state of an market.
+ * </p>
+ * 
+ * <p>
+ * Auctioneers maintain a single quote object which is updated in place as
+ * the top of the order book changes, so that reading the quote does not
+ * allocate.  Every change to the quote increments its version, so callers
+ * which consult the quote repeatedly can cheaply determine whether it has
+ * changed since they last looked by comparing {@link #getVersion()} with the
+ * value they saw previously.  Callers which need the quote to remain fixed
+ * should take a copy using {@link #MarketQuote(MarketQuote)}.
+ * </p>
  * 
  * @author Steve Phelps
  * @version $Revision$
@@ -30,13 +42,18 @@ public class MarketQuote implements Serializable {
 	 * The current ask-quote. Buyers need to beat this in order for their offers
 	 * to get matched.
 	 */
-	protected Double ask;
+	protected double ask;
 
 	/**
 	 * The current bid-quote. Sellers need to ask less than this in order for
 	 * their offers to get matched.
 	 */
-	protected Double bid;
+	protected double bid;
+
+	/**
+	 * The number of times that the quote has changed.
+	 */
+	protected long version = 0;
 
 	public MarketQuote(double ask, double bid) {
 		this.ask = ask;
@@ -44,24 +61,40 @@ public class MarketQuote implements Serializable {
 	}
 
 	public MarketQuote(Order ask, Order bid) {
-		if (ask == null) {
-			this.ask = Double.NaN;
-		} else {
-			this.ask = ask.getPriceAsDouble();
-		}
-		if (bid == null) {
-			this.bid = Double.NaN;
-		} else {
-			this.bid = bid.getPriceAsDouble();
+		this(priceOf(ask), priceOf(bid));
+	}
+
+	public MarketQuote(MarketQuote other) {
+		this(other.ask, other.bid);
+		this.version = other.version;
+	}
+
+	/**
+	 * Set both sides of the quote, incrementing the version if either
+	 * side has changed.
+	 *
+	 * @return true if the quote changed.
+	 */
+	public boolean update(double ask, double bid) {
+		if (same(this.ask, ask) && same(this.bid, bid)) {
+			return false;
 		}
+		this.ask = ask;
+		this.bid = bid;
+		version++;
+		return true;
+	}
+
+	public boolean update(Order ask, Order bid) {
+		return update(priceOf(ask), priceOf(bid));
 	}
 
 	public void setAsk(double ask) {
-		this.ask = ask;
+		update(ask, this.bid);
 	}
 
 	public void setBid(double bid) {
-		this.bid = bid;
+		update(this.ask, bid);
 	}
 
 	public double getAsk() {
@@ -71,6 +104,18 @@ public class MarketQuote implements Serializable {
 	public double getBid() {
 		return bid;
 	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return true if the quote has changed since it was at the specified
+	 *         version.
+	 */
+	public boolean hasChangedSince(long version) {
+		return this.version != version;
+	}
 	
 	public static boolean isValid(double quote) {
 		return (!Double.isNaN(quote) && !Double.isInfinite(quote));
@@ -93,8 +138,20 @@ public class MarketQuote implements Serializable {
 		return (ask + bid) / 2.0;
 	}
 
+	protected static double priceOf(Order order) {
+		if (order == null) {
+			return Double.NaN;
+		} else {
+			return order.getPriceAsDouble();
+		}
+	}
+
+	protected static boolean same(double x, double y) {
+		return Double.doubleToLongBits(x) == Double.doubleToLongBits(y);
+	}
+
 	public String toString() {
 		return "(MarketQuote bid:" + bid + " ask:" + ask + ")";
 	}
 
-}
\ No newline at end of file
+}
@@ -16,6 +16,7 @@
 package net.sourceforge.jasa.market;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Iterator;
 
 import net.sourceforge.jabm.AbstractSimulation;
@@ -23,20 +24,26 @@ import net.sourceforge.jabm.Population;
 import net.sourceforge.jabm.SimulationController;
 import net.sourceforge.jabm.SimulationTime;
 import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.event.EventListener;
 import net.sourceforge.jabm.event.RoundFinishedEvent;
 import net.sourceforge.jabm.event.RoundStartingEvent;
+import net.sourceforge.jabm.event.SimEvent;
 import net.sourceforge.jabm.event.SimulationFinishedEvent;
 import net.sourceforge.jabm.event.SimulationStartingEvent;
 import net.sourceforge.jasa.agent.AbstractTradingAgent;
 import net.sourceforge.jasa.agent.TradingAgent;
 import net.sourceforge.jasa.event.EndOfDayEvent;
 import net.sourceforge.jasa.event.MarketClosedEvent;
+import net.sourceforge.jasa.event.MarketEvent;
 import net.sourceforge.jasa.event.MarketOpenEvent;
+import net.sourceforge.jasa.event.OrderAmendedEvent;
+import net.sourceforge.jasa.event.OrderBatchPlacedEvent;
 import net.sourceforge.jasa.event.OrderPlacedEvent;
 import net.sourceforge.jasa.event.OrderReceivedEvent;
 import net.sourceforge.jasa.event.RoundClosingEvent;
 import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.auctioneer.Auctioneer;
+import net.sourceforge.jasa.market.journal.OrderJournal;
 import net.sourceforge.jasa.market.rules.AuctionClosingCondition;
 import net.sourceforge.jasa.market.rules.CombiTimingCondition;
 import net.sourceforge.jasa.market.rules.DayEndingCondition;
@@ -45,9 +52,12 @@ import net.sourceforge.jasa.market.rules.MaxRoundsAuctionClosingCondition;
 import net.sourceforge.jasa.market.rules.MaxRoundsDayEndingCondition;
 import net.sourceforge.jasa.market.rules.NullAuctionClosingCondition;
 import net.sourceforge.jasa.market.rules.TimingCondition;
+import net.sourceforge.jasa.report.VariableBoard;
 
 import org.apache.log4j.Logger;
 
+import cern.jet.random.engine.RandomEngine;
+
 /**
  * A simulation of an order-driven market.
  * 
@@ -86,6 +96,17 @@ public class MarketSimulation extends AbstractSimulation
 	 */
 	protected int day = 0;
 
+	/**
+	 * The sequence number of the most recent order placed in this market,
+	 * which is used to order orders placed during the same round.
+	 */
+	protected long orderSequenceNumber = 0;
+
+	/**
+	 * The most recent time returned by {@link #getSimulationTime()}.
+	 */
+	protected transient SimulationTime simulationTime;
+
 	protected TimingCondition closingCondition 
 		= new NullAuctionClosingCondition();
 
@@ -103,6 +124,57 @@ public class MarketSimulation extends AbstractSimulation
 	 */
 	protected double initialPrice = 0.0;
 
+	/**
+	 * The tick size shared by every order placed in this market.
+	 */
+	protected TickSize tickSize = TickSize.DEFAULT;
+
+	/**
+	 * If true, orders placed in a batch also fire an OrderReceivedEvent and
+	 * an OrderPlacedEvent for each order in the batch, for the benefit of
+	 * listeners which do not handle OrderBatchPlacedEvent.
+	 */
+	protected boolean individualBatchEvents = false;
+
+	/**
+	 * If true, the OrderReceivedEvent, OrderPlacedEvent and 
+	 * TransactionExecutedEvent fired by this market are reinitialised and
+	 * fired again instead of being allocated for every order and 
+	 * transaction.  Listeners must then not keep a reference to any of these
+	 * events once they have been notified of it.
+	 */
+	protected boolean reuseEvents = false;
+
+	/**
+	 * If true, every market event is stamped with the wall-clock time when 
+	 * it is fired.  Otherwise the physical time of an event is only taken
+	 * when a listener asks for it.
+	 */
+	protected boolean wallClockTimestamps = false;
+
+	/**
+	 * The events available for reuse.  An event is removed while it is
+	 * being dispatched, so that any event of the same type fired by a 
+	 * listener in the meantime is allocated afresh.
+	 */
+	protected OrderReceivedEvent reusableOrderReceivedEvent;
+
+	protected OrderPlacedEvent reusableOrderPlacedEvent;
+
+	protected TransactionExecutedEvent reusableTransactionEvent;
+
+	/**
+	 * If non-null, the journal to which the order flow and clearing
+	 * decisions of this market are recorded.
+	 */
+	protected transient OrderJournal journal;
+
+	/**
+	 * The board on which the latest values of report variables for this
+	 * market are posted; created when first requested.
+	 */
+	protected transient volatile VariableBoard variableBoard;
+
 	public static final String ERROR_SHOUTSVISIBLE 
 		= "Auctioneer does not permit shout inspection";
 
@@ -123,6 +195,7 @@ public class MarketSimulation extends AbstractSimulation
 		round = 0;
 		endOfRound = false;
 		age = 0;
+		orderSequenceNumber = 0;
 		closed = false;	
 	}
 	
@@ -133,21 +206,36 @@ public class MarketSimulation extends AbstractSimulation
 	
 	public void reset() {
 		initialiseCounters();
+		if (variableBoard != null) {
+			variableBoard.reset();
+		}
 	}
 	
 	public void informAuctionClosed() {
+		if (journal != null) {
+			journal.recordMarketClosed(getAge());
+		}
 		fireEvent(new MarketClosedEvent(this, getRound()));
 	}
 
 	public void informEndOfDay() {
+		if (journal != null) {
+			journal.recordEndOfDay(getAge());
+		}
 		fireEvent(new EndOfDayEvent(this, getRound()));
 	}
 
 	public void informAuctionOpen() {
+		if (journal != null) {
+			journal.recordMarketOpen(getAge());
+		}
 		fireEvent(new MarketOpenEvent(this, getRound()));
 	}
 	
 	public void informRoundOpening() {
+		if (journal != null) {
+			journal.recordRoundStarting(getAge());
+		}
 		fireEvent(new RoundStartingEvent(this));
 	}
 
@@ -232,6 +320,38 @@ public class MarketSimulation extends AbstractSimulation
 		fireEvent(new SimulationFinishedEvent(this));
 	}
 
+	/**
+	 * Continue a simulation which has already begun, for example one
+	 * restored from a snapshot, until the market closes.
+	 */
+	public void completeRun() {
+		while (!closed) {
+			step();
+		}
+		end();
+	}
+
+	/**
+	 * Take a snapshot of the current state of the market from which
+	 * independent continuations can be restored.
+	 * 
+	 * @see MarketSnapshot
+	 */
+	public MarketSnapshot snapshot(RandomEngine prng,
+			EventListener... listeners) {
+		return new MarketSnapshot(this, prng, listeners);
+	}
+
+	/**
+	 * Create an independent deep copy of this market attached to a new
+	 * simulation controller.
+	 * 
+	 * @see MarketSnapshot
+	 */
+	public MarketSimulation fork() {
+		return new MarketSnapshot(this).restore();
+	}
+
 	/**
 	 * Step through a single tick of the simulation.
 	 */
@@ -273,6 +393,9 @@ public class MarketSimulation extends AbstractSimulation
 	}
 
 	public void informRoundClosing() {
+		if (journal != null) {
+			journal.recordRoundClosing(getAge());
+		}
 		fireEvent(new RoundClosingEvent(this, getAge()));
 	}
 
@@ -442,7 +565,10 @@ public class MarketSimulation extends AbstractSimulation
 
 	@Override
 	public SimulationTime getSimulationTime() {
-		return new SimulationTime(age);
+		if (simulationTime == null || simulationTime.getTicks() != age) {
+			simulationTime = new SimulationTime(age);
+		}
+		return simulationTime;
 	}
 
 	/**
@@ -453,10 +579,22 @@ public class MarketSimulation extends AbstractSimulation
 	 */
 	public void clear(Order ask, Order bid, double transactionPrice) {
 		assert ask.getQuantity() == bid.getQuantity();
+		clear(ask, bid, transactionPrice, ask.getQuantity());
+	}
+
+	/**
+	 * Match the specified quantity of a buy order with a sell order at the
+	 * specified price and inform both parties of the resulting transaction.
+	 * 
+	 * @param transactionPrice  The price of the transaction.
+	 * @param quantity  The volume of the transaction.
+	 */
+	public void clear(Order ask, Order bid, double transactionPrice,
+			int quantity) {
 		assert transactionPrice >= ask.getPriceAsDouble();
 		assert transactionPrice <= bid.getPriceAsDouble();
 		lastTransactionPrice = transactionPrice;
-		clear(ask, bid, transactionPrice, transactionPrice, ask.getQuantity());
+		clear(ask, bid, transactionPrice, transactionPrice, quantity);
 	}
 
 	/**
@@ -478,14 +616,26 @@ public class MarketSimulation extends AbstractSimulation
 	public void clear(Order ask, Order bid, double buyerCharge,
 	    double sellerPayment, int quantity) {
 
+		if (journal != null) {
+			journal.recordTransaction(getAge(), ask, bid, buyerCharge,
+					sellerPayment, quantity);
+		}
+
+		fireTransactionExecutedEvent(ask, bid, buyerCharge, quantity);
+
+		settle(ask, bid, buyerCharge, sellerPayment, quantity);
+	}
+
+	/**
+	 * Transfer funds and stock between the parties to a transaction and
+	 * inform them that their orders have been filled.
+	 */
+	protected void settle(Order ask, Order bid, double buyerCharge,
+			double sellerPayment, int quantity) {
+
 		TradingAgent buyer = (TradingAgent) bid.getAgent();
 		TradingAgent seller = (TradingAgent) ask.getAgent();
 
-		TransactionExecutedEvent transactionEvent = new TransactionExecutedEvent(
-				this, getAge(), ask,
-				bid, buyerCharge, ask.getQuantity());
-		fireEvent(transactionEvent);
-		
 		auctioneer.getAccount().doubleEntry(buyer.getAccount(), buyerCharge*quantity,
 		    seller.getAccount(), sellerPayment*quantity);
 		
@@ -567,14 +717,11 @@ public class MarketSimulation extends AbstractSimulation
 
 
 	public void removeOrder(Order shout) {
-		// Remove this shout and all of its children.
-		for (Order s = shout; s != null; s = s.getChild()) {
-			auctioneer.removeOrder(s);
-			// if ( s != shout ) {
-			// ShoutPool.release(s);
-			// }
+		if (journal != null) {
+			journal.recordOrderRemoved(getAge(), shout);
 		}
-		shout.makeChildless();
+		// The order book removes any fragments of partially-matched orders.
+		auctioneer.removeOrder(shout);
 	}
 	
 	/**
@@ -590,10 +737,143 @@ public class MarketSimulation extends AbstractSimulation
 		if (order == null) {
 			throw new IllegalOrderException("null shout");
 		}
-		fireEvent(new OrderReceivedEvent(this, getRound(), order));
-		order.setTimeStamp(getSimulationTime());
+		fireOrderReceivedEvent(order);
+		order.setTimeStamp(age, ++orderSequenceNumber);
+		order.setTickSize(tickSize);
+		if (journal != null) {
+			journal.recordOrderPlaced(getAge(), order);
+		}
 		auctioneer.newOrder(order);
-		fireEvent(new OrderPlacedEvent(this, getAge(), order));
+		fireOrderPlacedEvent(order);
+	}
+
+	/**
+	 * Submit a batch of new orders to the market. Every order in the batch
+	 * receives the same time stamp, and the batch is passed to the auctioneer
+	 * as a whole, so that auctioneers which only clear periodically can
+	 * build the order book in a single operation. A single
+	 * OrderBatchPlacedEvent is fired once the batch has been processed.
+	 * 
+	 * @param orders
+	 *          The new orders. Each order must appear at most once.
+	 */
+	public void placeOrders(Collection<Order> orders) throws AuctionException {
+		if (closed()) {
+			throw new AuctionClosedException("Auction is closed.");
+		}
+		if (orders == null) {
+			throw new IllegalOrderException("null batch");
+		}
+		long sequenceNumber = ++orderSequenceNumber;
+		for (Order order : orders) {
+			if (order == null) {
+				throw new IllegalOrderException("null shout");
+			}
+			if (individualBatchEvents) {
+				fireOrderReceivedEvent(order);
+			}
+			order.setTimeStamp(age, sequenceNumber);
+			order.setTickSize(tickSize);
+		}
+		if (journal != null) {
+			journal.recordBatchPlaced(getAge(), orders);
+		}
+		auctioneer.newOrders(orders);
+		if (individualBatchEvents) {
+			for (Order order : orders) {
+				fireOrderPlacedEvent(order);
+			}
+		}
+		fireEvent(new OrderBatchPlacedEvent(this, getAge(), orders));
+	}
+
+	/**
+	 * Revise the price and quantity of an order which is resting in the
+	 * market. The order is repositioned in the book without being removed and
+	 * re-submitted, and it retains its original time stamp. The quantity
+	 * specified replaces the volume of the order which is yet to be filled.
+	 * 
+	 * @param order
+	 *          The order to amend.
+	 * @param price
+	 *          The new price.
+	 * @param quantity
+	 *          The new quantity.
+	 * @return false if the order is no longer resting in the market, in which
+	 *         case the caller should place a new order instead.
+	 */
+	public boolean amendOrder(Order order, double price, int quantity)
+			throws AuctionException {
+		if (closed()) {
+			throw new AuctionClosedException("Auction is closed.");
+		}
+		if (order == null) {
+			throw new IllegalOrderException("null shout");
+		}
+		double previousPrice = order.getPriceAsDouble();
+		int previousQuantity = order.getQuantity();
+		if (!auctioneer.amendOrder(order, price, quantity)) {
+			return false;
+		}
+		if (journal != null) {
+			journal.recordOrderAmended(getAge(), order, previousPrice, price,
+					quantity);
+		}
+		fireEvent(new OrderAmendedEvent(this, getAge(), order, previousPrice,
+				previousQuantity));
+		return true;
+	}
+
+	@Override
+	public void fireEvent(SimEvent event) {
+		if (wallClockTimestamps && event instanceof MarketEvent) {
+			((MarketEvent) event).setPhysicalTime(System.currentTimeMillis());
+		}
+		super.fireEvent(event);
+	}
+
+	protected void fireOrderReceivedEvent(Order order) {
+		OrderReceivedEvent event = reusableOrderReceivedEvent;
+		if (event == null) {
+			event = new OrderReceivedEvent(this, getRound(), order);
+		} else {
+			reusableOrderReceivedEvent = null;
+			event.initialise(this, getRound(), order);
+		}
+		fireEvent(event);
+		if (reuseEvents) {
+			reusableOrderReceivedEvent = event;
+		}
+	}
+
+	protected void fireOrderPlacedEvent(Order order) {
+		OrderPlacedEvent event = reusableOrderPlacedEvent;
+		if (event == null) {
+			event = new OrderPlacedEvent(this, getAge(), order);
+		} else {
+			reusableOrderPlacedEvent = null;
+			event.initialise(this, getAge(), order);
+		}
+		fireEvent(event);
+		if (reuseEvents) {
+			reusableOrderPlacedEvent = event;
+		}
+	}
+
+	protected void fireTransactionExecutedEvent(Order ask, Order bid,
+			double price, int quantity) {
+		TransactionExecutedEvent event = reusableTransactionEvent;
+		if (event == null) {
+			event = new TransactionExecutedEvent(this, getAge(), ask, bid,
+					price, quantity);
+		} else {
+			reusableTransactionEvent = null;
+			event.initialise(this, getAge(), ask, bid, price, quantity);
+		}
+		fireEvent(event);
+		if (reuseEvents) {
+			reusableTransactionEvent = event;
+		}
 	}
 
 	public void printState() {
@@ -655,6 +935,81 @@ public class MarketSimulation extends AbstractSimulation
 		this.initialPrice = initialPrice;
 	}
 
+	public TickSize getTickSize() {
+		return tickSize;
+	}
+
+	public void setTickSize(TickSize tickSize) {
+		this.tickSize = tickSize;
+	}
+
+	/**
+	 * Configure the tick size of this market as 10^-exponent units of
+	 * currency.
+	 */
+	public void setTickExponent(int exponent) {
+		this.tickSize = TickSize.forExponent(exponent);
+	}
+
+	public boolean isIndividualBatchEvents() {
+		return individualBatchEvents;
+	}
+
+	public void setIndividualBatchEvents(boolean individualBatchEvents) {
+		this.individualBatchEvents = individualBatchEvents;
+	}
+
+	public boolean isReuseEvents() {
+		return reuseEvents;
+	}
+
+	public void setReuseEvents(boolean reuseEvents) {
+		this.reuseEvents = reuseEvents;
+		if (!reuseEvents) {
+			reusableOrderReceivedEvent = null;
+			reusableOrderPlacedEvent = null;
+			reusableTransactionEvent = null;
+		}
+	}
+
+	public boolean isWallClockTimestamps() {
+		return wallClockTimestamps;
+	}
+
+	public void setWallClockTimestamps(boolean wallClockTimestamps) {
+		this.wallClockTimestamps = wallClockTimestamps;
+	}
+
+	public OrderJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * Record the order flow and clearing decisions of this market to the
+	 * specified journal, or stop recording if the journal is null.  The
+	 * journal is not closed by the market.
+	 */
+	public void setJournal(OrderJournal journal) {
+		this.journal = journal;
+	}
+
+	public VariableBoard getVariableBoard() {
+		VariableBoard board = variableBoard;
+		if (board == null) {
+			synchronized (this) {
+				board = variableBoard;
+				if (board == null) {
+					board = variableBoard = new VariableBoard();
+				}
+			}
+		}
+		return board;
+	}
+
+	public void setVariableBoard(VariableBoard variableBoard) {
+		this.variableBoard = variableBoard;
+	}
+
 	@Override
 	public void terminate() {
 		super.terminate();
@@ -0,0 +1,276 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.agent.AbstractAgent;
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.event.EventListener;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * <p>
+ * A frozen copy of the state of a market, from which any number of
+ * independent continuations can be restored.  The market, its auctioneer,
+ * order book, traders, strategies and any listeners passed to the
+ * constructor are serialized once when the snapshot is taken, and each call
+ * to <code>restore()</code> deserializes a fresh deep copy which can be run
+ * without affecting the original or any other fork.
+ * </p>
+ * <p>
+ * The simulation controller is not part of the snapshot: each fork is
+ * attached to its own controller, and the auctioneer, the traders and the
+ * listeners passed to the constructor are subscribed to it.  Any other
+ * listeners registered with the original controller must be registered
+ * with the fork explicitly.  Optionally a random number generator shared by
+ * the market can be designated so that each fork can be given its own
+ * stream of random numbers; otherwise every fork continues from a copy of
+ * the generator's state at the time of the snapshot.
+ * </p>
+ * <p>
+ * Snapshots should be taken between rounds, for example from an
+ * <code>EndOfDayEvent</code> or after calling <code>step()</code>.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MarketSnapshot {
+
+	protected byte[] state;
+
+	protected Class<? extends SimulationController> controllerClass;
+
+	protected byte[] prngState;
+
+	/**
+	 * Placeholders written in place of the objects which are substituted
+	 * when the snapshot is restored.
+	 */
+	protected enum External {
+		CONTROLLER, PRNG
+	}
+
+	public MarketSnapshot(MarketSimulation market) {
+		this(market, null);
+	}
+
+	/**
+	 * Take a snapshot of the specified market.
+	 * 
+	 * @param market
+	 *            The market to copy.
+	 * @param prng
+	 *            The random number generator which can be replaced when the
+	 *            snapshot is restored, or null.
+	 * @param listeners
+	 *            Listeners which are copied along with the market and
+	 *            subscribed to the controller of each fork.
+	 */
+	public MarketSnapshot(MarketSimulation market, RandomEngine prng,
+			EventListener... listeners) {
+		SimulationController controller = market.getSimulationController();
+		if (controller == null) {
+			throw new IllegalArgumentException(
+					"The market has no simulation controller");
+		}
+		this.controllerClass = controller.getClass();
+		ArrayList<EventListener> listenerList = new ArrayList<EventListener>(
+				Arrays.asList(listeners));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ObjectOutputStream out = new SnapshotOutputStream(bytes,
+					controller, prng);
+			out.writeObject(market);
+			out.writeObject(listenerList);
+			out.close();
+			this.state = bytes.toByteArray();
+			if (prng != null) {
+				bytes = new ByteArrayOutputStream();
+				out = new ObjectOutputStream(bytes);
+				out.writeObject(prng);
+				out.close();
+				this.prngState = bytes.toByteArray();
+			}
+		} catch (IOException e) {
+			throw new AuctionRuntimeException(
+					"Unable to take a snapshot of " + market + ": " + e);
+		}
+	}
+
+	/**
+	 * Restore a copy of the market attached to a new controller of the same
+	 * class as the original, continuing from a copy of the original random
+	 * number generator.
+	 */
+	public MarketSimulation restore() {
+		return restore(null, null);
+	}
+
+	/**
+	 * Restore a copy of the market attached to a new controller of the same
+	 * class as the original, using the specified random number generator in
+	 * place of the one designated when the snapshot was taken.
+	 */
+	public MarketSimulation restore(RandomEngine prng) {
+		return restore(null, prng);
+	}
+
+	/**
+	 * Restore a copy of the market.
+	 * 
+	 * @param controller
+	 *            The controller for the copy, or null to create a new
+	 *            controller of the same class as the original.
+	 * @param prng
+	 *            The random number generator for the copy, or null to
+	 *            continue from a copy of the original generator.
+	 */
+	@SuppressWarnings("unchecked")
+	public MarketSimulation restore(SimulationController controller,
+			RandomEngine prng) {
+		if (prng != null && prngState == null) {
+			throw new IllegalArgumentException(
+					"No random number generator was designated in the snapshot");
+		}
+		if (controller == null) {
+			controller = createController();
+		}
+		MarketSimulation market;
+		List<EventListener> listeners;
+		try {
+			if (prng == null && prngState != null) {
+				ObjectInputStream in = new ObjectInputStream(
+						new ByteArrayInputStream(prngState));
+				prng = (RandomEngine) in.readObject();
+				in.close();
+			}
+			ObjectInputStream in = new SnapshotInputStream(
+					new ByteArrayInputStream(state), controller, prng);
+			market = (MarketSimulation) in.readObject();
+			listeners = (List<EventListener>) in.readObject();
+			in.close();
+		} catch (IOException e) {
+			throw new AuctionRuntimeException("Unable to restore snapshot: "
+					+ e);
+		} catch (ClassNotFoundException e) {
+			throw new AuctionRuntimeException("Unable to restore snapshot: "
+					+ e);
+		}
+		if (controller instanceof SpringSimulationController) {
+			SpringSimulationController springController = 
+					(SpringSimulationController) controller;
+			springController.setSimulation(market);
+			springController.setPopulation(market.getPopulation());
+		}
+		subscribe(market, listeners);
+		return market;
+	}
+
+	/**
+	 * The size of the serialized state in bytes.
+	 */
+	public int size() {
+		return state.length + (prngState == null ? 0 : prngState.length);
+	}
+
+	protected void subscribe(MarketSimulation market,
+			List<EventListener> listeners) {
+		market.addListener(market.getAuctioneer());
+		for (Agent agent : market.getTraders().getAgents()) {
+			if (agent instanceof AbstractAgent) {
+				((AbstractAgent) agent).subscribeToEvents();
+			}
+		}
+		for (EventListener listener : listeners) {
+			market.addListener(listener);
+		}
+	}
+
+	protected SimulationController createController() {
+		try {
+			return controllerClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new AuctionRuntimeException("Unable to create a "
+					+ controllerClass + ": " + e);
+		}
+	}
+
+	protected static class SnapshotOutputStream extends ObjectOutputStream {
+
+		protected SimulationController controller;
+
+		protected RandomEngine prng;
+
+		public SnapshotOutputStream(OutputStream out,
+				SimulationController controller, RandomEngine prng)
+				throws IOException {
+			super(out);
+			this.controller = controller;
+			this.prng = prng;
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			if (obj == controller) {
+				return External.CONTROLLER;
+			} else if (obj == prng) {
+				return External.PRNG;
+			}
+			return obj;
+		}
+	}
+
+	protected static class SnapshotInputStream extends ObjectInputStream {
+
+		protected SimulationController controller;
+
+		protected RandomEngine prng;
+
+		public SnapshotInputStream(InputStream in,
+				SimulationController controller, RandomEngine prng)
+				throws IOException {
+			super(in);
+			this.controller = controller;
+			this.prng = prng;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException {
+			if (obj == External.CONTROLLER) {
+				return controller;
+			} else if (obj == External.PRNG) {
+				return prng;
+			}
+			return obj;
+		}
+	}
+
+}
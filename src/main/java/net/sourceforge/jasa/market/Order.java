@@ -15,6 +15,8 @@
 
 package net.sourceforge.jasa.market;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.Iterator;
@@ -43,14 +45,35 @@ import net.sourceforge.jasa.agent.TradingAgent;
 public class Order implements Comparable<Order>, Cloneable, Serializable {
 
 	/**
-	 * The volume of this order.
+	 * The volume of this order which is yet to be filled.  When an order
+	 * is partially filled its quantity is reduced accordingly.
 	 */
 	protected int quantity;
 
 	/**
-	 * The price of this offer.
+	 * The total volume of this order which has been filled to date.
 	 */
-	protected Price price;
+	protected int filledQuantity = 0;
+
+	/**
+	 * The price of this offer as a whole number of ticks.
+	 */
+	protected long priceTicks;
+
+	/**
+	 * The price of this offer, rounded to a whole number of ticks.
+	 */
+	protected double doublePrice;
+
+	/**
+	 * The tick size which determines the precision of the price.
+	 */
+	protected TickSize tickSize = TickSize.DEFAULT;
+
+	/**
+	 * A cached view of the price, created on demand by {@link #getPrice()}.
+	 */
+	protected transient Price priceView;
 
 	/**
 	 * The agent placing this order.
@@ -63,17 +86,23 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	protected boolean isBid;
 	
 	/**
-	 * The time that this order was placed.
+	 * The tick at which this order was placed, or {@link #NOT_TIME_STAMPED}.
 	 */
-	protected SimulationTime timeStamp;
-	
+	protected long time = NOT_TIME_STAMPED;
+
 	/**
-	 * The child of this order.  When orders are partially filled 
-	 *  they are split into multiple orders.  The complete set of
-	 *  orders, both filled and unfilled, can be retrieved
-	 *  by recursively following the child references.
+	 * The sequence number allocated to this order by the market in which
+	 * it was placed, which orders orders placed during the same tick.
 	 */
-	protected Order child = null;
+	protected long sequenceNumber = 0;
+
+	/**
+	 * A cached view of the time stamp, created on demand by
+	 * {@link #getTimeStamp()}.
+	 */
+	protected transient SimulationTime timeStampView;
+
+	public static final long NOT_TIME_STAMPED = Long.MIN_VALUE;
 	
 	/**
 	 * True if this order has been completely filled
@@ -81,19 +110,43 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	 */
 	protected boolean filled = false;
 
+	/**
+	 * The heap of the order book which currently holds this order, if any.
+	 * The heap restores this handle when it is deserialised.
+	 */
+	transient IndexedOrderHeap heap = null;
+
+	/**
+	 * The slot occupied by this order in its heap.
+	 */
+	transient int heapIndex = -1;
+
+	/**
+	 * If this order is a fragment created by the order book to hold part of
+	 * a partially-matched order, the order from which it was carved.
+	 */
+	Order origin = null;
+
+	/**
+	 * The next fragment in the list of live fragments belonging to an order,
+	 * or in the order book's list of free fragments.  For an order which is
+	 * not itself a fragment, the head of its list of live fragments.
+	 */
+	Order nextFragment = null;
+
 	static DecimalFormat currencyFormatter = new DecimalFormat(
 	    "+#########0.00;-#########.00");
 
 	public Order(TradingAgent agent, int quantity, double price, boolean isBid) {
 		this(agent);
 		this.quantity = quantity;
-		this.price = new Price(price);
+		setPrice(price);
 		this.isBid = isBid;
 	}
 	
 	public Order(TradingAgent agent, int quantity, double price, boolean isBid, SimulationTime timeStamp) {
 		this(agent, quantity, price, isBid);
-		this.timeStamp = timeStamp;
+		setTimeStamp(timeStamp);
 	}
 
 	public Order(Order existing) {
@@ -114,12 +167,34 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	}
 
 	public double getPriceAsDouble() {
-		return price.doubleValue();
+		return doublePrice;
+	}
+
+	/**
+	 * Get the price of this order as a whole number of ticks.
+	 */
+	public long getPriceTicks() {
+		return priceTicks;
+	}
+
+	public TickSize getTickSize() {
+		return tickSize;
 	}
 
+	/**
+	 * Get a view of the price of this order.  The view is cached until the
+	 * price of the order is changed, and so callers on performance-critical
+	 * paths should prefer {@link #getPriceTicks()} or
+	 * {@link #getPriceAsDouble()}.
+	 */
 	public Price getPrice() {
-	    return price;
-    }
+		Price view = priceView;
+		if (view == null || view.longValue() != priceTicks) {
+			view = new Price(priceTicks, tickSize);
+			priceView = view;
+		}
+		return view;
+	}
 
 	public TradingAgent getAgent() {
 		return agent;
@@ -133,6 +208,13 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 		return !isBid;
 	}
 
+	/**
+	 * Returns true if both orders were placed by the same trading agent.
+	 */
+	public boolean isFromSameAgent(Order other) {
+		return agent != null && agent.equals(other.agent);
+	}
+
 	/**
 	 * Check whether two orders "cross"; that is, check whether this order could
 	 * potentially be matched against the supplied order resulting in a
@@ -150,24 +232,44 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	}
 
 	public int compareTo(Order other) {
-		int priceComparision = other.price.compareTo(this.price);
-		if (priceComparision != 0) {
-			return priceComparision;
+		if (priceTicks != other.priceTicks) {
+			return priceTicks < other.priceTicks ? -1 : 1;
 		} else if (quantity < other.quantity) {
 			return 1;
 		} else if (quantity > other.quantity) {
 			return -1;
-		} else if (timeStamp != null && timeStamp.getTicks() < other.timeStamp.getTicks()) {
-			return 1;
-		} else if (timeStamp != null && timeStamp.getTicks() > other.timeStamp.getTicks()) {
-			return -1;
+		} else {
+			return compareTimeStamps(this, other);
+		}
+	}
+
+	/**
+	 * Compare the time stamps of two orders, ranking the order which was
+	 * placed first highest.  Orders which have not been time-stamped are
+	 * ranked equally with every other order.
+	 */
+	static int compareTimeStamps(Order shout1, Order shout2) {
+		if (shout1.time == NOT_TIME_STAMPED
+				|| shout2.time == NOT_TIME_STAMPED) {
+			return 0;
+		} else if (shout1.time != shout2.time) {
+			return shout1.time < shout2.time ? 1 : -1;
+		} else if (shout1.sequenceNumber != shout2.sequenceNumber) {
+			return shout1.sequenceNumber < shout2.sequenceNumber ? 1 : -1;
 		} else {
 			return 0;
 		}
 	}
 
+	/**
+	 * Returns true if this order was placed before the specified order.
+	 */
+	public boolean placedBefore(Order other) {
+		return compareTimeStamps(this, other) > 0;
+	}
+
 	public boolean isValid() {
-	    return !price.isNegative() && quantity > 0;
+	    return priceTicks >= 0 && quantity > 0;
 //		if (price.isNegative()) {
 //			return false;
 //		}
@@ -180,13 +282,24 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 //		return true;
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		heap = null;
+		heapIndex = -1;
+	}
+
 	public Object clone() throws CloneNotSupportedException {
-		return super.clone();
+		Order copy = (Order) super.clone();
+		copy.heap = null;
+		copy.heapIndex = -1;
+		copy.nextFragment = null;
+		return copy;
 	}
 
 	public String toString() {
 		return "(" + getClass() + " id:" + hashCode() + " quantity:" + quantity + " price:"
-		    + price + " isBid:" + isBid + " agent:" + agent + ")";
+		    + doublePrice + " isBid:" + isBid + " agent:" + agent + ")";
 	}
 
 	public String toPrettyString() {
@@ -195,7 +308,7 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 //			p = -p;
 //		}
 		String orderSign = isBid ? "+" : "-";
-		return orderSign + " " + price.toPrettyString() + "/" + quantity;
+		return orderSign + " " + getPrice().toPrettyString() + "/" + quantity;
 	}
 
 	public static double maxPrice(Order s1, Order s2) {
@@ -217,12 +330,34 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	}
 
 	/**
-	 * Get the child of this shout. Shouts have children when they are split().
+	 * Get the order that this order is part of.  Orders which have been
+	 * partially matched may be represented in the order book by several
+	 * fragments, each of which reports the original order as its origin.
 	 * 
-	 * @return The child Shout object, or null if this Shout is childless.
+	 * @return The original order, or this order if it is not a fragment.
+	 */
+	public Order getOrigin() {
+		return origin == null ? this : origin;
+	}
+
+	/**
+	 * Returns true if this order was created by the order book to hold part
+	 * of a partially-matched order.
 	 */
-	public Order getChild() {
-		return child;
+	public boolean isFragment() {
+		return origin != null;
+	}
+
+	public int getFilledQuantity() {
+		return filledQuantity;
+	}
+
+	/**
+	 * Get the volume of this order which has not yet been filled, including
+	 * any volume which has been matched but not yet cleared.
+	 */
+	public int getRemainingQuantity() {
+		return (int) aggregateUnfilledVolume();
 	}
 
 
@@ -236,57 +371,15 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	// that are part of the net.sourceforge.jasa.market package.
 	//
 
-	void makeChildless() {
-		if (child != null) {
-			child.makeChildless();
-			child = null;
-		}
-	}
-
 	public void copyFrom(Order other) {
-		this.price = other.price;
+		this.priceTicks = other.priceTicks;
+		this.doublePrice = other.doublePrice;
+		this.tickSize = other.tickSize;
+		this.priceView = other.priceView;
 		this.agent = other.getAgent();
 		this.quantity = other.getQuantity();
 		this.isBid = other.isBid();
 //		this.id = other.getId();
-		child = null;
-	}
-
-	/**
-	 * Reduce the quantity of this shout by excess and return a new child shout
-	 * containing the excess quantity. After a split, parent shouts keep a
-	 * reference to their children.
-	 * 
-	 * @param excess
-	 *          The excess quantity
-	 * 
-	 */
-	Order split(int excess) {
-		this.quantity -= excess;
-		try {
-//			this.child = null;
-			this.child = (Order) this.clone();
-			this.child.setQuantity(excess);
-		} catch (CloneNotSupportedException e) {
-			throw new RuntimeException(e);
-		}
-		assert this.isValid();
-		assert child.isValid();
-		return this.child;
-	}
-
-	Order splat(int excess) {
-		try {
-//			this.child = null;
-			this.child = (Order) this.clone();
-			this.child.setQuantity(this.quantity - excess);
-		} catch (CloneNotSupportedException e) {
-			throw new RuntimeException(e);
-		}
-		this.quantity = excess;
-		assert this.isValid();
-		assert child.isValid();
-		return this.child;
 	}
 
 	public void setIsBid(boolean isBid) {
@@ -298,23 +391,84 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	}
 
 	public void setPrice(double price) {
-		this.price = new Price(price);
+		setPriceTicks(tickSize.toTicks(price));
 	}
 
 	public void setPrice(Price price) {
-		this.price = price;
+		if (price.multiplier == tickSize.getMultiplier()) {
+			setPriceTicks(price.longValue());
+		} else {
+			setPrice(price.doubleValue());
+		}
+	}
+
+	/**
+	 * Set the price of this order as a whole number of ticks of its tick
+	 * size.
+	 */
+	public void setPriceTicks(long priceTicks) {
+		this.priceTicks = priceTicks;
+		this.doublePrice = tickSize.toDouble(priceTicks);
+	}
+
+	/**
+	 * Change the precision with which the price of this order is
+	 * represented, rounding the current price down to the new tick size if
+	 * necessary.  Markets set the tick size of each order placed in them.
+	 */
+	public void setTickSize(TickSize tickSize) {
+		if (tickSize != this.tickSize) {
+			this.tickSize = tickSize;
+			setPrice(doublePrice);
+		}
 	}
 
 	public void setQuantity(int quantity) {
 		this.quantity = quantity;
 	}
 
+	/**
+	 * Get the time at which this order was placed.
+	 * 
+	 * @return The time stamp, or null if the order has not been placed.
+	 */
 	public SimulationTime getTimeStamp() {
-		return timeStamp;
+		if (time == NOT_TIME_STAMPED) {
+			return null;
+		}
+		if (timeStampView == null || timeStampView.getTicks() != time) {
+			timeStampView = new SimulationTime(time);
+		}
+		return timeStampView;
 	}
 
 	public void setTimeStamp(SimulationTime timeStamp) {
-		this.timeStamp = timeStamp;
+		if (timeStamp == null) {
+			setTimeStamp(NOT_TIME_STAMPED, 0);
+		} else {
+			setTimeStamp(timeStamp.getTicks(), 0);
+			this.timeStampView = timeStamp;
+		}
+	}
+
+	public void setTimeStamp(long time, long sequenceNumber) {
+		this.time = time;
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	/**
+	 * The tick at which this order was placed, or {@link #NOT_TIME_STAMPED}.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
+	public boolean isTimeStamped() {
+		return time != NOT_TIME_STAMPED;
 	}
 
 	public boolean isFilled() {
@@ -333,11 +487,7 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	 * @return  A long representing the aggregate volume.
 	 */
 	public long aggregateVolume() {
-		long result = 0;
-		for (Order p = this; p != null; p = p.getChild()) {
-			result += p.getQuantity();
-		}
-		return result;
+		return aggregateFilledVolume() + aggregateUnfilledVolume();
 	}
 
 	/**
@@ -346,11 +496,7 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	 * @return  A long representing the aggregate filled volume.
 	 */
 	public long aggregateFilledVolume() {
-		long result = 0;
-		for (Order p = this; p != null; p = p.getChild()) {
-			if (p.isFilled()) result += p.getQuantity();
-		}
-		return result;
+		return filledQuantity;
 	}
 
 	/**
@@ -359,25 +505,28 @@ public class Order implements Comparable<Order>, Cloneable, Serializable {
 	 * @return A long representing the aggregate outstanding volume.
 	 */
 	public long aggregateUnfilledVolume() {
-		long result = 0;
-		for (Order p = this; p != null; p = p.getChild()) {
-			if (!p.isFilled()) result += p.getQuantity();
+		long result = filled ? 0 : quantity;
+		for (Order p = nextFragment; p != null; p = p.nextFragment) {
+			result += p.getQuantity();
 		}
 		return result;
 	}	
 	
 	/**
-	 * If an order results in a partial fill then it 
-	 * will get split into two or more orders.  This
-	 * method fetches the fragmented orders which have not yet
-	 * been filled.
+	 * If an order is partially matched then the order book may hold
+	 * the matched volume in separate fragments until it is cleared.  This
+	 * method fetches the order itself, if it has volume outstanding,
+	 * together with any fragments which have not yet been filled.
 	 * 
 	 * @return A list of the unfilled order fragments.
 	 */
 	public List<Order> getUnfilledFraction() {
 		List<Order> result = new LinkedList<Order>();
-		for (Order p = this; p!= null; p = p.getChild()) {
-			if (!p.isFilled()) result.add(p);
+		if (!filled) {
+			result.add(this);
+		}
+		for (Order p = nextFragment; p != null; p = p.nextFragment) {
+			result.add(p);
 		}
 		return result;
 	}
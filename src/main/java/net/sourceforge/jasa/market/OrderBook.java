@@ -15,6 +15,7 @@
 
 package net.sourceforge.jasa.market;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -28,6 +29,32 @@ public interface OrderBook extends net.sourceforge.jabm.util.Resetable {
 	public void add(Order shout) throws DuplicateShoutException;
 
 	public void remove(Order shout);
+
+	/**
+	 * Add a batch of orders to the book. The book matches the same volume as
+	 * it would if each order were added in turn using {@link #add(Order)},
+	 * although orders at the same price may be matched in a different
+	 * sequence. Each order must appear in the batch at most once.
+	 */
+	public void addAll(Collection<Order> shouts) throws DuplicateShoutException;
+
+	/**
+	 * Revise the price and quantity of an order which is resting in the book.
+	 * Where possible the order is repositioned in place rather than being
+	 * removed and re-inserted, and if neither the price nor the quantity has
+	 * changed the book is left untouched.
+	 *
+	 * @param shout
+	 *          The order to amend.
+	 * @param price
+	 *          The new price of the order.
+	 * @param quantity
+	 *          The new quantity of the order.
+	 * @return false if the order is not currently held in the book, in which
+	 *         case it is left unmodified.
+	 */
+	public boolean amend(Order shout, double price, int quantity)
+			throws DuplicateShoutException;
 	
 	/**
 	 * Log the current state of the market.
@@ -46,11 +73,23 @@ public interface OrderBook extends net.sourceforge.jabm.util.Resetable {
 	 * </p>
 	 * <p>
 	 * Note that the engine's set of matched shouts will become empty as a result
-	 * of invoking this method.
+	 * of invoking this method.  Where only part of an order is matched, the
+	 * list holds a new order representing the matched volume, whose origin is
+	 * the original order.
 	 * </p>
 	 */
 	public List<Order> matchOrders();
 
+	/**
+	 * Destructively match the bids and asks in the book, passing a fill
+	 * record to the supplied handler for each quantity matched.  Unlike
+	 * {@link #matchOrders()} this method does not allocate any new orders or
+	 * collections, and the fills refer to the orders originally placed in
+	 * the book.  Any volume of an order which remains unmatched is retained
+	 * in the book.
+	 */
+	public void matchOrders(FillHandler handler);
+
 	/**
 	 * Get the highest unmatched bid in the market.
 	 */
@@ -91,4 +130,11 @@ public interface OrderBook extends net.sourceforge.jabm.util.Resetable {
 
 	public List<Order> getUnmatchedAsks();
 
+	/**
+	 * Return a counter which is incremented whenever the contents of the book
+	 * change.  If the version is the same as when a quote was last computed
+	 * from the top of the book, then the quote is still current.
+	 */
+	public long getVersion();
+
 }
@@ -1,8 +1,10 @@
 package net.sourceforge.jasa.market;
 
+import java.io.Serializable;
 import java.util.Comparator;
 
-public abstract class OrderComparator implements Comparator<Order> {
+public abstract class OrderComparator implements Comparator<Order>,
+		Serializable {
 
 	protected int priceDirection;
 	
@@ -11,8 +13,21 @@ public abstract class OrderComparator implements Comparator<Order> {
 		this.priceDirection = priceDirection;
 	}
 
+	/**
+	 * Returns +1 if orders are ranked in ascending order of price, or -1 if
+	 * they are ranked in descending order of price.
+	 */
+	public int getPriceDirection() {
+		return priceDirection;
+	}
+
 	public int comparePrices(Order shout1, Order shout2) {
-		return shout1.price.compareTo(shout2.price) * -priceDirection;
+		long p1 = shout1.priceTicks;
+		long p2 = shout2.priceTicks;
+		if (p1 == p2) {
+			return 0;
+		}
+		return p1 < p2 ? -priceDirection : priceDirection;
 //		double p1 = shout1.price * priceDirection;
 //		double p2 = shout2.price * priceDirection;
 //		if (p1 > p2) {
@@ -35,13 +50,7 @@ public abstract class OrderComparator implements Comparator<Order> {
 	}
 	
 	public int compareTimeStamps(Order shout1, Order shout2) {
-		if (shout1.timeStamp != null && shout1.timeStamp.getTicks() < shout2.timeStamp.getTicks()) {
-			return 1;
-		} else if (shout1.timeStamp != null && shout1.timeStamp.getTicks() > shout2.timeStamp.getTicks()) {
-			return -1;
-		} else {
-			return 0;
-		}
+		return Order.compareTimeStamps(shout1, shout2);
 	}
 
 	@Override
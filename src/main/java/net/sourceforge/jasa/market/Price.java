@@ -16,10 +16,12 @@ public class Price extends java.lang.Number implements Comparable<Price> {
 	    "+#########0.0000;-#########.0000");
 
 	protected Price(int exponent) {
-	    this.multiplier = 1;
-        for(int i=0; i<exponent; i++) {
-            multiplier *= 10;
-        }
+	    this.multiplier = (int) TickSize.forExponent(exponent).getMultiplier();
+    }
+
+    public Price(long longValue, TickSize tickSize) {
+        this.multiplier = (int) tickSize.getMultiplier();
+        this.longValue = longValue;
     }
 
     public Price(long longValue, int exponent) {
@@ -81,7 +83,8 @@ public class Price extends java.lang.Number implements Comparable<Price> {
         if (this.multiplier != other.multiplier) {
             throw new UnsupportedOperationException("Comparision of prices with different tick sizes is not supported.");
         }
-        return (int) (other.longValue() - this.longValue());
+        long otherValue = other.longValue();
+        return otherValue > longValue ? 1 : (otherValue < longValue ? -1 : 0);
     }
 
     public boolean isPositive() {
@@ -0,0 +1,58 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.Queue;
+
+/**
+ * <p>
+ * An order book which uses the same 4-Heap matching logic as
+ * {@link FourHeapOrderBook}, but which stores each of the four sets of orders
+ * (matched and unmatched bids and asks) as a ladder of price levels indexed on
+ * the integer tick of the order price instead of as a binary heap.
+ * </p>
+ *
+ * <p>
+ * Orders at the same price are ranked by the same comparators as in
+ * {@link FourHeapOrderBook}, so both books promote and displace the same
+ * orders. When many orders rest at relatively few distinct prices, as is
+ * typical of a continuous double auction with thousands of traders,
+ * inserting, promoting and displacing orders avoids the comparator-driven
+ * sifting of a binary heap.
+ * </p>
+ *
+ * <p>
+ * The book can be used in place of the default by passing an instance to
+ * {@link net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer#setOrderBook(OrderBook)}.
+ * </p>
+ *
+ * @see PriceLevelQueue
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class PriceLevelOrderBook extends FourHeapOrderBook {
+
+	public PriceLevelOrderBook() {
+		super();
+	}
+
+	@Override
+	protected Queue<Order> createHeap(OrderComparator ordering) {
+		return new PriceLevelQueue(ordering);
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.Serializable;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * A priority queue of orders which buckets orders into price levels keyed on
+ * the integer tick of their price (see {@link Order#getPriceTicks()}). Orders at
+ * the same price level are ranked by the remaining tie-breaks of the
+ * {@link OrderComparator} (quantity, then time-stamp), so that the head of
+ * the queue is the same order as the head of a binary heap using that
+ * comparator.
+ * </p>
+ *
+ * <p>
+ * The best level is cached, so that peeking and polling do not require any
+ * order comparisons, and an order inserted at either end of an existing
+ * level needs at most two. The sorted index of levels is only consulted when
+ * a level is created or exhausted.
+ * </p>
+ *
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class PriceLevelQueue extends AbstractQueue<Order> implements
+		Serializable {
+
+	/**
+	 * The non-empty price levels, sorted so that the first level is the best.
+	 */
+	protected TreeMap<Long, PriceLevel> levels;
+
+	/**
+	 * The best price level, or null if the queue is empty.
+	 */
+	protected PriceLevel best = null;
+
+	/**
+	 * The total number of orders in the queue.
+	 */
+	protected int size = 0;
+
+	/**
+	 * +1 if the best level is the lowest price, or -1 if the best level is
+	 * the highest price.
+	 */
+	protected int priceDirection;
+
+	/**
+	 * The ordering of orders within a level.
+	 */
+	protected OrderComparator ordering;
+
+	public PriceLevelQueue(int priceDirection) {
+		this(priceDirection > 0 ? new AscendingOrderComparator()
+				: new DescendingOrderComparator());
+	}
+
+	public PriceLevelQueue(OrderComparator ordering) {
+		this.ordering = ordering;
+		this.priceDirection = ordering.getPriceDirection();
+		if (priceDirection > 0) {
+			levels = new TreeMap<Long, PriceLevel>();
+		} else {
+			levels = new TreeMap<Long, PriceLevel>(
+					Collections.<Long> reverseOrder());
+		}
+	}
+
+	public boolean offer(Order order) {
+		long tick = order.getPriceTicks();
+		PriceLevel level = best;
+		if (level == null || level.tick != tick) {
+			level = levels.get(tick);
+			if (level == null) {
+				level = new PriceLevel(tick);
+				levels.put(tick, level);
+				if (best == null || isBetter(tick, best.tick)) {
+					best = level;
+				}
+			}
+		}
+		insert(level.orders, order);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Insert an order into a level after every order which ranks before or
+	 * equally with it.  New orders usually belong at one end of the level,
+	 * so the level is only traversed when this is not the case.
+	 */
+	protected void insert(ArrayDeque<Order> orders, Order order) {
+		if (orders.isEmpty() || ordering.compare(order, orders.peekLast()) >= 0) {
+			orders.addLast(order);
+		} else if (ordering.compare(order, orders.peekFirst()) < 0) {
+			orders.addFirst(order);
+		} else {
+			ArrayDeque<Order> displaced = new ArrayDeque<Order>();
+			while (ordering.compare(order, orders.peekLast()) < 0) {
+				displaced.addFirst(orders.pollLast());
+			}
+			orders.addLast(order);
+			orders.addAll(displaced);
+		}
+	}
+
+	public Order peek() {
+		if (best == null) {
+			return null;
+		}
+		return best.orders.peekFirst();
+	}
+
+	public Order poll() {
+		if (best == null) {
+			return null;
+		}
+		Order head = best.orders.pollFirst();
+		size--;
+		if (best.orders.isEmpty()) {
+			removeLevel(best);
+		}
+		return head;
+	}
+
+	public boolean remove(Object o) {
+		if (!(o instanceof Order)) {
+			return false;
+		}
+		PriceLevel level = getLevel((Order) o);
+		if (level == null || !level.orders.removeFirstOccurrence(o)) {
+			return false;
+		}
+		size--;
+		if (level.orders.isEmpty()) {
+			removeLevel(level);
+		}
+		return true;
+	}
+
+	public boolean contains(Object o) {
+		if (!(o instanceof Order)) {
+			return false;
+		}
+		PriceLevel level = getLevel((Order) o);
+		return level != null && level.orders.contains(o);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		levels.clear();
+		best = null;
+		size = 0;
+	}
+
+	/**
+	 * Return the number of distinct price levels in the queue.
+	 */
+	public int getNumberOfLevels() {
+		return levels.size();
+	}
+
+	/**
+	 * Iterate over the orders in the queue from the best price level to the
+	 * worst, and in priority order within each level.
+	 */
+	public Iterator<Order> iterator() {
+		return new Iterator<Order>() {
+
+			Iterator<PriceLevel> levelIterator = levels.values().iterator();
+
+			Iterator<Order> orderIterator = null;
+
+			public boolean hasNext() {
+				while ((orderIterator == null || !orderIterator.hasNext())
+						&& levelIterator.hasNext()) {
+					orderIterator = levelIterator.next().orders.iterator();
+				}
+				return orderIterator != null && orderIterator.hasNext();
+			}
+
+			public Order next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return orderIterator.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	protected PriceLevel getLevel(Order order) {
+		long tick = order.getPriceTicks();
+		if (best != null && best.tick == tick) {
+			return best;
+		}
+		return levels.get(tick);
+	}
+
+	protected void removeLevel(PriceLevel level) {
+		levels.remove(level.tick);
+		if (level == best) {
+			if (levels.isEmpty()) {
+				best = null;
+			} else {
+				best = levels.firstEntry().getValue();
+			}
+		}
+	}
+
+	protected boolean isBetter(long tick, long other) {
+		if (priceDirection > 0) {
+			return tick < other;
+		} else {
+			return tick > other;
+		}
+	}
+
+	public String toString() {
+		return "(" + getClass() + " levels:" + levels.size() + " size:" + size
+				+ ")";
+	}
+
+	/**
+	 * The orders resting at a single price.
+	 */
+	public static class PriceLevel implements Serializable {
+
+		protected long tick;
+
+		protected ArrayDeque<Order> orders = new ArrayDeque<Order>();
+
+		public PriceLevel(long tick) {
+			this.tick = tick;
+		}
+
+		public long getTick() {
+			return tick;
+		}
+
+		public int getNumberOfOrders() {
+			return orders.size();
+		}
+	}
+
+}
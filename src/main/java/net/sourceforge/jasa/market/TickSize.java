@@ -0,0 +1,121 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * The tick size of a market, which determines the precision with which
+ * prices are represented. Prices are held as a whole number of ticks, where
+ * a tick is 10^-exponent units of currency.
+ * </p>
+ * 
+ * <p>
+ * Instances are immutable and shared; use {@link #forExponent(int)} to
+ * obtain the context for a given precision.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class TickSize implements Serializable {
+
+	public static final int MAX_EXPONENT = 18;
+
+	protected static final TickSize[] contexts = 
+		new TickSize[MAX_EXPONENT + 1];
+
+	static {
+		long multiplier = 1;
+		for (int exponent = 0; exponent <= MAX_EXPONENT; exponent++) {
+			contexts[exponent] = new TickSize(exponent, multiplier);
+			multiplier *= 10;
+		}
+	}
+
+	/**
+	 * The tick size used by markets unless configured otherwise.
+	 */
+	public static final TickSize DEFAULT = 
+		forExponent(Price.DEFAULT_EXPONENT);
+
+	protected final int exponent;
+
+	protected final long multiplier;
+
+	protected final double doubleMultiplier;
+
+	protected TickSize(int exponent, long multiplier) {
+		this.exponent = exponent;
+		this.multiplier = multiplier;
+		this.doubleMultiplier = multiplier;
+	}
+
+	/**
+	 * Get the shared tick-size context for prices with the given number of
+	 * decimal places.
+	 */
+	public static TickSize forExponent(int exponent) {
+		if (exponent < 0 || exponent > MAX_EXPONENT) {
+			throw new IllegalArgumentException("Unsupported tick exponent "
+					+ exponent);
+		}
+		return contexts[exponent];
+	}
+
+	/**
+	 * Convert a price into a whole number of ticks.  Any fraction of a tick
+	 * is truncated.
+	 */
+	public long toTicks(double price) {
+		return (long) (price * doubleMultiplier);
+	}
+
+	/**
+	 * Convert a whole number of ticks into a price.
+	 */
+	public double toDouble(long ticks) {
+		return ((double) ticks) / doubleMultiplier;
+	}
+
+	/**
+	 * Round a price down to a whole number of ticks.
+	 */
+	public double round(double price) {
+		return toDouble(toTicks(price));
+	}
+
+	public int getExponent() {
+		return exponent;
+	}
+
+	public long getMultiplier() {
+		return multiplier;
+	}
+
+	/**
+	 * Ensure that deserialised contexts are replaced by the shared instance.
+	 */
+	protected Object readResolve() {
+		return forExponent(exponent);
+	}
+
+	public String toString() {
+		return "(" + getClass() + " exponent:" + exponent + ")";
+	}
+}
@@ -16,6 +16,7 @@
 package net.sourceforge.jasa.market.auctioneer;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -55,6 +56,12 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 	
 	protected MarketQuote currentQuote = null;
 
+	/**
+	 * The version of the order book from which the current quote was
+	 * computed, or -1 if the quote must be regenerated on its next use.
+	 */
+	protected long quoteBookVersion = -1;
+
 	protected MarketQuote clearingQuote;
 
 	protected PricingPolicy pricingPolicy;
@@ -74,6 +81,8 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 		try {
 			AbstractAuctioneer clone = (AbstractAuctioneer) clone();
 			clone.orderBook = new FourHeapOrderBook();
+			clone.currentQuote = null;
+			clone.clearingQuote = null;
 			clone.reset();
 			return clone;
 		} catch (CloneNotSupportedException e) {
@@ -121,6 +130,38 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 		orderBook.add(shout);
 	}
 
+	/**
+	 * Handle a batch of new shouts. Every shout in the batch is validated
+	 * before any of them is processed.
+	 * 
+	 * @param shouts
+	 *          The new shouts to be processed
+	 * 
+	 * @exception IllegalOrderException
+	 *              Thrown if any of the shouts is invalid in some way.
+	 */
+	public void newOrders(Collection<Order> shouts)
+			throws IllegalOrderException, DuplicateShoutException {
+		for (Order shout : shouts) {
+			checkShoutValidity(shout);
+		}
+		newShoutsInternal(shouts);
+	}
+
+	/**
+	 * Process a batch of validated shouts. By default each shout is passed to
+	 * {@link #newShoutInternal(Order)} in turn; auctioneers which do not
+	 * respond to individual shouts can override this method to add the whole
+	 * batch to the order book at once using
+	 * {@link OrderBook#addAll(Collection)}.
+	 */
+	protected void newShoutsInternal(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		for (Order shout : shouts) {
+			newShoutInternal(shout);
+		}
+	}
+
 	/**
 	 * 
 	 * @param shout
@@ -142,6 +183,38 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 		orderBook.remove(shout);
 	}
 
+	/**
+	 * Handle a request to revise the price and quantity of a shout which is
+	 * resting in the book. If the shout is unchanged the book is left
+	 * untouched and no further processing takes place.
+	 * 
+	 * @return false if the shout is not in the book.
+	 */
+	public boolean amendOrder(Order shout, double price, int quantity)
+			throws IllegalOrderException {
+		if (quantity < 1 || !(price >= 0) || Double.isInfinite(price)) {
+			logger.error("malformed amendment to shout: " + shout);
+			throw new IllegalOrderException("Malformed shout");
+		}
+		boolean changed = quantity != shout.getQuantity()
+				|| shout.getPriceTicks() != shout.getTickSize().toTicks(price);
+		if (!orderBook.amend(shout, price, quantity)) {
+			return false;
+		}
+		if (changed) {
+			amendShoutInternal(shout);
+		}
+		return true;
+	}
+
+	/**
+	 * Hook invoked after a shout has been repositioned in the book with a new
+	 * price or quantity.
+	 */
+	protected void amendShoutInternal(Order shout)
+			throws DuplicateShoutException {
+	}
+
 	/**
 	 * Log the current state of the market.
 	 */
@@ -160,16 +233,39 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 	}
 
 	protected void initialise() {
-		currentQuote = null;
+		quoteBookVersion = -1;
 	}
 
 	public MarketQuote getQuote() {
-		if (currentQuote == null) {
+		if (currentQuote == null || quoteBookVersion < 0) {
 			generateQuote();
 		}
 		return currentQuote;
 	}
 
+	/**
+	 * Update the current quote in place, recording the version of the order
+	 * book from which it was computed.  The quote object is only allocated
+	 * the first time that a quote is generated.
+	 */
+	protected void updateQuote(double ask, double bid) {
+		if (currentQuote == null) {
+			currentQuote = new MarketQuote(ask, bid);
+		} else {
+			currentQuote.update(ask, bid);
+		}
+		quoteBookVersion = orderBook.getVersion();
+	}
+
+	/**
+	 * @return true if the order book has not changed since the current quote
+	 *         was last updated.
+	 */
+	protected boolean isQuoteCurrent() {
+		return currentQuote != null
+				&& quoteBookVersion == orderBook.getVersion();
+	}
+
 	public Iterator<Order> askIterator() {
 		return orderBook.askIterator();
 	}
@@ -205,6 +301,13 @@ public abstract class AbstractAuctioneer implements Serializable, Auctioneer,
 		market.clear(ask, bid, price);
 	}
 
+	public void clear(Order ask, Order bid, double price, int quantity) {
+		assert ask.isAsk();
+		assert bid.isBid();
+		recordMatch(ask, bid);
+		market.clear(ask, bid, price, quantity);
+	}
+
 	public void clear(Order ask, Order bid, double buyerCharge,
 	    double sellerPayment, int quantity) {
 		assert ask.isAsk();
@@ -23,7 +23,6 @@ import net.sourceforge.jasa.market.AuctionRuntimeException;
 import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.IllegalOrderException;
 import net.sourceforge.jasa.market.Market;
-import net.sourceforge.jasa.market.MarketQuote;
 import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.rules.UniformPricingPolicy;
 
@@ -121,7 +120,12 @@ public class AscendingAuctioneer extends TransparentAuctioneer implements
 //	}
 
 	public void generateQuote() {
-		currentQuote = new MarketQuote(null, orderBook.getLowestMatchedBid());
+		Order bid = orderBook.getLowestMatchedBid();
+		if (bid == null) {
+			updateQuote(Double.NaN, Double.NaN);
+		} else {
+			updateQuote(Double.NaN, bid.getPriceAsDouble());
+		}
 	}
 
 	protected void checkShoutValidity(Order shout) throws IllegalOrderException {
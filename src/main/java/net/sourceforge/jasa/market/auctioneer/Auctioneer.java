@@ -15,6 +15,7 @@
 
 package net.sourceforge.jasa.market.auctioneer;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -55,11 +56,40 @@ public interface Auctioneer extends QuoteProvider, MarketEventListener {
 	 */
 	public void newOrder(Order order) throws IllegalOrderException;
 
+	/**
+	 * Handle a batch of new orders. The outcome is the same as submitting
+	 * each order in turn using {@link #newOrder(Order)}, but auctioneers
+	 * which do not need to respond to each individual order may process the
+	 * batch as a whole.
+	 * 
+	 * @param orders
+	 *          The new orders to be processed. Each order must appear at most
+	 *          once.
+	 * 
+	 * @exception IllegalOrderException
+	 *              Thrown if any of the orders is invalid, in which case none
+	 *              of the orders is processed.
+	 */
+	public void newOrders(Collection<Order> orders)
+			throws IllegalOrderException;
+
 	/**
 	 * Cancel an existing order.
 	 */
 	public void removeOrder(Order order);
 
+	/**
+	 * Revise the price and quantity of an existing order which is resting in
+	 * the order book.
+	 * 
+	 * @return false if the order is not in the book.
+	 * 
+	 * @exception IllegalOrderException
+	 *              Thrown if the amended order would be invalid.
+	 */
+	public boolean amendOrder(Order order, double price, int quantity)
+			throws IllegalOrderException;
+
 	/**
 	 * Log the current state of the market.
 	 */
@@ -16,10 +16,12 @@
 package net.sourceforge.jasa.market.auctioneer;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import net.sourceforge.jasa.market.Account;
+import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.Market;
-import net.sourceforge.jasa.market.MarketQuote;
+import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.ZeroFundsAccount;
 import net.sourceforge.jasa.market.rules.UniformPricingPolicy;
 
@@ -43,7 +45,37 @@ public class ClearingHouseAuctioneer extends TransparentAuctioneer implements
 	}
 
 	public void generateQuote() {
-		currentQuote = new MarketQuote(askQuote(), bidQuote());
+		updateQuote(askQuote(), bidQuote());
+	}
+
+	/**
+	 * Add a batch of shouts to the order book in a single operation. Since
+	 * the market is only cleared at the end of the round there is no need to
+	 * process the shouts individually.
+	 */
+	protected void newShoutsInternal(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		orderBook.addAll(shouts);
+		Order lastAsk = null;
+		Order lastBid = null;
+		Order last = null;
+		for (Order shout : shouts) {
+			if (shout.isAsk()) {
+				lastAsk = shout;
+			} else {
+				lastBid = shout;
+			}
+			last = shout;
+		}
+		if (lastAsk != null) {
+			recordLastShout(lastAsk);
+		}
+		if (lastBid != null) {
+			recordLastShout(lastBid);
+		}
+		if (last != null) {
+			lastShout = last;
+		}
 	}
 
 	public void onRoundClosed() {
@@ -21,7 +21,6 @@ import net.sourceforge.jasa.market.Account;
 import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.IllegalOrderException;
 import net.sourceforge.jasa.market.Market;
-import net.sourceforge.jasa.market.MarketQuote;
 import net.sourceforge.jasa.market.NotAnImprovementOverQuoteException;
 import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.ZeroFundsAccount;
@@ -56,10 +55,13 @@ public class ContinuousDoubleAuctioneer extends TransparentAuctioneer implements
 	}
 
 	public void generateQuote() {
+		if (isQuoteCurrent()) {
+			return;
+		}
 //		if (!orderBook.isEmpty()) {
 			double ask = askQuote();
 			double bid = bidQuote();
-			currentQuote = new MarketQuote(ask, bid);
+			updateQuote(ask, bid);
 //		} else {
 //			currentQuote = new MarketQuote(Double.NaN, Double.NaN);
 //		}
@@ -93,6 +95,13 @@ public class ContinuousDoubleAuctioneer extends TransparentAuctioneer implements
 		generateQuote();
 	}
 
+	protected void amendShoutInternal(Order shout)
+			throws DuplicateShoutException {
+		generateQuote();
+		clear();
+		generateQuote();
+	}
+
 	protected void checkShoutValidity(Order shout) throws IllegalOrderException {
 		super.checkShoutValidity(shout);
 //		checkImprovement(shout);
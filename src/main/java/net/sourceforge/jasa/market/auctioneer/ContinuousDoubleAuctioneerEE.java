@@ -24,7 +24,7 @@ import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.IllegalOrderException;
 import net.sourceforge.jasa.market.Market;
 import net.sourceforge.jasa.market.Order;
-import net.sourceforge.jasa.report.ReportVariableBoard;
+import net.sourceforge.jasa.report.VariableBoard;
 
 import org.apache.log4j.Logger;
 
@@ -158,8 +158,8 @@ public class ContinuousDoubleAuctioneerEE extends ContinuousDoubleAuctioneer
 				expectedLowestBid = memory.getMean() - delta;
 				expectedHighestAsk = memory.getMean() + delta;
 
-				ReportVariableBoard.getInstance().reportValue(EST_EQUILIBRIUM_PRICE,
-				    memory.getMean(), event);
+				VariableBoard.getBoard(event.getAuction()).report(
+				    EST_EQUILIBRIUM_PRICE, memory.getMean(), event.getPhysicalTime());
 			}
 
 		}
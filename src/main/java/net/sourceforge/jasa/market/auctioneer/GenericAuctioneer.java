@@ -23,7 +23,6 @@ import net.sourceforge.jasa.event.MarketEvent;
 import net.sourceforge.jasa.market.Account;
 import net.sourceforge.jasa.market.IllegalOrderException;
 import net.sourceforge.jasa.market.Market;
-import net.sourceforge.jasa.market.MarketQuote;
 import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.ZeroFundsAccount;
 import net.sourceforge.jasa.market.rules.MarketClearingCondition;
@@ -128,7 +127,7 @@ public class GenericAuctioneer extends TransparentAuctioneer implements
 	}
 
 	public void generateQuote() {
-		currentQuote = new MarketQuote(askQuote(), bidQuote());
+		updateQuote(askQuote(), bidQuote());
 	}
 
 	protected void checkShoutValidity(Order shout) throws IllegalOrderException {
@@ -16,6 +16,7 @@
 package net.sourceforge.jasa.market.auctioneer;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.Market;
@@ -75,6 +76,17 @@ public class PeriodicClearingHouseAuctioneer extends ClearingHouseAuctioneer
 		}
 	}
 
+	/**
+	 * Shouts are processed individually, since the market may be cleared
+	 * part-way through a batch.
+	 */
+	protected void newShoutsInternal(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		for (Order shout : shouts) {
+			newShoutInternal(shout);
+		}
+	}
+
 	public int getShoutNumEachPeriod() {
 		return shoutNumEachPeriod;
 	}
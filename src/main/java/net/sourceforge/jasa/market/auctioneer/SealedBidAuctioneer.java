@@ -14,6 +14,9 @@
  */
 package net.sourceforge.jasa.market.auctioneer;
 
+import java.util.Collection;
+
+import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.Market;
 import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.ShoutsNotVisibleException;
@@ -25,6 +28,15 @@ public abstract class SealedBidAuctioneer extends AbstractAuctioneer {
 		super(auction);
 	}
 
+	/**
+	 * Shouts are not visible until the market is cleared, so a batch of
+	 * shouts can be added to the order book in a single operation.
+	 */
+	protected void newShoutsInternal(Collection<Order> shouts)
+			throws DuplicateShoutException {
+		orderBook.addAll(shouts);
+	}
+
 	public boolean shoutsVisible() {
 		return false;
 	}
@@ -53,6 +53,20 @@ public abstract class TransparentAuctioneer extends AbstractAuctioneer {
 
 	protected void newShoutInternal(Order shout) throws DuplicateShoutException {
 		super.newShoutInternal(shout);
+		recordLastShout(shout);
+	}
+
+	protected void amendShoutInternal(Order shout)
+			throws DuplicateShoutException {
+		super.amendShoutInternal(shout);
+		recordLastShout(shout);
+	}
+
+	/**
+	 * Record the most recent shout, and the most recent ask or bid, made in
+	 * the market.
+	 */
+	protected void recordLastShout(Order shout) {
 		if (shout.isAsk()) {
 			lastAsk.copyFrom(shout);
 		} else {
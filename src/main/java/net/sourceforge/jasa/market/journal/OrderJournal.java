@@ -0,0 +1,326 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.sourceforge.jasa.agent.TradingAgent;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.market.Order;
+
+/**
+ * <p>
+ * A compact binary journal of the order flow and clearing decisions of a
+ * market.  Each order placed, amended or removed, each transaction, and each
+ * boundary between rounds and days is written as a fixed-width record to a
+ * memory-mapped file, which can subsequently be read using an
+ * {@link OrderJournalReader} and fed into a different auctioneer using an
+ * {@link OrderJournalReplay}.
+ * </p>
+ * <p>
+ * Orders are identified by a sequence number allocated when they are first
+ * recorded, and traders by the index of their first appearance in the
+ * journal.  Fragments of partially-matched orders are recorded under the
+ * identifier of the order from which they were carved.
+ * </p>
+ * <p>
+ * The file is mapped in chunks of <code>recordsPerChunk</code> records, and
+ * is truncated to the records actually written when the journal is closed.
+ * </p>
+ * 
+ * @see net.sourceforge.jasa.market.MarketSimulation#setJournal(OrderJournal)
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class OrderJournal implements Closeable {
+
+	public static final int MAGIC = 0x4A534A4E;
+
+	public static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 16;
+
+	public static final int RECORD_SIZE = 48;
+
+	public static final int DEFAULT_RECORDS_PER_CHUNK = 1 << 16;
+
+	/*
+	 * Record types.
+	 */
+	public static final byte MARKET_OPEN = 1;
+
+	public static final byte MARKET_CLOSED = 2;
+
+	public static final byte ROUND_STARTING = 3;
+
+	public static final byte ROUND_CLOSING = 4;
+
+	public static final byte END_OF_DAY = 5;
+
+	public static final byte ORDER_PLACED = 6;
+
+	public static final byte BATCH_ORDER = 7;
+
+	public static final byte BATCH_END = 8;
+
+	public static final byte ORDER_REMOVED = 9;
+
+	public static final byte ORDER_AMENDED = 10;
+
+	public static final byte TRANSACTION = 11;
+
+	/*
+	 * Field offsets within each record.
+	 */
+	static final int TYPE = 0;
+
+	static final int FLAGS = 1;
+
+	static final int TIME = 4;
+
+	static final int ORDER_ID = 8;
+
+	static final int OTHER_ORDER_ID = 16;
+
+	static final int PRICE = 24;
+
+	static final int OTHER_PRICE = 32;
+
+	static final int QUANTITY = 40;
+
+	static final int TRADER_ID = 44;
+
+	static final byte FLAG_BID = 1;
+
+	protected RandomAccessFile file;
+
+	protected FileChannel channel;
+
+	protected MappedByteBuffer buffer;
+
+	protected long chunkPosition;
+
+	protected int recordsPerChunk;
+
+	protected long numberOfRecords = 0;
+
+	protected long nextOrderId = 1;
+
+	protected Map<Order, Long> orderIds = new WeakHashMap<Order, Long>();
+
+	protected Map<TradingAgent, Integer> traderIds = 
+			new IdentityHashMap<TradingAgent, Integer>();
+
+	public OrderJournal(File file, int recordsPerChunk) throws IOException {
+		this.recordsPerChunk = recordsPerChunk;
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		this.channel = this.file.getChannel();
+		this.chunkPosition = 0;
+		map(HEADER_SIZE + (long) recordsPerChunk * RECORD_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(RECORD_SIZE);
+		buffer.putInt(0);
+	}
+
+	public OrderJournal(File file) throws IOException {
+		this(file, DEFAULT_RECORDS_PER_CHUNK);
+	}
+
+	public void recordMarketOpen(int time) {
+		recordEvent(MARKET_OPEN, time);
+	}
+
+	public void recordMarketClosed(int time) {
+		recordEvent(MARKET_CLOSED, time);
+	}
+
+	public void recordRoundStarting(int time) {
+		recordEvent(ROUND_STARTING, time);
+	}
+
+	public void recordRoundClosing(int time) {
+		recordEvent(ROUND_CLOSING, time);
+	}
+
+	public void recordEndOfDay(int time) {
+		recordEvent(END_OF_DAY, time);
+	}
+
+	public void recordOrderPlaced(int time, Order order) {
+		recordOrder(ORDER_PLACED, time, order);
+	}
+
+	public void recordBatchPlaced(int time, Collection<Order> orders) {
+		for (Order order : orders) {
+			recordOrder(BATCH_ORDER, time, order);
+		}
+		recordEvent(BATCH_END, time);
+	}
+
+	public void recordOrderRemoved(int time, Order order) {
+		startRecord(ORDER_REMOVED, time, order.isBid());
+		buffer.putLong(getOrderId(order));
+		buffer.putLong(0L);
+		buffer.putDouble(order.getPriceAsDouble());
+		buffer.putDouble(Double.NaN);
+		buffer.putInt(order.getQuantity());
+		buffer.putInt(getTraderId(order.getAgent()));
+	}
+
+	/**
+	 * Record an amendment to an order before it has been applied.
+	 */
+	public void recordOrderAmended(int time, Order order, double price,
+			int quantity) {
+		recordOrderAmended(time, order, order.getPriceAsDouble(), price,
+				quantity);
+	}
+
+	/**
+	 * Record an amendment to an order, together with the price of the order
+	 * before it was amended.
+	 */
+	public void recordOrderAmended(int time, Order order, double previousPrice,
+			double price, int quantity) {
+		startRecord(ORDER_AMENDED, time, order.isBid());
+		buffer.putLong(getOrderId(order));
+		buffer.putLong(0L);
+		buffer.putDouble(price);
+		buffer.putDouble(previousPrice);
+		buffer.putInt(quantity);
+		buffer.putInt(getTraderId(order.getAgent()));
+	}
+
+	public void recordTransaction(int time, Order ask, Order bid,
+			double buyerCharge, double sellerPayment, int quantity) {
+		startRecord(TRANSACTION, time, false);
+		buffer.putLong(getOrderId(ask));
+		buffer.putLong(getOrderId(bid));
+		buffer.putDouble(buyerCharge);
+		buffer.putDouble(sellerPayment);
+		buffer.putInt(quantity);
+		buffer.putInt(-1);
+	}
+
+	/**
+	 * Write any records held in memory to the underlying file.
+	 */
+	public void flush() {
+		buffer.force();
+	}
+
+	/**
+	 * Flush the journal and truncate the file to the records written.
+	 */
+	public void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		buffer.force();
+		buffer = null;
+		channel.truncate(HEADER_SIZE + numberOfRecords * RECORD_SIZE);
+		channel.close();
+		file.close();
+		channel = null;
+	}
+
+	public long getNumberOfRecords() {
+		return numberOfRecords;
+	}
+
+	protected void recordOrder(byte type, int time, Order order) {
+		startRecord(type, time, order.isBid());
+		buffer.putLong(getOrderId(order));
+		buffer.putLong(0L);
+		buffer.putDouble(order.getPriceAsDouble());
+		buffer.putDouble(Double.NaN);
+		buffer.putInt(order.getQuantity());
+		buffer.putInt(getTraderId(order.getAgent()));
+	}
+
+	protected void recordEvent(byte type, int time) {
+		startRecord(type, time, false);
+		buffer.putLong(0L);
+		buffer.putLong(0L);
+		buffer.putDouble(Double.NaN);
+		buffer.putDouble(Double.NaN);
+		buffer.putInt(0);
+		buffer.putInt(-1);
+	}
+
+	protected void startRecord(byte type, int time, boolean isBid) {
+		if (buffer == null) {
+			throw new AuctionRuntimeException("Journal is closed");
+		}
+		if (buffer.remaining() < RECORD_SIZE) {
+			nextChunk();
+		}
+		buffer.put(type);
+		buffer.put(isBid ? FLAG_BID : 0);
+		buffer.putShort((short) 0);
+		buffer.putInt(time);
+		numberOfRecords++;
+	}
+
+	protected long getOrderId(Order order) {
+		Order origin = order.getOrigin();
+		Long id = orderIds.get(origin);
+		if (id == null) {
+			id = nextOrderId++;
+			orderIds.put(origin, id);
+		}
+		return id;
+	}
+
+	protected int getTraderId(TradingAgent agent) {
+		if (agent == null) {
+			return -1;
+		}
+		Integer id = traderIds.get(agent);
+		if (id == null) {
+			id = traderIds.size();
+			traderIds.put(agent, id);
+		}
+		return id;
+	}
+
+	protected void nextChunk() {
+		chunkPosition += buffer.position();
+		try {
+			map((long) recordsPerChunk * RECORD_SIZE);
+		} catch (IOException e) {
+			throw new AuctionRuntimeException("Unable to extend journal: " + e);
+		}
+	}
+
+	protected void map(long size) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, chunkPosition,
+				size);
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.journal;
+
+import static net.sourceforge.jasa.market.journal.OrderJournal.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>
+ * A cursor over the records of a journal written by an {@link OrderJournal}.
+ * The file is mapped read-only in chunks, and the fields of the current
+ * record are read directly from the mapped buffer, so that no objects are
+ * allocated per record.
+ * </p>
+ * 
+ * <pre>
+ * OrderJournalReader reader = new OrderJournalReader(file);
+ * while (reader.next()) {
+ * 	switch (reader.getType()) {
+ * 	...
+ * 	}
+ * }
+ * reader.close();
+ * </pre>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class OrderJournalReader implements Closeable {
+
+	protected RandomAccessFile file;
+
+	protected FileChannel channel;
+
+	protected MappedByteBuffer buffer;
+
+	protected long chunkPosition;
+
+	protected long fileSize;
+
+	protected int recordsPerChunk;
+
+	protected int record = -RECORD_SIZE;
+
+	public OrderJournalReader(File file, int recordsPerChunk)
+			throws IOException {
+		this.recordsPerChunk = recordsPerChunk;
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+		this.fileSize = channel.size();
+		if (fileSize < HEADER_SIZE) {
+			throw new IOException(file + " is not an order journal");
+		}
+		this.chunkPosition = HEADER_SIZE;
+		map();
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+				0, HEADER_SIZE);
+		if (header.getInt() != MAGIC) {
+			throw new IOException(file + " is not an order journal");
+		}
+		int version = header.getInt();
+		if (version != VERSION || header.getInt() != RECORD_SIZE) {
+			throw new IOException("Unsupported journal version " + version);
+		}
+	}
+
+	public OrderJournalReader(File file) throws IOException {
+		this(file, DEFAULT_RECORDS_PER_CHUNK);
+	}
+
+	/**
+	 * Advance to the next record.
+	 * 
+	 * @return false if there are no more records.
+	 */
+	public boolean next() throws IOException {
+		record += RECORD_SIZE;
+		if (record + RECORD_SIZE > buffer.limit()) {
+			long nextChunk = chunkPosition + buffer.limit();
+			if (nextChunk + RECORD_SIZE > fileSize) {
+				record = buffer.limit() - RECORD_SIZE;
+				return false;
+			}
+			chunkPosition = nextChunk;
+			map();
+			record = 0;
+		}
+		return getType() != 0;
+	}
+
+	public byte getType() {
+		return buffer.get(record + TYPE);
+	}
+
+	public boolean isBid() {
+		return (buffer.get(record + FLAGS) & FLAG_BID) != 0;
+	}
+
+	/**
+	 * The age of the market when the record was written.
+	 */
+	public int getTime() {
+		return buffer.getInt(record + TIME);
+	}
+
+	/**
+	 * The order which was placed, removed or amended, or the ask in a
+	 * transaction.
+	 */
+	public long getOrderId() {
+		return buffer.getLong(record + ORDER_ID);
+	}
+
+	/**
+	 * The bid in a transaction.
+	 */
+	public long getOtherOrderId() {
+		return buffer.getLong(record + OTHER_ORDER_ID);
+	}
+
+	/**
+	 * The price of the order, the new price of an amended order, or the
+	 * price charged to the buyer in a transaction.
+	 */
+	public double getPrice() {
+		return buffer.getDouble(record + PRICE);
+	}
+
+	/**
+	 * The previous price of an amended order, or the price paid to the
+	 * seller in a transaction.
+	 */
+	public double getOtherPrice() {
+		return buffer.getDouble(record + OTHER_PRICE);
+	}
+
+	public int getQuantity() {
+		return buffer.getInt(record + QUANTITY);
+	}
+
+	/**
+	 * The trader who submitted the order, or -1 if the record does not
+	 * refer to an order.
+	 */
+	public int getTraderId() {
+		return buffer.getInt(record + TRADER_ID);
+	}
+
+	public long getNumberOfRecords() {
+		return (fileSize - HEADER_SIZE) / RECORD_SIZE;
+	}
+
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+		file.close();
+	}
+
+	protected void map() throws IOException {
+		long size = Math.min((long) recordsPerChunk * RECORD_SIZE, 
+				fileSize - chunkPosition);
+		size -= size % RECORD_SIZE;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkPosition,
+				size);
+	}
+
+}
@@ -0,0 +1,265 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.market.AuctionException;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.Order;
+
+/**
+ * <p>
+ * A market which is driven by the order flow recorded in an
+ * {@link OrderJournal} instead of by trading agents.  Each recorded order is
+ * submitted to this market's auctioneer in the order in which it was
+ * originally placed, and the boundaries between rounds and days are
+ * reproduced, so that alternative pricing policies, clearing conditions and
+ * order books can be compared over identical order flow, and so that the
+ * matching engine can be profiled in isolation.
+ * </p>
+ * <p>
+ * No trading agents, strategies or valuation policies are instantiated.
+ * Each recorded trader is represented by a {@link JournalTrader}, which
+ * never trades of its own accord but allows the order book to recognise
+ * orders submitted by the same trader.  Transactions are reported to
+ * listeners but are not settled against the traders' accounts.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class OrderJournalReplay extends MarketSimulation {
+
+	protected Map<Long, Order> orders = new HashMap<Long, Order>();
+
+	protected List<JournalTrader> traders = new ArrayList<JournalTrader>();
+
+	protected List<Order> batch = new ArrayList<Order>();
+
+	protected int numberOfTransactions;
+
+	protected long volume;
+
+	protected int numberOfRecordedTransactions;
+
+	protected long recordedVolume;
+
+	protected int numberOfRejectedOrders;
+
+	public OrderJournalReplay(SimulationController controller) {
+		super(controller);
+		setPopulation(new Population());
+	}
+
+	public OrderJournalReplay() {
+		this(new SpringSimulationController());
+	}
+
+	public void replay(File journal) throws IOException {
+		OrderJournalReader reader = new OrderJournalReader(journal);
+		try {
+			replay(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Replay every remaining record of the specified journal.
+	 */
+	public void replay(OrderJournalReader reader) throws IOException {
+		if (getAuctioneer() == null) {
+			throw new AuctionRuntimeException(
+			    "No auctioneer has been assigned");
+		}
+		initialise();
+		orders.clear();
+		batch.clear();
+		numberOfTransactions = 0;
+		volume = 0;
+		numberOfRecordedTransactions = 0;
+		recordedVolume = 0;
+		numberOfRejectedOrders = 0;
+		while (reader.next()) {
+			replayRecord(reader);
+		}
+	}
+
+	protected void replayRecord(OrderJournalReader reader) {
+		switch (reader.getType()) {
+		case OrderJournal.MARKET_OPEN:
+			informAuctionOpen();
+			break;
+		case OrderJournal.MARKET_CLOSED:
+			close();
+			end();
+			break;
+		case OrderJournal.ROUND_STARTING:
+			informRoundOpening();
+			break;
+		case OrderJournal.ROUND_CLOSING:
+			endRound();
+			break;
+		case OrderJournal.END_OF_DAY:
+			endDay();
+			break;
+		case OrderJournal.ORDER_PLACED:
+			try {
+				placeOrder(createOrder(reader));
+			} catch (AuctionException e) {
+				numberOfRejectedOrders++;
+			}
+			break;
+		case OrderJournal.BATCH_ORDER:
+			batch.add(createOrder(reader));
+			break;
+		case OrderJournal.BATCH_END:
+			try {
+				placeOrders(batch);
+			} catch (AuctionException e) {
+				numberOfRejectedOrders += batch.size();
+			}
+			batch = new ArrayList<Order>();
+			break;
+		case OrderJournal.ORDER_REMOVED:
+			Order removed = orders.remove(reader.getOrderId());
+			if (removed != null) {
+				removeOrder(removed);
+			}
+			break;
+		case OrderJournal.ORDER_AMENDED:
+			Order amended = orders.get(reader.getOrderId());
+			try {
+				if (amended == null
+						|| !amendOrder(amended, reader.getPrice(),
+								reader.getQuantity())) {
+					numberOfRejectedOrders++;
+				}
+			} catch (AuctionException e) {
+				numberOfRejectedOrders++;
+			}
+			break;
+		case OrderJournal.TRANSACTION:
+			numberOfRecordedTransactions++;
+			recordedVolume += reader.getQuantity();
+			break;
+		default:
+			throw new AuctionRuntimeException("Unknown journal record type "
+					+ reader.getType());
+		}
+	}
+
+	protected Order createOrder(OrderJournalReader reader) {
+		Order order = new Order(getTrader(reader.getTraderId()),
+				reader.getQuantity(), reader.getPrice(), reader.isBid());
+		orders.put(reader.getOrderId(), order);
+		return order;
+	}
+
+	protected JournalTrader getTrader(int traderId) {
+		while (traders.size() <= traderId) {
+			traders.add(new JournalTrader(traders.size()));
+		}
+		return traderId < 0 ? null : traders.get(traderId);
+	}
+
+	/**
+	 * Transactions are reported to listeners but are not settled against
+	 * the traders' accounts.
+	 */
+	@Override
+	protected void settle(Order ask, Order bid, double buyerCharge,
+			double sellerPayment, int quantity) {
+		numberOfTransactions++;
+		volume += quantity;
+	}
+
+	/**
+	 * Days end only where they ended in the original market.
+	 */
+	@Override
+	protected void checkEndOfDay() {
+	}
+
+	public int getNumberOfTransactions() {
+		return numberOfTransactions;
+	}
+
+	public long getVolume() {
+		return volume;
+	}
+
+	/**
+	 * The number of transactions recorded in the journal by the original
+	 * market.
+	 */
+	public int getNumberOfRecordedTransactions() {
+		return numberOfRecordedTransactions;
+	}
+
+	public long getRecordedVolume() {
+		return recordedVolume;
+	}
+
+	/**
+	 * The number of orders, or amendments, which were rejected by this
+	 * market's auctioneer.
+	 */
+	public int getNumberOfRejectedOrders() {
+		return numberOfRejectedOrders;
+	}
+
+	public List<JournalTrader> getJournalTraders() {
+		return traders;
+	}
+
+	/**
+	 * A stand-in for a trader recorded in a journal.
+	 */
+	public static class JournalTrader extends AbstractTradingAgent {
+
+		protected int traderId;
+
+		public JournalTrader(int traderId) {
+			super(null);
+			this.traderId = traderId;
+		}
+
+		public int getTraderId() {
+			return traderId;
+		}
+
+		public boolean active() {
+			return false;
+		}
+
+		public String toString() {
+			return "(" + getClass() + " traderId:" + traderId + ")";
+		}
+	}
+
+}
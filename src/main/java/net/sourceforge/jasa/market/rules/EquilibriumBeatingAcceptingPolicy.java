@@ -21,7 +21,7 @@ import net.sourceforge.jasa.event.MarketEvent;
 import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.IllegalOrderException;
 import net.sourceforge.jasa.market.Order;
-import net.sourceforge.jasa.report.ReportVariableBoard;
+import net.sourceforge.jasa.report.VariableBoard;
 
 import org.apache.log4j.Logger;
 
@@ -148,8 +148,8 @@ public class EquilibriumBeatingAcceptingPolicy extends
 				expectedLowestBid = learner.act() - delta;
 				expectedHighestAsk = learner.act() + delta;
 
-				ReportVariableBoard.getInstance().reportValue(EST_EQUILIBRIUM_PRICE,
-				    learner.act(), event);
+				VariableBoard.getBoard(event.getAuction()).report(
+				    EST_EQUILIBRIUM_PRICE, learner.act(), event.getPhysicalTime());
 			}
 		}
 	}
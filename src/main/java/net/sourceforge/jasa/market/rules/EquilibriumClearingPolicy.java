@@ -1,15 +1,15 @@
 package net.sourceforge.jasa.market.rules;
 
 import java.io.Serializable;
-import java.util.Iterator;
-import java.util.List;
 
+import net.sourceforge.jasa.market.Fill;
+import net.sourceforge.jasa.market.FillHandler;
 import net.sourceforge.jasa.market.MarketQuote;
-import net.sourceforge.jasa.market.Order;
 import net.sourceforge.jasa.market.OrderBook;
 import net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer;
 
-public class EquilibriumClearingPolicy implements Serializable, ClearingPolicy {
+public class EquilibriumClearingPolicy implements Serializable, ClearingPolicy,
+		FillHandler {
 
 	protected AbstractAuctioneer auctioneer;
 	
@@ -19,18 +19,23 @@ public class EquilibriumClearingPolicy implements Serializable, ClearingPolicy {
 	}
 
 	public void clear() {
-		MarketQuote clearingQuote = 
-			new MarketQuote(auctioneer.askQuote(), auctioneer.bidQuote());
-		auctioneer.setClearingQuote(clearingQuote);
-		OrderBook orderBook = auctioneer.getOrderBook();
-		List<Order> matchedOrders = orderBook.matchOrders();
-		Iterator<Order> i = matchedOrders.iterator();
-		while (i.hasNext()) {
-			Order bid = i.next();
-			Order ask = i.next();
-			double price = auctioneer.determineClearingPrice(bid, ask);
-			auctioneer.clear(ask, bid, price);
+		MarketQuote clearingQuote = auctioneer.getClearingQuote();
+		if (clearingQuote == null) {
+			clearingQuote =
+				new MarketQuote(auctioneer.askQuote(), auctioneer.bidQuote());
+			auctioneer.setClearingQuote(clearingQuote);
+		} else {
+			clearingQuote.update(auctioneer.askQuote(), auctioneer.bidQuote());
 		}
+		OrderBook orderBook = auctioneer.getOrderBook();
+		orderBook.matchOrders(this);
+	}
+
+	public void onFill(Fill fill) {
+		double price =
+			auctioneer.determineClearingPrice(fill.getBid(), fill.getAsk());
+		auctioneer.clear(fill.getAsk(), fill.getBid(), price,
+				fill.getQuantity());
 	}
 
 	public AbstractAuctioneer getAuctioneer() {
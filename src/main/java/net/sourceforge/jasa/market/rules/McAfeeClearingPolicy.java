@@ -15,10 +15,9 @@
 
 package net.sourceforge.jasa.market.rules;
 
-import java.util.Iterator;
-
 import net.sourceforge.jasa.market.Account;
-import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.Fill;
+import net.sourceforge.jasa.market.FillHandler;
 import net.sourceforge.jasa.market.OrderBook;
 import net.sourceforge.jasa.market.ZeroCreditAccount;
 import net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer;
@@ -32,21 +31,25 @@ import net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer;
  * @author Steve Phelps
  * @version $Revision$
  */
-public class McAfeeClearingPolicy implements ClearingPolicy {
+public class McAfeeClearingPolicy implements ClearingPolicy, FillHandler {
 
 	protected ZeroCreditAccount account;
 	
 	protected AbstractAuctioneer auctioneer;
 
+	protected boolean efficientClearing;
+
+	protected double a1, b1, p0;
+
 	public McAfeeClearingPolicy(AbstractAuctioneer auctioneer) {
 		account = new ZeroCreditAccount(this);
 	}
 
 	public void clear() {
-		boolean efficientClearing;
-		double a0 = -1, a1 = -1;
-		double b0 = -1, b1 = -1;
-		double p0 = -1;
+		double a0 = -1, b0 = -1;
+		a1 = -1;
+		b1 = -1;
+		p0 = -1;
 		OrderBook orderBook = auctioneer.getOrderBook();
 		if (orderBook.getLowestMatchedBid() == null) {
 			return;
@@ -65,16 +68,17 @@ public class McAfeeClearingPolicy implements ClearingPolicy {
 			a1 = orderBook.getLowestMatchedBid().getPriceAsDouble();
 			b1 = orderBook.getHighestMatchedAsk().getPriceAsDouble();
 		}
-		Iterator<Order> matchedShouts = orderBook.matchOrders().iterator();
-		while (matchedShouts.hasNext()) {
-			Order bid = matchedShouts.next();
-			Order ask = matchedShouts.next();
-			if (efficientClearing) {
-				auctioneer.clear(ask, bid, p0);
-			} else {
-				if (bid.getPriceAsDouble() > a1) {
-					auctioneer.clear(ask, bid, a1, b1, ask.getQuantity());
-				}
+		orderBook.matchOrders(this);
+	}
+
+	public void onFill(Fill fill) {
+		if (efficientClearing) {
+			auctioneer.clear(fill.getAsk(), fill.getBid(), p0,
+					fill.getQuantity());
+		} else {
+			if (fill.getBid().getPriceAsDouble() > a1) {
+				auctioneer.clear(fill.getAsk(), fill.getBid(), a1, b1,
+						fill.getQuantity());
 			}
 		}
 	}
@@ -17,6 +17,8 @@ package net.sourceforge.jasa.market.rules;
 
 import net.sourceforge.jabm.event.SimEvent;
 import net.sourceforge.jasa.event.MarketEventListener;
+import net.sourceforge.jasa.event.OrderAmendedEvent;
+import net.sourceforge.jasa.event.OrderBatchPlacedEvent;
 import net.sourceforge.jasa.event.OrderReceivedEvent;
 
 /**
@@ -47,7 +49,9 @@ public class QuiescentDayEndingCondition extends TimingCondition implements
 	}
 
 	public void eventOccurred(SimEvent event) {
-		if (event instanceof OrderReceivedEvent) {
+		if (event instanceof OrderReceivedEvent
+				|| event instanceof OrderAmendedEvent
+				|| event instanceof OrderBatchPlacedEvent) {
 			shoutsProcessed = true;
 		}
 
@@ -37,7 +37,7 @@ public class TimePriorityPricingPolicy extends DiscriminatoryPricingPolicy {
 
 	public double determineClearingPrice(Order bid, Order ask,
 	    MarketQuote clearingQuote) {
-		if (bid.getTimeStamp().compareTo(ask.getTimeStamp()) > 0) {
+		if (ask.placedBefore(bid)) {
 //			 ask comes first
 			return kInterval(ask.getPriceAsDouble(), bid.getPriceAsDouble());
 		} else {
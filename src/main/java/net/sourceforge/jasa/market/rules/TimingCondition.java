@@ -15,6 +15,8 @@
 
 package net.sourceforge.jasa.market.rules;
 
+import java.io.Serializable;
+
 import net.sourceforge.jasa.market.Market;
 
 /**
@@ -27,7 +29,7 @@ import net.sourceforge.jasa.market.Market;
  * 
  */
 
-public abstract class TimingCondition {
+public abstract class TimingCondition implements Serializable {
 
 	private Market auction;
 
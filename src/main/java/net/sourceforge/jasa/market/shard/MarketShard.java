@@ -0,0 +1,304 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jasa.market.AuctionException;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.Order;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A single venue of a {@link MultiMarketSimulation}.  Each shard has its
+ * own auctioneer and its own simulation controller, whose listeners (for
+ * example the auctioneer itself) are only ever notified by the thread
+ * which is currently running the shard.
+ * </p>
+ * <p>
+ * While agents are deciding what to trade, orders, amendments and
+ * cancellations submitted to a shard are appended to a lock-free queue
+ * instead of being executed.  The queue is drained in submission order by
+ * the shard's worker thread at the end of the round, and the events fired
+ * while doing so, together with the settlement of any transactions
+ * against the traders' accounts, are deferred until every shard has
+ * finished the round.  They are then delivered to the coordinator's
+ * controller on the coordinating thread, one shard at a time.
+ * </p>
+ * <p>
+ * Because the outcome of an amendment is not known until the queue is
+ * drained, <code>amendOrder()</code> always succeeds while orders are being
+ * routed; an amendment to an order which is no longer resting in the book
+ * is discarded.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MarketShard extends MarketSimulation {
+
+	protected String name;
+
+	protected MultiMarketSimulation coordinator;
+
+	protected Queue<Command> commands = new ConcurrentLinkedQueue<Command>();
+
+	/**
+	 * True while agents are submitting orders for the current round.
+	 */
+	protected volatile boolean routing = false;
+
+	/**
+	 * True while the shard is matching orders on its worker thread.
+	 */
+	protected boolean deferring = false;
+
+	protected List<Runnable> deferred = new ArrayList<Runnable>();
+
+	protected int numberOfRejectedCommands = 0;
+
+	static Logger logger = Logger.getLogger(MarketShard.class);
+
+	public MarketShard(String name, SimulationController controller) {
+		super(controller);
+		this.name = name;
+		setPopulation(new Population());
+	}
+
+	public MarketShard(String name) {
+		this(name, new SpringSimulationController());
+	}
+
+	@Override
+	public void placeOrder(Order order) throws AuctionException {
+		if (routing) {
+			commands.add(new Command(Command.PLACE, order));
+		} else {
+			super.placeOrder(order);
+		}
+	}
+
+	@Override
+	public void placeOrders(Collection<Order> orders) throws AuctionException {
+		if (routing) {
+			Command command = new Command(Command.PLACE_BATCH, null);
+			command.batch = new ArrayList<Order>(orders);
+			commands.add(command);
+		} else {
+			super.placeOrders(orders);
+		}
+	}
+
+	@Override
+	public void removeOrder(Order order) {
+		if (routing) {
+			commands.add(new Command(Command.REMOVE, order));
+		} else {
+			super.removeOrder(order);
+		}
+	}
+
+	@Override
+	public boolean amendOrder(Order order, double price, int quantity)
+			throws AuctionException {
+		if (routing) {
+			Command command = new Command(Command.AMEND, order);
+			command.price = price;
+			command.quantity = quantity;
+			commands.add(command);
+			return true;
+		} else {
+			return super.amendOrder(order, price, quantity);
+		}
+	}
+
+	/**
+	 * Events are delivered to this shard's controller immediately, and to
+	 * the coordinator's controller either immediately or, if they are
+	 * fired while matching, at the end of the round.
+	 */
+	@Override
+	public void fireEvent(final SimEvent event) {
+		super.fireEvent(event);
+		if (coordinator == null) {
+			return;
+		}
+		if (deferring) {
+			deferred.add(new Runnable() {
+				public void run() {
+					coordinator.fireEvent(event);
+				}
+			});
+		} else {
+			coordinator.fireEvent(event);
+		}
+	}
+
+	@Override
+	protected void settle(final Order ask, final Order bid,
+			final double buyerCharge, final double sellerPayment,
+			final int quantity) {
+		if (deferring) {
+			deferred.add(new Runnable() {
+				public void run() {
+					MarketShard.super.settle(ask, bid, buyerCharge,
+							sellerPayment, quantity);
+				}
+			});
+		} else {
+			super.settle(ask, bid, buyerCharge, sellerPayment, quantity);
+		}
+	}
+
+	/**
+	 * Events fired while matching are delivered at the end of the round,
+	 * and so cannot be recycled.
+	 */
+	@Override
+	public void setReuseEvents(boolean reuseEvents) {
+		if (reuseEvents) {
+			throw new IllegalArgumentException(
+					"A market shard cannot reuse events");
+		}
+		super.setReuseEvents(reuseEvents);
+	}
+
+	/**
+	 * Execute the orders routed to this shard during the current round and
+	 * close the round.  This method is called on the shard's worker thread.
+	 */
+	public void matchRound() {
+		deferring = true;
+		try {
+			Command command;
+			while ((command = commands.poll()) != null) {
+				execute(command);
+			}
+			endRound();
+		} finally {
+			deferring = false;
+		}
+	}
+
+	/**
+	 * Deliver the events and settlements deferred while matching.  This
+	 * method is called on the coordinating thread once every shard has
+	 * finished the round.
+	 */
+	public void completeRound() {
+		for (Runnable action : deferred) {
+			action.run();
+		}
+		deferred.clear();
+	}
+
+	protected void execute(Command command) {
+		try {
+			switch (command.type) {
+			case Command.PLACE:
+				super.placeOrder(command.order);
+				break;
+			case Command.PLACE_BATCH:
+				super.placeOrders(command.batch);
+				break;
+			case Command.REMOVE:
+				super.removeOrder(command.order);
+				break;
+			case Command.AMEND:
+				if (!super.amendOrder(command.order, command.price,
+						command.quantity)) {
+					numberOfRejectedCommands++;
+				}
+				break;
+			}
+		} catch (AuctionException e) {
+			logger.debug(name + ": " + e.getMessage());
+			numberOfRejectedCommands++;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public MultiMarketSimulation getCoordinator() {
+		return coordinator;
+	}
+
+	public void setCoordinator(MultiMarketSimulation coordinator) {
+		this.coordinator = coordinator;
+	}
+
+	public boolean isRouting() {
+		return routing;
+	}
+
+	public void setRouting(boolean routing) {
+		this.routing = routing;
+	}
+
+	/**
+	 * The number of routed orders and amendments which were rejected when
+	 * they were executed.
+	 */
+	public int getNumberOfRejectedCommands() {
+		return numberOfRejectedCommands;
+	}
+
+	public String toString() {
+		return "(" + getClass() + " name:" + name + ")";
+	}
+
+	/**
+	 * An order, cancellation or amendment routed to a shard.
+	 */
+	protected static class Command {
+
+		static final int PLACE = 0;
+
+		static final int PLACE_BATCH = 1;
+
+		static final int REMOVE = 2;
+
+		static final int AMEND = 3;
+
+		int type;
+
+		Order order;
+
+		List<Order> batch;
+
+		double price;
+
+		int quantity;
+
+		Command(int type, Order order) {
+			this.type = type;
+			this.order = order;
+		}
+	}
+
+}
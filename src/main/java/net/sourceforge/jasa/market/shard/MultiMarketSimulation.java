@@ -0,0 +1,276 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.jabm.AbstractSimulation;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.SimulationTime;
+import net.sourceforge.jabm.event.SimulationFinishedEvent;
+import net.sourceforge.jabm.event.SimulationStartingEvent;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.market.Market;
+
+/**
+ * <p>
+ * A simulation of several markets, for example several venues or
+ * instruments, which are traded by a common population of agents.  Each
+ * market is a {@link MarketShard} with its own auctioneer, and the matching
+ * in each shard is run on its own thread.
+ * </p>
+ * <p>
+ * Every round proceeds in three phases.  First, on the coordinating thread,
+ * each open shard begins the round and the agents are invoked by the agent
+ * mixer; the orders they submit to each shard are queued rather than
+ * executed, so that every agent observes the state of every market as it
+ * stood at the end of the previous round.  Second, each shard executes its
+ * queued orders and closes the round on a pool of worker threads.  Finally,
+ * once every shard has reached the barrier, the events fired and the
+ * transactions executed by each shard are delivered, in shard order, on the
+ * coordinating thread.  Listeners registered with this simulation's
+ * controller, for example reports spanning several markets, therefore see
+ * the activity of every market in the same order regardless of the number
+ * of threads.
+ * </p>
+ * <p>
+ * Agents should be created with this simulation's controller as their
+ * scheduler, and registered using {@link #register(AbstractTradingAgent,
+ * MarketShard...)}.  The simulation closes once every shard has closed.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MultiMarketSimulation extends AbstractSimulation {
+
+	protected List<MarketShard> shards = new ArrayList<MarketShard>();
+
+	/**
+	 * The maximum number of shards matched at the same time.
+	 */
+	protected int numThreads = Runtime.getRuntime().availableProcessors();
+
+	protected transient ExecutorService executor;
+
+	protected boolean closed = false;
+
+	protected int age = 0;
+
+	public MultiMarketSimulation(SimulationController controller) {
+		super(controller);
+		setPopulation(new Population());
+	}
+
+	public void addShard(MarketShard shard) {
+		if (shard.getSimulationController() == getSimulationController()) {
+			throw new IllegalArgumentException(
+					"Each shard must have its own simulation controller");
+		}
+		shard.setCoordinator(this);
+		shards.add(shard);
+	}
+
+	/**
+	 * Register an agent with this simulation and with each of the specified
+	 * shards.
+	 */
+	public void register(AbstractTradingAgent agent, MarketShard... markets) {
+		getPopulation().add(agent);
+		List<Market> agentMarkets = new ArrayList<Market>(markets.length);
+		for (MarketShard shard : markets) {
+			if (!shards.contains(shard)) {
+				throw new IllegalArgumentException(shard
+						+ " is not a shard of this simulation");
+			}
+			shard.getTraders().add(agent);
+			agentMarkets.add(shard);
+		}
+		agent.setMarkets(agentMarkets);
+	}
+
+	public void run() {
+		initialise();
+		try {
+			begin();
+			while (!closed) {
+				step();
+			}
+			end();
+		} finally {
+			shutdownExecutor();
+		}
+	}
+
+	public void initialise() {
+		if (shards.isEmpty()) {
+			throw new AuctionRuntimeException("No market shards have been added");
+		}
+		for (MarketShard shard : shards) {
+			if (shard.getAuctioneer() == null) {
+				throw new AuctionRuntimeException(
+						"No auctioneer has been assigned to " + shard);
+			}
+			shard.initialise();
+		}
+		closed = false;
+		age = 0;
+	}
+
+	public void begin() {
+		executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(numThreads, shards.size())));
+		initialiseAgents();
+		fireEvent(new SimulationStartingEvent(this));
+		for (MarketShard shard : shards) {
+			shard.reset();
+			shard.informAuctionOpen();
+		}
+	}
+
+	public void end() {
+		try {
+			for (MarketShard shard : shards) {
+				shard.informAuctionClosed();
+			}
+			fireEvent(new SimulationFinishedEvent(this));
+		} finally {
+			shutdownExecutor();
+		}
+	}
+
+	protected void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Run a single round of every open shard.
+	 */
+	public void step() {
+		super.step();
+		List<MarketShard> open = new ArrayList<MarketShard>(shards.size());
+		for (MarketShard shard : shards) {
+			if (!shard.isClosed()) {
+				shard.beginRound();
+				if (!shard.isClosed()) {
+					open.add(shard);
+				}
+			}
+		}
+		if (open.isEmpty()) {
+			closed = true;
+			return;
+		}
+		routeOrders(open);
+		matchOrders(open);
+		for (MarketShard shard : open) {
+			shard.completeRound();
+		}
+		age++;
+	}
+
+	protected void routeOrders(List<MarketShard> open) {
+		for (MarketShard shard : open) {
+			shard.setRouting(true);
+		}
+		try {
+			invokeAgentInteractions();
+		} finally {
+			for (MarketShard shard : open) {
+				shard.setRouting(false);
+			}
+		}
+	}
+
+	protected void matchOrders(List<MarketShard> open) {
+		List<Future<?>> rounds = new ArrayList<Future<?>>(open.size());
+		for (final MarketShard shard : open) {
+			rounds.add(executor.submit(new Callable<Object>() {
+				public Object call() {
+					shard.matchRound();
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<?> round : rounds) {
+				round.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AuctionRuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new AuctionRuntimeException(e.getCause());
+		}
+	}
+
+	@Override
+	public SimulationTime getSimulationTime() {
+		return new SimulationTime(age);
+	}
+
+	public int getAge() {
+		return age;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public List<MarketShard> getShards() {
+		return shards;
+	}
+
+	public void setShards(List<MarketShard> shards) {
+		this.shards = new ArrayList<MarketShard>();
+		for (MarketShard shard : shards) {
+			addShard(shard);
+		}
+	}
+
+	public void setShards(MarketShard... shards) {
+		setShards(Arrays.asList(shards));
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void terminate() {
+		super.terminate();
+		for (MarketShard shard : shards) {
+			shard.close();
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.jabm.report.Report;
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * A replication consisting of a single run of a market together with the
+ * reports that observe it.  The reports must belong to this replication 
+ * alone and are read once the market has closed.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MarketReplication implements Replication {
+
+	protected MarketSimulation market;
+
+	protected List<Report> reports = new LinkedList<Report>();
+
+	public MarketReplication(MarketSimulation market) {
+		this.market = market;
+	}
+
+	public MarketReplication(MarketSimulation market, List<Report> reports) {
+		this(market);
+		this.reports.addAll(reports);
+	}
+
+	public void addReport(Report report) {
+		reports.add(report);
+	}
+
+	public void run() {
+		market.run();
+	}
+
+	public Map<Object, Number> getResults() {
+		HashMap<Object, Number> results = new HashMap<Object, Number>();
+		for (Report report : reports) {
+			results.putAll(report.getVariableBindings());
+		}
+		return results;
+	}
+
+	public MarketSimulation getMarket() {
+		return market;
+	}
+
+	public List<Report> getReports() {
+		return reports;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A grid of values for the properties of Spring beans, written as 
+ * <code>beanName.property</code> in the same form as the keys of a
+ * PropertyOverrideConfigurer file, e.g. <code>pricingPolicy.k</code> or
+ * <code>chartistWeightDistribution.underlyingDistribution.stdev</code>.
+ * </p>
+ * 
+ * <p>
+ * The points of the grid are the cartesian product of the values of each
+ * property.  Points are numbered from zero with the last property varying
+ * fastest, and are decoded on demand so that large grids are never 
+ * expanded in memory.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ParameterGrid {
+
+	protected LinkedHashMap<String, List<Object>> parameters = 
+			new LinkedHashMap<String, List<Object>>();
+
+	public ParameterGrid() {
+	}
+
+	public ParameterGrid(Map<String, List<Object>> parameters) {
+		setParameters(parameters);
+	}
+
+	public void addParameter(String property, Object... values) {
+		addParameter(property, Arrays.asList(values));
+	}
+
+	public void addParameter(String property, List<?> values) {
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("No values for " + property);
+		}
+		parameters.put(property, new ArrayList<Object>(values));
+	}
+
+	/**
+	 * Add numValues evenly-spaced values from min to max inclusive.
+	 */
+	public void addRange(String property, double min, double max, 
+			int numValues) {
+		List<Object> values = new ArrayList<Object>(numValues);
+		for (int i = 0; i < numValues; i++) {
+			values.add(numValues == 1 ? min 
+					: min + (max - min) * i / (numValues - 1));
+		}
+		addParameter(property, values);
+	}
+
+	public List<String> getProperties() {
+		return new ArrayList<String>(parameters.keySet());
+	}
+
+	public List<Object> getValues(String property) {
+		return parameters.get(property);
+	}
+
+	/**
+	 * The number of points in the grid.  An empty grid has a single point
+	 * which leaves every property at its configured value.
+	 */
+	public int size() {
+		int size = 1;
+		for (List<Object> values : parameters.values()) {
+			size = multiply(size, values.size());
+		}
+		return size;
+	}
+
+	/**
+	 * The values of every property at the specified point.
+	 */
+	public Map<String, Object> getPoint(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Point " + index);
+		}
+		List<String> properties = getProperties();
+		Object[] point = new Object[properties.size()];
+		for (int i = properties.size() - 1; i >= 0; i--) {
+			List<Object> values = parameters.get(properties.get(i));
+			point[i] = values.get(index % values.size());
+			index /= values.size();
+		}
+		LinkedHashMap<String, Object> result = 
+				new LinkedHashMap<String, Object>();
+		for (int i = 0; i < point.length; i++) {
+			result.put(properties.get(i), point[i]);
+		}
+		return result;
+	}
+
+	public Map<String, List<Object>> getParameters() {
+		return parameters;
+	}
+
+	public void setParameters(Map<String, List<Object>> parameters) {
+		this.parameters.clear();
+		for (Map.Entry<String, List<Object>> parameter : 
+				parameters.entrySet()) {
+			addParameter(parameter.getKey(), parameter.getValue());
+		}
+	}
+
+	protected static int multiply(int size, int n) {
+		long product = (long) size * n;
+		if (product > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Parameter grid is too large");
+		}
+		return (int) product;
+	}
+
+}
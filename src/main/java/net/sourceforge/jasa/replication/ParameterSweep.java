@@ -0,0 +1,201 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * <p>
+ * Runs a number of replications at every point of a ParameterGrid on a
+ * work-stealing pool of threads, appending the report variables of each
+ * replication to a SweepResultStore as soon as it finishes.  Points whose
+ * replications take longer, e.g. those with more agents, are balanced 
+ * across the threads by stealing rather than by a static partition of 
+ * the grid.
+ * </p>
+ * 
+ * <p>
+ * The seed of every replication is drawn from a master generator in grid
+ * order, whether or not the replication is run.  Rerunning an interrupted
+ * sweep with the same result file therefore runs only the missing 
+ * replications, with the seeds they would have had originally.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ParameterSweep {
+
+	protected ParameterGrid grid = new ParameterGrid();
+
+	protected SweepReplicationFactory replicationFactory;
+
+	/**
+	 * The number of replications run at each point of the grid.
+	 */
+	protected int numReplications = 1;
+
+	protected int numThreads = Runtime.getRuntime().availableProcessors();
+
+	protected int seed = 1234;
+
+	protected File resultFile;
+
+	static Logger logger = Logger.getLogger(ParameterSweep.class);
+
+	public ParameterSweep() {
+	}
+
+	public ParameterSweep(ParameterGrid grid,
+			SweepReplicationFactory replicationFactory, File resultFile) {
+		this.grid = grid;
+		this.replicationFactory = replicationFactory;
+		this.resultFile = resultFile;
+	}
+
+	/**
+	 * Run every replication which is not already in the result file and
+	 * wait for them to finish.
+	 * 
+	 * @return The number of replications that were run.
+	 */
+	public int run() {
+		SweepResultStore store = openResultStore();
+		ExecutorService executor = Executors.newWorkStealingPool(numThreads);
+		try {
+			int size = grid.size();
+			logger.info("Sweeping " + size + " points with " 
+					+ store.getNumCompleted() + " replications completed");
+			RandomEngine master = new MersenneTwister64(seed);
+			List<Future<Void>> replications = new ArrayList<Future<Void>>();
+			for (int point = 0; point < size; point++) {
+				for (int r = 0; r < numReplications; r++) {
+					int replicationSeed = master.nextInt();
+					if (!store.isCompleted(point, r)) {
+						replications.add(executor.submit(
+							replicationTask(store, point, r, replicationSeed)));
+					}
+				}
+			}
+			for (Future<Void> replication : replications) {
+				replication.get();
+			}
+			return replications.size();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+			try {
+				store.close();
+			} catch (IOException e) {
+				logger.error(e);
+			}
+		}
+	}
+
+	protected SweepResultStore openResultStore() {
+		try {
+			return new SweepResultStore(resultFile, grid.getProperties());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	protected Callable<Void> replicationTask(final SweepResultStore store,
+			final int point, final int replication, 
+			final int replicationSeed) {
+		return new Callable<Void>() {
+			public Void call() throws IOException {
+				logger.debug("Starting replication " + replication 
+						+ " of point " + point);
+				Map<String, Object> parameters = grid.getPoint(point);
+				Replication r = replicationFactory.createReplication(
+						parameters, replication, 
+						new MersenneTwister64(replicationSeed));
+				r.run();
+				store.append(point, replication, parameters, r.getResults());
+				return null;
+			}
+		};
+	}
+
+	public ParameterGrid getGrid() {
+		return grid;
+	}
+
+	public void setGrid(ParameterGrid grid) {
+		this.grid = grid;
+	}
+
+	public SweepReplicationFactory getReplicationFactory() {
+		return replicationFactory;
+	}
+
+	public void setReplicationFactory(
+			SweepReplicationFactory replicationFactory) {
+		this.replicationFactory = replicationFactory;
+	}
+
+	public int getNumReplications() {
+		return numReplications;
+	}
+
+	public void setNumReplications(int numReplications) {
+		this.numReplications = numReplications;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+	public File getResultFile() {
+		return resultFile;
+	}
+
+	public void setResultFile(File resultFile) {
+		this.resultFile = resultFile;
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.Map;
+
+/**
+ * A single, self-contained replication of an experiment.  Replications
+ * do not share any mutable state with each other, so that a
+ * ReplicationRunner is free to run them concurrently.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public interface Replication extends Runnable {
+
+	/**
+	 * Run the replication to completion.
+	 */
+	public void run();
+
+	/**
+	 * The values of the report variables at the end of the replication.
+	 */
+	public Map<Object, Number> getResults();
+
+}
@@ -0,0 +1,39 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * Creates the replications run by a ReplicationRunner.  Implementations
+ * must build a fresh simulation, population and set of reports for every
+ * replication, and must draw all random numbers from the supplied 
+ * generator, so that replications are independent of each other and of 
+ * the order in which they are run.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public interface ReplicationFactory {
+
+	/**
+	 * @param replication The index of the replication, starting from zero.
+	 * @param prng        The random number generator dedicated to this 
+	 *                    replication.
+	 */
+	public Replication createReplication(int replication, RandomEngine prng);
+
+}
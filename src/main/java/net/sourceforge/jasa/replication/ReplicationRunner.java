@@ -0,0 +1,211 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.jabm.util.SummaryStats;
+import net.sourceforge.jasa.report.ReportVariable;
+
+import org.apache.log4j.Logger;
+
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * <p>
+ * Runs independent replications of an experiment concurrently on a fixed
+ * pool of threads, and aggregates the report variables of every 
+ * replication into a SummaryStats object per variable.
+ * </p>
+ * 
+ * <p>
+ * Each replication is given its own MersenneTwister64 whose seed is drawn
+ * from a master generator before any replication starts, and the results 
+ * are merged in replication order.  The aggregate statistics therefore 
+ * depend only on the master seed and the number of replications, and not
+ * on the number of threads or on how the replications are scheduled.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ReplicationRunner {
+
+	protected ReplicationFactory replicationFactory;
+
+	protected int numReplications = 1;
+
+	/**
+	 * The number of replications run at the same time.
+	 */
+	protected int numThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The seed of the master generator from which the seeds of the 
+	 * individual replications are drawn.
+	 */
+	protected int seed = 1234;
+
+	/**
+	 * The aggregate statistics for each report variable, in the order in
+	 * which the variables were first reported.
+	 */
+	protected Map<Object, SummaryStats> results;
+
+	static Logger logger = Logger.getLogger(ReplicationRunner.class);
+
+	public ReplicationRunner() {
+	}
+
+	public ReplicationRunner(ReplicationFactory replicationFactory,
+			int numReplications) {
+		this.replicationFactory = replicationFactory;
+		this.numReplications = numReplications;
+	}
+
+	/**
+	 * Run all of the replications and wait for them to finish.
+	 * 
+	 * @return The aggregate statistics for each report variable. 
+	 * NaN values are not included in the statistics.
+	 */
+	public Map<Object, SummaryStats> run() {
+		int[] seeds = generateSeeds();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(numThreads, numReplications)));
+		try {
+			List<Future<Map<Object, Number>>> replications = 
+					new ArrayList<Future<Map<Object, Number>>>(numReplications);
+			for (int r = 0; r < numReplications; r++) {
+				replications.add(executor.submit(replicationTask(r, seeds[r])));
+			}
+			results = new LinkedHashMap<Object, SummaryStats>();
+			for (int r = 0; r < numReplications; r++) {
+				merge(replications.get(r).get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	protected int[] generateSeeds() {
+		RandomEngine master = new MersenneTwister64(seed);
+		int[] seeds = new int[numReplications];
+		for (int r = 0; r < numReplications; r++) {
+			seeds[r] = master.nextInt();
+		}
+		return seeds;
+	}
+
+	protected Callable<Map<Object, Number>> replicationTask(
+			final int replication, final int replicationSeed) {
+		return new Callable<Map<Object, Number>>() {
+			public Map<Object, Number> call() {
+				logger.debug("Starting replication " + replication);
+				Replication r = replicationFactory.createReplication(
+						replication, new MersenneTwister64(replicationSeed));
+				r.run();
+				return r.getResults();
+			}
+		};
+	}
+
+	protected void merge(Map<Object, Number> replicationResults) {
+		for (Map.Entry<Object, Number> result : 
+				replicationResults.entrySet()) {
+			if (result.getValue() == null) {
+				continue;
+			}
+			double value = result.getValue().doubleValue();
+			if (Double.isNaN(value)) {
+				continue;
+			}
+			SummaryStats stats = results.get(result.getKey());
+			if (stats == null) {
+				stats = new SummaryStats(result.getKey().toString());
+				results.put(result.getKey(), stats);
+			}
+			stats.newData(value);
+		}
+	}
+
+	/**
+	 * The name of a report variable, without the description which
+	 * ReportVariable.toString() appends.
+	 */
+	public static String variableName(Object variable) {
+		if (variable instanceof ReportVariable) {
+			return ((ReportVariable) variable).getName();
+		}
+		return variable.toString();
+	}
+
+	public Map<Object, SummaryStats> getResults() {
+		return results;
+	}
+
+	public SummaryStats getResult(Object variable) {
+		return results.get(variable);
+	}
+
+	public ReplicationFactory getReplicationFactory() {
+		return replicationFactory;
+	}
+
+	public void setReplicationFactory(ReplicationFactory replicationFactory) {
+		this.replicationFactory = replicationFactory;
+	}
+
+	public int getNumReplications() {
+		return numReplications;
+	}
+
+	public void setNumReplications(int numReplications) {
+		this.numReplications = numReplications;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public void setSeed(int seed) {
+		this.seed = seed;
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sourceforge.jabm.util.SummaryStats;
+
+import org.apache.log4j.Logger;
+
+import cern.jet.stat.Probability;
+
+/**
+ * <p>
+ * A ReplicationRunner which stops as soon as the confidence interval of
+ * the mean of every target variable is narrower than the target for that
+ * variable, or when the number of replications set by 
+ * setNumReplications() has been exhausted.  A target may name a single
+ * variable, e.g. <code>surplus.ea</code>, or every variable with a given
+ * prefix, e.g. <code>pricestats.*</code>.
+ * </p>
+ * 
+ * <p>
+ * One replication per thread is kept running ahead of the results that
+ * have been merged.  Results are merged and the stopping rule is tested 
+ * in replication order, and any replications beyond the stopping point 
+ * are discarded.  The number of replications and the aggregate statistics 
+ * therefore depend only on the seed, as with a fixed number of 
+ * replications, at the cost of at most one wasted replication per thread.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class SequentialReplicationRunner extends ReplicationRunner {
+
+	/**
+	 * The maximum half-width of the confidence interval for each target
+	 * variable or variable prefix.
+	 */
+	protected Map<String, Double> targets = new LinkedHashMap<String, Double>();
+
+	protected double confidenceLevel = 0.95;
+
+	/**
+	 * The number of replications to run before the stopping rule is first
+	 * tested, so that the estimated variances are not too small by chance.
+	 */
+	protected int minReplications = 10;
+
+	protected int numReplicationsRun;
+
+	protected boolean converged;
+
+	static Logger logger = Logger.getLogger(SequentialReplicationRunner.class);
+
+	public SequentialReplicationRunner() {
+	}
+
+	/**
+	 * @param maxReplications The budget of replications to run if the
+	 *                        targets are not met.
+	 */
+	public SequentialReplicationRunner(ReplicationFactory replicationFactory,
+			int maxReplications) {
+		super(replicationFactory, maxReplications);
+	}
+
+	/**
+	 * @param variable  The name of a variable, or a prefix ending in
+	 *                  <code>*</code>.
+	 * @param halfWidth The half-width of the confidence interval at which 
+	 *                  the variable has converged.
+	 */
+	public void addTarget(String variable, double halfWidth) {
+		targets.put(variable, halfWidth);
+	}
+
+	/**
+	 * Run replications until every target has converged or the budget is
+	 * exhausted.
+	 * 
+	 * @return The aggregate statistics for each report variable over the
+	 * replications that were run.
+	 */
+	public Map<Object, SummaryStats> run() {
+		int[] seeds = generateSeeds();
+		int numThreads = Math.max(1, Math.min(this.numThreads, 
+				numReplications));
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		results = new LinkedHashMap<Object, SummaryStats>();
+		numReplicationsRun = 0;
+		converged = false;
+		try {
+			LinkedList<Future<Map<Object, Number>>> running = 
+					new LinkedList<Future<Map<Object, Number>>>();
+			int started = 0;
+			while (!converged && numReplicationsRun < numReplications) {
+				while (started < numReplications 
+						&& running.size() < numThreads) {
+					running.add(executor.submit(
+							replicationTask(started, seeds[started])));
+					started++;
+				}
+				merge(running.removeFirst().get());
+				numReplicationsRun++;
+				converged = numReplicationsRun >= minReplications
+						&& targetsMet();
+			}
+			if (converged) {
+				logger.info("Converged after " + numReplicationsRun
+						+ " replications");
+			} else {
+				logger.warn("Targets not met after " + numReplicationsRun
+						+ " replications");
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return true if every target matches at least one variable and the
+	 * confidence interval of every matching variable is narrow enough.
+	 */
+	public boolean targetsMet() {
+		for (Map.Entry<String, Double> target : targets.entrySet()) {
+			boolean matched = false;
+			for (Map.Entry<Object, SummaryStats> result : results.entrySet()) {
+				if (matches(target.getKey(), variableName(result.getKey()))) {
+					matched = true;
+					if (!(getHalfWidth(result.getValue()) 
+							<= target.getValue())) {
+						return false;
+					}
+				}
+			}
+			if (!matched) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The half-width of the Student-t confidence interval for the mean of
+	 * a variable, or infinity if there are fewer than two observations.
+	 */
+	public double getHalfWidth(SummaryStats stats) {
+		int n = stats.getN();
+		if (n < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double t = Probability.studentTInverse(1 - confidenceLevel, n - 1);
+		return t * Math.sqrt(Math.max(0, stats.getVariance()) / n);
+	}
+
+	public double getHalfWidth(Object variable) {
+		return getHalfWidth(results.get(variable));
+	}
+
+	protected static boolean matches(String target, String variable) {
+		if (target.endsWith("*")) {
+			return variable.startsWith(
+					target.substring(0, target.length() - 1));
+		}
+		return variable.equals(target);
+	}
+
+	public Map<String, Double> getTargets() {
+		return targets;
+	}
+
+	public void setTargets(Map<String, Double> targets) {
+		this.targets = targets;
+	}
+
+	public double getConfidenceLevel() {
+		return confidenceLevel;
+	}
+
+	public void setConfidenceLevel(double confidenceLevel) {
+		this.confidenceLevel = confidenceLevel;
+	}
+
+	public int getMinReplications() {
+		return minReplications;
+	}
+
+	public void setMinReplications(int minReplications) {
+		this.minReplications = minReplications;
+	}
+
+	public int getNumReplicationsRun() {
+		return numReplicationsRun;
+	}
+
+	public boolean isConverged() {
+		return converged;
+	}
+
+}
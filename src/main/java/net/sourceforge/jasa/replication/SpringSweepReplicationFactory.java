@@ -0,0 +1,209 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import net.sourceforge.jabm.SimulationController;
+import net.sourceforge.jabm.report.Report;
+
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.config.PropertyOverrideConfigurer;
+import org.springframework.beans.factory.config.Scope;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
+import org.springframework.context.support.GenericXmlApplicationContext;
+
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * <p>
+ * Creates sweep replications from a Spring configuration.  Each 
+ * replication loads the configuration into a new application context,
+ * overrides the swept bean properties in the same way as a 
+ * PropertyOverrideConfigurer and replaces the prng bean with the 
+ * replication's own generator.  It then runs the simulation controller 
+ * and reads the variable bindings of the named reports.  The swept values
+ * are applied after any property files named in the configuration, such
+ * as <code>weights.properties</code>, and so take precedence over them.
+ * </p>
+ * 
+ * <p>
+ * Every context has its own <code>simulation</code> scope, so that 
+ * replications running at the same time do not share scoped beans.  The
+ * scope lasts for the whole replication, and the controller should 
+ * therefore be configured to run a single simulation; further 
+ * replications are obtained from ParameterSweep.setNumReplications().
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class SpringSweepReplicationFactory implements SweepReplicationFactory {
+
+	public static final String SIMULATION_SCOPE = "simulation";
+
+	public static final String OVERRIDE_BEAN_NAME = "sweepParameters";
+
+	protected String[] configLocations;
+
+	protected String controllerBeanName = "simulationController";
+
+	/**
+	 * The name of the random number generator bean, or null to leave the
+	 * generator in the configuration untouched.
+	 */
+	protected String prngBeanName = "prng";
+
+	protected List<String> reportBeanNames = new ArrayList<String>();
+
+	public SpringSweepReplicationFactory() {
+	}
+
+	public SpringSweepReplicationFactory(String configLocation,
+			String... reportBeanNames) {
+		this.configLocations = new String[] { configLocation };
+		for (String reportBeanName : reportBeanNames) {
+			this.reportBeanNames.add(reportBeanName);
+		}
+	}
+
+	public Replication createReplication(
+			final Map<String, Object> parameters, int replication,
+			final RandomEngine prng) {
+		return new Replication() {
+
+			protected Map<Object, Number> results = 
+					new HashMap<Object, Number>();
+
+			public void run() {
+				GenericXmlApplicationContext context = 
+						createApplicationContext(parameters, prng);
+				try {
+					context.getBean(controllerBeanName, 
+							SimulationController.class).run();
+					for (String reportBeanName : reportBeanNames) {
+						Report report = 
+								context.getBean(reportBeanName, Report.class);
+						results.putAll(report.getVariableBindings());
+					}
+				} finally {
+					context.close();
+				}
+			}
+
+			public Map<Object, Number> getResults() {
+				return results;
+			}
+		};
+	}
+
+	public GenericXmlApplicationContext createApplicationContext(
+			Map<String, Object> parameters, RandomEngine prng) {
+		GenericXmlApplicationContext context = 
+				new GenericXmlApplicationContext();
+		context.getBeanFactory().registerScope(SIMULATION_SCOPE,
+				new ReplicationScope());
+		context.load(configLocations);
+		if (prngBeanName != null) {
+			if (context.containsBeanDefinition(prngBeanName)) {
+				context.removeBeanDefinition(prngBeanName);
+			}
+			context.getBeanFactory().registerSingleton(prngBeanName, prng);
+		}
+		Properties overrides = new Properties();
+		for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+			overrides.setProperty(parameter.getKey(), 
+					String.valueOf(parameter.getValue()));
+		}
+		GenericBeanDefinition configurer = new GenericBeanDefinition();
+		configurer.setBeanClass(PropertyOverrideConfigurer.class);
+		configurer.getPropertyValues().add("properties", overrides);
+		context.registerBeanDefinition(OVERRIDE_BEAN_NAME, configurer);
+		context.refresh();
+		return context;
+	}
+
+	public String[] getConfigLocations() {
+		return configLocations;
+	}
+
+	public void setConfigLocations(String[] configLocations) {
+		this.configLocations = configLocations;
+	}
+
+	public String getControllerBeanName() {
+		return controllerBeanName;
+	}
+
+	public void setControllerBeanName(String controllerBeanName) {
+		this.controllerBeanName = controllerBeanName;
+	}
+
+	public String getPrngBeanName() {
+		return prngBeanName;
+	}
+
+	public void setPrngBeanName(String prngBeanName) {
+		this.prngBeanName = prngBeanName;
+	}
+
+	public List<String> getReportBeanNames() {
+		return reportBeanNames;
+	}
+
+	public void setReportBeanNames(List<String> reportBeanNames) {
+		this.reportBeanNames = reportBeanNames;
+	}
+
+	/**
+	 * A scope holding the scoped beans of a single replication.
+	 */
+	public static class ReplicationScope implements Scope {
+
+		protected Map<String, Object> beans = new HashMap<String, Object>();
+
+		public synchronized Object get(String name, 
+				ObjectFactory<?> objectFactory) {
+			Object bean = beans.get(name);
+			if (bean == null) {
+				bean = objectFactory.getObject();
+				beans.put(name, bean);
+			}
+			return bean;
+		}
+
+		public synchronized Object remove(String name) {
+			return beans.remove(name);
+		}
+
+		public void registerDestructionCallback(String name, 
+				Runnable callback) {
+		}
+
+		public Object resolveContextualObject(String key) {
+			return null;
+		}
+
+		public String getConversationId() {
+			return null;
+		}
+	}
+
+}
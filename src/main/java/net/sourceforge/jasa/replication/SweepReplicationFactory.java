@@ -0,0 +1,43 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.Map;
+
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * Creates the replications run at each point of a ParameterSweep.  As with
+ * a ReplicationFactory, every replication must be built from scratch and
+ * must draw all of its random numbers from the supplied generator.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public interface SweepReplicationFactory {
+
+	/**
+	 * @param parameters  The value of each property at this point of the
+	 *                    grid, keyed by <code>beanName.property</code>.
+	 * @param replication The index of the replication at this point, 
+	 *                    starting from zero.
+	 * @param prng        The random number generator dedicated to this 
+	 *                    replication.
+	 */
+	public Replication createReplication(Map<String, Object> parameters,
+			int replication, RandomEngine prng);
+
+}
@@ -0,0 +1,339 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * An append-only table of the results of a ParameterSweep, stored as a 
+ * comma-separated file with one column for the point, one for the 
+ * replication, one for each swept property, headed by the property name
+ * prefixed with <code>param:</code>, and one for each report variable.
+ * The report variables are taken from the first row that is written.
+ * Variables missing from a later row are written as NaN, and if a later
+ * row has variables which are not yet in the table, the file is rewritten
+ * with a column for each of them, filled with NaN in the earlier rows.
+ * </p>
+ * 
+ * <p>
+ * Each row is flushed as soon as it is written.  When an existing file is
+ * opened, any incomplete last row left by an interrupted sweep is 
+ * discarded and the remaining rows are recorded as completed, so that the
+ * sweep can resume where it stopped.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class SweepResultStore implements Closeable {
+
+	public static final String POINT = "point";
+
+	public static final String REPLICATION = "replication";
+
+	/**
+	 * The prefix which distinguishes the columns of the swept properties
+	 * from those of report variables with the same name.
+	 */
+	public static final String PARAMETER_PREFIX = "param:";
+
+	public static final Charset CHARSET = Charset.forName("UTF-8");
+
+	protected File file;
+
+	protected List<String> properties;
+
+	/**
+	 * The report variables, or null if no row has been written yet.
+	 */
+	protected List<String> variables;
+
+	protected Set<Long> completed = new HashSet<Long>();
+
+	protected Writer out;
+
+	static Logger logger = Logger.getLogger(SweepResultStore.class);
+
+	/**
+	 * Open the store, reading back the rows of an existing file.
+	 * 
+	 * @param properties The swept properties, which must match those of an
+	 *                   existing file.
+	 */
+	public SweepResultStore(File file, List<String> properties)
+			throws IOException {
+		this.file = file;
+		this.properties = new ArrayList<String>(properties);
+		if (file.exists()) {
+			truncateIncompleteRow();
+			readCompleted();
+		}
+		out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), CHARSET));
+	}
+
+	public synchronized boolean isCompleted(int point, int replication) {
+		return completed.contains(key(point, replication));
+	}
+
+	public synchronized int getNumCompleted() {
+		return completed.size();
+	}
+
+	public synchronized List<String> getVariables() {
+		return variables == null ? null 
+				: Collections.unmodifiableList(variables);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void append(int point, int replication,
+			Map<String, Object> parameters, Map<Object, Number> results)
+			throws IOException {
+		if (variables == null) {
+			writeHeader(results);
+		}
+		List<String> row = new ArrayList<String>();
+		row.add(Integer.toString(point));
+		row.add(Integer.toString(replication));
+		for (String property : properties) {
+			row.add(String.valueOf(parameters.get(property)));
+		}
+		Map<String, Number> values = byName(results);
+		if (!variables.containsAll(values.keySet())) {
+			addVariables(values.keySet());
+		}
+		for (String variable : variables) {
+			Number value = values.get(variable);
+			row.add(value == null ? "NaN" : value.toString());
+		}
+		writeRow(row);
+		completed.add(key(point, replication));
+	}
+
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	protected void writeHeader(Map<Object, Number> results) 
+			throws IOException {
+		variables = new ArrayList<String>(byName(results).keySet());
+		Collections.sort(variables);
+		List<String> header = new ArrayList<String>();
+		header.add(POINT);
+		header.add(REPLICATION);
+		header.addAll(parameterColumns());
+		header.addAll(variables);
+		writeRow(header);
+	}
+
+	/**
+	 * Add a column for each of the given report variables which is not
+	 * already in the table, rewriting the file so that the new columns of
+	 * the rows already written hold NaN.
+	 */
+	protected void addVariables(Collection<String> names) throws IOException {
+		List<String> added = new ArrayList<String>();
+		for (String name : names) {
+			if (!variables.contains(name)) {
+				added.add(name);
+			}
+		}
+		Collections.sort(added);
+		logger.info("Adding variables " + added + " to " + file);
+		out.close();
+		File rewritten = new File(file.getPath() + ".tmp");
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), CHARSET));
+		Writer copy = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(rewritten), CHARSET));
+		try {
+			String line = in.readLine();
+			List<String> header = split(line);
+			header.addAll(added);
+			copy.write(formatRow(header));
+			while ((line = in.readLine()) != null) {
+				List<String> row = split(line);
+				for (int i = 0; i < added.size(); i++) {
+					row.add("NaN");
+				}
+				copy.write(formatRow(row));
+			}
+		} finally {
+			in.close();
+			copy.close();
+		}
+		Files.move(rewritten.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		variables.addAll(added);
+		out = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file, true), CHARSET));
+	}
+
+	protected void writeRow(List<String> fields) throws IOException {
+		out.write(formatRow(fields));
+		out.flush();
+	}
+
+	protected static String formatRow(List<String> fields) {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fields.size(); i++) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append(quote(fields.get(i)));
+		}
+		line.append('\n');
+		return line.toString();
+	}
+
+	protected void truncateIncompleteRow() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long end = raf.length();
+			while (end > 0) {
+				raf.seek(end - 1);
+				if (raf.read() == '\n') {
+					break;
+				}
+				end--;
+			}
+			if (end < raf.length()) {
+				logger.info("Discarding incomplete row at end of " + file);
+				raf.setLength(end);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	protected void readCompleted() throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(file), CHARSET));
+		try {
+			String line = in.readLine();
+			if (line == null) {
+				return;
+			}
+			List<String> header = split(line);
+			int numColumns = properties.size() + 2;
+			if (header.size() < numColumns
+					|| !header.get(0).equals(POINT)
+					|| !header.get(1).equals(REPLICATION)
+					|| !header.subList(2, numColumns).equals(parameterColumns())
+					|| (header.size() > numColumns && header.get(numColumns)
+							.startsWith(PARAMETER_PREFIX))) {
+				throw new IllegalArgumentException(file
+						+ " does not hold the results of a sweep over "
+						+ properties);
+			}
+			variables = new ArrayList<String>(
+					header.subList(numColumns, header.size()));
+			while ((line = in.readLine()) != null) {
+				List<String> row = split(line);
+				completed.add(key(Integer.parseInt(row.get(0)),
+						Integer.parseInt(row.get(1))));
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	protected List<String> parameterColumns() {
+		List<String> columns = new ArrayList<String>(properties.size());
+		for (String property : properties) {
+			columns.add(PARAMETER_PREFIX + property);
+		}
+		return columns;
+	}
+
+	protected static Map<String, Number> byName(Map<Object, Number> results) {
+		Map<String, Number> values = new LinkedHashMap<String, Number>();
+		for (Map.Entry<Object, Number> result : results.entrySet()) {
+			values.put(ReplicationRunner.variableName(result.getKey()), 
+					result.getValue());
+		}
+		return values;
+	}
+
+	protected static long key(int point, int replication) {
+		return ((long) point << 32) | (replication & 0xFFFFFFFFL);
+	}
+
+	protected static String quote(String field) {
+		field = field.replace('\n', ' ');
+		if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+			return field;
+		}
+		return '"' + field.replace("\"", "\"\"") + '"';
+	}
+
+	protected static List<String> split(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() 
+						&& line.charAt(i + 1) == '"') {
+					field.append(c);
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+}
@@ -0,0 +1,471 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import net.sourceforge.jasa.market.Order;
+
+/**
+ * <p>
+ * The belief function of the Gjerstad-Dickhaut family of strategies: the
+ * estimated probability that a bid (or ask) at a given price will be
+ * accepted, interpolated between the distinct prices of the shouts in a
+ * HistoricalDataReport.  The function depends only on the history and on
+ * the side of the market, so HistoricalDataReport builds one curve of each
+ * kind per version of the history and shares it between every agent.
+ * Each agent then only searches the curve for the price that maximises
+ * its own expected surplus.
+ * </p>
+ * 
+ * <p>
+ * The curve is held as a sequence of segments between consecutive 
+ * distinct prices, the last of which ends at the maximum price, together
+ * with the coefficients of the polynomial interpolating each segment.
+ * Segments are clipped to the maximum price, and the coefficients are
+ * computed from the clipped end points; segments lying wholly beyond the
+ * maximum price are dropped.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class BeliefCurve {
+
+	/**
+	 * Cubic interpolation with zero slope at each end of every segment, as
+	 * used by GDStrategy.
+	 */
+	public static final int CUBIC = 0;
+
+	/**
+	 * Linear interpolation, as used by GDLStrategy.
+	 */
+	public static final int LINEAR = 1;
+
+	/**
+	 * Quadratic interpolation whose slope is continuous across segments,
+	 * as used by GDQStrategy.
+	 */
+	public static final int QUADRATIC = 2;
+
+	public static final int NUM_INTERPOLATIONS = 3;
+
+	/**
+	 * The number of bisection steps used to locate a stationary point.
+	 */
+	protected static final int BISECTION_STEPS = 60;
+
+	protected int interpolation;
+
+	protected boolean buyer;
+
+	protected double maxPrice;
+
+	/**
+	 * The version of the history from which the curve was built.
+	 */
+	protected long version;
+
+	protected int numSegments;
+
+	protected double[] a1 = new double[16];
+
+	protected double[] a2 = new double[16];
+
+	protected double[] p1 = new double[16];
+
+	protected double[] p2 = new double[16];
+
+	protected double[] alpha0 = new double[16];
+
+	protected double[] alpha1 = new double[16];
+
+	protected double[] alpha2 = new double[16];
+
+	protected double[] alpha3 = new double[16];
+
+	/**
+	 * The slope at the end of the last segment of a quadratic curve.
+	 */
+	protected double slope;
+
+	public BeliefCurve(int interpolation, boolean buyer, double maxPrice) {
+		this.interpolation = interpolation;
+		this.buyer = buyer;
+		this.maxPrice = maxPrice;
+	}
+
+	/**
+	 * Rebuild the curve from the current contents of the history.
+	 */
+	@SuppressWarnings("rawtypes")
+	public void build(HistoricalDataReport history, long version) {
+		this.version = version;
+		numSegments = 0;
+		slope = 0;
+		HistoricalDataReport.IncreasingQueryAccelerator accelerator = 
+				history.getIncreasingQueryAccelerator();
+		double lastPoint = 0;
+		double lastP = buyer ? 0 : 1;
+		Iterator sortedShouts = history.sortedShoutIterator();
+		while (sortedShouts.hasNext()) {
+			double price = ((Order) sortedShouts.next()).getPriceAsDouble();
+			if (price > lastPoint) {
+				double p = calculateProbability(accelerator, price);
+				addSegment(lastPoint, lastP, price, p);
+				lastPoint = price;
+				lastP = p;
+			}
+		}
+		addSegment(lastPoint, lastP, maxPrice, buyer ? 1 : 0);
+	}
+
+	/**
+	 * The proportion of the shouts in the history which support the 
+	 * acceptance of a shout at the given price.  For a bid this is 
+	 * <code>(accepted bids below + asks below) / (accepted bids below + 
+	 * asks below + rejected bids above)</code>, and symmetrically for an ask.
+	 */
+	public double calculateProbability(
+			HistoricalDataReport.IncreasingQueryAccelerator accelerator,
+			double price) {
+		return calculateProbability(accelerator, price, buyer);
+	}
+
+	public static double calculateProbability(
+			HistoricalDataReport.IncreasingQueryAccelerator accelerator,
+			double price, boolean buyer) {
+		if (buyer) {
+			double support = accelerator.getNumOfAcceptedBidsBelow(price)
+					+ accelerator.getNumOfAsksBelow(price);
+			return support / (support 
+					+ accelerator.getNumOfRejectedBidsAbove(price));
+		} else {
+			double support = accelerator.getNumOfAcceptedAsksAbove(price)
+					+ accelerator.getNumOfBidsAbove(price);
+			return support / (support 
+					+ accelerator.getNumOfRejectedAsksBelow(price));
+		}
+	}
+
+	protected void addSegment(double x1, double y1, double x2, double y2) {
+		if (x1 > maxPrice) {
+			x1 = maxPrice;
+		}
+		if (x2 > maxPrice) {
+			x2 = maxPrice;
+		}
+		assert y1 >= 0 && y1 <= (1 + 10E-6) && y2 >= 0 && y2 <= (1 + 10E-6);
+		if (x1 >= x2) {
+			// Segments beyond the maximum price are empty
+			return;
+		}
+		if (numSegments == a1.length) {
+			grow();
+		}
+		int s = numSegments++;
+		a1[s] = x1;
+		a2[s] = x2;
+		p1[s] = y1;
+		p2[s] = y2;
+		if (interpolation == CUBIC) {
+			double a11 = x1 * x1;
+			double a1111 = a11 * a11;
+			double a22 = x2 * x2;
+			double a2222 = a22 * a22;
+			double a1122 = a11 * a22;
+			double a12 = x1 * x2;
+			double a1112 = a11 * a12;
+			double a1222 = a12 * a22;
+			double p12 = y1 - y2;
+			double denom = (-6 * a1122) + 4 * (a1112 + a1222) - a1111 - a2222;
+			alpha3[s] = (2 * ((x1 - x2) * p12)) / denom;
+			alpha2[s] = (3 * (a22 - a11) * p12) / denom;
+			alpha1[s] = (6 * p12 * (a12 * (x1 - x2))) / denom;
+			alpha0[s] = ((y1 * ((4 * a1222) - 3 * a1122 - a2222)) 
+					+ (y2 * ((4 * a1112) - 3 * a1122 - a1111))) / denom;
+		} else if (interpolation == QUADRATIC) {
+			double a12 = x1 - x2;
+			alpha3[s] = 0;
+			alpha2[s] = (slope * a12 - (y1 - y2)) / (a12 * a12);
+			alpha1[s] = slope - 2 * x1 * alpha2[s];
+			alpha0[s] = y1 - alpha2[s] * x1 * x1 - alpha1[s] * x1;
+			slope = 2 * alpha2[s] * x2 + alpha1[s];
+		} else {
+			alpha3[s] = 0;
+			alpha2[s] = 0;
+			alpha1[s] = (y2 - y1) / (x2 - x1);
+			alpha0[s] = y1 - alpha1[s] * x1;
+		}
+	}
+
+	/**
+	 * The interpolated probability of acceptance at a price within the
+	 * given segment.
+	 */
+	public double probability(int s, double price) {
+		if (interpolation == LINEAR) {
+			return p1[s] + ((p2[s] - p1[s]) * ((price - a1[s]) / (a2[s] - a1[s])));
+		}
+		return (alpha3[s] * price * price * price) 
+				+ (alpha2[s] * price * price) + (alpha1[s] * price) + alpha0[s];
+	}
+
+	/**
+	 * The interpolated probability of acceptance at the given price, or
+	 * zero if the price lies outside the curve.
+	 */
+	public double probability(double price) {
+		int s = findSegment(price);
+		return s < 0 ? 0 : probability(s, price);
+	}
+
+	public double getExpectedSurplus(double price, double valuation) {
+		return probability(price) * surplus(price, valuation);
+	}
+
+	/**
+	 * Search each segment in unit steps from its start for the price which
+	 * maximises the expected surplus of a trader with the given valuation.
+	 * 
+	 * @return The best price found, or zero if no price has a positive 
+	 * expected surplus.
+	 */
+	public double getOptimalPrice(double valuation) {
+		double max = 0;
+		double maxPoint = 0;
+		for (int s = 0; s < numSegments; s++) {
+			double start = a1[s];
+			double end = a2[s];
+			if (buyer) {
+				if (start >= valuation) {
+					break;
+				}
+				if (end > valuation) {
+					end = valuation;
+				}
+			} else if (start < valuation) {
+				if (end <= valuation) {
+					continue;
+				}
+				start = valuation;
+			}
+			for (double i = start; i < end; i++) {
+				double temp = probability(s, i) * surplus(i, valuation);
+				if (temp > max) {
+					max = temp;
+					maxPoint = i;
+				}
+			}
+		}
+		return maxPoint;
+	}
+
+	/**
+	 * Find the price which maximises the expected surplus of a trader with
+	 * the given valuation by comparing the end points of each segment with
+	 * the stationary points of the expected surplus within it.
+	 * 
+	 * @return The best price found, or zero if no price has a positive
+	 * expected surplus.
+	 */
+	public double getAnalyticOptimalPrice(double valuation) {
+		double max = 0;
+		double maxPoint = 0;
+		double[] derivative = new double[4];
+		for (int s = 0; s < numSegments; s++) {
+			double start = a1[s];
+			double end = a2[s];
+			if (buyer) {
+				if (start >= valuation) {
+					break;
+				}
+				end = Math.min(end, valuation);
+			} else {
+				if (end <= valuation) {
+					continue;
+				}
+				start = Math.max(start, valuation);
+			}
+			if (!(start < end)) {
+				continue;
+			}
+			expectedSurplusDerivative(s, valuation, derivative);
+			double[] candidates = new double[5];
+			candidates[0] = start;
+			candidates[1] = end;
+			int numCandidates = 2 + roots(derivative, start, end, candidates, 2);
+			for (int c = 0; c < numCandidates; c++) {
+				double price = candidates[c];
+				double temp = probability(s, price) * surplus(price, valuation);
+				if (temp > max) {
+					max = temp;
+					maxPoint = price;
+				}
+			}
+		}
+		return maxPoint;
+	}
+
+	protected double surplus(double price, double valuation) {
+		return buyer ? valuation - price : price - valuation;
+	}
+
+	/**
+	 * The coefficients, in increasing powers of the price, of the 
+	 * derivative of the expected surplus within a segment.
+	 */
+	protected void expectedSurplusDerivative(int s, double valuation,
+			double[] derivative) {
+		double[] c = { alpha0[s], alpha1[s], alpha2[s], alpha3[s] };
+		// The expected surplus of a seller is p(x)(x - v) = sum g_k x^k
+		double[] g = new double[5];
+		for (int k = 0; k <= 4; k++) {
+			g[k] = (k > 0 ? c[k - 1] : 0) - (k < 4 ? valuation * c[k] : 0);
+		}
+		double sign = buyer ? -1 : 1;
+		for (int k = 0; k < 4; k++) {
+			derivative[k] = sign * (k + 1) * g[k + 1];
+		}
+	}
+
+	/**
+	 * Find the roots of a polynomial of degree at most three which lie 
+	 * strictly within (low, high), by bisecting each interval on which the
+	 * polynomial is monotonic, and store them from the given offset.
+	 * 
+	 * @return The number of roots found.
+	 */
+	protected static int roots(double[] c, double low, double high,
+			double[] roots, int offset) {
+		double[] breaks = new double[4];
+		int numBreaks = 0;
+		breaks[numBreaks++] = low;
+		// The turning points of the polynomial are the roots of 
+		// c1 + 2 c2 x + 3 c3 x^2
+		double qa = 3 * c[3];
+		double qb = 2 * c[2];
+		double qc = c[1];
+		if (qa != 0) {
+			double discriminant = qb * qb - 4 * qa * qc;
+			if (discriminant > 0) {
+				double root = Math.sqrt(discriminant);
+				double x1 = (-qb - root) / (2 * qa);
+				double x2 = (-qb + root) / (2 * qa);
+				if (x1 > x2) {
+					double t = x1;
+					x1 = x2;
+					x2 = t;
+				}
+				if (x1 > low && x1 < high) {
+					breaks[numBreaks++] = x1;
+				}
+				if (x2 > low && x2 < high) {
+					breaks[numBreaks++] = x2;
+				}
+			}
+		} else if (qb != 0) {
+			double x = -qc / qb;
+			if (x > low && x < high) {
+				breaks[numBreaks++] = x;
+			}
+		}
+		breaks[numBreaks++] = high;
+		Arrays.sort(breaks, 1, numBreaks - 1);
+		int numRoots = 0;
+		for (int i = 0; i + 1 < numBreaks; i++) {
+			double x1 = breaks[i];
+			double x2 = breaks[i + 1];
+			double y1 = evaluate(c, x1);
+			double y2 = evaluate(c, x2);
+			if (y1 == 0 && x1 > low) {
+				roots[offset + numRoots++] = x1;
+			} else if (y1 * y2 < 0) {
+				for (int step = 0; step < BISECTION_STEPS; step++) {
+					double mid = (x1 + x2) / 2;
+					double y = evaluate(c, mid);
+					if (y * y1 > 0) {
+						x1 = mid;
+						y1 = y;
+					} else {
+						x2 = mid;
+					}
+				}
+				roots[offset + numRoots++] = (x1 + x2) / 2;
+			}
+		}
+		return numRoots;
+	}
+
+	protected static double evaluate(double[] c, double x) {
+		return ((c[3] * x + c[2]) * x + c[1]) * x + c[0];
+	}
+
+	/**
+	 * The index of the segment containing the price, or -1 if it lies 
+	 * outside the curve.
+	 */
+	protected int findSegment(double price) {
+		int low = 0;
+		int high = numSegments - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (price < a1[mid]) {
+				high = mid - 1;
+			} else if (price >= a2[mid] && mid < numSegments - 1) {
+				low = mid + 1;
+			} else {
+				return price <= a2[mid] ? mid : -1;
+			}
+		}
+		return -1;
+	}
+
+	protected void grow() {
+		int length = a1.length * 2;
+		a1 = Arrays.copyOf(a1, length);
+		a2 = Arrays.copyOf(a2, length);
+		p1 = Arrays.copyOf(p1, length);
+		p2 = Arrays.copyOf(p2, length);
+		alpha0 = Arrays.copyOf(alpha0, length);
+		alpha1 = Arrays.copyOf(alpha1, length);
+		alpha2 = Arrays.copyOf(alpha2, length);
+		alpha3 = Arrays.copyOf(alpha3, length);
+	}
+
+	public int getNumberOfSegments() {
+		return numSegments;
+	}
+
+	public int getInterpolation() {
+		return interpolation;
+	}
+
+	public boolean isBuyer() {
+		return buyer;
+	}
+
+	public double getMaxPrice() {
+		return maxPrice;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+}
@@ -27,7 +27,14 @@ import net.sourceforge.jasa.market.Order;
 
 /**
  * This class writes market data to the specified DataWriter objects, and thus
- * can be used to log data to eg, CSV files, a database backend, etc.
+ * can be used to log data to eg, CSV files, a database backend, etc.  To
+ * keep the output off the simulation thread, configure each DataWriter as an
+ * AsyncDataWriter wrapping the real writer.  Each log is a series of (time,
+ * value) pairs, so a ColumnarTimeSeriesWriter can be used in place of a
+ * CSVWriter to store it compactly in binary.
+ * 
+ * @see net.sourceforge.jasa.report.output.ReportWriterPipeline
+ * @see net.sourceforge.jasa.report.output.ColumnarTimeSeriesWriter
  * 
  * @author Steve Phelps
  * @version $Revision$
@@ -15,20 +15,27 @@
 
 package net.sourceforge.jasa.report;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
 import java.util.TreeSet;
 
 import net.sourceforge.jabm.event.RoundFinishedEvent;
 import net.sourceforge.jabm.event.SimEvent;
 import net.sourceforge.jabm.util.Resetable;
+import net.sourceforge.jasa.event.OrderAmendedEvent;
 import net.sourceforge.jasa.event.OrderPlacedEvent;
 import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.AuctionRuntimeException;
@@ -46,9 +53,16 @@ import org.apache.log4j.Logger;
  * </p>
  * <p>
  * Since GDStrategy uses this historicalDataReport to compute the number of shouts above or
- * below a certain price, which leads to slow simulation, SortedView and
- * IncreasingQueryAccelerator are introduced to speed up GDStrategy's queries
- * based on the pattern of prices of concern.
+ * below a certain price, the shouts in the history are also counted in a
+ * ShoutHistogram keyed on price tick.  Shouts are marked as accepted when
+ * they trade and removed when they expire, each in O(log P) time, and the
+ * IncreasingQueryAccelerator answers count queries from the histogram in
+ * O(log P) time without rebuilding any sorted lists.
+ * </p>
+ * <p>
+ * The belief curves of the GD strategies are also cached here, keyed on
+ * a version number which is incremented whenever the history changes, so
+ * that agents trading on the same history share a single curve.
  * </p>
  * 
  * @author Steve Phelps
@@ -62,9 +76,34 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 
 	protected LinkedList<Order> bids = new LinkedList<Order>();
 
-	protected TreeSet<Order> sortedShouts = new TreeSet<Order>();
+	protected TreeSet<Order> sortedShouts = new TreeSet<Order>(
+			new DistinctOrderComparator());
 
 	protected HashSet<Order> acceptedShouts = new HashSet<Order>();
+
+	/**
+	 * Counts of the shouts in the history by price tick.
+	 */
+	protected ShoutHistogram histogram = new ShoutHistogram();
+
+	/**
+	 * The key under which each shout in the history was filed when it was
+	 * logged.
+	 */
+	protected IdentityHashMap<Order, LoggedShout> loggedShouts = 
+			new IdentityHashMap<Order, LoggedShout>();
+
+	/**
+	 * The number of shouts logged since the history was initialised.
+	 */
+	protected long numLogged;
+
+	/**
+	 * Shouts which traded before they were logged, as happens when a shout
+	 * is matched on arrival in a continuous market.
+	 */
+	protected Set<Order> matchedBeforeLogged = 
+			Collections.newSetFromMap(new IdentityHashMap<Order, Boolean>());
 //
 //	protected Map shoutMap = Collections.synchronizedMap(new HashMap());
 
@@ -84,17 +123,32 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 
 	protected Order lowestUnacceptedAsk;
 
-	protected IncreasingQueryAccelerator accelerator;
+	protected transient IncreasingQueryAccelerator accelerator;
 
-	protected SortedView view;
+	protected transient SortedView view;
 
-	protected Observable observableProxy;
+	protected transient Observable observableProxy;
+
+	/**
+	 * Incremented whenever the history changes.
+	 */
+	protected long version;
+
+	/**
+	 * The belief curves most recently built from the history, indexed by
+	 * interpolation and side of the market.
+	 */
+	protected transient BeliefCurve[] beliefCurves;
 	
 	static Logger logger = Logger.getLogger(HistoricalDataReport.class);
 
 
 	public HistoricalDataReport() {
-		observableProxy = new Observable() {
+		observableProxy = createObservableProxy();
+	}
+
+	protected Observable createObservableProxy() {
+		return new Observable() {
 			public void notifyObservers() {
 				setChanged();
 				super.notifyObservers();
@@ -102,6 +156,57 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 		};
 	}
 
+	/**
+	 * The sorted view and query accelerator are caches which are rebuilt on
+	 * demand.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		observableProxy = createObservableProxy();
+	}
+
+	protected void historyChanged() {
+		version++;
+		observableProxy.notifyObservers();
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get the belief curve of the given kind for the current history.  The
+	 * curve is rebuilt only when the history has changed since it was last
+	 * requested, so every agent trading on the same version of the history
+	 * shares the same curve.
+	 * 
+	 * @param interpolation
+	 *          one of BeliefCurve.CUBIC, BeliefCurve.LINEAR or 
+	 *          BeliefCurve.QUADRATIC
+	 * @param buyer
+	 *          true for the probability that a bid is accepted, false for an 
+	 *          ask
+	 * @param maxPrice
+	 *          the price at which the curve ends
+	 */
+	public BeliefCurve getBeliefCurve(int interpolation, boolean buyer,
+			double maxPrice) {
+		if (beliefCurves == null) {
+			beliefCurves = new BeliefCurve[BeliefCurve.NUM_INTERPOLATIONS * 2];
+		}
+		int index = interpolation * 2 + (buyer ? 1 : 0);
+		BeliefCurve curve = beliefCurves[index];
+		if (curve == null || curve.getMaxPrice() != maxPrice) {
+			curve = new BeliefCurve(interpolation, buyer, maxPrice);
+			curve.build(this, version);
+			beliefCurves[index] = curve;
+		} else if (curve.getVersion() != version) {
+			curve.build(this, version);
+		}
+		return curve;
+	}
+
 	public void addObserver(Observer o) {
 		observableProxy.addObserver(o);
 	}
@@ -112,6 +217,7 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 	
 	public void checkConsistency() {
 		assert asks.size() + bids.size() == sortedShouts.size();
+		assert loggedShouts.size() == sortedShouts.size();
 	}
 
 	protected void removeNShouts(int n, LinkedList<Order> shouts) {
@@ -121,7 +227,13 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 				assert !sortedShouts.contains(shout);
 				throw new AuctionRuntimeException("Could not process " + shout);
 			}
-			acceptedShouts.remove(shout);
+			long ticks = loggedShouts.remove(shout).ticks;
+			if (acceptedShouts.remove(shout)) {
+				histogram.add(shout.isAsk() ? ShoutHistogram.ACCEPTED_ASKS
+						: ShoutHistogram.ACCEPTED_BIDS, ticks, -1);
+			}
+			histogram.add(shout.isAsk() ? ShoutHistogram.ASKS
+					: ShoutHistogram.BIDS, ticks, -1);
 		}
 	}
 
@@ -133,12 +245,12 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 			removeNShouts(memoryBids[currentMemoryCell], bids);
 			memoryBids[currentMemoryCell] = 0;
 			memoryAsks[currentMemoryCell] = 0;
-			markMatched(asks);
-			markMatched(bids);
-			
 			checkConsistency();
 		}
 
+		recordMatch(event.getAsk());
+		recordMatch(event.getBid());
+
 		if (event.getAsk() == lowestUnacceptedAsk) {
 			lowestUnacceptedAsk = null;
 		}
@@ -146,7 +258,7 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 		if (event.getBid() == highestUnacceptedBid) {
 			highestUnacceptedBid = null;
 		}
-		observableProxy.notifyObservers();
+		historyChanged();
 	}
 
 	public void initialise() {
@@ -154,12 +266,16 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 		bids.clear();
 		asks.clear();
 		sortedShouts.clear();
+		histogram.clear();
+		loggedShouts.clear();
+		numLogged = 0;
+		matchedBeforeLogged.clear();
 		for (int i = 0; i < memorySize; i++) {
 			memoryBids[i] = 0;
 			memoryAsks[i] = 0;
 		}
 		initialisePriceRanges();
-		observableProxy.notifyObservers();
+		historyChanged();
 	}
 
 	public void reset() {
@@ -175,9 +291,61 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 //		
 //		shoutMap.put(shout.getId(), shout);
 		addToSortedShouts(shout);
+		addToHistogram(shout);
 		if (shout.isAsk()) {
 			asks.add(shout);
 			memoryAsks[currentMemoryCell]++;
+		} else {
+			bids.add(shout);
+			memoryBids[currentMemoryCell]++;
+		}
+		updatePriceRanges(shout);
+
+		checkConsistency();
+		
+		historyChanged();
+	}
+
+	/**
+	 * Re-file a shout in the history after it has been amended in place.
+	 * The shout is still filed under the price it was logged at, so it is
+	 * removed from the sorted shouts and the histogram using that price and
+	 * then re-inserted at its new one.
+	 */
+	public void updateAmendedShout(OrderAmendedEvent event) {
+		Order shout = event.getOrder();
+		LoggedShout logged = loggedShouts.get(shout);
+		if (logged == null || !event.isChanged()) {
+			return;
+		}
+		sortedShouts.remove(shout);
+		long ticks = histogram.ticks(shout);
+		histogram.add(shout.isAsk() ? ShoutHistogram.ASKS
+				: ShoutHistogram.BIDS, logged.ticks, -1);
+		histogram.add(shout.isAsk() ? ShoutHistogram.ASKS
+				: ShoutHistogram.BIDS, ticks, 1);
+		boolean accepted = acceptedShouts.contains(shout);
+		if (accepted) {
+			histogram.add(shout.isAsk() ? ShoutHistogram.ACCEPTED_ASKS
+					: ShoutHistogram.ACCEPTED_BIDS, logged.ticks, -1);
+			histogram.add(shout.isAsk() ? ShoutHistogram.ACCEPTED_ASKS
+					: ShoutHistogram.ACCEPTED_BIDS, ticks, 1);
+		}
+		logged.priceTicks = shout.getPriceTicks();
+		logged.quantity = shout.getQuantity();
+		logged.ticks = ticks;
+		sortedShouts.add(shout);
+		if (!accepted) {
+			updatePriceRanges(shout);
+		}
+
+		checkConsistency();
+
+		historyChanged();
+	}
+
+	protected void updatePriceRanges(Order shout) {
+		if (shout.isAsk()) {
 			if (shout.getPriceAsDouble() < lowestAskPrice) {
 				lowestAskPrice = shout.getPriceAsDouble();
 			}
@@ -187,8 +355,6 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 				lowestUnacceptedAsk = shout;
 			}
 		} else {
-			bids.add(shout);
-			memoryBids[currentMemoryCell]++;
 			if (shout.getPriceAsDouble() > highestBidPrice) {
 				highestBidPrice = shout.getPriceAsDouble();
 			}
@@ -197,25 +363,16 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 			    || highestUnacceptedBid.getPriceAsDouble() < shout.getPriceAsDouble()) {
 				highestUnacceptedBid = shout;
 			}
-
 		}
-
-		markMatched(asks);
-		markMatched(bids);
-		
-		checkConsistency();
-		
-		observableProxy.notifyObservers();
 	}
 
 	public void roundClosed(RoundFinishedEvent event) {
-		markMatched(asks);
-		markMatched(bids);
+		matchedBeforeLogged.clear();
 		// if ( getNumberOfTrades() > memorySize ) {
 		// deleteOldShouts();
 		// }
 		initialisePriceRanges();
-		observableProxy.notifyObservers();
+		historyChanged();
 	}
 
 	public void eventOccurred(SimEvent event) {
@@ -224,6 +381,8 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 			roundClosed((RoundFinishedEvent) event);
 		} else if (event instanceof OrderPlacedEvent) {
 			updateShoutLog((OrderPlacedEvent) event);
+		} else if (event instanceof OrderAmendedEvent) {
+			updateAmendedShout((OrderAmendedEvent) event);
 		} else if (event instanceof TransactionExecutedEvent) {
 			updateTransPriceLog((TransactionExecutedEvent) event);
 		}
@@ -334,9 +493,48 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 	}
 
 	public void addToSortedShouts(Order shout) {
+		loggedShouts.put(shout, new LoggedShout(shout, numLogged++));
 		sortedShouts.add(shout);
 	}
 
+	protected void addToHistogram(Order shout) {
+		if (histogram.isEmpty() 
+				&& shout.getTickSize() != histogram.getTickSize()) {
+			histogram.setTickSize(shout.getTickSize());
+		}
+		long ticks = histogram.ticks(shout);
+		loggedShouts.get(shout).ticks = ticks;
+		histogram.add(shout.isAsk() ? ShoutHistogram.ASKS 
+				: ShoutHistogram.BIDS, ticks, 1);
+		if (matchedBeforeLogged.remove(shout)) {
+			markAccepted(shout);
+		}
+	}
+
+	/**
+	 * Mark a shout which has just traded as accepted, or remember it until
+	 * it is logged if it traded on arrival.
+	 */
+	protected void recordMatch(Order shout) {
+		if (loggedShouts.containsKey(shout)) {
+			markAccepted(shout);
+		} else {
+			matchedBeforeLogged.add(shout);
+		}
+	}
+
+	protected void markAccepted(Order shout) {
+		if (acceptedShouts.add(shout)) {
+			histogram.add(shout.isAsk() ? ShoutHistogram.ACCEPTED_ASKS
+					: ShoutHistogram.ACCEPTED_BIDS, loggedShouts.get(shout).ticks,
+					1);
+		}
+	}
+
+	public ShoutHistogram getHistogram() {
+		return histogram;
+	}
+
 	/**
 	 * 
 	 * @param shouts
@@ -384,7 +582,7 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 			while (i.hasNext()) {
 				Order s = i.next();
 				if (auction.orderAccepted(s)) {
-					acceptedShouts.add(s);
+					markAccepted(s);
 				}
 			}
 		} catch (ShoutsNotVisibleException e) {
@@ -409,21 +607,21 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 	}
 
 	public void disableSortedView() {
-		disableIncreasingQueryAccelerator();
-		view.destroy();
-		view = null;
+		if (view != null) {
+			view.destroy();
+			view = null;
+		}
 	}
 
 	public IncreasingQueryAccelerator getIncreasingQueryAccelerator() {
 		if (accelerator == null) {
-			accelerator = new IncreasingQueryAccelerator(getSortedView());
+			accelerator = new IncreasingQueryAccelerator();
 		}
 
 		return accelerator;
 	}
 
 	public void disableIncreasingQueryAccelerator() {
-		accelerator.destroy();
 		accelerator = null;
 	}
 
@@ -539,272 +737,42 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 	}
 
 	/**
-	 * a class to speed up queries from GDStrategy regarding the number of shouts
-	 * above or below a certain price. It is designed based on the pattern of
-	 * increasing prices queried about.
+	 * a class answering queries from GDStrategy regarding the number of
+	 * shouts above or below a certain price.  Each query is answered from
+	 * the histogram in O(log P) time, so prices may be queried in any
+	 * order.
 	 * 
 	 */
-	@SuppressWarnings("rawtypes")
-	public class IncreasingQueryAccelerator implements Observer {
-
-		protected ListIterator asksI;
-
-		protected ListIterator bidsI;
-
-		protected ListIterator acceptedAsksI;
-
-		protected ListIterator acceptedBidsI;
-
-		protected ListIterator rejectedAsksI;
-
-		protected ListIterator rejectedBidsI;
-
-		protected int numOfAsksBelow;
-
-		protected int numOfBidsAbove;
-
-		protected int numOfAcceptedAsksAbove;
-
-		protected int numOfAcceptedBidsBelow;
-
-		protected int numOfRejectedAsksBelow;
-
-		protected int numOfRejectedBidsAbove;
-
-		protected double priceForAsksBelow;
-
-		protected double priceForBidsAbove;
-
-		protected double priceForAcceptedAsksAbove;
-
-		protected double priceForAcceptedBidsBelow;
-
-		protected double priceForRejectedAsksBelow;
-
-		protected double priceForRejectedBidsAbove;
-
-		protected SortedView view;
-
-		private boolean toBeReset;
-
-		public IncreasingQueryAccelerator(SortedView view) {
-			this.view = view;
-			view.addObserver(this);
-			toBeReset = true;
-		}
-
-		public IncreasingQueryAccelerator() {
-			this(new SortedView());
-		}
-
-		public void destroy() {
-			if (view != null) {
-				view.deleteObserver(this);
-			}
-		}
-
-		/*
-		 * resets all the iterations and counting variables when the underlying
-		 * sorted view changes.
-		 */
-		public void update(Observable o, Object arg) {
-			toBeReset = true;
-		}
-
-		protected void resetIfNeeded() {
-			if (toBeReset) {
-				reset();
-				toBeReset = false;
-			}
-		}
-
-		public void reset() {
-			resetForAsksBelow();
-			resetForBidsAbove();
-			resetForAcceptedAsksAbove();
-			resetForAcceptedBidsBelow();
-			resetForRejectedAsksBelow();
-			resetForRejectedBidsAbove();
-		}
-
-		protected void resetForAsksBelow() {
-			asksI = view.getSortedAsks().listIterator();
-			numOfAsksBelow = 0;
-			priceForAsksBelow = -1;
-		}
-
-		protected void resetForBidsAbove() {
-			bidsI = view.getSortedBids().listIterator();
-			numOfBidsAbove = view.getSortedBids().size();
-			priceForBidsAbove = -1;
-		}
-
-		protected void resetForAcceptedAsksAbove() {
-			acceptedAsksI = view.getSortedAcceptedAsks().listIterator();
-			numOfAcceptedAsksAbove = view.getSortedAcceptedAsks().size();
-			priceForAcceptedAsksAbove = -1;
-		}
-
-		protected void resetForAcceptedBidsBelow() {
-			acceptedBidsI = view.getSortedAcceptedBids().listIterator();
-			numOfAcceptedBidsBelow = 0;
-			priceForAcceptedBidsBelow = -1;
-		}
-
-		protected void resetForRejectedAsksBelow() {
-			rejectedAsksI = view.getSortedRejectedAsks().listIterator();
-			numOfRejectedAsksBelow = 0;
-			priceForRejectedAsksBelow = -1;
-		}
-
-		protected void resetForRejectedBidsAbove() {
-			rejectedBidsI = view.getSortedRejectedBids().listIterator();
-			numOfRejectedBidsAbove = view.getSortedRejectedBids().size();
-			priceForRejectedBidsAbove = -1;
-		}
+	public class IncreasingQueryAccelerator {
 
 		public int getNumOfAsksBelow(double price) {
-			resetIfNeeded();
-
-			if (priceForAsksBelow > price)
-				resetForAsksBelow();
-			priceForAsksBelow = price;
-
-			while (asksI.hasNext())
-				if (((Order) asksI.next()).getPriceAsDouble() <= price) {
-					numOfAsksBelow++;
-				} else {
-					try {
-						asksI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						asksI.previous();
-					}
-					break;
-				}
-
-			return numOfAsksBelow;
+			return histogram.countAtOrBelow(ShoutHistogram.ASKS, price);
 		}
 
 		public int getNumOfBidsAbove(double price) {
-			resetIfNeeded();
-
-			if (priceForBidsAbove > price)
-				resetForBidsAbove();
-			priceForBidsAbove = price;
-
-			while (bidsI.hasNext()) {
-				if (((Order) bidsI.next()).getPriceAsDouble() < price) {
-					numOfBidsAbove--;
-				} else {
-					try {
-						bidsI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						bidsI.previous();
-					}
-					break;
-				}
-			}
-
-			return numOfBidsAbove;
+			return histogram.countAtOrAbove(ShoutHistogram.BIDS, price);
 		}
 
 		public int getNumOfAcceptedAsksAbove(double price) {
-			resetIfNeeded();
-
-			if (priceForAcceptedAsksAbove > price)
-				resetForAcceptedAsksAbove();
-			priceForAcceptedAsksAbove = price;
-
-			while (acceptedAsksI.hasNext())
-				if (((Order) acceptedAsksI.next()).getPriceAsDouble() < price) {
-					numOfAcceptedAsksAbove--;
-				} else {
-					try {
-						acceptedAsksI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						acceptedAsksI.previous();
-					}
-					break;
-				}
-
-			return numOfAcceptedAsksAbove;
+			return histogram.countAtOrAbove(ShoutHistogram.ACCEPTED_ASKS, 
+					price);
 		}
 
 		public int getNumOfAcceptedBidsBelow(double price) {
-			resetIfNeeded();
-
-			if (priceForAcceptedBidsBelow > price)
-				resetForAcceptedBidsBelow();
-			priceForAcceptedBidsBelow = price;
-
-			while (acceptedBidsI.hasNext())
-				if (((Order) acceptedBidsI.next()).getPriceAsDouble() <= price) {
-					numOfAcceptedBidsBelow++;
-				} else {
-					// NOTE: due to a possible bug in TreeList,
-					// NullPointerException may be
-					// thrown. Simply doing it again seems working fine.
-					try {
-						acceptedBidsI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						acceptedBidsI.previous();
-					}
-					break;
-				}
-
-			return numOfAcceptedBidsBelow;
+			return histogram.countAtOrBelow(ShoutHistogram.ACCEPTED_BIDS, 
+					price);
 		}
 
 		public int getNumOfRejectedAsksBelow(double price) {
-			resetIfNeeded();
-
-			if (priceForRejectedAsksBelow > price) {
-				resetForRejectedAsksBelow();
-			}
-			priceForRejectedAsksBelow = price;
-
-			while (rejectedAsksI.hasNext())
-				if (((Order) rejectedAsksI.next()).getPriceAsDouble() <= price) {
-					numOfRejectedAsksBelow++;
-				} else {
-					try {
-						rejectedAsksI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						rejectedAsksI.previous();
-					}
-					break;
-				}
-
-			return numOfRejectedAsksBelow;
+			return getNumOfAsksBelow(price)
+					- histogram.countAtOrBelow(ShoutHistogram.ACCEPTED_ASKS, 
+							price);
 		}
 
 		public int getNumOfRejectedBidsAbove(double price) {
-			resetIfNeeded();
-
-			if (priceForRejectedBidsAbove > price) {
-				resetForRejectedBidsAbove();
-			}
-			priceForRejectedBidsAbove = price;
-
-			while (rejectedBidsI.hasNext())
-				if (((Order) rejectedBidsI.next()).getPriceAsDouble() < price) {
-					numOfRejectedBidsAbove--;
-				} else {
-					try {
-						rejectedBidsI.previous();
-					} catch (Exception e) {
-						logger.info(e);
-						rejectedBidsI.previous();
-					}
-					break;
-				}
-
-			return numOfRejectedBidsAbove;
+			return getNumOfBidsAbove(price)
+					- histogram.countAtOrAbove(ShoutHistogram.ACCEPTED_BIDS, 
+							price);
 		}
 	}
 
@@ -877,4 +845,82 @@ public class HistoricalDataReport extends AbstractAuctionReport implements
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * The price, quantity and time-stamp of a shout when it was logged,
+	 * together with its position in the log.  Shouts are filed in the
+	 * sorted history under these values rather than their live ones, since
+	 * an order's quantity changes in place when it is partially filled.
+	 * The price and quantity are brought up to date when an order is
+	 * amended.
+	 */
+	public static class LoggedShout implements Comparable<LoggedShout>,
+			Serializable {
+
+		protected long priceTicks;
+
+		protected int quantity;
+
+		protected long time;
+
+		protected long sequenceNumber;
+
+		protected long index;
+
+		/**
+		 * The price tick under which the shout is counted in the histogram.
+		 */
+		protected long ticks;
+
+		public LoggedShout(Order shout, long index) {
+			this.priceTicks = shout.getPriceTicks();
+			this.quantity = shout.getQuantity();
+			this.time = shout.getTime();
+			this.sequenceNumber = shout.getSequenceNumber();
+			this.index = index;
+		}
+
+		/**
+		 * Ranks shouts as {@link Order#compareTo(Order)} does, then breaks
+		 * any remaining tie on sequence number and finally on the order in
+		 * which the shouts were logged, so that no two shouts are equal.
+		 */
+		public int compareTo(LoggedShout other) {
+			if (priceTicks != other.priceTicks) {
+				return priceTicks < other.priceTicks ? -1 : 1;
+			} else if (quantity != other.quantity) {
+				return quantity < other.quantity ? 1 : -1;
+			} else if (time != other.time) {
+				return time < other.time ? 1 : -1;
+			} else if (sequenceNumber != other.sequenceNumber) {
+				return sequenceNumber < other.sequenceNumber ? 1 : -1;
+			} else if (index != other.index) {
+				return index < other.index ? 1 : -1;
+			} else {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Orders shouts by the key under which they were logged, so that shouts
+	 * with the same price, quantity and time-stamp are all retained in the
+	 * sorted set in a deterministic order.  A shout which has not been
+	 * logged is compared using its current values.
+	 */
+	public class DistinctOrderComparator implements Comparator<Order>,
+			Serializable {
+
+		public int compare(Order o1, Order o2) {
+			if (o1 == o2) {
+				return 0;
+			}
+			return keyOf(o1).compareTo(keyOf(o2));
+		}
+
+		protected LoggedShout keyOf(Order shout) {
+			LoggedShout logged = loggedShouts.get(shout);
+			return logged != null ? logged : new LoggedShout(shout, -1);
+		}
+	}
+
+}
@@ -8,6 +8,7 @@ import java.util.Map;
 
 import net.sourceforge.jabm.event.RoundFinishedEvent;
 import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jabm.report.DataWriter;
 import net.sourceforge.jabm.report.XYReportVariables;
 
 public abstract class MarketPriceReportVariables implements Serializable,
@@ -16,6 +17,13 @@ public abstract class MarketPriceReportVariables implements Serializable,
 	protected double price;
 	
 	protected int time;
+
+	/**
+	 * If set, each (time, price) observation is also written to this 
+	 * writer, for example a ColumnarTimeSeriesWriter, which should be 
+	 * closed by its owner when the simulation has finished.
+	 */
+	protected transient DataWriter timeSeriesWriter;
 	
 	public static final String PRICE_VAR = "price";
 	
@@ -35,7 +43,9 @@ public abstract class MarketPriceReportVariables implements Serializable,
 
 	@Override
 	public void dispose(SimEvent event) {
-		// Do nothing
+		if (timeSeriesWriter != null) {
+			timeSeriesWriter.flush();
+		}
 	}
 
 	@Override
@@ -69,6 +79,10 @@ public abstract class MarketPriceReportVariables implements Serializable,
 		this.price = getPrice(event);
 		this.time = (int) 
 				event.getSimulation().getSimulationTime().getTicks();
+		if (timeSeriesWriter != null) {
+			timeSeriesWriter.newData(time);
+			timeSeriesWriter.newData(price);
+		}
 	}
 
 	@Override
@@ -88,4 +102,12 @@ public abstract class MarketPriceReportVariables implements Serializable,
 	
 	public abstract double getPrice(RoundFinishedEvent event);
 
+	public DataWriter getTimeSeriesWriter() {
+		return timeSeriesWriter;
+	}
+
+	public void setTimeSeriesWriter(DataWriter timeSeriesWriter) {
+		this.timeSeriesWriter = timeSeriesWriter;
+	}
+
 }
@@ -17,9 +17,7 @@ package net.sourceforge.jasa.report;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -31,11 +29,13 @@ import org.jfree.data.time.TimePeriodValue;
 
 
 /**
- * A class recording updates of various ReportVariables.
+ * A class recording updates of various ReportVariables.  Values are stored
+ * on a {@link VariableBoard} shared by every market which does not keep a
+ * board of its own.
  * 
  * @author Jinzhong Niu
  * @version $Revision$
- * @deprecated
+ * @deprecated Use the {@link VariableBoard} of the market instead.
  */
 
 public class ReportVariableBoard {
@@ -44,34 +44,46 @@ public class ReportVariableBoard {
 
 	private static ReportVariableBoard instance;
 
-	private Map<String, TimePeriodValue> board;
+	private VariableBoard board;
 
 	private ReportVariableBoard() {
 		if (instance != null)
 			throw new Error("ReportVariableBoard cannot be instantiated twice!");
 
 		instance = this;
-		board = Collections.synchronizedMap(new HashMap<String, TimePeriodValue>());
+		board = new VariableBoard();
 	}
 
-	public static ReportVariableBoard getInstance() {
+	public static synchronized ReportVariableBoard getInstance() {
 		if (instance == null) {
 			instance = new ReportVariableBoard();
 		}
 		return instance;
 	}
 
+	public VariableBoard getBoard() {
+		return board;
+	}
+
 	public void reset() {
-		if (board != null)
-			board.clear();
+		board.reset();
 	}
 
 	public Collection<String> getVarNames() {
-		return board.keySet();
+		return board.getVarNames();
 	}
 
 	public TimePeriodValue getValue(String varName) {
-		return board.get(varName);
+		int id = board.getId(varName);
+		if (id < 0) {
+			return null;
+		}
+		VariableBoard.Reading reading = new VariableBoard.Reading();
+		if (!board.read(id, reading)) {
+			return null;
+		}
+		return new TimePeriodValue(new Millisecond(new Date(reading.getTime())),
+		    reading.getValue());
 	}
 
 	public TimePeriodValue getValue(ReportVariable var) {
@@ -83,17 +95,18 @@ public class ReportVariableBoard {
 	}
 
 	public void reportValue(String varName, TimePeriodValue value) {
-		board.put(varName, value);
+		Number v = value.getValue();
+		board.report(varName, v == null ? Double.NaN : v.doubleValue(), value
+		    .getPeriod().getStart().getTime());
 	}
 
 	public void reportValue(String varName, double value, MarketEvent event) {
-		Millisecond time = new Millisecond(new Date(event.getPhysicalTime()));
-		reportValue(varName, new TimePeriodValue(time, value));
+		board.report(varName, value, event.getPhysicalTime());
 	}
 
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	public void reportValues(Map vars, MarketEvent event) {
-		Millisecond time = new Millisecond(new Date(event.getPhysicalTime()));
+		long time = event.getPhysicalTime();
 
 		ArrayList list = new ArrayList(vars.keySet());
 		Iterator i = list.iterator();
@@ -103,11 +116,11 @@ public class ReportVariableBoard {
 			if (value instanceof Number) {
 				double v = ((Number) value).doubleValue();
 				if (!Double.isNaN(v)) {
-					reportValue(var.getName(), new TimePeriodValue(time, v));
+					board.report(var.getName(), v, time);
 				}
 			} else if (value instanceof Boolean) {
-				reportValue(var.getName(), new TimePeriodValue(time, ((Boolean) value)
-				    .booleanValue() ? 1 : 0));
+				board.report(var.getName(), ((Boolean) value).booleanValue() ? 1 : 0,
+				    time);
 			}
 		}
 	}
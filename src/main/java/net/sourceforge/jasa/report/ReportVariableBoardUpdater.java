@@ -16,7 +16,6 @@
 package net.sourceforge.jasa.report;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -39,9 +38,6 @@ import net.sourceforge.jasa.market.DuplicateShoutException;
 import net.sourceforge.jasa.market.FourHeapOrderBook;
 import net.sourceforge.jasa.market.Order;
 
-import org.jfree.data.time.Millisecond;
-import org.jfree.data.time.TimePeriodValue;
-
 /**
  * A class updates values of major ReportVariables on ReportVariableBoard.
  * 
@@ -96,6 +92,17 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 
 	protected double alpha;
 
+	/**
+	 * The board to which values are currently being posted, and the ids of
+	 * the variables on that board.
+	 */
+	protected VariableBoard board;
+
+	protected int transPriceId, transAskPriceId, transBidPriceId,
+	    transPriceMeanMyopicId, transPriceSpreadId, equilPriceId,
+	    allocativeEfficiencyId, dailyAllocativeEfficiencyId,
+	    convergenceCoefficientId, cumulativeConvergenceCoefficientId;
+
 	public ReportVariableBoardUpdater() {
 		initialize();
 	}
@@ -125,32 +132,33 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 
 	public void eventOccurred(SimEvent ev) {
 
+		if (!(ev instanceof TransactionExecutedEvent
+				|| ev instanceof MarketOpenEvent
+				|| ev instanceof MarketClosedEvent
+				|| ev instanceof EndOfDayEvent)) {
+			// Avoid time-stamping the many events which are not reported.
+			return;
+		}
+
 		MarketEvent event = (MarketEvent) ev;
-		Millisecond time = new Millisecond(new Date(event.getPhysicalTime()));
+		getBoard(event);
+		long time = event.getPhysicalTime();
 
 		if (event instanceof TransactionExecutedEvent) {
-			ReportVariableBoard.getInstance().reportValue(
-			    TRANS_PRICE,
-			    new TimePeriodValue(time, ((TransactionExecutedEvent) event)
-			        .getPrice()));
+			board.report(transPriceId, ((TransactionExecutedEvent) event)
+			    .getPrice(), time);
 
 			transPriceMemory.newData(((TransactionExecutedEvent) event).getPrice());
-			ReportVariableBoard.getInstance().reportValue(TRANS_PRICE_MEAN_MYOPIC,
-			    new TimePeriodValue(time, transPriceMemory.getMean()));
-
-			ReportVariableBoard.getInstance().reportValue(
-			    TRANS_PRICE_SPREAD,
-			    new TimePeriodValue(time, ((TransactionExecutedEvent) event).getBid()
-			        .getPriceAsDouble()
-			        - ((TransactionExecutedEvent) event).getAsk().getPriceAsDouble()));
-			ReportVariableBoard.getInstance().reportValue(
-			    TRANS_ASK_PRICE,
-			    new TimePeriodValue(time, ((TransactionExecutedEvent) event).getAsk()
-			        .getPriceAsDouble()));
-			ReportVariableBoard.getInstance().reportValue(
-			    TRANS_BID_PRICE,
-			    new TimePeriodValue(time, ((TransactionExecutedEvent) event).getBid()
-			        .getPriceAsDouble()));
+			board.report(transPriceMeanMyopicId, transPriceMemory.getMean(), time);
+
+			board.report(transPriceSpreadId, ((TransactionExecutedEvent) event)
+			    .getBid().getPriceAsDouble()
+			    - ((TransactionExecutedEvent) event).getAsk().getPriceAsDouble(),
+			    time);
+			board.report(transAskPriceId, ((TransactionExecutedEvent) event)
+			    .getAsk().getPriceAsDouble(), time);
+			board.report(transBidPriceId, ((TransactionExecutedEvent) event)
+			    .getBid().getPriceAsDouble(), time);
 
 			transPriceDay.count++;
 			transPriceDay.devSquareSum += Math.pow(((TransactionExecutedEvent) event)
@@ -164,8 +172,7 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 			EquilibriumReportVariables eqmReport = new EquilibriumReportVariables(getAuction());
 			eqmReport.calculate();
 			equilPrice = eqmReport.calculateMidEquilibriumPrice();
-			ReportVariableBoard.getInstance().reportValue(EQUIL_PRICE,
-			    new TimePeriodValue(time, equilPrice));
+			board.report(equilPriceId, equilPrice, time);
 
 			pCE = computeTheoreticalProfit();
 			eA = 0;
@@ -176,8 +183,7 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 
 		} else if (event instanceof MarketClosedEvent) {
 
-			ReportVariableBoard.getInstance().reportValue(EQUIL_PRICE,
-			    new TimePeriodValue(time, equilPrice));
+			board.report(equilPriceId, equilPrice, time);
 
 		} else if (event instanceof EndOfDayEvent) {
 			// compute efficiency
@@ -187,10 +193,8 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 			double dailyEA = 100 * temp - (eA * getAuction().getDay());
 			eA = 100 * temp / (getAuction().getDay() + 1);
 
-			ReportVariableBoard.getInstance().reportValue(ALLOCATIVE_EFFICIENCY,
-			    new TimePeriodValue(time, eA));
-			ReportVariableBoard.getInstance().reportValue(
-			    DAILY_ALLOCATIVE_EFFICIENCY, new TimePeriodValue(time, dailyEA));
+			board.report(allocativeEfficiencyId, eA, time);
+			board.report(dailyAllocativeEfficiencyId, dailyEA, time);
 
 			// CONVERGENCE_COEFFICIENT (each day)
 
@@ -200,8 +204,7 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 				    / transPriceDay.count) / equilPrice);
 			}
 
-			ReportVariableBoard.getInstance().reportValue(CONVERGENCE_COEFFICIENT,
-			    new TimePeriodValue(time, dalyAlpha));
+			board.report(convergenceCoefficientId, dalyAlpha, time);
 			transPriceDay.reset();
 
 			// CUMULATIVE_CONVERGENCE_COEFFICIENT (each market)
@@ -211,12 +214,36 @@ public class ReportVariableBoardUpdater extends AbstractAuctionReport implements
 				    / transPriceAuction.count) / equilPrice);
 			}
 
-			ReportVariableBoard.getInstance().reportValue(
-			    CUMULATIVE_CONVERGENCE_COEFFICIENT, new TimePeriodValue(time, alpha));
+			board.report(cumulativeConvergenceCoefficientId, alpha, time);
 		}
 
 	}
 
+	/**
+	 * The board of the market in which the event occurred, interning the
+	 * ids of the variables posted by this report the first time the board
+	 * is used.
+	 */
+	protected VariableBoard getBoard(MarketEvent event) {
+		VariableBoard current = VariableBoard.getBoard(event.getAuction());
+		if (current != board) {
+			transPriceId = current.intern(TRANS_PRICE);
+			transAskPriceId = current.intern(TRANS_ASK_PRICE);
+			transBidPriceId = current.intern(TRANS_BID_PRICE);
+			transPriceMeanMyopicId = current.intern(TRANS_PRICE_MEAN_MYOPIC);
+			transPriceSpreadId = current.intern(TRANS_PRICE_SPREAD);
+			equilPriceId = current.intern(EQUIL_PRICE);
+			allocativeEfficiencyId = current.intern(ALLOCATIVE_EFFICIENCY);
+			dailyAllocativeEfficiencyId = 
+					current.intern(DAILY_ALLOCATIVE_EFFICIENCY);
+			convergenceCoefficientId = current.intern(CONVERGENCE_COEFFICIENT);
+			cumulativeConvergenceCoefficientId = 
+					current.intern(CUMULATIVE_CONVERGENCE_COEFFICIENT);
+			board = current;
+		}
+		return current;
+	}
+
 	private double computeActualProfit() {
 		double pA = 0;
 		Iterator i = auction.getTraderIterator();
@@ -24,15 +24,17 @@ import java.util.Observer;
 import net.sourceforge.jabm.event.RoundFinishedEvent;
 import net.sourceforge.jabm.event.SimEvent;
 import net.sourceforge.jabm.report.CSVWriter;
+import net.sourceforge.jabm.report.DataWriter;
 import net.sourceforge.jabm.util.SummaryStats;
 import net.sourceforge.jasa.event.EndOfDayEvent;
 import net.sourceforge.jasa.event.MarketClosedEvent;
 import net.sourceforge.jasa.event.MarketOpenEvent;
 import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.Market;
+import net.sourceforge.jasa.report.output.AsyncDataWriter;
+import net.sourceforge.jasa.report.output.ReportWriterPipeline;
 
 import org.apache.log4j.Logger;
-import org.jfree.data.time.TimePeriodValue;
 
 /**
  * This class writes market data to the specified DataWriter objects, and thus
@@ -57,6 +59,13 @@ public class ReportVariableWriterReport implements AuctionReport,
 
 	protected static InternalRVWriterReport transactionLog = null;
 
+	/**
+	 * If set, records are formatted and written to the logs on the 
+	 * pipeline's thread, and the logs are flushed according to the 
+	 * pipeline's flush interval rather than after every record.
+	 */
+	protected static ReportWriterPipeline pipeline = null;
+
 	/**
 	 * Number of transactions that have been executed in the current round.
 	 */
@@ -146,6 +155,7 @@ public class ReportVariableWriterReport implements AuctionReport,
 		} else if (event instanceof MarketClosedEvent) {
 			updateAuctionLog((MarketClosedEvent) event);
 			updateSettingLog((MarketClosedEvent) event);
+			syncLogs();
 		} else if (event instanceof TransactionExecutedEvent) {
 			updateTransactionLog((TransactionExecutedEvent) event);
 		}
@@ -178,49 +188,48 @@ public class ReportVariableWriterReport implements AuctionReport,
 
 			if (settingLog != null) {
 				generateCaseEnumHeader(settingLog);
-				settingLog.generateHeader();
-				settingLog.endRecord();
-				settingLog.flush();
+				settingLog.generateHeader(output(settingLog));
+				endRecord(settingLog);
 			}
 
 			if (auctionLog != null) {
 				generateCaseEnumHeader(auctionLog);
+				DataWriter out = output(auctionLog);
 				for (int i = 0; i < 1; i++) {
-					auctionLog.newData(headers[i]);
+					out.newData(headers[i]);
 				}
-				auctionLog.generateHeader();
-				auctionLog.endRecord();
-				auctionLog.flush();
+				auctionLog.generateHeader(out);
+				endRecord(auctionLog);
 			}
 
 			if (dayLog != null) {
 				generateCaseEnumHeader(dayLog);
+				DataWriter out = output(dayLog);
 				for (int i = 0; i < 2; i++) {
-					dayLog.newData(headers[i]);
+					out.newData(headers[i]);
 				}
-				dayLog.generateHeader();
-				dayLog.endRecord();
-				dayLog.flush();
+				dayLog.generateHeader(out);
+				endRecord(dayLog);
 			}
 
 			if (roundLog != null) {
 				generateCaseEnumHeader(roundLog);
+				DataWriter out = output(roundLog);
 				for (int i = 0; i < 3; i++) {
-					roundLog.newData(headers[i]);
+					out.newData(headers[i]);
 				}
-				roundLog.generateHeader();
-				roundLog.endRecord();
-				roundLog.flush();
+				roundLog.generateHeader(out);
+				endRecord(roundLog);
 			}
 
 			if (transactionLog != null) {
 				generateCaseEnumHeader(transactionLog);
+				DataWriter out = output(transactionLog);
 				for (int i = 0; i < 4; i++) {
-					transactionLog.newData(headers[i]);
+					out.newData(headers[i]);
 				}
-				transactionLog.generateHeader();
-				transactionLog.endRecord();
-				transactionLog.flush();
+				transactionLog.generateHeader(out);
+				endRecord(transactionLog);
 			}
 
 			initialized = true;
@@ -263,12 +272,12 @@ public class ReportVariableWriterReport implements AuctionReport,
 		if (transactionLog != null) {
 			generateCaseCombination(transactionLog);
 //			transactionLog.newData(auction.getId());
-			transactionLog.newData(auction.getDay());
-			transactionLog.newData(auction.getRound());
-			transactionLog.newData(transactionCount++);
-			transactionLog.update();
-			transactionLog.endRecord();
-			transactionLog.flush();
+			DataWriter out = output(transactionLog);
+			out.newData(auction.getDay());
+			out.newData(auction.getRound());
+			out.newData(transactionCount++);
+			transactionLog.update(out, VariableBoard.getBoard(auction));
+			endRecord(transactionLog);
 		}
 	}
 
@@ -276,11 +285,11 @@ public class ReportVariableWriterReport implements AuctionReport,
 		if (roundLog != null) {
 			generateCaseCombination(roundLog);
 //			roundLog.newData(auction.getId());
-			roundLog.newData(auction.getDay());
-			roundLog.newData(auction.getRound());
-			roundLog.update();
-			roundLog.endRecord();
-			roundLog.flush();
+			DataWriter out = output(roundLog);
+			out.newData(auction.getDay());
+			out.newData(auction.getRound());
+			roundLog.update(out, VariableBoard.getBoard(auction));
+			endRecord(roundLog);
 		}
 	}
 
@@ -288,10 +297,10 @@ public class ReportVariableWriterReport implements AuctionReport,
 		if (dayLog != null) {
 			generateCaseCombination(dayLog);
 //			dayLog.newData(auction.getId());
-			dayLog.newData(auction.getDay());
-			dayLog.update();
-			dayLog.endRecord();
-			dayLog.flush();
+			DataWriter out = output(dayLog);
+			out.newData(auction.getDay());
+			dayLog.update(out, VariableBoard.getBoard(auction));
+			endRecord(dayLog);
 		}
 	}
 
@@ -299,16 +308,51 @@ public class ReportVariableWriterReport implements AuctionReport,
 		if (auctionLog != null) {
 			generateCaseCombination(auctionLog);
 //			auctionLog.newData(auction.getId());
-			auctionLog.update();
-			auctionLog.endRecord();
-			auctionLog.flush();
+			auctionLog.update(output(auctionLog), VariableBoard.getBoard(auction));
+			endRecord(auctionLog);
 		}
 	}
 
 	public void updateSettingLog(MarketClosedEvent event) {
 		if (settingLog != null) {
 			settingLog.setAuction(event.getAuction());
-			settingLog.update();
+			settingLog.update(settingLog, 
+					VariableBoard.getBoard(event.getAuction()));
+		}
+	}
+
+	/**
+	 * The writer to which records for the given log should be written.
+	 */
+	protected static DataWriter output(InternalRVWriterReport log) {
+		if (pipeline == null) {
+			return log;
+		}
+		if (log.async == null) {
+			log.async = pipeline.createWriter(log);
+		}
+		return log.async;
+	}
+
+	protected static void endRecord(InternalRVWriterReport log) {
+		if (pipeline == null) {
+			log.endRecord();
+			log.flush();
+		} else {
+			((AsyncDataWriter) output(log)).endRecord();
+		}
+	}
+
+	/**
+	 * Wait until every record written so far has reached the log files.
+	 */
+	public static void syncLogs() {
+		InternalRVWriterReport[] logs = 
+			{ settingLog, auctionLog, dayLog, roundLog, transactionLog };
+		for (InternalRVWriterReport log : logs) {
+			if (log != null && log.async != null) {
+				log.async.sync();
+			}
 		}
 	}
 
@@ -323,6 +367,14 @@ public class ReportVariableWriterReport implements AuctionReport,
 		this.auction = auction;
 	}
 
+	public ReportWriterPipeline getPipeline() {
+		return pipeline;
+	}
+
+	public void setPipeline(ReportWriterPipeline pipeline) {
+		ReportVariableWriterReport.pipeline = pipeline;
+	}
+
 	static class InternalRVWriterReport extends CSVWriter {
 
 		protected static String P_VAR = "var";
@@ -331,11 +383,22 @@ public class ReportVariableWriterReport implements AuctionReport,
 
 		protected String varNames[];
 
+		protected AsyncDataWriter async;
+
+		protected VariableBoard.Reading reading = new VariableBoard.Reading();
+
 		public InternalRVWriterReport() {
 			setAutowrap(false);
 			setAppend(false);
 		}
 
+		/**
+		 * Doubles are formatted by whichever thread writes them to the log.
+		 */
+		public void newData(double datum) {
+			newData(formatter.format(datum));
+		}
+
 //		public void setup(ParameterDatabase parameters, Parameter base) {
 //			super.setup(parameters, base);
 //
@@ -349,27 +412,37 @@ public class ReportVariableWriterReport implements AuctionReport,
 //		}
 
 		public void generateHeader() {
+			generateHeader(this);
+		}
+
+		public void generateHeader(DataWriter out) {
 			for (int i = 0; i < varNames.length; i++) {
-				newData(varNames[i]);
+				out.newData(varNames[i]);
 			}
 		}
 
 		public void update() {
-			TimePeriodValue tpValue;
+			update(this);
+		}
+
+		public void update(DataWriter out) {
+			update(out, ReportVariableBoard.getInstance().getBoard());
+		}
+
+		public void update(DataWriter out, VariableBoard board) {
 			for (int i = 0; i < varNames.length; i++) {
-				tpValue = ReportVariableBoard.getInstance().getValue(varNames[i]);
-				if (tpValue != null) {
-					if (tpValue.getValue() instanceof Double) {
-						newData(formatter.format(((Double) tpValue.getValue())
-						    .doubleValue()));
-					} else {
-						newData(tpValue.getValue());
-					}
+				if (read(board, varNames[i])) {
+					out.newData(reading.getValue());
 				} else {
-					newData(-1);
+					out.newData(-1);
 				}
 			}
 		}
+
+		protected boolean read(VariableBoard board, String varName) {
+			int id = board.getId(varName);
+			return id >= 0 && board.read(id, reading);
+		}
 	}
 
 	static class InternalRVDistributionWriterReport extends
@@ -393,24 +466,19 @@ public class ReportVariableWriterReport implements AuctionReport,
 //			}
 //		}
 
-		public void generateHeader() {
+		public void generateHeader(DataWriter out) {
 			for (int i = 0; i < varNames.length; i++) {
-				newData(varNames[i] + ".mean");
-				newData(varNames[i] + ".stdev");
+				out.newData(varNames[i] + ".mean");
+				out.newData(varNames[i] + ".stdev");
 			}
 		}
 
-		public void update() {
-
-			TimePeriodValue tpValue;
+		public void update(DataWriter out, VariableBoard board) {
 			for (int i = 0; i < varNames.length; i++) {
-				tpValue = ReportVariableBoard.getInstance().getValue(varNames[i]);
-				if (tpValue != null) {
-					if (tpValue.getValue() instanceof Number) {
-						double v = ((Number) tpValue.getValue()).doubleValue();
-						if (!Double.isNaN(v)) {
-							resultsStats[i].newData(v);
-						}
+				if (read(board, varNames[i])) {
+					double v = reading.getValue();
+					if (!Double.isNaN(v)) {
+						resultsStats[i].newData(v);
 					}
 				} else {
 					logger.fatal("Please make sure the historicalDataReport variable " + varNames[i]
@@ -427,8 +495,8 @@ public class ReportVariableWriterReport implements AuctionReport,
 
 		public void outputData() {
 			for (int i = 0; i < resultsStats.length; i++) {
-				newData(formatter.format(resultsStats[i].getMean()));
-				newData(formatter.format(resultsStats[i].getStdDev()));
+				newData(resultsStats[i].getMean());
+				newData(resultsStats[i].getStdDev());
 			}
 		}
 	}
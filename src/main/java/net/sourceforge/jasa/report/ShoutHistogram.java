@@ -0,0 +1,327 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import java.io.Serializable;
+
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.TickSize;
+
+/**
+ * <p>
+ * Counts of the asks and bids in a history of shouts, and of those which
+ * were accepted, keyed on price tick.  The counts are held in a Fenwick
+ * (binary indexed) tree, so that a shout can be added, accepted or 
+ * removed, and the number of shouts at or below or at or above any price
+ * can be found, in O(log P) time, where P is the highest price tick seen.
+ * </p>
+ * 
+ * <p>
+ * The tree is sparse: only nodes with a non-zero count are stored, in an
+ * open-addressed hash table, so that memory is proportional to the number
+ * of shouts rather than to P.  The tree doubles its range whenever a 
+ * shout is priced beyond it, which only requires a new root.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ShoutHistogram implements Serializable {
+
+	public static final int ASKS = 0;
+
+	public static final int ACCEPTED_ASKS = 1;
+
+	public static final int BIDS = 2;
+
+	public static final int ACCEPTED_BIDS = 3;
+
+	protected static final int NUM_COUNTERS = 4;
+
+	protected static final int INITIAL_SLOTS = 64;
+
+	/**
+	 * The tolerance within which a price is treated as a whole number of 
+	 * ticks when it is converted for a query.
+	 */
+	protected static final double TICK_EPSILON = 1E-6;
+
+	protected TickSize tickSize = TickSize.DEFAULT;
+
+	/**
+	 * The number of leaves in the tree; always a power of two.  The count 
+	 * for tick t is held at leaf t + 1.
+	 */
+	protected long capacity = 1;
+
+	/**
+	 * The index of the node in each slot, or zero if the slot is empty.
+	 */
+	protected long[] nodes = new long[INITIAL_SLOTS];
+
+	protected int[] counts = new int[INITIAL_SLOTS * NUM_COUNTERS];
+
+	protected int numNodes = 0;
+
+	protected int[] totals = new int[NUM_COUNTERS];
+
+	public ShoutHistogram() {
+	}
+
+	public ShoutHistogram(TickSize tickSize) {
+		this.tickSize = tickSize;
+	}
+
+	/**
+	 * The price tick under which the shout is counted.  Shouts whose tick
+	 * size differs from that of the histogram are rounded down to a whole
+	 * number of the histogram's ticks.
+	 */
+	public long ticks(Order shout) {
+		if (shout.getTickSize() == tickSize) {
+			return shout.getPriceTicks();
+		}
+		return floorTicks(shout.getPriceAsDouble());
+	}
+
+	/**
+	 * The highest tick whose price is no greater than the given price.
+	 */
+	public long floorTicks(double price) {
+		double scaled = price * tickSize.getMultiplier();
+		long nearest = Math.round(scaled);
+		if (Math.abs(scaled - nearest) <= TICK_EPSILON) {
+			return nearest;
+		}
+		return (long) Math.floor(scaled);
+	}
+
+	/**
+	 * The lowest tick whose price is no less than the given price.
+	 */
+	public long ceilTicks(double price) {
+		double scaled = price * tickSize.getMultiplier();
+		long nearest = Math.round(scaled);
+		if (Math.abs(scaled - nearest) <= TICK_EPSILON) {
+			return nearest;
+		}
+		return (long) Math.ceil(scaled);
+	}
+
+	/**
+	 * Add delta to the counter at the given tick.
+	 */
+	public void add(int counter, long ticks, int delta) {
+		if (ticks < 0) {
+			throw new IllegalArgumentException("Negative price tick " + ticks);
+		}
+		while (capacity <= ticks) {
+			grow();
+		}
+		for (long i = ticks + 1; i <= capacity; i += i & -i) {
+			int slot = findOrInsert(i);
+			counts[slot * NUM_COUNTERS + counter] += delta;
+			if (isEmpty(slot)) {
+				remove(slot);
+			}
+		}
+		totals[counter] += delta;
+	}
+
+	/**
+	 * The number of shouts counted by the counter at or below the given 
+	 * tick.
+	 */
+	public int countAtOrBelow(int counter, long ticks) {
+		if (ticks < 0) {
+			return 0;
+		}
+		if (ticks >= capacity) {
+			return totals[counter];
+		}
+		int count = 0;
+		for (long i = ticks + 1; i > 0; i -= i & -i) {
+			int slot = find(i);
+			if (slot >= 0) {
+				count += counts[slot * NUM_COUNTERS + counter];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * The number of shouts counted by the counter at or above the given 
+	 * tick.
+	 */
+	public int countAtOrAbove(int counter, long ticks) {
+		return totals[counter] - countAtOrBelow(counter, ticks - 1);
+	}
+
+	public int countAtOrBelow(int counter, double price) {
+		return countAtOrBelow(counter, floorTicks(price));
+	}
+
+	public int countAtOrAbove(int counter, double price) {
+		return countAtOrAbove(counter, ceilTicks(price));
+	}
+
+	public int getTotal(int counter) {
+		return totals[counter];
+	}
+
+	/**
+	 * The number of nodes of the tree which are currently stored.
+	 */
+	public int getNumberOfNodes() {
+		return numNodes;
+	}
+
+	public TickSize getTickSize() {
+		return tickSize;
+	}
+
+	/**
+	 * Change the tick size used to key shouts.  The histogram must be 
+	 * empty.
+	 */
+	public void setTickSize(TickSize tickSize) {
+		if (!isEmpty()) {
+			throw new IllegalStateException(
+					"Cannot change the tick size of a non-empty histogram");
+		}
+		this.tickSize = tickSize;
+	}
+
+	public boolean isEmpty() {
+		return numNodes == 0;
+	}
+
+	public void clear() {
+		nodes = new long[INITIAL_SLOTS];
+		counts = new int[INITIAL_SLOTS * NUM_COUNTERS];
+		numNodes = 0;
+		capacity = 1;
+		for (int c = 0; c < NUM_COUNTERS; c++) {
+			totals[c] = 0;
+		}
+	}
+
+	/**
+	 * Double the range of the tree.  The new root covers every existing
+	 * leaf and the new, empty leaves, so its counts are the totals, and no
+	 * other node changes.
+	 */
+	protected void grow() {
+		capacity *= 2;
+		boolean empty = true;
+		for (int c = 0; c < NUM_COUNTERS; c++) {
+			empty &= totals[c] == 0;
+		}
+		if (!empty) {
+			int slot = findOrInsert(capacity);
+			System.arraycopy(totals, 0, counts, slot * NUM_COUNTERS,
+					NUM_COUNTERS);
+		}
+	}
+
+	protected boolean isEmpty(int slot) {
+		int offset = slot * NUM_COUNTERS;
+		for (int c = 0; c < NUM_COUNTERS; c++) {
+			if (counts[offset + c] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected int home(long node) {
+		long h = node * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (nodes.length - 1);
+	}
+
+	protected int find(long node) {
+		int mask = nodes.length - 1;
+		for (int slot = home(node); ; slot = (slot + 1) & mask) {
+			if (nodes[slot] == node) {
+				return slot;
+			}
+			if (nodes[slot] == 0) {
+				return -1;
+			}
+		}
+	}
+
+	protected int findOrInsert(long node) {
+		int slot = find(node);
+		if (slot >= 0) {
+			return slot;
+		}
+		if (2 * (numNodes + 1) > nodes.length) {
+			rehash(nodes.length * 2);
+		}
+		int mask = nodes.length - 1;
+		for (slot = home(node); nodes[slot] != 0; slot = (slot + 1) & mask) {
+		}
+		nodes[slot] = node;
+		numNodes++;
+		return slot;
+	}
+
+	/**
+	 * Empty a slot, shifting back any later entries of the same probe 
+	 * sequence so that no tombstones are needed.
+	 */
+	protected void remove(int slot) {
+		int mask = nodes.length - 1;
+		int hole = slot;
+		for (int j = (hole + 1) & mask; nodes[j] != 0; j = (j + 1) & mask) {
+			int home = home(nodes[j]);
+			boolean reachable = hole <= j ? (hole < home && home <= j)
+					: (hole < home || home <= j);
+			if (!reachable) {
+				nodes[hole] = nodes[j];
+				System.arraycopy(counts, j * NUM_COUNTERS, counts, 
+						hole * NUM_COUNTERS, NUM_COUNTERS);
+				hole = j;
+			}
+		}
+		nodes[hole] = 0;
+		for (int c = 0; c < NUM_COUNTERS; c++) {
+			counts[hole * NUM_COUNTERS + c] = 0;
+		}
+		numNodes--;
+	}
+
+	protected void rehash(int numSlots) {
+		long[] oldNodes = nodes;
+		int[] oldCounts = counts;
+		nodes = new long[numSlots];
+		counts = new int[numSlots * NUM_COUNTERS];
+		int mask = numSlots - 1;
+		for (int i = 0; i < oldNodes.length; i++) {
+			if (oldNodes[i] != 0) {
+				int slot = home(oldNodes[i]);
+				while (nodes[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				nodes[slot] = oldNodes[i];
+				System.arraycopy(oldCounts, i * NUM_COUNTERS, counts,
+						slot * NUM_COUNTERS, NUM_COUNTERS);
+			}
+		}
+	}
+
+}
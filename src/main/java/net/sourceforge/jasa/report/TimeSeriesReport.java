@@ -10,12 +10,26 @@ import net.sourceforge.jabm.event.SimulationStartingEvent;
 import net.sourceforge.jabm.report.CSVWriter;
 import net.sourceforge.jabm.report.DataWriter;
 import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.report.output.ColumnarTimeSeriesWriter;
+import net.sourceforge.jasa.report.output.ReportWriterPipeline;
 
 import org.apache.log4j.Logger;
 
 public abstract class TimeSeriesReport extends AbstractAuctionReport {
 
-	protected CSVWriter csvWriter;
+	protected DataWriter csvWriter;
+
+	/**
+	 * If set, the time series is formatted and written on the pipeline's 
+	 * thread instead of the simulation thread.
+	 */
+	protected ReportWriterPipeline pipeline;
+
+	/**
+	 * If true, the time series is written in the binary columnar format of
+	 * ColumnarTimeSeriesWriter instead of as CSV.
+	 */
+	protected boolean binary = false;
 	
 	protected String baseFilename;
 	
@@ -60,10 +74,22 @@ public abstract class TimeSeriesReport extends AbstractAuctionReport {
 	
 	public void onSimulationStarting() {
 		try {
-			String filename = baseFilename + n + ".csv";
+			String filename = baseFilename + n 
+					+ (binary ? ColumnarTimeSeriesWriter.FILE_EXTENSION : ".csv");
 			logger.info("Writing time series to " + filename);
-			csvWriter = 
-				new CSVWriter(new FileOutputStream(filename), 2);
+			DataWriter writer;
+			if (binary) {
+				String[] columns = getColumnNames();
+				writer = ColumnarTimeSeriesWriter.timeSeries(
+						new FileOutputStream(filename), columns[0], columns[1]);
+			} else {
+				writer = new CSVWriter(new FileOutputStream(filename), 2);
+			}
+			if (pipeline != null) {
+				csvWriter = pipeline.createWriter(writer);
+			} else {
+				csvWriter = writer;
+			}
 			n++;
 		} catch (IOException e) {
 			throw new AuctionRuntimeException(e);
@@ -72,15 +98,38 @@ public abstract class TimeSeriesReport extends AbstractAuctionReport {
 	
 	public void onBatchFinished() {
 	}
+
+	/**
+	 * The names of the time and value columns of a binary time series.
+	 */
+	public String[] getColumnNames() {
+		return new String[] { "t", "value" };
+	}
 	
 	public DataWriter getCsvWriter() {
 		return csvWriter;
 	}
 
-	public void setCsvWriter(CSVWriter dataWriter) {
+	public void setCsvWriter(DataWriter dataWriter) {
 		this.csvWriter = dataWriter;
 	}
 
+	public boolean isBinary() {
+		return binary;
+	}
+
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	public ReportWriterPipeline getPipeline() {
+		return pipeline;
+	}
+
+	public void setPipeline(ReportWriterPipeline pipeline) {
+		this.pipeline = pipeline;
+	}
+
 	public String getBaseFilename() {
 		return baseFilename;
 	}
@@ -76,8 +76,7 @@ public class TransactionPriceReportVariables implements XYReportVariables {
 			// In a CDA, the transaction is buyer-initiated i.f.f. the bid 
 			//  was submitted later than the ask
 			this.buyerInitiated = 
-					(event.getBid().getTimeStamp().getTicks() > 
-						event.getAsk().getTimeStamp().getTicks());
+					event.getAsk().placedBefore(event.getBid());
 		}
 	}
 
@@ -38,6 +38,11 @@ public class TransactionPriceTimeSeriesReport extends TimeSeriesReport {
 		}
 	}
 
+	@Override
+	public String[] getColumnNames() {
+		return new String[] { "t", "price" };
+	}
+
 	public void onTransactionExecuted(TransactionExecutedEvent event) {
 		csvWriter.newData(event.getTime());
 		csvWriter.newData(event.getPrice());		
@@ -0,0 +1,313 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.sourceforge.jasa.market.Market;
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * <p>
+ * A board on which reports and market components post the latest value of
+ * named variables, such as the most recent transaction price or the
+ * estimated equilibrium price, for other reports to read.
+ * </p>
+ * 
+ * <p>
+ * Each variable name is interned to an integer id the first time it is
+ * used, and components which post frequently should hold on to the id
+ * rather than the name.  The latest value and the physical time at which it
+ * was posted are stored as primitives in fixed-size pages which are never
+ * moved once allocated, so posting a value neither allocates nor takes a
+ * lock.  Every variable has a single writer, normally the simulation
+ * thread, while any number of other threads may read it concurrently: each
+ * variable carries a sequence number which is odd while an update is in
+ * progress, and readers retry until they observe the same even sequence
+ * number before and after reading, so that a value is never paired with
+ * the time of a different update.
+ * </p>
+ * 
+ * <p>
+ * Every {@link MarketSimulation} has its own board, so that simulations
+ * running concurrently in the same JVM do not see each other's variables.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class VariableBoard {
+
+	/**
+	 * The number of variables stored in each page.
+	 */
+	public static final int PAGE_SIZE = 256;
+
+	protected static final int STRIDE = 4;
+
+	protected static final int SEQ = 0;
+
+	protected static final int VALUE = 1;
+
+	protected static final int TIME = 2;
+
+	protected static final int SET = 3;
+
+	protected ConcurrentHashMap<String, Integer> ids;
+
+	protected volatile String[] names;
+
+	protected volatile AtomicLongArray[] pages;
+
+	protected volatile int numVariables;
+
+	public VariableBoard() {
+		initialise();
+	}
+
+	protected void initialise() {
+		ids = new ConcurrentHashMap<String, Integer>();
+		names = new String[PAGE_SIZE];
+		pages = new AtomicLongArray[] { new AtomicLongArray(PAGE_SIZE * STRIDE) };
+		numVariables = 0;
+	}
+
+	/**
+	 * The board for the specified market; markets which do not keep their
+	 * own board share the one behind the legacy {@link ReportVariableBoard}.
+	 */
+	public static VariableBoard getBoard(Market market) {
+		if (market instanceof MarketSimulation) {
+			return ((MarketSimulation) market).getVariableBoard();
+		}
+		return ReportVariableBoard.getInstance().getBoard();
+	}
+
+	/**
+	 * The id of the named variable, allocating a new id if the name has not
+	 * been seen before.  Ids are never reused, even after {@link #reset()}.
+	 */
+	public int intern(String name) {
+		Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(name);
+			if (id == null) {
+				id = allocate(name);
+			}
+		}
+		return id;
+	}
+
+	protected int allocate(String name) {
+		int id = numVariables;
+		int page = id / PAGE_SIZE;
+		if (page >= pages.length) {
+			AtomicLongArray[] newPages = new AtomicLongArray[page + 1];
+			System.arraycopy(pages, 0, newPages, 0, pages.length);
+			newPages[page] = new AtomicLongArray(PAGE_SIZE * STRIDE);
+			pages = newPages;
+		}
+		if (id >= names.length) {
+			String[] newNames = new String[names.length * 2];
+			System.arraycopy(names, 0, newNames, 0, names.length);
+			newNames[id] = name;
+			names = newNames;
+		} else {
+			names[id] = name;
+		}
+		numVariables = id + 1;
+		ids.put(name, id);
+		return id;
+	}
+
+	/**
+	 * The id of the named variable, or -1 if it has never been interned.
+	 */
+	public int getId(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	public String getName(int id) {
+		checkId(id);
+		return names[id];
+	}
+
+	public int getNumVariables() {
+		return numVariables;
+	}
+
+	/**
+	 * The names of all variables which currently have a value.
+	 */
+	public Collection<String> getVarNames() {
+		int n = numVariables;
+		ArrayList<String> result = new ArrayList<String>(n);
+		for (int id = 0; id < n; id++) {
+			if (isSet(id)) {
+				result.add(names[id]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Post a new value of the specified variable.  Only one thread may post
+	 * values of any given variable.
+	 * 
+	 * @param id     the id returned by {@link #intern(String)}
+	 * @param value  the latest value of the variable
+	 * @param time   the physical time in milliseconds at which the value
+	 *               was observed
+	 */
+	public void report(int id, double value, long time) {
+		write(id, Double.doubleToRawLongBits(value), time, 1);
+	}
+
+	public void report(String name, double value, long time) {
+		report(intern(name), value, time);
+	}
+
+	protected void write(int id, long valueBits, long time, long set) {
+		checkId(id);
+		AtomicLongArray page = pages[id / PAGE_SIZE];
+		int base = (id % PAGE_SIZE) * STRIDE;
+		long seq = page.get(base + SEQ);
+		// The volatile write of the odd sequence number cannot be reordered
+		// with the ordered writes which follow it.
+		page.set(base + SEQ, seq + 1);
+		page.lazySet(base + VALUE, valueBits);
+		page.lazySet(base + TIME, time);
+		page.lazySet(base + SET, set);
+		page.lazySet(base + SEQ, seq + 2);
+	}
+
+	/**
+	 * Read the value of the specified variable together with the time at
+	 * which it was posted.
+	 * 
+	 * @return true if the variable currently has a value
+	 */
+	public boolean read(int id, Reading reading) {
+		checkId(id);
+		AtomicLongArray page = pages[id / PAGE_SIZE];
+		int base = (id % PAGE_SIZE) * STRIDE;
+		long seq, valueBits, time, set;
+		do {
+			seq = page.get(base + SEQ);
+			valueBits = page.get(base + VALUE);
+			time = page.get(base + TIME);
+			set = page.get(base + SET);
+		} while ((seq & 1) != 0 || page.get(base + SEQ) != seq);
+		reading.value = Double.longBitsToDouble(valueBits);
+		reading.time = time;
+		reading.version = seq;
+		reading.set = set != 0;
+		return reading.set;
+	}
+
+	/**
+	 * The latest value of the specified variable, or NaN if it has no value.
+	 */
+	public double getValue(int id) {
+		checkId(id);
+		AtomicLongArray page = pages[id / PAGE_SIZE];
+		int base = (id % PAGE_SIZE) * STRIDE;
+		if (page.get(base + SET) == 0) {
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(page.get(base + VALUE));
+	}
+
+	public double getValue(String name) {
+		int id = getId(name);
+		return id < 0 ? Double.NaN : getValue(id);
+	}
+
+	/**
+	 * The physical time at which the latest value of the specified variable
+	 * was posted.
+	 */
+	public long getTime(int id) {
+		checkId(id);
+		return pages[id / PAGE_SIZE].get((id % PAGE_SIZE) * STRIDE + TIME);
+	}
+
+	public boolean isSet(int id) {
+		checkId(id);
+		return pages[id / PAGE_SIZE].get((id % PAGE_SIZE) * STRIDE + SET) != 0;
+	}
+
+	/**
+	 * Clear the values of all variables.  The ids of previously interned 
+	 * names remain valid.
+	 */
+	public void reset() {
+		int n = numVariables;
+		for (int id = 0; id < n; id++) {
+			write(id, Double.doubleToRawLongBits(Double.NaN), 0L, 0);
+		}
+	}
+
+	protected void checkId(int id) {
+		if (id < 0 || id >= numVariables) {
+			throw new IllegalArgumentException("Unknown variable id: " + id);
+		}
+	}
+
+	/**
+	 * A consistent reading of a single variable.  Readers should reuse the
+	 * same instance rather than allocating one for every read.
+	 */
+	public static class Reading {
+
+		protected double value;
+
+		protected long time;
+
+		protected long version;
+
+		protected boolean set;
+
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * The physical time at which the value was posted.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Increases every time the variable is posted or reset.
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		public boolean isSet() {
+			return set;
+		}
+	}
+}
@@ -0,0 +1,358 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sourceforge.jabm.report.CSVWriter;
+import net.sourceforge.jabm.report.DataWriter;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+
+/**
+ * <p>
+ * A DataWriter which appends each value to a RecordRingBuffer and returns
+ * immediately.  The values are passed to the target DataWriter, which
+ * formats and writes them, on the background thread of a
+ * ReportWriterPipeline.  This writer must only be used from one thread at
+ * a time, typically the simulation thread.
+ * </p>
+ * <p>
+ * Calls to <code>flush()</code> do not block: the pipeline flushes the
+ * target no more than once per flush interval.  Use <code>sync()</code> to
+ * wait until everything written so far has reached the target and been
+ * flushed.  Any exception thrown by the target on the writer thread is
+ * rethrown from the next call to <code>flush()</code>, <code>sync()</code>,
+ * <code>endRecord()</code> or <code>close()</code>.
+ * </p>
+ * 
+ * @see ReportWriterPipeline
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class AsyncDataWriter implements DataWriter {
+
+	/**
+	 * The interval at which a thread waiting for the writer thread checks
+	 * that the pipeline is still running.
+	 */
+	public static final long AWAIT_POLL_MILLIS = 100;
+
+	protected DataWriter target;
+
+	protected RecordRingBuffer buffer;
+
+	protected ReportWriterPipeline pipeline;
+
+	protected volatile RuntimeException error;
+
+	protected boolean closed;
+
+	/**
+	 * Set on the writer thread once the target has been closed.
+	 */
+	protected volatile boolean finished;
+
+	/**
+	 * True if values have been written to the target since it was last
+	 * flushed.  Accessed only from the writer thread.
+	 */
+	protected boolean dirty;
+
+	protected long lastFlushNanos;
+
+	public AsyncDataWriter(ReportWriterPipeline pipeline, DataWriter target) {
+		this(pipeline, target, pipeline.getBufferSize());
+	}
+
+	public AsyncDataWriter(ReportWriterPipeline pipeline, DataWriter target,
+			int bufferSize) {
+		this.pipeline = pipeline;
+		this.target = target;
+		this.buffer = new RecordRingBuffer(bufferSize);
+		pipeline.register(this);
+	}
+
+	public void newData(double datum) {
+		put(RecordRingBuffer.DOUBLE, Double.doubleToRawLongBits(datum), null);
+	}
+
+	public void newData(int datum) {
+		put(RecordRingBuffer.INT, datum, null);
+	}
+
+	public void newData(long datum) {
+		put(RecordRingBuffer.LONG, datum, null);
+	}
+
+	public void newData(boolean datum) {
+		put(RecordRingBuffer.BOOLEAN, datum ? 1 : 0, null);
+	}
+
+	public void newData(Object datum) {
+		put(RecordRingBuffer.OBJECT, 0, datum);
+	}
+
+	public void newData(Object[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(double[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(int[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(Double datum) {
+		if (datum == null) {
+			newData((Object) null);
+		} else {
+			newData(datum.doubleValue());
+		}
+	}
+
+	public void newData(Integer datum) {
+		if (datum == null) {
+			newData((Object) null);
+		} else {
+			newData(datum.intValue());
+		}
+	}
+
+	public void newData(Long datum) {
+		if (datum == null) {
+			newData((Object) null);
+		} else {
+			newData(datum.longValue());
+		}
+	}
+
+	/**
+	 * Mark the end of a record, which is passed to the target if it is a
+	 * CSVWriter.
+	 */
+	public void endRecord() {
+		checkError();
+		put(RecordRingBuffer.END_RECORD, 0, null);
+	}
+
+	/**
+	 * Does not block; the target is flushed by the writer thread according
+	 * to the pipeline's flush interval.
+	 */
+	public void flush() {
+		checkError();
+	}
+
+	/**
+	 * Wait until every value written so far has been passed to the target
+	 * and the target has been flushed.
+	 */
+	public void sync() {
+		await(RecordRingBuffer.SYNC);
+		checkError();
+	}
+
+	/**
+	 * Write any outstanding values, then close the target and wait for it
+	 * to be closed.
+	 */
+	public void close() {
+		if (!closed) {
+			await(RecordRingBuffer.CLOSE);
+			closed = true;
+			checkError();
+		}
+	}
+
+	/**
+	 * Wait for the writer thread to process a SYNC or CLOSE record.
+	 * 
+	 * @throws AuctionRuntimeException
+	 *           if the pipeline thread stops before the record is processed.
+	 */
+	protected void await(byte type) {
+		CountDownLatch latch = new CountDownLatch(1);
+		put(type, 0, latch);
+		pipeline.wakeUp();
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					if (latch.await(AWAIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+						break;
+					}
+					if (!pipeline.isAlive() && latch.getCount() > 0) {
+						throw new AuctionRuntimeException(
+								"Report writer pipeline is not running");
+					}
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	protected void put(byte type, long value, Object object) {
+		if (closed) {
+			throw new AuctionRuntimeException("Writer is closed");
+		}
+		try {
+			buffer.put(type, value, object);
+		} catch (IllegalStateException e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	protected void checkError() {
+		RuntimeException e = error;
+		if (e != null) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Pass up to <code>maxValues</code> values from the buffer to the
+	 * target.  Called only from the writer thread.
+	 * 
+	 * @return the number of values consumed
+	 */
+	protected int drain(int maxValues) {
+		long head = buffer.getHead();
+		long available = buffer.getTail() - head;
+		int n = (int) Math.min(available, maxValues);
+		for (int i = 0; i < n; i++) {
+			long sequence = head + i;
+			byte type = buffer.getType(sequence);
+			Object object = buffer.takeObject(sequence);
+			if (type == RecordRingBuffer.SYNC || type == RecordRingBuffer.CLOSE) {
+				if (type == RecordRingBuffer.SYNC) {
+					flushTarget();
+				} else {
+					closeTarget();
+				}
+				buffer.release(sequence + 1);
+				((CountDownLatch) object).countDown();
+			} else if (error == null) {
+				try {
+					write(type, buffer.getValue(sequence), object);
+				} catch (RuntimeException e) {
+					error = e;
+				}
+			}
+		}
+		buffer.release(head + n);
+		return n;
+	}
+
+	protected void write(byte type, long value, Object object) {
+		switch (type) {
+		case RecordRingBuffer.DOUBLE:
+			target.newData(Double.longBitsToDouble(value));
+			break;
+		case RecordRingBuffer.INT:
+			target.newData((int) value);
+			break;
+		case RecordRingBuffer.LONG:
+			target.newData(value);
+			break;
+		case RecordRingBuffer.BOOLEAN:
+			target.newData(value != 0);
+			break;
+		case RecordRingBuffer.OBJECT:
+			target.newData(object);
+			break;
+		case RecordRingBuffer.END_RECORD:
+			if (target instanceof CSVWriter) {
+				((CSVWriter) target).endRecord();
+			}
+			break;
+		default:
+			throw new IllegalStateException("Unknown record type " + type);
+		}
+		dirty = true;
+	}
+
+	/**
+	 * Flush the target if values have been written to it and the flush
+	 * interval has elapsed since it was last flushed.  Called only from the
+	 * writer thread.
+	 */
+	protected void flushIfDue(long nowNanos, long intervalNanos) {
+		if (dirty && nowNanos - lastFlushNanos >= intervalNanos) {
+			flushTarget();
+		}
+	}
+
+	protected void flushTarget() {
+		lastFlushNanos = System.nanoTime();
+		if (error == null) {
+			try {
+				target.flush();
+			} catch (RuntimeException e) {
+				error = e;
+			}
+		}
+		dirty = false;
+	}
+
+	protected void closeTarget() {
+		try {
+			target.close();
+		} catch (RuntimeException e) {
+			if (error == null) {
+				error = e;
+			}
+		}
+		dirty = false;
+		buffer.close();
+		finished = true;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public DataWriter getTarget() {
+		return target;
+	}
+
+	public RecordRingBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * The number of times the simulation has had to wait for the writer 
+	 * thread because the buffer was full.
+	 */
+	public long getNumStalls() {
+		return buffer.getNumStalls();
+	}
+
+}
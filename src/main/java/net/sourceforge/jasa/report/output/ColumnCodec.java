@@ -0,0 +1,156 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Encodes and decodes the columns of a block of a columnar time series.
+ * </p>
+ * <p>
+ * A column of longs is stored as its first value, its first difference and
+ * thereafter the differences between successive differences, each as a
+ * zig-zag variable-length integer, so that a regularly-spaced tick column
+ * costs one byte per row.
+ * </p>
+ * <p>
+ * A column of doubles is stored as the exclusive-or of the bits of each
+ * value with those of the previous value.  Successive values of a slowly
+ * moving series share their sign, exponent and leading mantissa bits, so 
+ * the exclusive-or has leading and often trailing zero bytes.  Each value
+ * is written as a control byte holding the number of leading zero bytes
+ * in its upper four bits and the number of trailing zero bytes in its 
+ * lower four bits, followed by the remaining bytes; a repeated value costs
+ * a single byte.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ColumnCodec {
+
+	protected byte[] buffer = new byte[1024];
+
+	protected int length;
+
+	public void reset() {
+		length = 0;
+	}
+
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public void encodeLongs(long[] values, int n) {
+		long previous = 0;
+		long previousDelta = 0;
+		for (int i = 0; i < n; i++) {
+			long delta = values[i] - previous;
+			putVarLong(zigZag(i < 2 ? delta : delta - previousDelta));
+			previous = values[i];
+			previousDelta = delta;
+		}
+	}
+
+	public void encodeDoubles(double[] values, int n) {
+		long previous = 0;
+		for (int i = 0; i < n; i++) {
+			long bits = Double.doubleToRawLongBits(values[i]);
+			long xor = bits ^ previous;
+			previous = bits;
+			if (xor == 0) {
+				putByte(8 << 4);
+				continue;
+			}
+			int leading = Long.numberOfLeadingZeros(xor) >>> 3;
+			int trailing = Long.numberOfTrailingZeros(xor) >>> 3;
+			putByte((leading << 4) | trailing);
+			for (int b = 7 - leading; b >= trailing; b--) {
+				putByte((int) (xor >>> (b * 8)));
+			}
+		}
+	}
+
+	public static void decodeLongs(byte[] data, int offset, long[] values,
+			int n) {
+		int position = offset;
+		long previous = 0;
+		long previousDelta = 0;
+		for (int i = 0; i < n; i++) {
+			long raw = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = data[position++];
+				raw |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			long delta = unZigZag(raw);
+			if (i >= 2) {
+				delta += previousDelta;
+			}
+			previous += delta;
+			values[i] = previous;
+			previousDelta = delta;
+		}
+	}
+
+	public static void decodeDoubles(byte[] data, int offset, 
+			double[] values, int n) {
+		int position = offset;
+		long previous = 0;
+		for (int i = 0; i < n; i++) {
+			int control = data[position++] & 0xFF;
+			int leading = control >>> 4;
+			int trailing = control & 0x0F;
+			long xor = 0;
+			for (int b = 7 - leading; b >= trailing; b--) {
+				xor |= (long) (data[position++] & 0xFF) << (b * 8);
+			}
+			previous ^= xor;
+			values[i] = Double.longBitsToDouble(previous);
+		}
+	}
+
+	public static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	protected void putVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			putByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		putByte((int) value);
+	}
+
+	protected void putByte(int b) {
+		if (length == buffer.length) {
+			buffer = Arrays.copyOf(buffer, length * 2);
+		}
+		buffer[length++] = (byte) b;
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Exports a columnar time series to CSV, with a header row of column
+ * names.  Doubles are written in full precision.
+ * 
+ * <pre>
+ * java net.sourceforge.jasa.report.output.ColumnarTimeSeriesExport 
+ *     series.jts [series.csv]
+ * </pre>
+ * 
+ * If no output file is given, the CSV is written to standard output.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ColumnarTimeSeriesExport {
+
+	public static void export(ColumnarTimeSeriesReader reader, Writer out)
+			throws IOException {
+		int numColumns = reader.getNumColumns();
+		for (int i = 0; i < numColumns; i++) {
+			if (i > 0) {
+				out.write(',');
+			}
+			out.write(reader.getColumnName(i));
+		}
+		out.write('\n');
+		for (int b = 0; b < reader.getNumBlocks(); b++) {
+			reader.readBlock(b);
+			for (int row = 0; row < reader.getCurrentRows(); row++) {
+				for (int i = 0; i < numColumns; i++) {
+					if (i > 0) {
+						out.write(',');
+					}
+					if (reader.getColumnType(i) 
+							== ColumnarTimeSeriesWriter.LONG) {
+						out.write(Long.toString(reader.getLong(i, row)));
+					} else {
+						out.write(Double.toString(reader.getDouble(i, row)));
+					}
+				}
+				out.write('\n');
+			}
+		}
+		out.flush();
+	}
+
+	public static void export(File in, File out) throws IOException {
+		ColumnarTimeSeriesReader reader = new ColumnarTimeSeriesReader(in);
+		try {
+			Writer writer = new BufferedWriter(new FileWriter(out));
+			try {
+				export(reader, writer);
+			} finally {
+				writer.close();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: ColumnarTimeSeriesExport " 
+					+ "<input> [<output.csv>]");
+			System.exit(1);
+		}
+		if (args.length == 2) {
+			export(new File(args[0]), new File(args[1]));
+		} else {
+			ColumnarTimeSeriesReader reader = 
+					new ColumnarTimeSeriesReader(new File(args[0]));
+			try {
+				export(reader, new BufferedWriter(
+						new OutputStreamWriter(System.out)));
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,310 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import static net.sourceforge.jasa.report.output.ColumnarTimeSeriesWriter.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * <p>
+ * Reads a time series written by a ColumnarTimeSeriesWriter.  The footer
+ * index is read when the file is opened; whole columns can then be loaded
+ * as arrays, or the blocks visited one at a time, in which case each block
+ * is decoded into arrays which are reused for the next block.
+ * </p>
+ * 
+ * <pre>
+ * ColumnarTimeSeriesReader reader = new ColumnarTimeSeriesReader(file);
+ * long[] t = reader.readLongColumn(0);
+ * double[] price = reader.readDoubleColumn(1);
+ * reader.close();
+ * </pre>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ColumnarTimeSeriesReader implements Closeable {
+
+	protected RandomAccessFile file;
+
+	protected String[] names;
+
+	protected byte[] types;
+
+	protected long numRows;
+
+	protected int numBlocks;
+
+	protected long[] blockOffsets;
+
+	protected int[] blockRows;
+
+	protected long[] blockFirst;
+
+	protected long[] blockLast;
+
+	/**
+	 * The encoded bytes of the current block.
+	 */
+	protected byte[] data = new byte[0];
+
+	/**
+	 * The offset of each column of the current block within data.
+	 */
+	protected int[] columnOffsets;
+
+	protected int currentBlock = -1;
+
+	protected int currentRows;
+
+	protected long[][] longColumns;
+
+	protected double[][] doubleColumns;
+
+	public ColumnarTimeSeriesReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		try {
+			readHeader(file);
+			readFooter(file);
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	protected void readHeader(File source) throws IOException {
+		if (file.length() < 12 + TRAILER_SIZE || file.readInt() != MAGIC) {
+			throw new IOException(source + " is not a columnar time series");
+		}
+		int version = file.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version " + version + " in "
+					+ source);
+		}
+		int numColumns = file.readInt();
+		names = new String[numColumns];
+		types = new byte[numColumns];
+		for (int i = 0; i < numColumns; i++) {
+			types[i] = file.readByte();
+			names[i] = file.readUTF();
+		}
+		columnOffsets = new int[numColumns + 1];
+		longColumns = new long[numColumns][];
+		doubleColumns = new double[numColumns][];
+	}
+
+	protected void readFooter(File source) throws IOException {
+		file.seek(file.length() - TRAILER_SIZE);
+		long footerOffset = file.readLong();
+		if (file.readInt() != MAGIC) {
+			throw new IOException(source + " has no footer; it may not "
+					+ "have been closed");
+		}
+		file.seek(footerOffset);
+		numBlocks = file.readInt();
+		blockOffsets = new long[numBlocks];
+		blockRows = new int[numBlocks];
+		blockFirst = new long[numBlocks];
+		blockLast = new long[numBlocks];
+		for (int i = 0; i < numBlocks; i++) {
+			blockOffsets[i] = file.readLong();
+			blockRows[i] = file.readInt();
+			blockFirst[i] = file.readLong();
+			blockLast[i] = file.readLong();
+		}
+		numRows = file.readLong();
+	}
+
+	/**
+	 * Decode the given block, after which its values can be retrieved 
+	 * using getLong() and getDouble().
+	 */
+	public void readBlock(int block) throws IOException {
+		if (block == currentBlock) {
+			return;
+		}
+		file.seek(blockOffsets[block]);
+		currentRows = file.readInt();
+		int length = 0;
+		for (int i = 0; i < types.length; i++) {
+			int columnLength = file.readInt();
+			if (data.length < length + columnLength) {
+				byte[] grown = new byte[Math.max(data.length * 2, 
+						length + columnLength)];
+				System.arraycopy(data, 0, grown, 0, length);
+				data = grown;
+			}
+			file.readFully(data, length, columnLength);
+			columnOffsets[i] = length;
+			length += columnLength;
+		}
+		columnOffsets[types.length] = length;
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] == LONG) {
+				if (longColumns[i] == null 
+						|| longColumns[i].length < currentRows) {
+					longColumns[i] = new long[currentRows];
+				}
+				ColumnCodec.decodeLongs(data, columnOffsets[i], 
+						longColumns[i], currentRows);
+			} else {
+				if (doubleColumns[i] == null 
+						|| doubleColumns[i].length < currentRows) {
+					doubleColumns[i] = new double[currentRows];
+				}
+				ColumnCodec.decodeDoubles(data, columnOffsets[i], 
+						doubleColumns[i], currentRows);
+			}
+		}
+		currentBlock = block;
+	}
+
+	/**
+	 * The value of a long column in the given row of the current block.
+	 */
+	public long getLong(int column, int row) {
+		if (types[column] != LONG) {
+			throw new IllegalArgumentException("Column " + names[column]
+					+ " does not hold longs");
+		}
+		return longColumns[column][row];
+	}
+
+	/**
+	 * The value of a column in the given row of the current block, as a 
+	 * double.
+	 */
+	public double getDouble(int column, int row) {
+		if (types[column] == LONG) {
+			return longColumns[column][row];
+		}
+		return doubleColumns[column][row];
+	}
+
+	public long[] readLongColumn(int column) throws IOException {
+		long[] result = new long[checkedNumRows()];
+		int row = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			readBlock(b);
+			for (int i = 0; i < currentRows; i++) {
+				result[row++] = getLong(column, i);
+			}
+		}
+		return result;
+	}
+
+	public double[] readDoubleColumn(int column) throws IOException {
+		double[] result = new double[checkedNumRows()];
+		int row = 0;
+		for (int b = 0; b < numBlocks; b++) {
+			readBlock(b);
+			for (int i = 0; i < currentRows; i++) {
+				result[row++] = getDouble(column, i);
+			}
+		}
+		return result;
+	}
+
+	protected int checkedNumRows() {
+		if (numRows > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many rows to load into "
+					+ "an array: " + numRows);
+		}
+		return (int) numRows;
+	}
+
+	/**
+	 * Find the first block which may contain the given tick, assuming that
+	 * the first column holds non-decreasing ticks.
+	 * 
+	 * @return the index of the block, or the number of blocks if every 
+	 * tick is earlier than the given tick.
+	 */
+	public int findBlock(long tick) {
+		int low = 0;
+		int high = numBlocks;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (blockLast[mid] < tick) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public int getColumnIndex(String name) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+
+	public int getNumColumns() {
+		return types.length;
+	}
+
+	public String getColumnName(int column) {
+		return names[column];
+	}
+
+	public byte getColumnType(int column) {
+		return types[column];
+	}
+
+	public long getNumRows() {
+		return numRows;
+	}
+
+	public int getNumBlocks() {
+		return numBlocks;
+	}
+
+	public int getBlockNumRows(int block) {
+		return blockRows[block];
+	}
+
+	/**
+	 * The value of the first column in the first row of the block, or its
+	 * raw bits if the first column holds doubles.
+	 */
+	public long getBlockFirst(int block) {
+		return blockFirst[block];
+	}
+
+	public long getBlockLast(int block) {
+		return blockLast[block];
+	}
+
+	/**
+	 * The number of rows in the current block.
+	 */
+	public int getCurrentRows() {
+		return currentRows;
+	}
+
+}
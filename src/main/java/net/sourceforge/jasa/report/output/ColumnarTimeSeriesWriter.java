@@ -0,0 +1,395 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import net.sourceforge.jabm.report.DataWriter;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+
+/**
+ * <p>
+ * A DataWriter which stores a time series in a compact binary columnar
+ * format instead of as text.  Each column holds either longs, typically a
+ * time in ticks, or doubles.  Values are written row by row, as they are
+ * to a CSVWriter with a fixed number of columns, and rows are buffered
+ * into blocks of <code>blockSize</code> rows which are written one column
+ * at a time using a ColumnCodec.
+ * </p>
+ * <p>
+ * The file consists of a header naming the columns and their types, the
+ * blocks, and a footer which indexes the offset, the number of rows and
+ * the range of the first column of each block.  The footer is written when
+ * the writer is closed, and the file can then be read with a 
+ * ColumnarTimeSeriesReader or exported to CSV with 
+ * ColumnarTimeSeriesExport.
+ * </p>
+ * <p>
+ * Flushing writes only completed blocks, so that flushes do not fragment
+ * the blocks; the final partial block is written on close.
+ * </p>
+ * 
+ * <pre>
+ * ColumnarTimeSeriesWriter out = 
+ *     ColumnarTimeSeriesWriter.timeSeries(file, "t", "price");
+ * out.newData(time);
+ * out.newData(price);
+ * ...
+ * out.close();
+ * </pre>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ColumnarTimeSeriesWriter implements DataWriter, Closeable {
+
+	public static final int MAGIC = 0x4A415453;
+
+	public static final int VERSION = 1;
+
+	public static final byte LONG = 1;
+
+	public static final byte DOUBLE = 2;
+
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	public static final String FILE_EXTENSION = ".jts";
+
+	/**
+	 * The size in bytes of the trailer which locates the footer.
+	 */
+	public static final int TRAILER_SIZE = 12;
+
+	protected DataOutputStream out;
+
+	protected long position;
+
+	protected String[] names;
+
+	protected byte[] types;
+
+	protected int blockSize;
+
+	protected long[][] longColumns;
+
+	protected double[][] doubleColumns;
+
+	/**
+	 * The number of complete rows in the current block.
+	 */
+	protected int numRows;
+
+	/**
+	 * The column to which the next value will be written.
+	 */
+	protected int column;
+
+	protected long totalRows;
+
+	protected ColumnCodec codec = new ColumnCodec();
+
+	protected int numBlocks;
+
+	protected long[] blockOffsets = new long[16];
+
+	protected int[] blockRows = new int[16];
+
+	protected long[] blockFirst = new long[16];
+
+	protected long[] blockLast = new long[16];
+
+	protected boolean closed;
+
+	public ColumnarTimeSeriesWriter(OutputStream out, String[] names,
+			byte[] types, int blockSize) {
+		if (names.length != types.length || names.length == 0) {
+			throw new IllegalArgumentException(
+					"Each column requires a name and a type");
+		}
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Invalid block size " 
+					+ blockSize);
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.names = names.clone();
+		this.types = types.clone();
+		this.blockSize = blockSize;
+		longColumns = new long[types.length][];
+		doubleColumns = new double[types.length][];
+		for (int i = 0; i < types.length; i++) {
+			if (types[i] == LONG) {
+				longColumns[i] = new long[blockSize];
+			} else if (types[i] == DOUBLE) {
+				doubleColumns[i] = new double[blockSize];
+			} else {
+				throw new IllegalArgumentException("Unknown column type "
+						+ types[i]);
+			}
+		}
+		try {
+			writeHeader();
+		} catch (IOException e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	public ColumnarTimeSeriesWriter(OutputStream out, String[] names,
+			byte[] types) {
+		this(out, names, types, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ColumnarTimeSeriesWriter(File file, String[] names, byte[] types)
+			throws IOException {
+		this(new FileOutputStream(file), names, types);
+	}
+
+	/**
+	 * Create a writer for a series of (tick, value) pairs.
+	 */
+	public static ColumnarTimeSeriesWriter timeSeries(File file,
+			String tickName, String valueName) throws IOException {
+		return new ColumnarTimeSeriesWriter(file, 
+				new String[] { tickName, valueName }, 
+				new byte[] { LONG, DOUBLE });
+	}
+
+	public static ColumnarTimeSeriesWriter timeSeries(OutputStream out,
+			String tickName, String valueName) {
+		return new ColumnarTimeSeriesWriter(out, 
+				new String[] { tickName, valueName }, 
+				new byte[] { LONG, DOUBLE });
+	}
+
+	protected void writeHeader() throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(types.length);
+		for (int i = 0; i < types.length; i++) {
+			out.writeByte(types[i]);
+			out.writeUTF(names[i]);
+		}
+		position = out.size();
+	}
+
+	/**
+	 * Append a row to a (tick, value) series.
+	 */
+	public void append(long tick, double value) {
+		newData(tick);
+		newData(value);
+	}
+
+	public void newData(long datum) {
+		if (types[column] == LONG) {
+			longColumns[column][numRows] = datum;
+		} else {
+			doubleColumns[column][numRows] = datum;
+		}
+		nextColumn();
+	}
+
+	public void newData(double datum) {
+		if (types[column] == DOUBLE) {
+			doubleColumns[column][numRows] = datum;
+		} else if (datum == (long) datum) {
+			longColumns[column][numRows] = (long) datum;
+		} else {
+			throw new IllegalArgumentException("Column " + names[column]
+					+ " cannot hold the fractional value " + datum);
+		}
+		nextColumn();
+	}
+
+	public void newData(int datum) {
+		newData((long) datum);
+	}
+
+	public void newData(boolean datum) {
+		newData(datum ? 1L : 0L);
+	}
+
+	public void newData(Object datum) {
+		if (datum instanceof Double || datum instanceof Float) {
+			newData(((Number) datum).doubleValue());
+		} else if (datum instanceof Number) {
+			newData(((Number) datum).longValue());
+		} else if (datum instanceof Boolean) {
+			newData(((Boolean) datum).booleanValue());
+		} else if (datum == null && types[column] == DOUBLE) {
+			newData(Double.NaN);
+		} else {
+			throw new IllegalArgumentException("Column " + names[column]
+					+ " cannot hold " + datum);
+		}
+	}
+
+	public void newData(Object[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(double[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(int[] data) {
+		for (int i = 0; i < data.length; i++) {
+			newData(data[i]);
+		}
+	}
+
+	public void newData(Double datum) {
+		newData((Object) datum);
+	}
+
+	public void newData(Integer datum) {
+		newData((Object) datum);
+	}
+
+	public void newData(Long datum) {
+		newData((Object) datum);
+	}
+
+	protected void nextColumn() {
+		if (++column == types.length) {
+			column = 0;
+			totalRows++;
+			if (++numRows == blockSize) {
+				writeBlock();
+			}
+		}
+	}
+
+	protected void writeBlock() {
+		try {
+			if (numBlocks == blockOffsets.length) {
+				int length = numBlocks * 2;
+				blockOffsets = Arrays.copyOf(blockOffsets, length);
+				blockRows = Arrays.copyOf(blockRows, length);
+				blockFirst = Arrays.copyOf(blockFirst, length);
+				blockLast = Arrays.copyOf(blockLast, length);
+			}
+			blockOffsets[numBlocks] = position;
+			blockRows[numBlocks] = numRows;
+			blockFirst[numBlocks] = firstColumn(0);
+			blockLast[numBlocks] = firstColumn(numRows - 1);
+			numBlocks++;
+			out.writeInt(numRows);
+			position += 4;
+			for (int i = 0; i < types.length; i++) {
+				codec.reset();
+				if (types[i] == LONG) {
+					codec.encodeLongs(longColumns[i], numRows);
+				} else {
+					codec.encodeDoubles(doubleColumns[i], numRows);
+				}
+				out.writeInt(codec.getLength());
+				out.write(codec.getBuffer(), 0, codec.getLength());
+				position += 4 + codec.getLength();
+			}
+			numRows = 0;
+		} catch (IOException e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	/**
+	 * The value of the first column in the given row of the current block,
+	 * as a long, which is used to index the blocks by tick.
+	 */
+	protected long firstColumn(int row) {
+		if (types[0] == LONG) {
+			return longColumns[0][row];
+		} else {
+			return Double.doubleToRawLongBits(doubleColumns[0][row]);
+		}
+	}
+
+	protected void writeFooter() throws IOException {
+		long footerOffset = position;
+		out.writeInt(numBlocks);
+		for (int i = 0; i < numBlocks; i++) {
+			out.writeLong(blockOffsets[i]);
+			out.writeInt(blockRows[i]);
+			out.writeLong(blockFirst[i]);
+			out.writeLong(blockLast[i]);
+		}
+		out.writeLong(totalRows);
+		out.writeLong(footerOffset);
+		out.writeInt(MAGIC);
+	}
+
+	/**
+	 * Write any completed blocks to the underlying stream.
+	 */
+	public void flush() {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	/**
+	 * Write the final block and the footer, and close the stream.  A
+	 * partially-written row is discarded.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (numRows > 0) {
+				writeBlock();
+			}
+			writeFooter();
+			out.close();
+		} catch (IOException e) {
+			throw new AuctionRuntimeException(e);
+		}
+	}
+
+	public long getNumRows() {
+		return totalRows;
+	}
+
+	public int getNumBlocks() {
+		return numBlocks;
+	}
+
+	public int getNumColumns() {
+		return types.length;
+	}
+
+	/**
+	 * The number of bytes written so far, excluding the current block.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+}
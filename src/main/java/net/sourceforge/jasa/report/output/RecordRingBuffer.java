@@ -0,0 +1,220 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * A bounded ring buffer of primitive values passed from a single producer
+ * thread to a single consumer thread.  Each slot holds a type code, a
+ * <code>long</code> which carries the bits of any primitive value, and
+ * an object reference which is used only for values that are not
+ * primitive, so that appending a number does not allocate.
+ * </p>
+ * <p>
+ * When the buffer is full the producer waits for the consumer to make
+ * space, which applies back-pressure to the simulation rather than letting
+ * a slow writer accumulate an unbounded backlog.
+ * </p>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class RecordRingBuffer {
+
+	public static final byte DOUBLE = 1;
+
+	public static final byte INT = 2;
+
+	public static final byte LONG = 3;
+
+	public static final byte BOOLEAN = 4;
+
+	public static final byte OBJECT = 5;
+
+	public static final byte END_RECORD = 6;
+
+	public static final byte SYNC = 7;
+
+	public static final byte CLOSE = 8;
+
+	public static final long PARK_NANOS = 50000;
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	protected final byte[] types;
+
+	protected final long[] values;
+
+	protected final Object[] objects;
+
+	/**
+	 * The sequence number of the next slot to be read.
+	 */
+	protected final AtomicLong head = new AtomicLong();
+
+	/**
+	 * The sequence number of the next slot to be written.
+	 */
+	protected final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * The producer's last reading of the head.
+	 */
+	protected long cachedHead;
+
+	/**
+	 * The number of times the producer has had to wait for space.
+	 */
+	protected volatile long numStalls;
+
+	/**
+	 * The thread reading from the buffer, which is woken when the producer
+	 * is waiting for space.
+	 */
+	protected volatile Thread consumer;
+
+	protected volatile boolean closed;
+
+	/**
+	 * @param capacity
+	 *          the number of slots, which is rounded up to a power of two
+	 */
+	public RecordRingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid capacity " + capacity);
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.capacity = size;
+		this.mask = this.capacity - 1;
+		this.types = new byte[this.capacity];
+		this.values = new long[this.capacity];
+		this.objects = new Object[this.capacity];
+	}
+
+	/**
+	 * Append a value, waiting for space if the buffer is full.  This method
+	 * must only be called from the producer thread.
+	 */
+	public void put(byte type, long value, Object object) {
+		long t = tail.get();
+		if (t - cachedHead >= capacity) {
+			cachedHead = head.get();
+			if (t - cachedHead >= capacity) {
+				awaitSpace(t);
+			}
+		}
+		int i = (int) t & mask;
+		types[i] = type;
+		values[i] = value;
+		objects[i] = object;
+		tail.lazySet(t + 1);
+	}
+
+	protected void awaitSpace(long t) {
+		numStalls++;
+		do {
+			if (closed) {
+				throw new IllegalStateException("Buffer is closed");
+			}
+			Thread c = consumer;
+			if (c != null) {
+				LockSupport.unpark(c);
+			}
+			LockSupport.parkNanos(PARK_NANOS);
+			cachedHead = head.get();
+		} while (t - cachedHead >= capacity);
+	}
+
+	/**
+	 * The sequence number of the first unread slot.
+	 */
+	public long getHead() {
+		return head.get();
+	}
+
+	/**
+	 * The sequence number following the last published slot.
+	 */
+	public long getTail() {
+		return tail.get();
+	}
+
+	public byte getType(long sequence) {
+		return types[(int) sequence & mask];
+	}
+
+	public long getValue(long sequence) {
+		return values[(int) sequence & mask];
+	}
+
+	/**
+	 * Get the object in a slot and release the reference to it.
+	 */
+	public Object takeObject(long sequence) {
+		int i = (int) sequence & mask;
+		Object object = objects[i];
+		objects[i] = null;
+		return object;
+	}
+
+	/**
+	 * Release every slot before the given sequence number to the producer.
+	 * This method must only be called from the consumer thread.
+	 */
+	public void release(long sequence) {
+		head.lazySet(sequence);
+	}
+
+	public boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getNumStalls() {
+		return numStalls;
+	}
+
+	public void setConsumer(Thread consumer) {
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Stop the producer from waiting for space that will never be made.
+	 */
+	public void close() {
+		closed = true;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+}
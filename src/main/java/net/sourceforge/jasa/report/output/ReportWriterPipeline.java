@@ -0,0 +1,244 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.sourceforge.jabm.report.DataWriter;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A background thread which writes report output on behalf of the
+ * simulation.  Reports append values to AsyncDataWriters created by the
+ * pipeline; the pipeline thread drains each writer's buffer in batches of
+ * up to <code>batchSize</code> values, passes them to the writer's target
+ * for formatting and output, and flushes each target no more than once 
+ * every <code>flushInterval</code> milliseconds.  A flush interval of
+ * zero flushes each target after every batch.
+ * </p>
+ * <p>
+ * The thread is started when the first writer is created, and is a daemon
+ * thread, so the pipeline must be closed, or each of its writers closed or
+ * synced, to ensure that all output has been written.
+ * </p>
+ * 
+ * <pre>
+ * ReportWriterPipeline pipeline = new ReportWriterPipeline();
+ * DataWriter out = pipeline.createWriter(
+ *     new CSVWriter(new FileOutputStream(filename), 2));
+ * </pre>
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ReportWriterPipeline implements Runnable {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * The maximum time for which the thread sleeps when there is nothing to
+	 * write.
+	 */
+	public static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	protected int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	protected int batchSize = 1024;
+
+	protected volatile long flushInterval = 1000;
+
+	protected List<AsyncDataWriter> writers = 
+			new CopyOnWriteArrayList<AsyncDataWriter>();
+
+	protected Thread thread;
+
+	protected volatile boolean running;
+
+	/**
+	 * Set once the pipeline thread has stopped and closed the buffers of
+	 * the remaining writers.  Guarded by this pipeline's lock.
+	 */
+	protected boolean stopped;
+
+	static Logger logger = Logger.getLogger(ReportWriterPipeline.class);
+
+	public ReportWriterPipeline() {
+	}
+
+	public ReportWriterPipeline(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Create a writer which passes its output to the given target on the
+	 * pipeline thread.
+	 */
+	public AsyncDataWriter createWriter(DataWriter target) {
+		return new AsyncDataWriter(this, target, bufferSize);
+	}
+
+	protected synchronized void register(AsyncDataWriter writer) {
+		writers.add(writer);
+		if (thread == null) {
+			running = true;
+			stopped = false;
+			thread = new Thread(this, "report-writer");
+			thread.setDaemon(true);
+			thread.start();
+		} else if (stopped) {
+			writer.getBuffer().close();
+		}
+		writer.getBuffer().setConsumer(thread);
+	}
+
+	public void run() {
+		try {
+			drainWriters();
+		} finally {
+			closeBuffers();
+		}
+	}
+
+	protected void drainWriters() {
+		while (running || !writers.isEmpty()) {
+			long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+			int n = 0;
+			long now = System.nanoTime();
+			for (AsyncDataWriter writer : writers) {
+				n += writer.drain(batchSize);
+				writer.flushIfDue(now, intervalNanos);
+				if (writer.isFinished()) {
+					writers.remove(writer);
+				}
+			}
+			if (n == 0) {
+				LockSupport.parkNanos(this, 
+						intervalNanos > 0 ? Math.min(IDLE_NANOS, intervalNanos)
+						    : IDLE_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Close the buffer of every remaining writer when the pipeline thread
+	 * stops, so that a producer waiting for space fails instead of waiting
+	 * forever if the thread died.
+	 */
+	protected synchronized void closeBuffers() {
+		stopped = true;
+		for (AsyncDataWriter writer : writers) {
+			writer.getBuffer().close();
+		}
+	}
+
+	protected void wakeUp() {
+		Thread t = thread;
+		if (t != null) {
+			LockSupport.unpark(t);
+		}
+	}
+
+	/**
+	 * Close every writer and stop the pipeline thread.  This must only be
+	 * called once the threads writing to the pipeline have finished with
+	 * it.  If any writer failed, the first failure is rethrown once the 
+	 * thread has stopped.
+	 */
+	public void close() {
+		AuctionRuntimeException error = null;
+		for (AsyncDataWriter writer : writers) {
+			try {
+				writer.close();
+			} catch (AuctionRuntimeException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		Thread t;
+		synchronized (this) {
+			running = false;
+			t = thread;
+			thread = null;
+		}
+		if (t != null) {
+			LockSupport.unpark(t);
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				logger.warn("Interrupted whilst closing report pipeline");
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Returns true if the pipeline thread has been started and has neither
+	 * been stopped nor died.
+	 */
+	public synchronized boolean isAlive() {
+		return thread != null && thread.isAlive();
+	}
+
+	public int getNumWriters() {
+		return writers.size();
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * The number of values held in each writer's buffer; the simulation 
+	 * waits when a buffer is full.
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * The maximum number of values taken from one writer's buffer before
+	 * moving on to the next writer.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public long getFlushInterval() {
+		return flushInterval;
+	}
+
+	/**
+	 * The minimum time in milliseconds between flushes of each target.
+	 */
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+}
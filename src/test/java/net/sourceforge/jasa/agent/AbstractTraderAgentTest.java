@@ -179,6 +179,18 @@ public class AbstractTraderAgentTest extends TestCase implements EventListener {
 
 	}
 
+	public void testPlacedOrdersNotModified() {
+		auction.begin();
+		auction.step();
+		Order first = trader1.getCurrentOrder();
+		assertEquals(TRADER1_VALUE - 100, first.getPriceAsDouble(), 0.0);
+		auction.step();
+		assertNotSame(first, trader1.getCurrentOrder());
+		assertEquals(TRADER1_VALUE - 50, 
+				trader1.getCurrentOrder().getPriceAsDouble(), 0.0);
+		assertEquals(TRADER1_VALUE - 100, first.getPriceAsDouble(), 0.0);
+	}
+
 	public static void main(String[] args) {
 		junit.textui.TestRunner.run(suite());
 	}
@@ -1,5 +1,6 @@
 package net.sourceforge.jasa.agent.strategy;
 
+import java.util.Collection;
 import java.util.Iterator;
 
 import net.sourceforge.jabm.Population;
@@ -27,6 +28,12 @@ public class MockMarket implements Market, Simulation {
 		
 	}
 
+	@Override
+	public void clear(Order ask, Order bid, double price, int quantity) {
+		// TODO Auto-generated method stub
+		
+	}
+
 	@Override
 	public void clear(Order ask, Order bid, double buyerCharge,
 			double sellerPayment, int quantity) {
@@ -101,6 +108,10 @@ public class MockMarket implements Market, Simulation {
 		
 	}
 
+	@Override
+	public void placeOrders(Collection<Order> orders) throws AuctionException {
+	}
+
 	@Override
 	public void printState() {
 		// TODO Auto-generated method stub
@@ -113,6 +124,12 @@ public class MockMarket implements Market, Simulation {
 		
 	}
 
+	@Override
+	public boolean amendOrder(Order shout, double price, int quantity)
+			throws AuctionException {
+		return false;
+	}
+
 	@Override
 	public boolean transactionsOccurred() throws ShoutsNotVisibleException {
 		// TODO Auto-generated method stub
@@ -0,0 +1,127 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class TypeIndexedEventDispatcherTest extends TestCase {
+
+	protected TypeIndexedEventDispatcher dispatcher;
+
+	protected List<String> notifications;
+
+	protected EventListener open, placed, market, all;
+
+	public TypeIndexedEventDispatcherTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		dispatcher = new TypeIndexedEventDispatcher();
+		notifications = new ArrayList<String>();
+		open = new RecordingListener("open");
+		placed = new RecordingListener("placed");
+		market = new RecordingListener("market");
+		all = new RecordingListener("all");
+		dispatcher.addListener(MarketOpenEvent.class, open);
+		dispatcher.addListener(all);
+		dispatcher.addListener(OrderPlacedEvent.class, placed);
+		dispatcher.addListener(MarketEvent.class, market);
+	}
+
+	public void testRoutedByEventClass() {
+		dispatcher.fireEvent(new MarketOpenEvent(null, 0));
+		assertNotifications("open", "all", "market");
+		dispatcher.fireEvent(new OrderPlacedEvent(null, 1, null));
+		assertNotifications("all", "placed", "market");
+		dispatcher.fireEvent(new TransactionExecutedEvent());
+		assertNotifications("all", "market");
+		dispatcher.fireEvent(new SimEvent() { });
+		assertNotifications("all");
+	}
+
+	public void testNotifiedOnce() {
+		dispatcher.addListener(MarketOpenEvent.class, all);
+		dispatcher.fireEvent(new MarketOpenEvent(null, 0));
+		assertNotifications("open", "all", "market");
+	}
+
+	public void testRegistrationInvalidatesCache() {
+		dispatcher.fireEvent(new EndOfDayEvent(null, 0));
+		assertNotifications("all", "market");
+		EventListener endOfDay = new RecordingListener("endOfDay");
+		dispatcher.addListener(EndOfDayEvent.class, endOfDay);
+		dispatcher.fireEvent(new EndOfDayEvent(null, 0));
+		assertNotifications("all", "market", "endOfDay");
+		dispatcher.removeListener(market);
+		dispatcher.fireEvent(new EndOfDayEvent(null, 0));
+		assertNotifications("all", "endOfDay");
+		dispatcher.removeListener(all);
+		dispatcher.removeListener(endOfDay);
+		dispatcher.fireEvent(new EndOfDayEvent(null, 0));
+		assertNotifications();
+	}
+
+	public void testListenerRemovedDuringDispatch() {
+		dispatcher.addListener(MarketClosedEvent.class, new EventListener() {
+			public void eventOccurred(SimEvent event) {
+				dispatcher.removeListener(all);
+			}
+		});
+		dispatcher.fireEvent(new MarketClosedEvent(null, 0));
+		assertNotifications("all", "market");
+		dispatcher.fireEvent(new MarketClosedEvent(null, 0));
+		assertNotifications("market");
+	}
+
+	protected void assertNotifications(String... expected) {
+		assertEquals(Arrays.asList(expected), notifications);
+		notifications.clear();
+	}
+
+	class RecordingListener implements EventListener {
+
+		protected String name;
+
+		public RecordingListener(String name) {
+			this.name = name;
+		}
+
+		public void eventOccurred(SimEvent event) {
+			notifications.add(name);
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(TypeIndexedEventDispatcherTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
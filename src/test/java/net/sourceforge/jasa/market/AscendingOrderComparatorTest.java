@@ -23,4 +23,23 @@ public class AscendingOrderComparatorTest extends TestCase {
 		Order order2 = new Order(trader2, 1, 15.0, true);
 		assertTrue(comparator.compare(order1, order2) < 0);
 	}
+
+	public void testTimeStampTieBreak() {
+		Order order1 = new Order(trader1, 1, 10.0, true);
+		Order order2 = new Order(trader2, 1, 10.0, true);
+		assertFalse(order1.isTimeStamped());
+		assertNull(order1.getTimeStamp());
+		assertEquals(0, comparator.compare(order1, order2));
+		order1.setTimeStamp(5, 2);
+		order2.setTimeStamp(5, 1);
+		assertTrue(order2.placedBefore(order1));
+		assertFalse(order1.placedBefore(order2));
+		assertTrue(comparator.compare(order1, order2) < 0);
+		assertTrue(order1.compareTo(order2) < 0);
+		order1.setTimeStamp(4, 2);
+		assertTrue(order1.placedBefore(order2));
+		assertTrue(comparator.compare(order1, order2) > 0);
+		assertEquals(4, order1.getTimeStamp().getTicks());
+		assertSame(order1.getTimeStamp(), order1.getTimeStamp());
+	}
 }
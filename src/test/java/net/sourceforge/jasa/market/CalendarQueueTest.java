@@ -0,0 +1,165 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jasa.test.PRNGTestSeeds;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class CalendarQueueTest extends TestCase {
+
+	protected CalendarQueue<Long> queue;
+
+	protected RandomEngine prng;
+
+	public CalendarQueueTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		queue = new CalendarQueue<Long>();
+		prng = new MersenneTwister64(PRNGTestSeeds.UNIT_TEST_SEED);
+	}
+
+	public void testEmpty() {
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		assertNull(queue.peek());
+		assertEquals(Double.POSITIVE_INFINITY, queue.peekTime(), 0.0);
+	}
+
+	public void testSimultaneousItemsFirstInFirstOut() {
+		for (long i = 0; i < 100; i++) {
+			queue.add(5.0 + (i % 2), i);
+		}
+		for (long i = 0; i < 100; i += 2) {
+			assertEquals(5.0, queue.peekTime(), 0.0);
+			assertEquals(Long.valueOf(i), queue.poll());
+		}
+		for (long i = 1; i < 100; i += 2) {
+			assertEquals(6.0, queue.peekTime(), 0.0);
+			assertEquals(Long.valueOf(i), queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testMatchesPriorityQueue() {
+		checkAgainstPriorityQueue(1.0, 20000);
+	}
+
+	public void testSparseItems() {
+		checkAgainstPriorityQueue(1E6, 2000);
+	}
+
+	public void testDenseItems() {
+		checkAgainstPriorityQueue(1E-6, 2000);
+	}
+
+	public void testItemsBeforeCurrentTime() {
+		queue.add(10, 1L);
+		queue.add(20, 2L);
+		assertEquals(Long.valueOf(1), queue.poll());
+		queue.add(5, 3L);
+		queue.add(15, 4L);
+		assertEquals(Long.valueOf(3), queue.poll());
+		assertEquals(Long.valueOf(4), queue.poll());
+		assertEquals(Long.valueOf(2), queue.poll());
+	}
+
+	public void testResize() {
+		for (long i = 0; i < 1000; i++) {
+			queue.add(prng.raw() * 100, i);
+		}
+		assertTrue(queue.getNumberOfBuckets() >= 500);
+		assertTrue(queue.getBucketWidth() < 1.0);
+		double previous = Double.NEGATIVE_INFINITY;
+		while (!queue.isEmpty()) {
+			double time = queue.peekTime();
+			assertTrue(time >= previous);
+			queue.poll();
+			previous = time;
+		}
+		assertEquals(CalendarQueue.MIN_BUCKETS, queue.getNumberOfBuckets());
+	}
+
+	public void testInvalidTime() {
+		try {
+			queue.add(Double.NaN, 1L);
+			fail("NaN time accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			queue.add(Double.POSITIVE_INFINITY, 1L);
+			fail("infinite time accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Interleave additions and removals, with every item added after the
+	 * current head of the queue, as in a discrete-event simulation.
+	 */
+	protected void checkAgainstPriorityQueue(double scale, int n) {
+		PriorityQueue<double[]> expected = new PriorityQueue<double[]>(11,
+				new Comparator<double[]>() {
+					public int compare(double[] x, double[] y) {
+						int result = Double.compare(x[0], y[0]);
+						return result != 0 ? result : Double.compare(x[1], y[1]);
+					}
+				});
+		double now = 0;
+		long id = 0;
+		for (int i = 0; i < n; i++) {
+			int additions = (int) (prng.raw() * 3);
+			for (int j = 0; j < additions; j++) {
+				double time = now + prng.raw() * scale;
+				queue.add(time, id);
+				expected.add(new double[] { time, id });
+				id++;
+			}
+			if (!expected.isEmpty()) {
+				double[] next = expected.poll();
+				assertEquals(next[0], queue.peekTime(), 0.0);
+				assertEquals(Long.valueOf((long) next[1]), queue.poll());
+				now = next[0];
+			}
+			assertEquals(expected.size(), queue.size());
+		}
+		while (!expected.isEmpty()) {
+			assertEquals(Long.valueOf((long) expected.poll()[1]), queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	public static Test suite() {
+		return new TestSuite(CalendarQueueTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jasa.agent.MockTrader;
+import net.sourceforge.jasa.test.PRNGTestSeeds;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class CallMarketOrderBookTest extends TestCase {
+
+	MarketSimulation auction;
+
+	Random prng;
+
+	public CallMarketOrderBookTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		auction = new MarketSimulation();
+		auction.setSimulationController(new SpringSimulationController());
+		prng = new Random(PRNGTestSeeds.UNIT_TEST_SEED);
+	}
+
+	public Order randomOrder() {
+		MockTrader trader = new MockTrader(this, 0, 0, auction);
+		int quantity = 1 + prng.nextInt(50);
+		double price = Math.round(prng.nextDouble() * 10000) / 100.0;
+		return new Order(trader, quantity, price, prng.nextBoolean());
+	}
+
+	public void testSameEquilibriumAsFourHeap() throws Exception {
+		checkSameEquilibriumAsFourHeap(new CallMarketOrderBook());
+	}
+
+	public void testParallelSort() throws Exception {
+		CallMarketOrderBook book = new CallMarketOrderBook();
+		book.setParallelSortThreshold(0);
+		checkSameEquilibriumAsFourHeap(book);
+	}
+
+	public void checkSameEquilibriumAsFourHeap(CallMarketOrderBook book)
+			throws Exception {
+		FourHeapOrderBook fourHeap = new FourHeapOrderBook();
+		for (int i = 0; i < 500; i++) {
+			Order order = randomOrder();
+			book.add(order);
+			fourHeap.add((Order) order.clone());
+		}
+		assertPriceEquals(fourHeap.getLowestMatchedBid(),
+				book.getLowestMatchedBid());
+		assertPriceEquals(fourHeap.getHighestMatchedAsk(),
+				book.getHighestMatchedAsk());
+		assertPriceEquals(fourHeap.getHighestUnmatchedBid(),
+				book.getHighestUnmatchedBid());
+		assertPriceEquals(fourHeap.getLowestUnmatchedAsk(),
+				book.getLowestUnmatchedAsk());
+		VolumeCounter expected = new VolumeCounter();
+		VolumeCounter actual = new VolumeCounter();
+		fourHeap.matchOrders(expected);
+		book.matchOrders(actual);
+		assertTrue(actual.volume > 0);
+		assertEquals(expected.volume, actual.volume);
+		assertEquals(0, book.getMatchedVolume());
+		assertNull(book.getLowestMatchedBid());
+		assertPriceEquals(fourHeap.getHighestUnmatchedBid(),
+				book.getHighestUnmatchedBid());
+		assertPriceEquals(fourHeap.getLowestUnmatchedAsk(),
+				book.getLowestUnmatchedAsk());
+	}
+
+	public void testPartialFill() throws Exception {
+		CallMarketOrderBook book = new CallMarketOrderBook();
+		MockTrader buyer = new MockTrader(this, 0, 0, auction);
+		MockTrader seller = new MockTrader(this, 0, 0, auction);
+		Order bid = new Order(buyer, 10, 10.0, true);
+		Order ask1 = new Order(seller, 3, 5.0, false);
+		Order ask2 = new Order(seller, 1, 6.0, false);
+		Order ask3 = new Order(seller, 2, 11.0, false);
+		book.add(ask1);
+		book.add(bid);
+		book.add(ask3);
+		book.add(ask2);
+		assertEquals(4, book.getMatchedVolume());
+		assertSame(bid, book.getLowestMatchedBid());
+		assertSame(bid, book.getHighestUnmatchedBid());
+		assertSame(ask2, book.getHighestMatchedAsk());
+		assertSame(ask3, book.getLowestUnmatchedAsk());
+		ArrayList<Order> matched = new ArrayList<Order>();
+		for (Order entry : book.matchOrders()) {
+			assertTrue(entry.isFilled());
+			matched.add(entry.getOrigin());
+		}
+		assertEquals(4, matched.size());
+		assertSame(bid, matched.get(0));
+		assertSame(ask2, matched.get(1));
+		assertSame(bid, matched.get(2));
+		assertSame(ask1, matched.get(3));
+		assertFalse(bid.isFilled());
+		assertEquals(6, bid.getQuantity());
+		assertEquals(4, bid.getFilledQuantity());
+		assertTrue(ask1.isFilled());
+		assertTrue(ask2.isFilled());
+		assertEquals(2, book.size());
+		assertSame(bid, book.getHighestUnmatchedBid());
+		assertSame(ask3, book.getLowestUnmatchedAsk());
+	}
+
+	public void testUnmatchedOrdersAreSnapshots() throws Exception {
+		CallMarketOrderBook book = new CallMarketOrderBook();
+		Order bid = new Order(new MockTrader(this, 0, 0, auction), 1, 5.0,
+				true);
+		Order ask = new Order(new MockTrader(this, 0, 0, auction), 1, 10.0,
+				false);
+		book.add(bid);
+		book.add(ask);
+		List<Order> unmatchedBids = book.getUnmatchedBids();
+		List<Order> unmatchedAsks = book.getUnmatchedAsks();
+		assertEquals(1, book.getDepth());
+		book.remove(bid);
+		book.remove(ask);
+		book.add(new Order(new MockTrader(this, 0, 0, auction), 1, 7.0, true));
+		book.getLowestMatchedBid();
+		assertEquals(1, unmatchedBids.size());
+		assertSame(bid, unmatchedBids.get(0));
+		assertEquals(1, unmatchedAsks.size());
+		assertSame(ask, unmatchedAsks.get(0));
+	}
+
+	protected void assertPriceEquals(Order expected, Order actual) {
+		if (expected == null) {
+			assertNull(actual);
+		} else {
+			assertEquals(expected.getPriceAsDouble(),
+					actual.getPriceAsDouble(), 0.0);
+		}
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(CallMarketOrderBookTest.class);
+	}
+
+}
+
+class VolumeCounter implements FillHandler {
+
+	int volume = 0;
+
+	public void onFill(Fill fill) {
+		assert fill.getBid().getPriceAsDouble() >= fill.getAsk()
+				.getPriceAsDouble();
+		volume += fill.getQuantity();
+	}
+}
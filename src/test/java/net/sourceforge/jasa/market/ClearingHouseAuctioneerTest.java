@@ -14,6 +14,8 @@
  */
 package net.sourceforge.jasa.market;
 
+import java.util.ArrayList;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import net.sourceforge.jabm.event.RoundFinishedEvent;
@@ -178,6 +180,81 @@ public class ClearingHouseAuctioneerTest extends AuctioneerTest {
 		}
 	}
 
+	public void testPlaceOrders() throws AuctionException {
+		ArrayList<Order> batch = new ArrayList<Order>();
+		batch.add(new Order(traders[0], 1, 920, true));
+		batch.add(new Order(traders[1], 1, 950, true));
+		batch.add(new Order(traders[2], 2, 900, false));
+		Order lastAsk = new Order(traders[3], 1, 990, false);
+		batch.add(lastAsk);
+		auction.placeOrders(batch);
+		assertSame(lastAsk, auctioneer.getLastShout());
+		assertEquals(950.0, auctioneer.getLastBid().getPriceAsDouble(), 0.0);
+
+		auctioneer.eventOccurred(new RoundFinishedEvent(null));
+		assertTrue(traders[0].lastWinningPrice == 900);
+		assertTrue(traders[1].lastWinningPrice == 900);
+		assertEquals(1, auctioneer.getUnmatchedAsks().size());
+		assertSame(lastAsk, auctioneer.getUnmatchedAsks().get(0));
+	}
+
+	public void testPlaceOrdersNotMatchedWithinAgent() throws AuctionException {
+		checkPlaceOrdersNotMatchedWithinAgent();
+	}
+
+	public void testPlaceOrdersNotMatchedWithinAgentCallMarket()
+			throws AuctionException {
+		((AbstractAuctioneer) auctioneer)
+				.setOrderBook(new CallMarketOrderBook());
+		checkPlaceOrdersNotMatchedWithinAgent();
+	}
+
+	protected void checkPlaceOrdersNotMatchedWithinAgent()
+			throws AuctionException {
+		ArrayList<Order> batch = new ArrayList<Order>();
+		Order bid = new Order(traders[0], 1, 950, true);
+		Order ownAsk = new Order(traders[0], 1, 900, false);
+		Order otherAsk = new Order(traders[2], 1, 920, false);
+		batch.add(bid);
+		batch.add(ownAsk);
+		batch.add(otherAsk);
+		auction.placeOrders(batch);
+		assertSame(bid, orderBook().getLowestMatchedBid());
+		assertSame(otherAsk, orderBook().getHighestMatchedAsk());
+
+		auctioneer.eventOccurred(new RoundFinishedEvent(null));
+		assertTrue(traders[0].lastWinningPrice == 920);
+		assertEquals(0, auctioneer.getUnmatchedBids().size());
+		assertEquals(1, auctioneer.getUnmatchedAsks().size());
+		assertSame(ownAsk, auctioneer.getUnmatchedAsks().get(0));
+	}
+
+	public void testNewOrdersRejectsDuplicates() throws AuctionException {
+		checkNewOrdersRejectsDuplicates();
+		((AbstractAuctioneer) auctioneer)
+				.setOrderBook(new CallMarketOrderBook());
+		checkNewOrdersRejectsDuplicates();
+	}
+
+	protected void checkNewOrdersRejectsDuplicates() 
+			throws AuctionException {
+		ArrayList<Order> batch = new ArrayList<Order>();
+		Order bid = new Order(traders[0], 1, 950, true);
+		batch.add(bid);
+		batch.add(new Order(traders[2], 1, 900, false));
+		batch.add(bid);
+		try {
+			auctioneer.newOrders(batch);
+			fail("duplicate order accepted");
+		} catch (DuplicateShoutException e) {
+		}
+		assertTrue(orderBook().isEmpty());
+	}
+
+	protected OrderBook orderBook() {
+		return ((AbstractAuctioneer) auctioneer).getOrderBook();
+	}
+
 	public static Test suite() {
 		return new TestSuite(ClearingHouseAuctioneerTest.class);
 	}
@@ -15,8 +15,16 @@
 
 package net.sourceforge.jasa.market;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.Test;
 import junit.framework.TestSuite;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jasa.event.MarketEvent;
+import net.sourceforge.jasa.event.OrderPlacedEvent;
+import net.sourceforge.jasa.event.TransactionExecutedEvent;
 import net.sourceforge.jasa.market.auctioneer.AbstractAuctioneer;
 import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
 import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
@@ -53,6 +61,126 @@ public class ContinuousDoubleAuctioneerTest extends AuctioneerTest {
 //		assertTrue(!shoutOK(new Order(traders[2], 1, 26, false)));
 //	}
 
+	public void testAmendOrder() throws AuctionException {
+		Order bid = new Order(traders[0], 1, 21, true);
+		Order ask = new Order(traders[2], 1, 43, false);
+		auction.placeOrder(bid);
+		auction.placeOrder(ask);
+		assertTrue(auction.amendOrder(bid, 21, 1));
+		assertEquals(21.0, auctioneer.getQuote().getBid(), 0.0);
+		assertTrue(auction.amendOrder(bid, 30, 1));
+		assertEquals(30.0, auctioneer.getQuote().getBid(), 0.0);
+		assertTrue(auction.amendOrder(bid, 50, 1));
+		assertTrue(auctioneer.orderFilled(bid));
+		assertFalse(auction.amendOrder(bid, 40, 1));
+	}
+
+	public void testQuoteUpdatedInPlace() throws AuctionException {
+		auction.placeOrder(new Order(traders[0], 1, 21, true));
+		MarketQuote quote = auctioneer.getQuote();
+		long version = quote.getVersion();
+		assertEquals(21.0, quote.getBid(), 0.0);
+		assertSame(quote, auctioneer.getQuote());
+		assertFalse(quote.hasChangedSince(version));
+		auction.placeOrder(new Order(traders[1], 1, 10, true));
+		assertSame(quote, auctioneer.getQuote());
+		assertFalse(quote.hasChangedSince(version));
+		auction.placeOrder(new Order(traders[2], 1, 43, false));
+		assertSame(quote, auctioneer.getQuote());
+		assertTrue(quote.hasChangedSince(version));
+		assertEquals(43.0, quote.getAsk(), 0.0);
+		assertEquals(21.0, quote.getBid(), 0.0);
+		MarketQuote snapshot = new MarketQuote(quote);
+		auction.placeOrder(new Order(traders[3], 1, 30, false));
+		assertEquals(43.0, snapshot.getAsk(), 0.0);
+		assertEquals(30.0, quote.getAsk(), 0.0);
+	}
+
+	public void testReusedEvents() throws AuctionException {
+		auction.setReuseEvents(true);
+		final List<SimEvent> events = new ArrayList<SimEvent>();
+		final List<Order> orders = new ArrayList<Order>();
+		auction.addListener(new EventListener() {
+			public void eventOccurred(SimEvent event) {
+				if (event instanceof OrderPlacedEvent) {
+					events.add(event);
+					orders.add(((OrderPlacedEvent) event).getOrder());
+				} else if (event instanceof TransactionExecutedEvent) {
+					events.add(event);
+					orders.add(((TransactionExecutedEvent) event).getBid());
+				}
+			}
+		});
+		Order bid = new Order(traders[0], 1, 21, true);
+		Order ask = new Order(traders[2], 1, 20, false);
+		auction.placeOrder(bid);
+		auction.placeOrder(ask);
+		assertEquals(3, events.size());
+		assertSame(events.get(0), events.get(2));
+		assertTrue(events.get(1) instanceof TransactionExecutedEvent);
+		assertSame(bid, orders.get(0));
+		assertSame(bid, orders.get(1));
+		assertSame(ask, orders.get(2));
+	}
+
+	public void testNestedEventsNotReused() throws AuctionException {
+		auction.setReuseEvents(true);
+		final Order bid = new Order(traders[0], 1, 21, true);
+		final Order nested = new Order(traders[1], 1, 10, true);
+		final List<OrderPlacedEvent> events = new ArrayList<OrderPlacedEvent>();
+		auction.addListener(new EventListener() {
+			public void eventOccurred(SimEvent ev) {
+				if (ev instanceof OrderPlacedEvent) {
+					OrderPlacedEvent event = (OrderPlacedEvent) ev;
+					events.add(event);
+					if (event.getOrder() == bid) {
+						try {
+							auction.placeOrder(nested);
+						} catch (AuctionException e) {
+							fail(e.getMessage());
+						}
+						assertSame(bid, event.getOrder());
+					}
+				}
+			}
+		});
+		auction.placeOrder(bid);
+		assertEquals(2, events.size());
+		assertNotSame(events.get(0), events.get(1));
+	}
+
+	public void testPhysicalTime() throws AuctionException {
+		final List<MarketEvent> events = new ArrayList<MarketEvent>();
+		auction.addListener(new EventListener() {
+			public void eventOccurred(SimEvent event) {
+				if (event instanceof OrderPlacedEvent) {
+					events.add((MarketEvent) event);
+				}
+			}
+		});
+		long before = System.currentTimeMillis();
+		auction.placeOrder(new Order(traders[0], 1, 21, true));
+		long requested = events.get(0).getPhysicalTime();
+		assertTrue(requested >= before);
+		assertEquals(requested, events.get(0).getPhysicalTime());
+		auction.setWallClockTimestamps(true);
+		auction.placeOrder(new Order(traders[1], 1, 10, true));
+		long after = System.currentTimeMillis();
+		assertTrue(events.get(1).getPhysicalTime() >= before);
+		assertTrue(events.get(1).getPhysicalTime() <= after);
+	}
+
+	public void testOrderSequenceNumbers() throws AuctionException {
+		Order bid = new Order(traders[0], 1, 21, true);
+		Order ask = new Order(traders[2], 1, 43, false);
+		auction.placeOrder(bid);
+		auction.placeOrder(ask);
+		assertEquals(bid.getTime(), ask.getTime());
+		assertTrue(bid.getSequenceNumber() < ask.getSequenceNumber());
+		assertTrue(bid.placedBefore(ask));
+		assertEquals(auction.getAge(), bid.getTimeStamp().getTicks());
+	}
+
 	public boolean shoutOK(Order newShout) {
 		try {
 			auctioneer.newOrder(newShout);
@@ -0,0 +1,143 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.event.AgentArrivalEvent;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jasa.agent.FixedLatencyArrivalProcess;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.strategy.TruthTellingStrategy;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class EventDrivenMarketSimulationTest extends TestCase 
+		implements EventListener {
+
+	protected EventDrivenMarketSimulation market;
+
+	protected SpringSimulationController controller;
+
+	protected Map<Agent, Integer> arrivals;
+
+	public EventDrivenMarketSimulationTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		controller = new SpringSimulationController();
+		market = new EventDrivenMarketSimulation(controller);
+		market.setPopulation(new Population());
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.addListener(this);
+		arrivals = new IdentityHashMap<Agent, Integer>();
+	}
+
+	public void testFixedLatency() {
+		TokenTradingAgent buyer = createAgent(10, true);
+		TokenTradingAgent seller = createAgent(20, false);
+		market.setArrivalProcess(new FixedLatencyArrivalProcess(0.5));
+		market.setMaximumRounds(10);
+		market.run();
+		assertEquals(19, getArrivals(buyer));
+		assertEquals(19, getArrivals(seller));
+		assertEquals(38, market.getNumberOfArrivals());
+		assertEquals(0, buyer.getQuantityTraded());
+	}
+
+	public void testHeterogeneousLatencies() {
+		TokenTradingAgent fast = createAgent(10, true);
+		TokenTradingAgent slow = createAgent(20, false);
+		fast.setArrivalProcess(new FixedLatencyArrivalProcess(0.25));
+		slow.setArrivalProcess(new FixedLatencyArrivalProcess(2));
+		market.setMaximumRounds(10);
+		market.run();
+		assertEquals(39, getArrivals(fast));
+		assertEquals(4, getArrivals(slow));
+	}
+
+	public void testInactiveAgentsNotScheduled() {
+		TokenTradingAgent buyer = createAgent(100, true);
+		TokenTradingAgent seller = createAgent(50, false);
+		market.setArrivalProcess(new FixedLatencyArrivalProcess(0.5));
+		market.setLengthOfDay(5);
+		market.setMaximumDays(2);
+		market.run();
+		// Each agent trades at its first arrival of the day, and then 
+		// arrives once more to find that it has exhausted its entitlement.
+		assertEquals(4, getArrivals(buyer));
+		assertEquals(4, getArrivals(seller));
+		assertEquals(2, buyer.getQuantityTraded());
+		assertEquals(2, seller.getQuantityTraded());
+	}
+
+	public void testNoArrivalProcess() {
+		createAgent(10, true);
+		market.setMaximumRounds(10);
+		try {
+			market.run();
+			fail("market ran without an arrival process");
+		} catch (AuctionRuntimeException e) {
+		}
+	}
+
+	public TokenTradingAgent createAgent(double value, boolean isBuyer) {
+		TokenTradingAgent agent = new TokenTradingAgent(value, 1, controller);
+		TruthTellingStrategy strategy = new TruthTellingStrategy(agent);
+		strategy.setBuy(isBuyer);
+		agent.setStrategy(strategy);
+		market.register(agent);
+		return agent;
+	}
+
+	public int getArrivals(Agent agent) {
+		Integer result = arrivals.get(agent);
+		return result == null ? 0 : result;
+	}
+
+	public void eventOccurred(SimEvent event) {
+		if (event instanceof AgentArrivalEvent) {
+			Agent agent = ((AgentArrivalEvent) event).getSubject();
+			arrivals.put(agent, getArrivals(agent) + 1);
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(EventDrivenMarketSimulationTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -18,6 +18,7 @@ package net.sourceforge.jasa.market;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Random;
 
 import junit.framework.Test;
@@ -50,8 +51,12 @@ public class FourHeapTest extends TestCase {
 		auction.setSimulationController(new SpringSimulationController());
 	}
 
+	public TestShoutEngine createOrderBook() {
+		return new TestShoutEngine();
+	}
+
 	public void setUp() {
-		book = new TestShoutEngine();
+		book = createOrderBook();
 		randGenerator = new Random(PRNGTestSeeds.UNIT_TEST_SEED);
 		initialiseAuction();
 //		org.apache.log4j.BasicConfigurator.configure();
@@ -118,8 +123,17 @@ public class FourHeapTest extends TestCase {
 			assertNoMatches();
 			
 			// Test for bug #3523823
-			book.add(sell1);
-			book.add(buy1);
+			book.add(new Order(trader1, 1, 5.0, false));
+			book.add(new Order(trader1, 1, 10.0, true));
+			
+			assertNoMatches();
+			
+			try {
+				book.add(sell1);
+				fail("An order already in the book cannot be added again");
+			} catch (DuplicateShoutException e) {
+				// expected
+			}
 			
 			assertNoMatches();
 			
@@ -206,7 +220,8 @@ public class FourHeapTest extends TestCase {
 
 			// Order should remain on the book with the outstanding volume
 			assertTrue(buy.getQuantity() == 5);
-			assertTrue(book.bOut.contains(buy.getChild()));
+			assertTrue(book.bOut.contains(buy));
+			assertEquals(5, buy.getFilledQuantity());
 
 		} catch (DuplicateShoutException e) {
 			e.printStackTrace();
@@ -463,6 +478,192 @@ public class FourHeapTest extends TestCase {
 		submitOrders(supply);
 	}
 
+	public void testAmend() {
+		try {
+			TradingAgent buyer = new MockTrader(this, 0, 0, auction);
+			TradingAgent seller = new MockTrader(this, 0, 0, auction);
+			Order bid1 = new Order(buyer, 1, 5.0, true);
+			Order bid2 = new Order(buyer, 1, 6.0, true);
+			Order ask = new Order(seller, 1, 10.0, false);
+			book.add(bid1);
+			book.add(bid2);
+			book.add(ask);
+			assertTrue(book.getHighestUnmatchedBid() == bid2);
+
+			// unchanged amendments leave the book untouched
+			assertTrue(book.amend(bid1, 5.0, 1));
+			assertTrue(book.getHighestUnmatchedBid() == bid2);
+
+			// an unmatched bid which does not cross is repositioned in place
+			assertTrue(book.amend(bid1, 7.0, 1));
+			assertTrue(book.getHighestUnmatchedBid() == bid1);
+			assertEquals(2, book.bOut.size());
+			assertTrue(book.bIn.isEmpty());
+
+			// a crossing bid is matched against the ask
+			assertTrue(book.amend(bid1, 12.0, 1));
+			assertTrue(book.getLowestMatchedBid() == bid1);
+			assertTrue(book.getHighestMatchedAsk() == ask);
+			assertTrue(book.getHighestUnmatchedBid() == bid2);
+
+			// an ask which no longer crosses is moved back to the unmatched asks
+			assertTrue(book.amend(ask, 13.0, 1));
+			assertTrue(book.getLowestUnmatchedAsk() == ask);
+			assertTrue(book.getHighestUnmatchedBid() == bid1);
+			assertTrue(book.sIn.isEmpty());
+			assertTrue(book.bIn.isEmpty());
+
+			// orders which are not in the book cannot be amended
+			Order absent = new Order(buyer, 1, 8.0, true);
+			assertFalse(book.amend(absent, 9.0, 1));
+			assertEquals(8.0, absent.getPriceAsDouble(), 0.0);
+		} catch (DuplicateShoutException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	public void testPartialFillsReferToOriginalOrders() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		TradingAgent trader2 = new MockTrader(this, 0, 0, auction);
+		final Order buy = new Order(trader1, 20, 10.0, true);
+		final List<Integer> fills = new ArrayList<Integer>();
+		FillHandler handler = new FillHandler() {
+			public void onFill(Fill fill) {
+				assertTrue(fill.getBid() == buy);
+				assertFalse(fill.getAsk().isFragment());
+				fills.add(fill.getQuantity());
+			}
+		};
+		try {
+			book.add(buy);
+			Order fragment = null;
+			for (int i = 0; i < 4; i++) {
+				book.add(new Order(trader2, 3, 5.0, false));
+				Order matched = book.getLowestMatchedBid();
+				assertTrue(matched.isFragment());
+				assertTrue(matched.getOrigin() == buy);
+				if (fragment != null) {
+					// fragments are recycled once they have been filled
+					assertTrue(matched == fragment);
+				}
+				book.matchOrders(handler);
+				fragment = matched;
+				assertEquals(3 * (i + 1), buy.getFilledQuantity());
+				assertEquals(20 - 3 * (i + 1), buy.getRemainingQuantity());
+			}
+			assertEquals(4, fills.size());
+			assertTrue(book.bOut.contains(buy));
+			assertEquals(8, buy.getQuantity());
+			assertEquals(20, buy.aggregateVolume());
+		} catch (DuplicateShoutException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	public void testRemovePartiallyMatchedOrder() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		TradingAgent trader2 = new MockTrader(this, 0, 0, auction);
+		Order buy = new Order(trader1, 10, 10.0, true);
+		Order sell = new Order(trader2, 4, 5.0, false);
+		try {
+			book.add(buy);
+			book.add(sell);
+			assertEquals(10, buy.getRemainingQuantity());
+			book.remove(buy);
+			assertTrue(book.bIn.isEmpty());
+			assertTrue(book.bOut.isEmpty());
+			assertTrue(book.sIn.isEmpty());
+			assertTrue(book.getLowestUnmatchedAsk() == sell);
+		} catch (DuplicateShoutException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	public void testPartialFillWithinPriceLevel() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		TradingAgent trader2 = new MockTrader(this, 0, 0, auction);
+		TradingAgent trader3 = new MockTrader(this, 0, 0, auction);
+		Order a = new Order(trader1, 5, 10.0, true);
+		Order b = new Order(trader2, 4, 10.0, true);
+		Order sell = new Order(trader3, 2, 5.0, false);
+		try {
+			book.add(a);
+			book.add(b);
+			book.add(sell);
+			assertEquals(3, a.getQuantity());
+			assertTrue(book.getHighestUnmatchedBid() == b);
+			book.remove(b);
+			assertTrue(book.getHighestUnmatchedBid() == a);
+		} catch (DuplicateShoutException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		}
+	}
+
+	public void testAddAll() {
+		try {
+			ArrayList<Order> resting = new ArrayList<Order>();
+			ArrayList<Order> batch = new ArrayList<Order>();
+			for (int i = 0; i < 200; i++) {
+				Order shout = randomShout(new MockTrader(this, 0, 0, auction));
+				if (i < 50) {
+					resting.add(shout);
+				} else {
+					batch.add(shout);
+				}
+			}
+			TestShoutEngine incremental = createOrderBook();
+			for (Order shout : resting) {
+				book.add((Order) shout.clone());
+				incremental.add((Order) shout.clone());
+			}
+			ArrayList<Order> copies = new ArrayList<Order>();
+			for (Order shout : batch) {
+				copies.add((Order) shout.clone());
+				incremental.add(shout);
+			}
+			book.addAll(copies);
+			assertEquals(matchedVolume(incremental.bIn),
+					matchedVolume(book.bIn));
+			assertEquals(matchedVolume(incremental.sIn),
+					matchedVolume(book.sIn));
+			assertEquals(matchedVolume(book.bIn), matchedVolume(book.sIn));
+			assertPriceEquals(incremental.getLowestMatchedBid(),
+					book.getLowestMatchedBid());
+			assertPriceEquals(incremental.getHighestMatchedAsk(),
+					book.getHighestMatchedAsk());
+			assertPriceEquals(incremental.getHighestUnmatchedBid(),
+					book.getHighestUnmatchedBid());
+			assertPriceEquals(incremental.getLowestUnmatchedAsk(),
+					book.getLowestUnmatchedAsk());
+		} catch (DuplicateShoutException e) {
+			e.printStackTrace();
+			fail(e.getMessage());
+		} catch (CloneNotSupportedException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	protected int matchedVolume(Queue<Order> heap) {
+		int volume = 0;
+		for (Order shout : heap) {
+			volume += shout.getQuantity();
+		}
+		return volume;
+	}
+
+	protected void assertPriceEquals(Order expected, Order actual) {
+		if (expected == null) {
+			assertNull(actual);
+		} else {
+			assertEquals(expected.getPriceAsDouble(),
+					actual.getPriceAsDouble(), 0.0);
+		}
+	}
+
 //	public void testRandom() {
 //
 //		int matches = 0;
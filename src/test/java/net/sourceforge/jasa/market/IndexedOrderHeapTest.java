@@ -0,0 +1,154 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jasa.agent.MockTrader;
+import net.sourceforge.jasa.test.PRNGTestSeeds;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class IndexedOrderHeapTest extends TestCase {
+
+	MockTrader trader;
+
+	Random prng;
+
+	public IndexedOrderHeapTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		MarketSimulation auction = new MarketSimulation();
+		auction.setSimulationController(new SpringSimulationController());
+		trader = new MockTrader(this, 0, 0, auction);
+		prng = new Random(PRNGTestSeeds.UNIT_TEST_SEED);
+	}
+
+	public Order randomOrder() {
+		double price = Math.round(prng.nextDouble() * 10000) / 100.0;
+		return new Order(trader, 1 + prng.nextInt(10), price, true);
+	}
+
+	public void testRemoveArbitraryOrders() {
+		AscendingOrderComparator ordering = new AscendingOrderComparator();
+		IndexedOrderHeap heap = new IndexedOrderHeap(ordering);
+		ArrayList<Order> reference = new ArrayList<Order>();
+		for (int i = 0; i < 500; i++) {
+			Order order = randomOrder();
+			heap.add(order);
+			reference.add(order);
+		}
+		for (int i = 0; i < 250; i++) {
+			Order victim = reference.remove(prng.nextInt(reference.size()));
+			assertTrue(heap.contains(victim));
+			assertTrue(heap.remove(victim));
+			assertFalse(heap.contains(victim));
+			assertFalse(heap.remove(victim));
+		}
+		Collections.sort(reference, ordering);
+		assertEquals(reference.size(), heap.size());
+		for (Order expected : reference) {
+			Order actual = heap.poll();
+			assertEquals(0, ordering.compare(expected, actual));
+		}
+		assertTrue(heap.isEmpty());
+	}
+
+	public void testSingleMembership() {
+		IndexedOrderHeap bids = new IndexedOrderHeap(
+				new DescendingOrderComparator());
+		IndexedOrderHeap asks = new IndexedOrderHeap(
+				new AscendingOrderComparator());
+		Order order = randomOrder();
+		bids.add(order);
+		try {
+			bids.add(order);
+			fail("An order cannot be held twice by the same heap");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(1, bids.size());
+		try {
+			asks.add(order);
+			fail("An order cannot be held in two heaps");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		bids.clear();
+		asks.add(order);
+		assertTrue(asks.contains(order));
+		assertFalse(bids.contains(order));
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	public void testHandlesRestoredOnDeserialisation() throws Exception {
+		IndexedOrderHeap heap = new IndexedOrderHeap(
+				new AscendingOrderComparator());
+		for (int i = 0; i < 50; i++) {
+			heap.add(new Order(null, 1, prng.nextInt(100), true));
+		}
+		Order detached = new Order(null, 1, 10, true);
+		heap.add(detached);
+		heap.remove(detached);
+		heap.add(detached);
+		Object[] copies = (Object[]) roundTrip(new Object[] { heap, detached });
+		IndexedOrderHeap heapCopy = (IndexedOrderHeap) copies[0];
+		Order copy = (Order) copies[1];
+		assertEquals(51, heapCopy.size());
+		assertTrue(heapCopy.contains(copy));
+		assertTrue(heapCopy.remove(copy));
+		assertFalse(heapCopy.contains(copy));
+		heapCopy.add(copy);
+		Order order = (Order) roundTrip(detached);
+		assertFalse(heap.contains(order));
+		assertFalse(heapCopy.contains(order));
+		heap.remove(detached);
+		heap.add(order);
+		assertTrue(heap.contains(order));
+	}
+
+	protected Object roundTrip(Object object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+	}
+
+	public static Test suite() {
+		return new TestSuite(IndexedOrderHeapTest.class);
+	}
+
+}
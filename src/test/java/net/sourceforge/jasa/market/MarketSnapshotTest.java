@@ -0,0 +1,198 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.strategy.GDStrategy;
+import net.sourceforge.jasa.agent.strategy.RandomConstrainedStrategy;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import net.sourceforge.jasa.report.HistoricalDataReport;
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MarketSnapshotTest extends TestCase {
+
+	protected MarketSimulation market;
+
+	protected SpringSimulationController controller;
+
+	protected RandomEngine prng;
+
+	protected Uniform values;
+
+	public static final int NUM_AGENTS = 20;
+
+	public MarketSnapshotTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		prng = new MersenneTwister64(42);
+		controller = new SpringSimulationController();
+		market = new MarketSimulation(controller);
+		market.setPopulation(new Population());
+		market.setAgentMixer(new RandomRobinAgentMixer(prng));
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setLengthOfDay(20);
+		market.setMaximumDays(4);
+		values = new Uniform(50, 150, prng);
+	}
+
+	public void testForkIsIndependent() {
+		addZeroIntelligenceTraders();
+		runUntilDay(2);
+		MarketSimulation fork = market.fork();
+		assertNotSame(market, fork);
+		assertNotSame(market.getAuctioneer(), fork.getAuctioneer());
+		assertNotSame(controller, fork.getSimulationController());
+		assertEquals(market.getDay(), fork.getDay());
+		assertEquals(market.getAge(), fork.getAge());
+		List<Agent> originalAgents = getAgents(market);
+		List<Agent> forkedAgents = getAgents(fork);
+		assertEquals(originalAgents.size(), forkedAgents.size());
+		for (int i = 0; i < originalAgents.size(); i++) {
+			assertNotSame(originalAgents.get(i), forkedAgents.get(i));
+		}
+		List<Double> before = getFunds(market);
+		assertEquals(before, getFunds(fork));
+		fork.completeRun();
+		assertTrue(fork.isClosed());
+		assertEquals(4, fork.getDay());
+		assertFalse(market.isClosed());
+		assertEquals(2, market.getDay());
+		assertEquals(before, getFunds(market));
+	}
+
+	public void testForksContinueIdentically() {
+		addZeroIntelligenceTraders();
+		runUntilDay(2);
+		MarketSnapshot snapshot = market.snapshot(prng);
+		MarketSimulation first = snapshot.restore();
+		MarketSimulation second = snapshot.restore();
+		first.completeRun();
+		second.completeRun();
+		market.completeRun();
+		assertEquals(getFunds(market), getFunds(first));
+		assertEquals(getFunds(market), getFunds(second));
+	}
+
+	public void testAlternativeFutures() {
+		addZeroIntelligenceTraders();
+		runUntilDay(2);
+		MarketSnapshot snapshot = market.snapshot(prng);
+		MarketSimulation alternative = 
+				snapshot.restore(new MersenneTwister64(7));
+		alternative.completeRun();
+		market.completeRun();
+		assertFalse(getFunds(market).equals(getFunds(alternative)));
+		try {
+			new MarketSnapshot(market).restore(new MersenneTwister64(7));
+			fail("No random number generator was designated");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testForkWithHistoricalDataReport() {
+		HistoricalDataReport history = new HistoricalDataReport();
+		history.setAuction(market);
+		controller.addListener(history);
+		for (int i = 0; i < NUM_AGENTS; i++) {
+			TokenTradingAgent agent = 
+					new TokenTradingAgent(values.nextDouble(), 1, controller);
+			GDStrategy strategy = new GDStrategy();
+			strategy.setHistoryStats(history);
+			strategy.setBuy(i % 2 == 0);
+			strategy.setAgent(agent);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+		runUntilDay(2);
+		MarketSnapshot snapshot = market.snapshot(prng, history);
+		MarketSimulation fork = snapshot.restore();
+		AbstractTradingAgent agent = 
+				(AbstractTradingAgent) getAgents(fork).get(0);
+		HistoricalDataReport forkedHistory = 
+				((GDStrategy) agent.getStrategy()).getHistoryStats();
+		assertNotSame(history, forkedHistory);
+		fork.completeRun();
+		market.completeRun();
+		assertEquals(getFunds(market), getFunds(fork));
+	}
+
+	protected void addZeroIntelligenceTraders() {
+		Uniform markups = new Uniform(0, 50, prng);
+		for (int i = 0; i < NUM_AGENTS; i++) {
+			TokenTradingAgent agent = 
+					new TokenTradingAgent(values.nextDouble(), 1, controller);
+			RandomConstrainedStrategy strategy = 
+					new RandomConstrainedStrategy(agent);
+			strategy.setBuy(i % 2 == 0);
+			strategy.setMarkupDistribution(markups);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+	}
+
+	protected void runUntilDay(int day) {
+		market.initialise();
+		market.begin();
+		while (market.getDay() < day) {
+			market.step();
+		}
+	}
+
+	protected List<Agent> getAgents(MarketSimulation market) {
+		return new ArrayList<Agent>(market.getTraders().getAgents());
+	}
+
+	protected List<Double> getFunds(MarketSimulation market) {
+		List<Double> funds = new ArrayList<Double>();
+		for (Agent agent : market.getTraders().getAgents()) {
+			funds.add(((AbstractTradingAgent) agent).getFunds());
+		}
+		return funds;
+	}
+
+	public static Test suite() {
+		return new TestSuite(MarketSnapshotTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import net.sourceforge.jasa.agent.MockTrader;
+import net.sourceforge.jasa.agent.TradingAgent;
+
+/**
+ * Runs the 4-Heap test suite against a book whose heaps are price-level
+ * ladders.
+ * 
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class PriceLevelOrderBookTest extends FourHeapTest {
+
+	public PriceLevelOrderBookTest(String name) {
+		super(name);
+	}
+
+	@Override
+	public TestShoutEngine createOrderBook() {
+		return new TestShoutEngine() {
+			@Override
+			protected Queue<Order> createHeap(OrderComparator ordering) {
+				return new PriceLevelQueue(ordering);
+			}
+		};
+	}
+
+	public void testArrivalOrderWithinLevelWhenTied() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		Order buy1 = new Order(trader1, 1, 5.0, true);
+		Order buy2 = new Order(trader1, 1, 5.0, true);
+		Order buy3 = new Order(trader1, 1, 6.0, true);
+
+		PriceLevelQueue bids = new PriceLevelQueue(-1);
+		bids.add(buy1);
+		bids.add(buy2);
+		bids.add(buy3);
+		assertEquals(2, bids.getNumberOfLevels());
+		assertTrue(bids.poll() == buy3);
+		assertTrue(bids.poll() == buy1);
+		assertTrue(bids.poll() == buy2);
+		assertTrue(bids.isEmpty());
+		assertEquals(0, bids.getNumberOfLevels());
+	}
+
+	public void testTiesRankedAsInBinaryHeap() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		OrderComparator[] orderings = { new AscendingOrderComparator(),
+				new DescendingOrderComparator() };
+		for (OrderComparator ordering : orderings) {
+			PriceLevelQueue levels = new PriceLevelQueue(ordering);
+			IndexedOrderHeap heap = new IndexedOrderHeap(ordering);
+			for (int i = 0; i < 200; i++) {
+				Order order = new Order(trader1, 1 + randGenerator.nextInt(3),
+						5 + randGenerator.nextInt(3), true);
+				order.setTimeStamp(randGenerator.nextInt(5), i);
+				Order copy = new Order(trader1, order.getQuantity(),
+						order.getPriceAsDouble(), true);
+				copy.setTimeStamp(order.getTime(), order.getSequenceNumber());
+				levels.add(order);
+				heap.add(copy);
+			}
+			while (!heap.isEmpty()) {
+				Order expected = heap.poll();
+				Order actual = levels.poll();
+				assertEquals(expected.getSequenceNumber(),
+						actual.getSequenceNumber());
+			}
+			assertTrue(levels.isEmpty());
+		}
+	}
+
+	/**
+	 * The price-level book must displace the same order as the binary heap 
+	 * book when a new order ties on price with the marginal matched order.
+	 */
+	public void testSameDisplacedOrderAsFourHeap()
+			throws DuplicateShoutException {
+		FourHeapOrderBook heapBook = new FourHeapOrderBook();
+		PriceLevelOrderBook levelBook = new PriceLevelOrderBook();
+		List<Order> heapOrders = new ArrayList<Order>();
+		List<Order> levelOrders = new ArrayList<Order>();
+		Random prng = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			TradingAgent trader = new MockTrader(this, 0, 0, auction);
+			boolean isBid = prng.nextBoolean();
+			double price = 9 + prng.nextInt(3);
+			Order heapOrder = new Order(trader, 1, price, isBid);
+			Order levelOrder = new Order(trader, 1, price, isBid);
+			heapOrder.setTimeStamp(i / 10, i);
+			levelOrder.setTimeStamp(i / 10, i);
+			heapOrders.add(heapOrder);
+			levelOrders.add(levelOrder);
+			heapBook.add(heapOrder);
+			levelBook.add(levelOrder);
+			assertSameOrder(heapOrders, levelOrders,
+					heapBook.getLowestMatchedBid(), levelBook.getLowestMatchedBid());
+			assertSameOrder(heapOrders, levelOrders,
+					heapBook.getHighestMatchedAsk(), levelBook.getHighestMatchedAsk());
+			assertSameOrder(heapOrders, levelOrders,
+					heapBook.getHighestUnmatchedBid(), 
+					levelBook.getHighestUnmatchedBid());
+			assertSameOrder(heapOrders, levelOrders,
+					heapBook.getLowestUnmatchedAsk(), 
+					levelBook.getLowestUnmatchedAsk());
+		}
+	}
+
+	protected void assertSameOrder(List<Order> heapOrders, 
+			List<Order> levelOrders, Order heapOrder, Order levelOrder) {
+		if (heapOrder == null) {
+			assertNull(levelOrder);
+		} else {
+			assertEquals(heapOrders.indexOf(heapOrder), 
+					levelOrders.indexOf(levelOrder));
+		}
+	}
+
+	public void testRemoveWithinLevel() {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		Order sell1 = new Order(trader1, 1, 5.0, false);
+		Order sell2 = new Order(trader1, 1, 5.0, false);
+
+		PriceLevelQueue asks = new PriceLevelQueue(+1);
+		asks.add(sell1);
+		asks.add(sell2);
+		assertTrue(asks.remove(sell1));
+		assertFalse(asks.contains(sell1));
+		assertTrue(asks.peek() == sell2);
+		assertEquals(1, asks.size());
+	}
+
+	public void testOrderBook() throws DuplicateShoutException {
+		TradingAgent trader1 = new MockTrader(this, 0, 0, auction);
+		TradingAgent trader2 = new MockTrader(this, 0, 0, auction);
+		PriceLevelOrderBook orderBook = new PriceLevelOrderBook();
+		Order buy = new Order(trader1, 1, 10.0, true);
+		Order sell = new Order(trader2, 1, 5.0, false);
+		orderBook.add(buy);
+		orderBook.add(sell);
+		assertTrue(orderBook.getLowestMatchedBid() == buy);
+		assertTrue(orderBook.getHighestMatchedAsk() == sell);
+		List<Order> matched = orderBook.matchOrders();
+		assertTrue(matched.contains(buy));
+		assertTrue(matched.contains(sell));
+		assertTrue(orderBook.isEmpty());
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(PriceLevelOrderBookTest.class);
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+
+public class TickSizeTest extends TestCase {
+
+	public TickSizeTest(String name) {
+		super(name);
+	}
+
+	public void testOrderPriceTicks() {
+		Order order = new Order(null, 1, 3.14159, true);
+		assertEquals(31415, order.getPriceTicks());
+		assertEquals(3.1415, order.getPriceAsDouble(), 0.0);
+		Price view = order.getPrice();
+		assertEquals(31415, view.longValue());
+		assertTrue(view == order.getPrice());
+		order.setPrice(2.5);
+		assertEquals(25000, order.getPrice().longValue());
+		assertEquals(2.5, order.getPrice().doubleValue(), 0.0);
+	}
+
+	public void testMarketTickSize() {
+		Order order = new Order(null, 1, 3.14159, true);
+		order.setTickSize(TickSize.forExponent(2));
+		assertEquals(314, order.getPriceTicks());
+		assertEquals(3.14, order.getPriceAsDouble(), 0.0);
+		order.setPrice(new Price(2718, 3));
+		assertEquals(271, order.getPriceTicks());
+		assertTrue(TickSize.forExponent(2) == order.getTickSize());
+	}
+
+	public void testLargePriceComparisons() {
+		Order cheap = new Order(null, 1, 0.0, true);
+		Order dear = new Order(null, 1, 1e12, true);
+		assertTrue(cheap.getPrice().compareTo(dear.getPrice()) > 0);
+		assertTrue(dear.getPrice().compareTo(cheap.getPrice()) < 0);
+		assertTrue(new AscendingOrderComparator().compare(cheap, dear) < 0);
+		assertTrue(new DescendingOrderComparator().compare(cheap, dear) > 0);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	public static Test suite() {
+		return new TestSuite(TickSizeTest.class);
+	}
+
+}
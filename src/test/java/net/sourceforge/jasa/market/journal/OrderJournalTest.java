@@ -0,0 +1,240 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.TradingAgent;
+import net.sourceforge.jasa.agent.strategy.RandomConstrainedStrategy;
+import net.sourceforge.jasa.event.TransactionExecutedEvent;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.auctioneer.ClearingHouseAuctioneer;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import net.sourceforge.jasa.market.rules.UniformPricingPolicy;
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class OrderJournalTest extends TestCase {
+
+	protected File file;
+
+	public OrderJournalTest(String name) {
+		super(name);
+	}
+
+	public void setUp() throws IOException {
+		file = File.createTempFile("jasa", ".journal");
+	}
+
+	public void tearDown() {
+		file.delete();
+	}
+
+	public void testRoundTrip() throws IOException {
+		TokenTradingAgent buyer = new TokenTradingAgent(100, 1, null);
+		TokenTradingAgent seller = new TokenTradingAgent(50, 1, null);
+		Order bid = new Order(buyer, 2, 80, true);
+		Order ask = new Order(seller, 1, 60, false);
+		OrderJournal journal = new OrderJournal(file, 2);
+		journal.recordMarketOpen(0);
+		journal.recordOrderPlaced(0, bid);
+		journal.recordOrderPlaced(1, ask);
+		journal.recordTransaction(1, ask, bid, 70, 65, 1);
+		journal.recordOrderAmended(2, bid, 85, 1);
+		journal.recordOrderRemoved(3, bid);
+		journal.recordMarketClosed(4);
+		journal.close();
+		assertEquals(7, journal.getNumberOfRecords());
+		assertEquals(OrderJournal.HEADER_SIZE + 7 * OrderJournal.RECORD_SIZE,
+				file.length());
+
+		OrderJournalReader reader = new OrderJournalReader(file, 3);
+		assertEquals(7, reader.getNumberOfRecords());
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.MARKET_OPEN, reader.getType());
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.ORDER_PLACED, reader.getType());
+		assertTrue(reader.isBid());
+		assertEquals(0, reader.getTime());
+		assertEquals(1, reader.getOrderId());
+		assertEquals(80.0, reader.getPrice(), 0.0);
+		assertEquals(2, reader.getQuantity());
+		assertEquals(0, reader.getTraderId());
+		assertTrue(reader.next());
+		assertFalse(reader.isBid());
+		assertEquals(2, reader.getOrderId());
+		assertEquals(1, reader.getTraderId());
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.TRANSACTION, reader.getType());
+		assertEquals(2, reader.getOrderId());
+		assertEquals(1, reader.getOtherOrderId());
+		assertEquals(70.0, reader.getPrice(), 0.0);
+		assertEquals(65.0, reader.getOtherPrice(), 0.0);
+		assertEquals(1, reader.getQuantity());
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.ORDER_AMENDED, reader.getType());
+		assertEquals(1, reader.getOrderId());
+		assertEquals(85.0, reader.getPrice(), 0.0);
+		assertEquals(80.0, reader.getOtherPrice(), 0.0);
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.ORDER_REMOVED, reader.getType());
+		assertEquals(3, reader.getTime());
+		assertTrue(reader.next());
+		assertEquals(OrderJournal.MARKET_CLOSED, reader.getType());
+		assertFalse(reader.next());
+		assertFalse(reader.next());
+		reader.close();
+	}
+
+	public void testOnlyAcceptedAmendmentsRecorded() throws Exception {
+		MarketSimulation market = createMarket();
+		OrderJournal journal = new OrderJournal(file, 100);
+		market.setJournal(journal);
+		market.initialise();
+		market.begin();
+		TradingAgent buyer = (TradingAgent) market.getTraderIterator().next();
+		Order bid = new Order(buyer, 1, 60, true);
+		market.placeOrder(bid);
+		assertFalse(market.amendOrder(new Order(buyer, 1, 70, true), 75, 1));
+		assertTrue(market.amendOrder(bid, 65, 1));
+		journal.close();
+
+		OrderJournalReader reader = new OrderJournalReader(file);
+		int amendments = 0;
+		while (reader.next()) {
+			if (reader.getType() == OrderJournal.ORDER_AMENDED) {
+				amendments++;
+				assertEquals(65.0, reader.getPrice(), 0.0);
+				assertEquals(60.0, reader.getOtherPrice(), 0.0);
+			}
+		}
+		reader.close();
+		assertEquals(1, amendments);
+	}
+
+	public void testReplayReproducesMarket() throws IOException {
+		MarketSimulation market = createMarket();
+		List<Double> prices = recordPrices(market);
+		OrderJournal journal = new OrderJournal(file, 100);
+		market.setJournal(journal);
+		market.run();
+		journal.close();
+		assertTrue(prices.size() > 0);
+
+		OrderJournalReplay replay = new OrderJournalReplay();
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(replay);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		replay.setAuctioneer(auctioneer);
+		List<Double> replayedPrices = recordPrices(replay);
+		replay.replay(file);
+		assertEquals(prices, replayedPrices);
+		assertEquals(prices.size(), replay.getNumberOfRecordedTransactions());
+		assertEquals(prices.size(), replay.getNumberOfTransactions());
+		assertEquals(replay.getRecordedVolume(), replay.getVolume());
+		assertEquals(0, replay.getNumberOfRejectedOrders());
+		assertEquals(market.getDay(), replay.getDay());
+		assertEquals(market.getAge(), replay.getAge());
+		assertEquals(20, replay.getJournalTraders().size());
+		assertTrue(replay.isClosed());
+	}
+
+	public void testReplayUnderAlternativeRules() throws IOException {
+		MarketSimulation market = createMarket();
+		OrderJournal journal = new OrderJournal(file);
+		market.setJournal(journal);
+		market.run();
+		journal.close();
+
+		OrderJournalReplay replay = new OrderJournalReplay();
+		ClearingHouseAuctioneer auctioneer = 
+				new ClearingHouseAuctioneer(replay);
+		auctioneer.setPricingPolicy(new UniformPricingPolicy(0.5));
+		replay.setAuctioneer(auctioneer);
+		replay.replay(file);
+		assertTrue(replay.getNumberOfRecordedTransactions() > 0);
+		assertTrue(replay.getNumberOfTransactions() > 0);
+	}
+
+	protected MarketSimulation createMarket() {
+		RandomEngine prng = new MersenneTwister64(1234);
+		SpringSimulationController controller = 
+				new SpringSimulationController();
+		MarketSimulation market = new MarketSimulation(controller);
+		market.setPopulation(new Population());
+		market.setAgentMixer(new RandomRobinAgentMixer(prng));
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setLengthOfDay(20);
+		market.setMaximumDays(3);
+		Uniform values = new Uniform(50, 150, prng);
+		Uniform markups = new Uniform(0, 50, prng);
+		for (int i = 0; i < 20; i++) {
+			TokenTradingAgent agent = 
+					new TokenTradingAgent(values.nextDouble(), 1, controller);
+			RandomConstrainedStrategy strategy = 
+					new RandomConstrainedStrategy(agent);
+			strategy.setBuy(i % 2 == 0);
+			strategy.setMarkupDistribution(markups);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+		return market;
+	}
+
+	protected List<Double> recordPrices(MarketSimulation market) {
+		final List<Double> prices = new ArrayList<Double>();
+		market.addListener(new EventListener() {
+			public void eventOccurred(SimEvent event) {
+				if (event instanceof TransactionExecutedEvent) {
+					prices.add(((TransactionExecutedEvent) event).getPrice());
+				}
+			}
+		});
+		return prices;
+	}
+
+	public static Test suite() {
+		return new TestSuite(OrderJournalTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.market.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.agent.Agent;
+import net.sourceforge.jabm.event.EventListener;
+import net.sourceforge.jabm.event.SimEvent;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jasa.agent.AbstractTradingAgent;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.strategy.RandomConstrainedStrategy;
+import net.sourceforge.jasa.event.TransactionExecutedEvent;
+import net.sourceforge.jasa.market.AuctionException;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class MultiMarketSimulationTest extends TestCase implements
+		EventListener {
+
+	protected MultiMarketSimulation simulation;
+
+	protected SpringSimulationController controller;
+
+	protected List<TransactionExecutedEvent> transactions;
+
+	protected List<Thread> threads;
+
+	public static final int NUM_SHARDS = 3;
+
+	public static final int AGENTS_PER_SHARD = 10;
+
+	public MultiMarketSimulationTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		simulation = createSimulation(NUM_SHARDS);
+		transactions = new ArrayList<TransactionExecutedEvent>();
+		threads = new ArrayList<Thread>();
+		controller.addListener(this);
+	}
+
+	public void eventOccurred(SimEvent event) {
+		if (event instanceof TransactionExecutedEvent) {
+			transactions.add((TransactionExecutedEvent) event);
+			threads.add(Thread.currentThread());
+		}
+	}
+
+	public void testAllShardsRun() {
+		final int[] shardTransactions = new int[1];
+		for (MarketShard shard : simulation.getShards()) {
+			shard.addListener(new EventListener() {
+				public void eventOccurred(SimEvent event) {
+					if (event instanceof TransactionExecutedEvent) {
+						shardTransactions[0]++;
+					}
+				}
+			});
+		}
+		simulation.run();
+		assertTrue(simulation.isClosed());
+		for (MarketShard shard : simulation.getShards()) {
+			assertTrue(shard.isClosed());
+			assertEquals(2, shard.getDay());
+			assertEquals(AGENTS_PER_SHARD, shard.getNumberOfTraders());
+			assertTrue(countTransactions(shard) > 0);
+		}
+		assertEquals(shardTransactions[0], transactions.size());
+		for (Thread thread : threads) {
+			assertSame(Thread.currentThread(), thread);
+		}
+	}
+
+	public void testIndependentOfNumberOfThreads() {
+		simulation.setNumThreads(1);
+		simulation.run();
+		List<Double> sequential = getPrices();
+		List<Double> sequentialFunds = getFunds(simulation);
+
+		setUp();
+		simulation.setNumThreads(NUM_SHARDS);
+		simulation.run();
+		assertEquals(sequential, getPrices());
+		assertEquals(sequentialFunds, getFunds(simulation));
+	}
+
+	public void testOrdersRoutedUntilRoundEnds() throws AuctionException {
+		simulation.initialise();
+		simulation.begin();
+		MarketShard shard = simulation.getShards().get(0);
+		shard.beginRound();
+		AbstractTradingAgent agent = 
+				(AbstractTradingAgent) shard.getTraders().getAgents().iterator()
+					.next();
+		shard.setRouting(true);
+		shard.placeOrder(new Order(agent, 1, 100, true));
+		shard.setRouting(false);
+		assertFalse(shard.getQuote().getBid() == 100.0);
+		shard.matchRound();
+		assertEquals(100.0, shard.getQuote().getBid(), 0.0);
+		simulation.end();
+	}
+
+	public void testThreadsStoppedIfRoundFails() throws InterruptedException {
+		final List<Thread> workers = new ArrayList<Thread>();
+		MarketShard failing = new MarketShard("failing") {
+			public void matchRound() {
+				synchronized (workers) {
+					workers.add(Thread.currentThread());
+				}
+				throw new IllegalStateException("Round failed");
+			}
+		};
+		failing.setAuctioneer(new ContinuousDoubleAuctioneer(failing));
+		failing.setLengthOfDay(10);
+		failing.setMaximumDays(2);
+		simulation.addShard(failing);
+		simulation.setNumThreads(NUM_SHARDS + 1);
+		try {
+			simulation.run();
+			fail("Expected the failed round to stop the simulation");
+		} catch (AuctionRuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(1, workers.size());
+		Thread worker = workers.get(0);
+		worker.join(5000);
+		assertFalse(worker.isAlive());
+	}
+
+	public void testSharedController() {
+		try {
+			simulation.addShard(new MarketShard("shared", controller));
+			fail("A shard must not share the coordinator's controller");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	protected MultiMarketSimulation createSimulation(int numShards) {
+		RandomEngine prng = new MersenneTwister64(1234);
+		controller = new SpringSimulationController();
+		MultiMarketSimulation simulation = 
+				new MultiMarketSimulation(controller);
+		simulation.setAgentMixer(new RandomRobinAgentMixer(prng));
+		simulation.setAgentInitialiser(new BasicAgentInitialiser());
+		Uniform values = new Uniform(50, 150, prng);
+		Uniform markups = new Uniform(0, 50, prng);
+		for (int s = 0; s < numShards; s++) {
+			MarketShard shard = new MarketShard("venue-" + s);
+			ContinuousDoubleAuctioneer auctioneer = 
+					new ContinuousDoubleAuctioneer(shard);
+			auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+			shard.setAuctioneer(auctioneer);
+			shard.setLengthOfDay(10);
+			shard.setMaximumDays(2);
+			simulation.addShard(shard);
+			for (int i = 0; i < AGENTS_PER_SHARD; i++) {
+				TokenTradingAgent agent = new TokenTradingAgent(
+						values.nextDouble(), 1, controller);
+				RandomConstrainedStrategy strategy = 
+						new RandomConstrainedStrategy(agent);
+				strategy.setBuy(i % 2 == 0);
+				strategy.setMarkupDistribution(markups);
+				agent.setStrategy(strategy);
+				simulation.register(agent, shard);
+			}
+		}
+		return simulation;
+	}
+
+	protected int countTransactions(MarketShard shard) {
+		int count = 0;
+		for (TransactionExecutedEvent event : transactions) {
+			if (event.getAuction() == shard) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	protected List<Double> getPrices() {
+		List<Double> prices = new ArrayList<Double>();
+		for (TransactionExecutedEvent event : transactions) {
+			prices.add(event.getPrice());
+		}
+		return prices;
+	}
+
+	protected List<Double> getFunds(MultiMarketSimulation simulation) {
+		List<Double> funds = new ArrayList<Double>();
+		for (Agent agent : simulation.getPopulation().getAgents()) {
+			funds.add(((AbstractTradingAgent) agent).getFunds());
+		}
+		return funds;
+	}
+
+	public static Test suite() {
+		return new TestSuite(MultiMarketSimulationTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
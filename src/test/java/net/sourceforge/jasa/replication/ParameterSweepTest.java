@@ -0,0 +1,245 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ParameterSweepTest extends TestCase {
+
+	static final int REPLICATIONS = 3;
+
+	protected File resultFile;
+
+	protected ParameterGrid grid;
+
+	/**
+	 * A replication whose result is a function of the swept parameters and
+	 * of its random number generator.
+	 */
+	protected SweepReplicationFactory factory = new SweepReplicationFactory() {
+		public Replication createReplication(
+				final Map<String, Object> parameters, int replication,
+				final RandomEngine prng) {
+			return new Replication() {
+				protected Map<Object, Number> results = 
+						new HashMap<Object, Number>();
+
+				public void run() {
+					double k = (Double) parameters.get("pricingPolicy.k");
+					int n = (Integer) parameters.get("population.size");
+					results.put("surplus.ea", k * n + prng.raw());
+					results.put("population.size", n);
+				}
+
+				public Map<Object, Number> getResults() {
+					return results;
+				}
+			};
+		}
+	};
+
+	public ParameterSweepTest(String name) {
+		super(name);
+	}
+
+	public void setUp() throws IOException {
+		resultFile = File.createTempFile("sweep", ".csv");
+		resultFile.delete();
+		grid = new ParameterGrid();
+		grid.addRange("pricingPolicy.k", 0, 1, 5);
+		grid.addParameter("population.size", 10, 20, 30);
+	}
+
+	public void tearDown() {
+		resultFile.delete();
+	}
+
+	public void testGridPoints() {
+		assertEquals(15, grid.size());
+		assertEquals(Arrays.asList("pricingPolicy.k", "population.size"),
+				grid.getProperties());
+		Map<String, Object> point = grid.getPoint(0);
+		assertEquals(0.0, point.get("pricingPolicy.k"));
+		assertEquals(10, point.get("population.size"));
+		point = grid.getPoint(4);
+		assertEquals(0.25, point.get("pricingPolicy.k"));
+		assertEquals(20, point.get("population.size"));
+		point = grid.getPoint(14);
+		assertEquals(1.0, point.get("pricingPolicy.k"));
+		assertEquals(30, point.get("population.size"));
+		assertEquals(1, new ParameterGrid().size());
+	}
+
+	public void testEveryReplicationStored() throws IOException {
+		ParameterSweep sweep = createSweep(factory);
+		assertEquals(15 * REPLICATIONS, sweep.run());
+		List<List<String>> rows = readRows();
+		assertEquals(Arrays.asList("point", "replication",
+				"param:pricingPolicy.k", "param:population.size",
+				"population.size", "surplus.ea"),
+				rows.get(0));
+		assertEquals(15 * REPLICATIONS + 1, rows.size());
+		Map<String, List<String>> byKey = byKey(rows);
+		assertEquals(15 * REPLICATIONS, byKey.size());
+		List<String> row = byKey.get("7/2");
+		assertEquals("0.5", row.get(2));
+		assertEquals("20", row.get(3));
+		assertEquals("20", row.get(4));
+		double ea = Double.parseDouble(row.get(5));
+		assertTrue(ea > 10 && ea < 11);
+		assertEquals(0, createSweep(factory).run());
+	}
+
+	public void testResumeAfterFailure() throws IOException {
+		ParameterSweep reference = createSweep(factory);
+		File referenceFile = resultFile;
+		reference.run();
+		Map<String, List<String>> expected = byKey(readRows());
+		resultFile = File.createTempFile("sweep", ".csv");
+		resultFile.delete();
+		try {
+			createSweep(new SweepReplicationFactory() {
+				public Replication createReplication(
+						Map<String, Object> parameters, int replication,
+						RandomEngine prng) {
+					if (parameters.get("pricingPolicy.k").equals(0.75)) {
+						throw new IllegalStateException("interrupted");
+					}
+					return factory.createReplication(parameters, replication,
+							prng);
+				}
+			}).run();
+			fail("replication failure was not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		int completed = readRows().size() - 1;
+		assertTrue(completed < 15 * REPLICATIONS);
+		assertEquals(15 * REPLICATIONS - completed, 
+				createSweep(factory).run());
+		List<List<String>> rows = readRows();
+		assertEquals(15 * REPLICATIONS + 1, rows.size());
+		assertEquals(expected, byKey(rows));
+		referenceFile.delete();
+	}
+
+	public void testIncompleteRowDiscarded() throws IOException {
+		createSweep(factory).run();
+		FileWriter out = new FileWriter(resultFile, true);
+		out.write("15,0,0.5");
+		out.close();
+		SweepResultStore store = 
+				new SweepResultStore(resultFile, grid.getProperties());
+		assertEquals(15 * REPLICATIONS, store.getNumCompleted());
+		assertFalse(store.isCompleted(15, 0));
+		Map<Object, Number> results = new HashMap<Object, Number>();
+		results.put("surplus.ea", 1.5);
+		store.append(15, 0, grid.getPoint(0), results);
+		store.close();
+		List<List<String>> rows = readRows();
+		assertEquals(15 * REPLICATIONS + 2, rows.size());
+		assertEquals(Arrays.asList("15", "0", "0.0", "10", "NaN", "1.5"),
+				rows.get(rows.size() - 1));
+	}
+
+	public void testLaterVariablesAddedAsColumns() throws IOException {
+		SweepResultStore store = 
+				new SweepResultStore(resultFile, grid.getProperties());
+		Map<Object, Number> results = new HashMap<Object, Number>();
+		results.put("surplus.ea", 1.5);
+		store.append(0, 0, grid.getPoint(0), results);
+		results.put("population.size", 10);
+		store.append(0, 1, grid.getPoint(0), results);
+		store.close();
+		List<List<String>> rows = readRows();
+		assertEquals(3, rows.size());
+		assertEquals(Arrays.asList("point", "replication",
+				"param:pricingPolicy.k", "param:population.size",
+				"surplus.ea", "population.size"),
+				rows.get(0));
+		assertEquals(Arrays.asList("0", "0", "0.0", "10", "1.5", "NaN"),
+				rows.get(1));
+		assertEquals(Arrays.asList("0", "1", "0.0", "10", "1.5", "10"),
+				rows.get(2));
+		store = new SweepResultStore(resultFile, grid.getProperties());
+		assertEquals(2, store.getNumCompleted());
+		assertEquals(Arrays.asList("surplus.ea", "population.size"),
+				store.getVariables());
+		store.close();
+	}
+
+	public void testDifferentGridRejected() throws IOException {
+		createSweep(factory).run();
+		try {
+			new SweepResultStore(resultFile, 
+					Arrays.asList("pricingPolicy.k")).close();
+			fail("results of a different sweep were accepted");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	protected ParameterSweep createSweep(SweepReplicationFactory factory) {
+		ParameterSweep sweep = new ParameterSweep(grid, factory, resultFile);
+		sweep.setNumReplications(REPLICATIONS);
+		sweep.setNumThreads(4);
+		return sweep;
+	}
+
+	protected List<List<String>> readRows() throws IOException {
+		List<List<String>> rows = new ArrayList<List<String>>();
+		BufferedReader in = new BufferedReader(new FileReader(resultFile));
+		String line;
+		while ((line = in.readLine()) != null) {
+			rows.add(SweepResultStore.split(line));
+		}
+		in.close();
+		return rows;
+	}
+
+	protected Map<String, List<String>> byKey(List<List<String>> rows) {
+		Map<String, List<String>> byKey = new HashMap<String, List<String>>();
+		for (List<String> row : rows.subList(1, rows.size())) {
+			byKey.put(row.get(0) + "/" + row.get(1), row);
+		}
+		return byKey;
+	}
+
+	public static Test suite() {
+		return new TestSuite(ParameterSweepTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
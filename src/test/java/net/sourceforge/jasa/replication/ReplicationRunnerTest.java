@@ -0,0 +1,189 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.learning.NPTRothErevLearner;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jabm.util.SummaryStats;
+import net.sourceforge.jasa.agent.FixedDirectionTradingAgent;
+import net.sourceforge.jasa.agent.strategy.StimuliResponseStrategy;
+import net.sourceforge.jasa.agent.valuation.FixedValuer;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.auctioneer.ClearingHouseAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import net.sourceforge.jasa.replication.electricity.ElectricityStats;
+import net.sourceforge.jasa.report.SurplusReport;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ReplicationRunnerTest extends TestCase {
+
+	static final int REPLICATIONS = 8;
+
+	static final int MAX_ROUNDS = 100;
+
+	static final double[] VALUES = { 37, 17, 12 };
+
+	protected ReplicationFactory electricityFactory = 
+			new ReplicationFactory() {
+		public Replication createReplication(int replication,
+				RandomEngine prng) {
+			return createElectricityReplication(prng);
+		}
+	};
+
+	public ReplicationRunnerTest(String name) {
+		super(name);
+	}
+
+	public void testAllReplicationsAggregated() {
+		ReplicationRunner runner = 
+				new ReplicationRunner(electricityFactory, REPLICATIONS);
+		runner.setNumThreads(4);
+		Map<Object, SummaryStats> results = runner.run();
+		SummaryStats eA = results.get(SurplusReport.VAR_EA);
+		assertNotNull(eA);
+		assertEquals(REPLICATIONS, eA.getN());
+		assertTrue(eA.getMin() <= eA.getMean());
+		assertTrue(eA.getMean() <= eA.getMax());
+		assertSame(eA, runner.getResult(SurplusReport.VAR_EA));
+	}
+
+	public void testParallelMatchesSequential() {
+		ReplicationRunner sequential = 
+				new ReplicationRunner(electricityFactory, REPLICATIONS);
+		sequential.setNumThreads(1);
+		Map<Object, SummaryStats> expected = sequential.run();
+		ReplicationRunner parallel = 
+				new ReplicationRunner(electricityFactory, REPLICATIONS);
+		parallel.setNumThreads(4);
+		Map<Object, SummaryStats> actual = parallel.run();
+		assertEquals(expected.keySet(), actual.keySet());
+		for (Object variable : expected.keySet()) {
+			SummaryStats e = expected.get(variable);
+			SummaryStats a = actual.get(variable);
+			assertEquals(variable.toString(), e.getN(), a.getN());
+			assertEquals(variable.toString(), e.getMean(), a.getMean(), 0.0);
+			assertEquals(variable.toString(), e.getMin(), a.getMin(), 0.0);
+			assertEquals(variable.toString(), e.getMax(), a.getMax(), 0.0);
+		}
+	}
+
+	public void testReplicationSeedsDiffer() {
+		final int[] replications = new int[REPLICATIONS];
+		final double[] draws = new double[REPLICATIONS];
+		ReplicationRunner runner = new ReplicationRunner(
+				new ReplicationFactory() {
+			public Replication createReplication(final int replication,
+					final RandomEngine prng) {
+				return new Replication() {
+					public void run() {
+						replications[replication]++;
+						draws[replication] = prng.raw();
+					}
+					public Map<Object, Number> getResults() {
+						return new java.util.HashMap<Object, Number>();
+					}
+				};
+			}
+		}, REPLICATIONS);
+		runner.run();
+		for (int i = 0; i < REPLICATIONS; i++) {
+			assertEquals(1, replications[i]);
+			for (int j = 0; j < i; j++) {
+				assertTrue(draws[i] != draws[j]);
+			}
+		}
+	}
+
+	public void testFailurePropagated() {
+		ReplicationRunner runner = new ReplicationRunner(
+				new ReplicationFactory() {
+			public Replication createReplication(int replication,
+					RandomEngine prng) {
+				throw new IllegalStateException("replication " + replication);
+			}
+		}, REPLICATIONS);
+		try {
+			runner.run();
+			fail("replication failure was not reported");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	public Replication createElectricityReplication(RandomEngine prng) {
+		MarketSimulation market = new MarketSimulation();
+		SpringSimulationController controller = 
+				new SpringSimulationController();
+		market.setSimulationController(controller);
+		market.setPopulation(new Population());
+		market.setAgentMixer(new RandomRobinAgentMixer(prng));
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		ClearingHouseAuctioneer auctioneer = 
+				new ClearingHouseAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setMaximumRounds(MAX_ROUNDS);
+		registerTraders(market, controller, true, prng);
+		registerTraders(market, controller, false, prng);
+		final ElectricityStats stats = new ElectricityStats(market);
+		return new MarketReplication(market) {
+			public Map<Object, Number> getResults() {
+				stats.calculate();
+				return stats.getVariableBindings();
+			}
+		};
+	}
+
+	public void registerTraders(MarketSimulation market,
+			SpringSimulationController controller, boolean areSellers,
+			RandomEngine prng) {
+		for (int i = 0; i < VALUES.length; i++) {
+			FixedDirectionTradingAgent agent = 
+					new FixedDirectionTradingAgent(controller);
+			StimuliResponseStrategy strategy = 
+					new StimuliResponseStrategy(agent);
+			strategy.setQuantity(10);
+			strategy.setLearner(new NPTRothErevLearner(40, 0.1, 0.2, 9, prng));
+			agent.setStrategy(strategy);
+			strategy.setAgent(agent);
+			agent.setIsSeller(areSellers);
+			agent.setValuationPolicy(new FixedValuer(VALUES[i]));
+			agent.initialise();
+			market.register(agent);
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(ReplicationRunnerTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
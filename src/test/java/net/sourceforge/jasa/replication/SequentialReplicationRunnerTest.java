@@ -0,0 +1,141 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.replication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.util.SummaryStats;
+import net.sourceforge.jasa.report.SurplusReport;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class SequentialReplicationRunnerTest extends TestCase {
+
+	static final int BUDGET = 2000;
+
+	/**
+	 * Replications whose efficiency is uniform on [0, 1) and whose two
+	 * price statistics have standard deviations of 1 and 10.
+	 */
+	protected ReplicationFactory factory = new ReplicationFactory() {
+		public Replication createReplication(int replication,
+				final RandomEngine prng) {
+			return new Replication() {
+				protected Map<Object, Number> results = 
+						new HashMap<Object, Number>();
+
+				public void run() {
+					results.put(SurplusReport.VAR_EA, prng.raw());
+					results.put("pricestats.bid.mean", gaussian(prng));
+					results.put("pricestats.ask.mean", 10 * gaussian(prng));
+				}
+
+				public Map<Object, Number> getResults() {
+					return results;
+				}
+			};
+		}
+	};
+
+	public SequentialReplicationRunnerTest(String name) {
+		super(name);
+	}
+
+	public void testStopsWhenConverged() {
+		SequentialReplicationRunner runner = 
+				new SequentialReplicationRunner(factory, BUDGET);
+		runner.addTarget("surplus.ea", 0.05);
+		Map<Object, SummaryStats> results = runner.run();
+		assertTrue(runner.isConverged());
+		int n = runner.getNumReplicationsRun();
+		assertTrue(n > runner.getMinReplications());
+		assertTrue(n < BUDGET);
+		SummaryStats eA = results.get(SurplusReport.VAR_EA);
+		assertEquals(n, eA.getN());
+		assertTrue(runner.getHalfWidth(SurplusReport.VAR_EA) <= 0.05);
+		assertEquals(0.5, eA.getMean(), 0.05);
+	}
+
+	public void testBudgetRespected() {
+		SequentialReplicationRunner runner = 
+				new SequentialReplicationRunner(factory, 50);
+		runner.addTarget("surplus.ea", 1E-6);
+		Map<Object, SummaryStats> results = runner.run();
+		assertFalse(runner.isConverged());
+		assertEquals(50, runner.getNumReplicationsRun());
+		assertEquals(50, results.get(SurplusReport.VAR_EA).getN());
+	}
+
+	public void testPrefixTargetCoversEveryVariable() {
+		SequentialReplicationRunner runner = 
+				new SequentialReplicationRunner(factory, BUDGET);
+		runner.addTarget("pricestats.*", 1.0);
+		runner.run();
+		assertTrue(runner.isConverged());
+		assertTrue(runner.getHalfWidth("pricestats.bid.mean") <= 1.0);
+		assertTrue(runner.getHalfWidth("pricestats.ask.mean") <= 1.0);
+		assertTrue(runner.getNumReplicationsRun() > 200);
+	}
+
+	public void testUnknownTargetNeverConverges() {
+		SequentialReplicationRunner runner = 
+				new SequentialReplicationRunner(factory, 20);
+		runner.addTarget("surplus.ea", 1.0);
+		runner.addTarget("no.such.variable", 1.0);
+		runner.run();
+		assertFalse(runner.isConverged());
+		assertEquals(20, runner.getNumReplicationsRun());
+	}
+
+	public void testIndependentOfThreads() {
+		SequentialReplicationRunner sequential = 
+				new SequentialReplicationRunner(factory, BUDGET);
+		sequential.addTarget("surplus.ea", 0.05);
+		sequential.setNumThreads(1);
+		double expected = sequential.run().get(SurplusReport.VAR_EA).getMean();
+		SequentialReplicationRunner parallel = 
+				new SequentialReplicationRunner(factory, BUDGET);
+		parallel.addTarget("surplus.ea", 0.05);
+		parallel.setNumThreads(4);
+		double actual = parallel.run().get(SurplusReport.VAR_EA).getMean();
+		assertEquals(sequential.getNumReplicationsRun(), 
+				parallel.getNumReplicationsRun());
+		assertEquals(expected, actual, 0.0);
+	}
+
+	protected static double gaussian(RandomEngine prng) {
+		double total = 0;
+		for (int i = 0; i < 12; i++) {
+			total += prng.raw();
+		}
+		return total - 6;
+	}
+
+	public static Test suite() {
+		return new TestSuite(SequentialReplicationRunnerTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
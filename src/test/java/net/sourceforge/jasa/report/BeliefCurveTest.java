@@ -0,0 +1,128 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class BeliefCurveTest extends TestCase {
+
+	public static final double MAX_PRICE = 200;
+
+	protected RandomEngine prng;
+
+	public BeliefCurveTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		prng = new MersenneTwister64(42);
+	}
+
+	public void testCubicSegmentsInterpolateEndPoints() {
+		BeliefCurve curve = new BeliefCurve(BeliefCurve.CUBIC, true, 
+				MAX_PRICE);
+		curve.addSegment(0, 0, 80, 0.25);
+		curve.addSegment(80, 0.25, 120, 0.75);
+		curve.addSegment(120, 0.75, MAX_PRICE, 1);
+		assertEquals(3, curve.getNumberOfSegments());
+		assertEquals(0, curve.probability(0), 1E-9);
+		assertEquals(0.25, curve.probability(80), 1E-9);
+		assertEquals(0.5, curve.probability(100), 1E-9);
+		assertEquals(0.75, curve.probability(120), 1E-9);
+		assertEquals(1, curve.probability(MAX_PRICE), 1E-9);
+		assertEquals(0, curve.probability(MAX_PRICE + 1), 0);
+	}
+
+	public void testUnitSearchMatchesBruteForce() {
+		for (int t = 0; t < 300; t++) {
+			BeliefCurve curve = randomCurve(t % BeliefCurve.NUM_INTERPOLATIONS);
+			double valuation = 50 + prng.nextDouble() * 100;
+			double best = 0;
+			double bestPrice = 0;
+			for (int s = 0; s < curve.getNumberOfSegments(); s++) {
+				double start = curve.a1[s];
+				if (!curve.isBuyer()) {
+					start = Math.max(start, valuation);
+				}
+				for (double i = start; i < curve.a2[s]; i++) {
+					if (curve.isBuyer() && i >= valuation) {
+						break;
+					}
+					double surplus = curve.probability(s, i) 
+							* curve.surplus(i, valuation);
+					if (surplus > best) {
+						best = surplus;
+						bestPrice = i;
+					}
+				}
+			}
+			assertEquals(bestPrice, curve.getOptimalPrice(valuation), 0);
+		}
+	}
+
+	public void testAnalyticOptimumBeatsFineGrid() {
+		for (int t = 0; t < 300; t++) {
+			BeliefCurve curve = randomCurve(t % BeliefCurve.NUM_INTERPOLATIONS);
+			double valuation = 50 + prng.nextDouble() * 100;
+			double best = 0;
+			for (double price = 0; price < MAX_PRICE; price += 0.01) {
+				if (curve.isBuyer() ? price < valuation : price >= valuation) {
+					best = Math.max(best, 
+							curve.getExpectedSurplus(price, valuation));
+				}
+			}
+			double price = curve.getAnalyticOptimalPrice(valuation);
+			double surplus = price > 0 ? 
+					curve.getExpectedSurplus(price, valuation) : 0;
+			assertTrue(surplus >= best - 1E-6);
+			assertTrue(surplus >= curve.getExpectedSurplus(
+					curve.getOptimalPrice(valuation), valuation) - 1E-6);
+		}
+	}
+
+	protected BeliefCurve randomCurve(int interpolation) {
+		boolean buyer = prng.nextDouble() < 0.5;
+		BeliefCurve curve = new BeliefCurve(interpolation, buyer, MAX_PRICE);
+		double lastPoint = 0;
+		double lastP = buyer ? 0 : 1;
+		int numPoints = 1 + (int) (prng.nextDouble() * 8);
+		for (int i = 0; i < numPoints; i++) {
+			double point = lastPoint + 1 + Math.floor(prng.nextDouble() * 40);
+			double p = prng.nextDouble();
+			curve.addSegment(lastPoint, lastP, point, p);
+			lastPoint = point;
+			lastP = p;
+		}
+		curve.addSegment(lastPoint, lastP, MAX_PRICE, buyer ? 1 : 0);
+		return curve;
+	}
+
+	public static Test suite() {
+		return new TestSuite(BeliefCurveTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.Population;
+import net.sourceforge.jabm.SpringSimulationController;
+import net.sourceforge.jabm.init.BasicAgentInitialiser;
+import net.sourceforge.jabm.mixing.RandomRobinAgentMixer;
+import net.sourceforge.jasa.agent.TokenTradingAgent;
+import net.sourceforge.jasa.agent.TradingAgent;
+import net.sourceforge.jasa.agent.strategy.GDStrategy;
+import net.sourceforge.jasa.event.OrderPlacedEvent;
+import net.sourceforge.jasa.market.MarketSimulation;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.auctioneer.ContinuousDoubleAuctioneer;
+import net.sourceforge.jasa.market.rules.DiscriminatoryPricingPolicy;
+import cern.jet.random.Uniform;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class HistoricalDataReportTest extends TestCase {
+
+	public static final int NUM_AGENTS = 30;
+
+	protected MarketSimulation market;
+
+	protected HistoricalDataReport history;
+
+	public HistoricalDataReportTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		RandomEngine prng = new MersenneTwister64(42);
+		SpringSimulationController controller = 
+				new SpringSimulationController();
+		market = new MarketSimulation(controller);
+		market.setPopulation(new Population());
+		market.setAgentMixer(new RandomRobinAgentMixer(prng));
+		market.setAgentInitialiser(new BasicAgentInitialiser());
+		ContinuousDoubleAuctioneer auctioneer = 
+				new ContinuousDoubleAuctioneer(market);
+		auctioneer.setPricingPolicy(new DiscriminatoryPricingPolicy(0.5));
+		market.setAuctioneer(auctioneer);
+		market.setLengthOfDay(10);
+		market.setMaximumDays(3);
+		history = new HistoricalDataReport();
+		history.setAuction(market);
+		controller.addListener(history);
+		Uniform values = new Uniform(50, 150, prng);
+		for (int i = 0; i < NUM_AGENTS; i++) {
+			TokenTradingAgent agent = 
+					new TokenTradingAgent(values.nextDouble(), 1, controller);
+			GDStrategy strategy = new GDStrategy();
+			strategy.setHistoryStats(history);
+			strategy.setBuy(i % 2 == 0);
+			strategy.setAgent(agent);
+			agent.setStrategy(strategy);
+			market.register(agent);
+		}
+	}
+
+	public void testQueriesMatchLinearScan() {
+		market.initialise();
+		market.begin();
+		int numAccepted = 0;
+		while (!market.isClosed()) {
+			market.step();
+			Iterator<?> shouts = history.sortedShoutIterator();
+			while (shouts.hasNext()) {
+				double price = ((Order) shouts.next()).getPriceAsDouble();
+				checkQueries(price);
+				checkQueries(price + 0.00005);
+				checkQueries(price - 0.00005);
+			}
+			numAccepted = Math.max(numAccepted, history.getNumberOfTrades());
+		}
+		assertTrue(numAccepted > 0);
+	}
+
+	public void testInitialiseClearsHistogram() {
+		market.initialise();
+		market.begin();
+		for (int i = 0; i < 15; i++) {
+			market.step();
+		}
+		assertFalse(history.getHistogram().isEmpty());
+		history.initialise();
+		assertTrue(history.getHistogram().isEmpty());
+		assertEquals(0, history.getIncreasingQueryAccelerator()
+				.getNumOfBidsAbove(0));
+	}
+
+	public void testBeliefCurveSharedUntilHistoryChanges() {
+		market.initialise();
+		market.begin();
+		for (int i = 0; i < 15; i++) {
+			market.step();
+		}
+		BeliefCurve curve = history.getBeliefCurve(BeliefCurve.CUBIC, true,
+				GDStrategy.MAX_PRICE);
+		long version = curve.getVersion();
+		assertEquals(history.getVersion(), version);
+		assertSame(curve, history.getBeliefCurve(BeliefCurve.CUBIC, true,
+				GDStrategy.MAX_PRICE));
+		assertEquals(version, curve.getVersion());
+		Iterator<?> shouts = history.sortedShoutIterator();
+		while (shouts.hasNext()) {
+			double price = ((Order) shouts.next()).getPriceAsDouble();
+			checkProbability(curve, price);
+			checkProbability(history.getBeliefCurve(BeliefCurve.LINEAR, 
+					false, GDStrategy.MAX_PRICE), price);
+		}
+		while (history.getVersion() == version && !market.isClosed()) {
+			market.step();
+		}
+		assertTrue(history.getVersion() > version);
+		assertSame(curve, history.getBeliefCurve(BeliefCurve.CUBIC, true,
+				GDStrategy.MAX_PRICE));
+		assertEquals(history.getVersion(), curve.getVersion());
+	}
+
+	public void testAmendThenExpire() throws Exception {
+		market.initialise();
+		market.begin();
+		Iterator<?> traders = market.getTraderIterator();
+		TradingAgent buyer = (TradingAgent) traders.next();
+		TradingAgent seller = (TradingAgent) traders.next();
+		Order bid = new Order(buyer, 1, 60, true);
+		Order ask = new Order(seller, 1, 140, false);
+		market.placeOrder(bid);
+		market.placeOrder(ask);
+		assertTrue(market.amendOrder(bid, 80, 1));
+		assertTrue(history.sortedShouts.contains(bid));
+		assertEquals(1, history.getHistogram().countAtOrAbove(
+				ShoutHistogram.BIDS, 80.0));
+		assertEquals(0, history.getHistogram().countAtOrBelow(
+				ShoutHistogram.BIDS, 70.0));
+		checkQueries(70);
+		checkQueries(80);
+		TradingAgent otherBuyer = (TradingAgent) traders.next();
+		TradingAgent otherSeller = (TradingAgent) traders.next();
+		for (int i = 0; i <= history.memorySize; i++) {
+			market.placeOrder(new Order(otherBuyer, 1, 120, true));
+			market.placeOrder(new Order(otherSeller, 1, 100, false));
+		}
+		assertFalse(history.sortedShouts.contains(bid));
+		assertFalse(history.getBids().contains(bid));
+		assertEquals(history.getBids().size() + history.getAsks().size(),
+				history.sortedShouts.size());
+		assertEquals(0, history.getHistogram().countAtOrBelow(
+				ShoutHistogram.BIDS, 90.0));
+	}
+
+	public void testTiedShoutsRetainedAcrossSerialisation() throws Exception {
+		HistoricalDataReport report = new HistoricalDataReport();
+		for (int i = 0; i < 3; i++) {
+			report.updateShoutLog(new OrderPlacedEvent(null, 0, 
+					new Order(null, 1, 100, true)));
+		}
+		report.updateShoutLog(new OrderPlacedEvent(null, 0, 
+				new Order(null, 1, 100, false)));
+		assertEquals(4, report.sortedShouts.size());
+		List<Long> logged = loggedOrder(report);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(report);
+		out.close();
+		HistoricalDataReport copy = (HistoricalDataReport) 
+				new ObjectInputStream(new ByteArrayInputStream(
+						bytes.toByteArray())).readObject();
+		assertEquals(logged, loggedOrder(copy));
+		for (Order shout : copy.bids) {
+			assertTrue(copy.sortedShouts.contains(shout));
+		}
+		copy.removeNShouts(3, copy.bids);
+		copy.checkConsistency();
+		assertEquals(1, copy.sortedShouts.size());
+		assertEquals(0, copy.getHistogram().getTotal(ShoutHistogram.BIDS));
+		assertEquals(1, copy.getHistogram().getTotal(ShoutHistogram.ASKS));
+	}
+
+	protected List<Long> loggedOrder(HistoricalDataReport report) {
+		List<Long> result = new ArrayList<Long>();
+		for (Order shout : report.sortedShouts) {
+			result.add(report.loggedShouts.get(shout).index);
+		}
+		return result;
+	}
+
+	protected void checkProbability(BeliefCurve curve, double price) {
+		HistoricalDataReport.IncreasingQueryAccelerator accelerator = 
+				history.getIncreasingQueryAccelerator();
+		double expected;
+		if (curve.isBuyer()) {
+			double support = history.getNumberOfBids(-price, true)
+					+ history.getNumberOfAsks(-price, false);
+			expected = support / (support 
+					+ accelerator.getNumOfRejectedBidsAbove(price));
+		} else {
+			double support = history.getNumberOfAsks(price, true)
+					+ history.getNumberOfBids(price, false);
+			expected = support / (support 
+					+ accelerator.getNumOfRejectedAsksBelow(price));
+		}
+		assertEquals(expected, curve.probability(price), 1E-6);
+	}
+
+	protected void checkQueries(double price) {
+		HistoricalDataReport.IncreasingQueryAccelerator accelerator = 
+				history.getIncreasingQueryAccelerator();
+		int asksBelow = history.getNumberOfAsks(-price, false);
+		int acceptedAsksAbove = history.getNumberOfAsks(price, true);
+		int bidsAbove = history.getNumberOfBids(price, false);
+		int acceptedBidsBelow = history.getNumberOfBids(-price, true);
+		assertEquals(asksBelow, accelerator.getNumOfAsksBelow(price));
+		assertEquals(bidsAbove, accelerator.getNumOfBidsAbove(price));
+		assertEquals(acceptedAsksAbove, 
+				accelerator.getNumOfAcceptedAsksAbove(price));
+		assertEquals(acceptedBidsBelow, 
+				accelerator.getNumOfAcceptedBidsBelow(price));
+		assertEquals(asksBelow - history.getNumberOfAsks(-price, true),
+				accelerator.getNumOfRejectedAsksBelow(price));
+		assertEquals(bidsAbove - history.getNumberOfBids(price, true),
+				accelerator.getNumOfRejectedBidsAbove(price));
+	}
+
+	public static Test suite() {
+		return new TestSuite(HistoricalDataReportTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
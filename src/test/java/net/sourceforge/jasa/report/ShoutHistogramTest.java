@@ -0,0 +1,138 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jasa.market.Order;
+import net.sourceforge.jasa.market.TickSize;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ShoutHistogramTest extends TestCase {
+
+	protected ShoutHistogram histogram;
+
+	public ShoutHistogramTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		histogram = new ShoutHistogram(TickSize.forExponent(2));
+	}
+
+	public void testCounts() {
+		histogram.add(ShoutHistogram.ASKS, 1000, 1);
+		histogram.add(ShoutHistogram.ASKS, 1050, 2);
+		histogram.add(ShoutHistogram.ASKS, 0, 1);
+		assertEquals(4, histogram.getTotal(ShoutHistogram.ASKS));
+		assertEquals(1, histogram.countAtOrBelow(ShoutHistogram.ASKS, 999L));
+		assertEquals(2, histogram.countAtOrBelow(ShoutHistogram.ASKS, 1000L));
+		assertEquals(2, histogram.countAtOrBelow(ShoutHistogram.ASKS, 10.49));
+		assertEquals(4, histogram.countAtOrBelow(ShoutHistogram.ASKS, 10.5));
+		assertEquals(3, histogram.countAtOrAbove(ShoutHistogram.ASKS, 10.0));
+		assertEquals(2, histogram.countAtOrAbove(ShoutHistogram.ASKS, 10.001));
+		assertEquals(0, histogram.countAtOrBelow(ShoutHistogram.ASKS, -1.0));
+		assertEquals(4, histogram.countAtOrAbove(ShoutHistogram.ASKS, -1.0));
+		assertEquals(0, histogram.getTotal(ShoutHistogram.BIDS));
+	}
+
+	public void testPricesOnTicks() {
+		Order order = new Order(null, 1, 0, false);
+		order.setTickSize(histogram.getTickSize());
+		order.setPriceTicks(29);
+		assertEquals(29, histogram.ticks(order));
+		histogram.add(ShoutHistogram.ASKS, histogram.ticks(order), 1);
+		double price = order.getPriceAsDouble();
+		assertEquals(1, histogram.countAtOrBelow(ShoutHistogram.ASKS, price));
+		assertEquals(1, histogram.countAtOrAbove(ShoutHistogram.ASKS, price));
+		Order finer = new Order(null, 1, 0, false);
+		finer.setTickSize(TickSize.forExponent(4));
+		finer.setPriceTicks(2951);
+		assertEquals(29, histogram.ticks(finer));
+	}
+
+	public void testRemovedNodesReleased() {
+		histogram.add(ShoutHistogram.BIDS, 12345, 1);
+		histogram.add(ShoutHistogram.ACCEPTED_BIDS, 12345, 1);
+		histogram.add(ShoutHistogram.ASKS, 3, 1);
+		assertTrue(histogram.getNumberOfNodes() > 0);
+		histogram.add(ShoutHistogram.ACCEPTED_BIDS, 12345, -1);
+		histogram.add(ShoutHistogram.BIDS, 12345, -1);
+		histogram.add(ShoutHistogram.ASKS, 3, -1);
+		assertEquals(0, histogram.getNumberOfNodes());
+		assertTrue(histogram.isEmpty());
+		histogram.setTickSize(TickSize.DEFAULT);
+	}
+
+	public void testAgainstLinearScan() {
+		RandomEngine prng = new MersenneTwister64(17);
+		List<long[]> shouts = new ArrayList<long[]>();
+		for (int i = 0; i < 5000; i++) {
+			if (shouts.size() > 200 && prng.raw() < 0.5) {
+				long[] shout = shouts.remove((int) (prng.raw() * shouts.size()));
+				histogram.add((int) shout[0], shout[1], -1);
+			} else {
+				int counter = (int) (prng.raw() * 4);
+				long ticks = (long) (prng.raw() * 
+						(prng.raw() < 0.1 ? 1000000 : 20000));
+				histogram.add(counter, ticks, 1);
+				shouts.add(new long[] { counter, ticks });
+			}
+			if (i % 97 == 0) {
+				long query = (long) (prng.raw() * 30000);
+				for (int counter = 0; counter < 4; counter++) {
+					int below = 0;
+					int above = 0;
+					for (long[] shout : shouts) {
+						if (shout[0] == counter) {
+							if (shout[1] <= query) {
+								below++;
+							}
+							if (shout[1] >= query) {
+								above++;
+							}
+						}
+					}
+					assertEquals(below, 
+							histogram.countAtOrBelow(counter, query));
+					assertEquals(above, 
+							histogram.countAtOrAbove(counter, query));
+				}
+			}
+		}
+		for (long[] shout : shouts) {
+			histogram.add((int) shout[0], shout[1], -1);
+		}
+		assertEquals(0, histogram.getNumberOfNodes());
+	}
+
+	public static Test suite() {
+		return new TestSuite(ShoutHistogramTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jasa.market.MarketSimulation;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class VariableBoardTest extends TestCase {
+
+	protected VariableBoard board;
+
+	public VariableBoardTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		board = new VariableBoard();
+	}
+
+	public void testIntern() {
+		int price = board.intern("transaction.price");
+		int spread = board.intern("transaction.price.spread");
+		assertTrue(price != spread);
+		assertEquals(price, board.intern("transaction.price"));
+		assertEquals(spread, board.getId("transaction.price.spread"));
+		assertEquals(-1, board.getId("unknown"));
+		assertEquals("transaction.price", board.getName(price));
+		assertEquals(2, board.getNumVariables());
+		for (int i = 0; i < 3 * VariableBoard.PAGE_SIZE; i++) {
+			assertEquals(i + 2, board.intern("var" + i));
+		}
+		assertEquals(price, board.getId("transaction.price"));
+		assertEquals("var700", board.getName(702));
+	}
+
+	public void testReport() {
+		int id = board.intern("transaction.price");
+		assertFalse(board.isSet(id));
+		assertTrue(Double.isNaN(board.getValue(id)));
+		assertTrue(board.getVarNames().isEmpty());
+		board.report(id, 101.5, 1000L);
+		board.report("equilibrium.price", 100, 1001L);
+		assertTrue(board.isSet(id));
+		assertEquals(101.5, board.getValue(id), 0);
+		assertEquals(1000L, board.getTime(id));
+		assertEquals(100, board.getValue("equilibrium.price"), 0);
+		assertEquals(2, board.getVarNames().size());
+		VariableBoard.Reading reading = new VariableBoard.Reading();
+		assertTrue(board.read(id, reading));
+		assertEquals(101.5, reading.getValue(), 0);
+		assertEquals(1000L, reading.getTime());
+		long version = reading.getVersion();
+		board.reset();
+		assertFalse(board.read(id, reading));
+		assertTrue(reading.getVersion() > version);
+		assertEquals(id, board.getId("transaction.price"));
+		try {
+			board.getValue(board.getNumVariables());
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testBoardPerMarket() {
+		MarketSimulation market1 = new MarketSimulation();
+		MarketSimulation market2 = new MarketSimulation();
+		VariableBoard board1 = VariableBoard.getBoard(market1);
+		assertSame(board1, market1.getVariableBoard());
+		assertNotSame(board1, VariableBoard.getBoard(market2));
+		board1.report("transaction.price", 50, 0L);
+		assertTrue(Double.isNaN(
+				VariableBoard.getBoard(market2).getValue("transaction.price")));
+		assertSame(ReportVariableBoard.getInstance().getBoard(),
+				VariableBoard.getBoard(null));
+	}
+
+	public void testLegacyBoard() {
+		ReportVariableBoard legacy = ReportVariableBoard.getInstance();
+		legacy.reset();
+		assertNull(legacy.getValue("legacy.variable"));
+		legacy.getBoard().report("legacy.variable", 42, 5000L);
+		assertEquals(42.0, 
+				legacy.getValue("legacy.variable").getValue().doubleValue(), 0);
+		assertEquals(5000L, 
+				legacy.getValue("legacy.variable").getPeriod().getStart().getTime());
+		legacy.reset();
+	}
+
+	/**
+	 * A reader must never see the value of one update paired with the time 
+	 * of another.
+	 */
+	public void testConsistentReads() throws InterruptedException {
+		final int id = board.intern("transaction.price");
+		final int numUpdates = 200000;
+		final boolean[] inconsistent = new boolean[1];
+		final int[] numReads = new int[1];
+		Thread reader = new Thread() {
+			public void run() {
+				VariableBoard.Reading reading = new VariableBoard.Reading();
+				long lastVersion = 0;
+				while (lastVersion < 2L * numUpdates) {
+					if (board.read(id, reading)) {
+						if (reading.getValue() != reading.getTime() * 0.5
+								|| reading.getVersion() < lastVersion) {
+							inconsistent[0] = true;
+							return;
+						}
+						lastVersion = reading.getVersion();
+						numReads[0]++;
+					}
+				}
+			}
+		};
+		reader.start();
+		for (long t = 1; t <= numUpdates; t++) {
+			board.report(id, t * 0.5, t);
+		}
+		reader.join(60000);
+		assertFalse(reader.isAlive());
+		assertFalse(inconsistent[0]);
+		assertTrue(numReads[0] > 0);
+		assertEquals(numUpdates * 0.5, board.getValue(id), 0);
+	}
+
+	public static Test suite() {
+		return new TestSuite(VariableBoardTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ColumnarTimeSeriesTest extends TestCase {
+
+	protected File file;
+
+	protected RandomEngine prng;
+
+	public ColumnarTimeSeriesTest(String name) {
+		super(name);
+	}
+
+	public void setUp() throws IOException {
+		file = File.createTempFile("jasa", ColumnarTimeSeriesWriter.FILE_EXTENSION);
+		prng = new MersenneTwister64(42);
+	}
+
+	public void tearDown() {
+		file.delete();
+	}
+
+	public void testRoundTrip() throws IOException {
+		int numRows = 1050;
+		long[] ticks = new long[numRows];
+		double[] prices = new double[numRows];
+		double price = 100;
+		for (int i = 0; i < numRows; i++) {
+			ticks[i] = i * 10 + (i % 7 == 0 ? 3 : 0);
+			price += prng.nextDouble() - 0.5;
+			prices[i] = price;
+		}
+		prices[5] = Double.NaN;
+		prices[6] = Double.POSITIVE_INFINITY;
+		prices[7] = -0.0;
+		prices[8] = Double.MIN_VALUE;
+		prices[9] = prices[10];
+		ColumnarTimeSeriesWriter writer = new ColumnarTimeSeriesWriter(
+				new FileOutputStream(file), new String[] { "t", "price" },
+				new byte[] { ColumnarTimeSeriesWriter.LONG, 
+						ColumnarTimeSeriesWriter.DOUBLE }, 100);
+		for (int i = 0; i < numRows; i++) {
+			writer.append(ticks[i], prices[i]);
+		}
+		writer.newData(1);
+		writer.close();
+		assertEquals(11, writer.getNumBlocks());
+
+		ColumnarTimeSeriesReader reader = new ColumnarTimeSeriesReader(file);
+		assertEquals(numRows, reader.getNumRows());
+		assertEquals(2, reader.getNumColumns());
+		assertEquals("price", reader.getColumnName(1));
+		assertEquals(1, reader.getColumnIndex("price"));
+		assertEquals(ColumnarTimeSeriesWriter.LONG, reader.getColumnType(0));
+		long[] t = reader.readLongColumn(0);
+		double[] p = reader.readDoubleColumn(1);
+		for (int i = 0; i < numRows; i++) {
+			assertEquals(ticks[i], t[i]);
+			assertEquals(Double.doubleToRawLongBits(prices[i]), 
+					Double.doubleToRawLongBits(p[i]));
+		}
+		assertEquals(0, reader.findBlock(Long.MIN_VALUE));
+		assertEquals(3, reader.findBlock(ticks[350]));
+		assertEquals(ticks[300], reader.getBlockFirst(3));
+		assertEquals(50, reader.getBlockNumRows(10));
+		assertEquals(11, reader.findBlock(Long.MAX_VALUE));
+		reader.close();
+
+		assertTrue(file.length() < numRows * 10);
+	}
+
+	public void testExtremeLongs() throws IOException {
+		long[] values = { 0, Long.MAX_VALUE, Long.MIN_VALUE, -1, 1, 
+				Long.MIN_VALUE, Long.MAX_VALUE, 12345678901L, -5 };
+		ColumnarTimeSeriesWriter writer = new ColumnarTimeSeriesWriter(
+				new FileOutputStream(file), new String[] { "n" },
+				new byte[] { ColumnarTimeSeriesWriter.LONG }, 4);
+		for (long value : values) {
+			writer.newData(value);
+		}
+		writer.close();
+		ColumnarTimeSeriesReader reader = new ColumnarTimeSeriesReader(file);
+		long[] result = reader.readLongColumn(0);
+		reader.close();
+		assertEquals(values.length, result.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(values[i], result[i]);
+		}
+	}
+
+	public void testExport() throws IOException {
+		ColumnarTimeSeriesWriter writer = 
+				ColumnarTimeSeriesWriter.timeSeries(file, "t", "price");
+		writer.newData(1);
+		writer.newData(100.5);
+		writer.newData(2);
+		writer.newData(Integer.valueOf(99));
+		writer.close();
+		ColumnarTimeSeriesReader reader = new ColumnarTimeSeriesReader(file);
+		StringWriter out = new StringWriter();
+		ColumnarTimeSeriesExport.export(reader, out);
+		reader.close();
+		assertEquals("t,price\n1,100.5\n2,99.0\n", out.toString());
+	}
+
+	public void testUnclosedFileRejected() throws IOException {
+		ColumnarTimeSeriesWriter writer = 
+				ColumnarTimeSeriesWriter.timeSeries(file, "t", "price");
+		writer.append(1, 1.0);
+		writer.flush();
+		try {
+			new ColumnarTimeSeriesReader(file);
+			fail("Expected a file without a footer to be rejected");
+		} catch (IOException e) {
+		}
+		writer.close();
+	}
+
+	public void testFractionalTickRejected() throws IOException {
+		ColumnarTimeSeriesWriter writer = 
+				ColumnarTimeSeriesWriter.timeSeries(file, "t", "price");
+		writer.newData(2.0);
+		writer.newData(1.5);
+		try {
+			writer.newData(2.5);
+			fail("Expected a fractional tick to be rejected");
+		} catch (IllegalArgumentException e) {
+		}
+		writer.close();
+	}
+
+	public static Test suite() {
+		return new TestSuite(ColumnarTimeSeriesTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}
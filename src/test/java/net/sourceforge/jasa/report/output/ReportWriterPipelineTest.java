@@ -0,0 +1,279 @@
+/*
+ * JASA Java Auction Simulator API
+ * Copyright (C) 2013 Steve Phelps
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 2 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details.
+ */
+
+package net.sourceforge.jasa.report.output;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import net.sourceforge.jabm.report.DataWriter;
+import net.sourceforge.jasa.market.AuctionRuntimeException;
+
+/**
+ * @author Steve Phelps
+ * @version $Revision$
+ */
+public class ReportWriterPipelineTest extends TestCase {
+
+	protected ReportWriterPipeline pipeline;
+
+	protected RecordingWriter target;
+
+	public ReportWriterPipelineTest(String name) {
+		super(name);
+	}
+
+	public void setUp() {
+		pipeline = new ReportWriterPipeline();
+		target = new RecordingWriter();
+	}
+
+	public void tearDown() {
+		pipeline.close();
+	}
+
+	public void testValuesArriveInOrder() {
+		pipeline.setBufferSize(16);
+		target.delayEvery = 100;
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		List<Object> expected = new ArrayList<Object>();
+		for (int i = 0; i < 2000; i++) {
+			writer.newData(i);
+			writer.newData(i * 0.5);
+			writer.newData((long) i << 32);
+			writer.newData(i % 2 == 0);
+			writer.newData("s" + i);
+			expected.addAll(Arrays.asList(new Object[] { 
+					i, i * 0.5, (long) i << 32, i % 2 == 0, "s" + i }));
+		}
+		writer.sync();
+		assertEquals(expected, target.values);
+		assertTrue(writer.getNumStalls() > 0);
+		assertTrue(target.numFlushes > 0);
+	}
+
+	public void testFlushInterval() throws InterruptedException {
+		pipeline.setFlushInterval(0);
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		writer.newData(1);
+		writer.flush();
+		for (int i = 0; i < 5000 && target.numFlushes == 0; i++) {
+			Thread.sleep(1);
+		}
+		assertTrue(target.numFlushes > 0);
+		assertEquals(1, target.values.size());
+
+		pipeline.setFlushInterval(60 * 60 * 1000);
+		writer.sync();
+		int numFlushes = target.numFlushes;
+		writer.newData(2);
+		writer.flush();
+		Thread.sleep(50);
+		assertEquals(numFlushes, target.numFlushes);
+		writer.sync();
+		assertEquals(numFlushes + 1, target.numFlushes);
+		assertEquals(2, target.values.size());
+	}
+
+	public void testErrorRethrown() {
+		target.failAt = 3;
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		for (int i = 0; i < 10; i++) {
+			writer.newData(i);
+		}
+		try {
+			writer.sync();
+			fail("Expected the writer's exception to be rethrown");
+		} catch (AuctionRuntimeException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(3, target.values.size());
+		try {
+			writer.close();
+			fail("Expected the writer's exception to be rethrown");
+		} catch (AuctionRuntimeException e) {
+		}
+		assertTrue(target.closed);
+	}
+
+	public void testSyncResetsFlushInterval() {
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		long before = System.nanoTime();
+		writer.newData(1);
+		writer.sync();
+		assertTrue(writer.lastFlushNanos - before >= 0);
+	}
+
+	public void testAwaitFailsIfPipelineDies() {
+		target.dieOnFlush = true;
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		writer.newData(1);
+		try {
+			writer.sync();
+			fail("Expected sync to fail once the pipeline thread died");
+		} catch (AuctionRuntimeException e) {
+		}
+		assertFalse(pipeline.isAlive());
+		try {
+			pipeline.close();
+			fail("Expected close to report the stalled writer");
+		} catch (AuctionRuntimeException e) {
+		}
+		pipeline = new ReportWriterPipeline();
+	}
+
+	public void testPutFailsIfPipelineDies() {
+		target.dieOnNewData = true;
+		pipeline.setBufferSize(16);
+		AsyncDataWriter writer = pipeline.createWriter(target);
+		try {
+			for (int i = 0; i < 100000; i++) {
+				writer.newData(i);
+			}
+			fail("Expected a full buffer to fail once the pipeline died");
+		} catch (AuctionRuntimeException e) {
+		}
+		try {
+			pipeline.close();
+			fail("Expected close to report the stalled writer");
+		} catch (AuctionRuntimeException e) {
+		}
+		pipeline = new ReportWriterPipeline();
+	}
+
+	public void testClose() {
+		AsyncDataWriter first = pipeline.createWriter(target);
+		RecordingWriter secondTarget = new RecordingWriter();
+		AsyncDataWriter second = pipeline.createWriter(secondTarget);
+		first.newData(1);
+		second.newData(2);
+		first.close();
+		assertTrue(target.closed);
+		assertFalse(secondTarget.closed);
+		pipeline.close();
+		assertTrue(secondTarget.closed);
+		assertEquals(0, pipeline.getNumWriters());
+		assertEquals(Arrays.asList(new Object[] { 2 }), secondTarget.values);
+		try {
+			second.newData(3);
+			fail("Expected a closed writer to refuse data");
+		} catch (AuctionRuntimeException e) {
+		}
+	}
+
+	/**
+	 * A DataWriter which records the values written to it.
+	 */
+	public static class RecordingWriter implements DataWriter {
+
+		protected List<Object> values = new ArrayList<Object>();
+
+		protected volatile int numFlushes;
+
+		protected boolean closed;
+
+		protected int delayEvery = 0;
+
+		protected int failAt = -1;
+
+		protected boolean dieOnFlush;
+
+		protected boolean dieOnNewData;
+
+		protected void record(Object value) {
+			if (dieOnNewData) {
+				throw new Error("Writer thread died");
+			}
+			if (values.size() == failAt) {
+				throw new IllegalStateException("Failed at " + failAt);
+			}
+			values.add(value);
+			if (delayEvery > 0 && values.size() % delayEvery == 0) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		public void newData(double datum) {
+			record(datum);
+		}
+
+		public void newData(int datum) {
+			record(datum);
+		}
+
+		public void newData(long datum) {
+			record(datum);
+		}
+
+		public void newData(boolean datum) {
+			record(datum);
+		}
+
+		public void newData(Object datum) {
+			record(datum);
+		}
+
+		public void newData(Object[] data) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void newData(double[] data) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void newData(int[] data) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void newData(Double datum) {
+			record(datum);
+		}
+
+		public void newData(Integer datum) {
+			record(datum);
+		}
+
+		public void newData(Long datum) {
+			record(datum);
+		}
+
+		public void flush() {
+			if (dieOnFlush) {
+				throw new Error("Writer thread died");
+			}
+			numFlushes++;
+		}
+
+		public void close() {
+			closed = true;
+		}
+	}
+
+	public static Test suite() {
+		return new TestSuite(ReportWriterPipelineTest.class);
+	}
+
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(suite());
+	}
+}